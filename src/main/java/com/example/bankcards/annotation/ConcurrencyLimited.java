@@ -0,0 +1,24 @@
+package com.example.bankcards.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Вызов проходит через общий адаптивный лимит параллельности (см. AdaptiveConcurrencyLimiter).
+// Сверх лимита — 503 сразу; платежи могут недолго подождать слота, чтения уступают им место.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConcurrencyLimited {
+
+    Priority value() default Priority.NORMAL;
+
+    enum Priority {
+        // Платежи: весь лимит и короткая очередь ожидания
+        CRITICAL,
+        // Прочие изменения: весь лимит, без ожидания и только если платежи не ждут
+        NORMAL,
+        // Чтения: только доля лимита, без ожидания
+        LOW
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Повтор всей транзакции на транзиентных ошибках БД (см. TxRetryExecutor).
+// Действует только на внешнем вызове: внутри уже открытой транзакции метод выполняется один раз.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryableTx {
+    // Имя операции в метриках; по умолчанию Class.method
+    String value() default "";
+}
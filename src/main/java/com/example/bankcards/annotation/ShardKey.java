@@ -0,0 +1,13 @@
+package com.example.bankcards.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Параметр, по которому выбирается шард на время вызова: id пользователя/карты/перевода (Long)
+// или username (String). Ставится на метод реализации; привязка происходит до открытия транзакции.
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardKey {
+}
@@ -0,0 +1,22 @@
+package com.example.bankcards.config;
+
+// Класс нагрузки текущего потока для BulkheadRoutingDataSource: потоки планировщика помечаются
+// один раз при создании (SchedulingConfig), остальные считаются веб-запросами
+public final class BulkheadContext {
+
+    private static final ThreadLocal<Boolean> SCHEDULER = new ThreadLocal<>();
+
+    private BulkheadContext() {}
+
+    public static void markSchedulerThread() {
+        SCHEDULER.set(Boolean.TRUE);
+    }
+
+    public static boolean isSchedulerThread() {
+        return SCHEDULER.get() != null;
+    }
+
+    static void clear() {
+        SCHEDULER.remove();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.config.properties.DataSourceBulkheadProperties;
+import com.example.bankcards.config.properties.ReplicaProperties;
+import com.example.bankcards.config.properties.ShardingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseDataSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Включается app.datasource.bulkheads.enabled=true: три пула к одной БД — планировщик, веб-чтение и веб-запись.
+// Всплеск планировщика или долгая выгрузка выбирают только свой пул и не отнимают соединения у платежей.
+// Метрики Hikari (hikaricp.connections.*) размечены именем пула; db.bulkhead.saturation — (active + pending) / max.
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.bulkheads", name = "enabled", havingValue = "true")
+public class BulkheadRoutingConfig {
+
+    @Bean
+    public HikariDataSource schedulerDataSource(DataSourceProperties dsProps, DataSourceBulkheadProperties props) {
+        return pool("scheduler", dsProps, props.getScheduler());
+    }
+
+    @Bean
+    public HikariDataSource readDataSource(DataSourceProperties dsProps, DataSourceBulkheadProperties props) {
+        HikariDataSource ds = pool("web-read", dsProps, props.getRead());
+        ds.setReadOnly(true);
+        return ds;
+    }
+
+    @Bean
+    @LiquibaseDataSource
+    public HikariDataSource writeDataSource(DataSourceProperties dsProps, DataSourceBulkheadProperties props) {
+        return pool("web-write", dsProps, props.getWrite());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("schedulerDataSource") HikariDataSource schedulerDataSource,
+                                 @Qualifier("readDataSource") HikariDataSource readDataSource,
+                                 @Qualifier("writeDataSource") HikariDataSource writeDataSource,
+                                 ReplicaProperties replicaProps,
+                                 ShardingProperties shardingProps,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        if (replicaProps.isEnabled() || shardingProps.isEnabled()) {
+            throw new IllegalStateException("app.datasource.bulkheads cannot be enabled together with replica or sharding");
+        }
+        BulkheadRoutingDataSource routing = new BulkheadRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                BulkheadRoutingDataSource.Bulkhead.SCHEDULER, schedulerDataSource,
+                BulkheadRoutingDataSource.Bulkhead.READ, readDataSource,
+                BulkheadRoutingDataSource.Bulkhead.WRITE, writeDataSource));
+        routing.setDefaultTargetDataSource(writeDataSource);
+        routing.afterPropertiesSet();
+
+        meterRegistry.ifAvailable(registry -> {
+            saturation(registry, schedulerDataSource);
+            saturation(registry, readDataSource);
+            saturation(registry, writeDataSource);
+        });
+        log.info("DataSource bulkheads: scheduler={}, read={}, write={}", schedulerDataSource.getMaximumPoolSize(),
+                readDataSource.getMaximumPoolSize(), writeDataSource.getMaximumPoolSize());
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private static HikariDataSource pool(String name, DataSourceProperties dsProps, DataSourceBulkheadProperties.Pool pool) {
+        HikariDataSource ds = dsProps.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName(name);
+        ds.setMaximumPoolSize(pool.getMaximumPoolSize());
+        ds.setMinimumIdle(pool.getMinimumIdle() != null ? pool.getMinimumIdle() : pool.getMaximumPoolSize());
+        ds.setConnectionTimeout(pool.getConnectionTimeout().toMillis());
+        return ds;
+    }
+
+    private static void saturation(MeterRegistry registry, HikariDataSource ds) {
+        registry.gauge("db.bulkhead.saturation", Tags.of("pool", ds.getPoolName()), ds, d -> {
+            HikariPoolMXBean pool = d.getHikariPoolMXBean();
+            if (pool == null) return 0;
+            return (double) (pool.getActiveConnections() + pool.getThreadsAwaitingConnection()) / d.getMaximumPoolSize();
+        });
+    }
+}
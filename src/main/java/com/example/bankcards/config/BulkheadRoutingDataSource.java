@@ -0,0 +1,17 @@
+package com.example.bankcards.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Поток планировщика -> scheduler, readOnly-транзакция -> read, всё остальное -> write.
+// Как и ReplicaRoutingDataSource, работает только за LazyConnectionDataSourceProxy: флаг readOnly выставляется после doBegin.
+public class BulkheadRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Bulkhead { SCHEDULER, READ, WRITE }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (BulkheadContext.isSchedulerThread()) return Bulkhead.SCHEDULER;
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Bulkhead.READ : Bulkhead.WRITE;
+    }
+}
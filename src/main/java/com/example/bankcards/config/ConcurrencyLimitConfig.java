@@ -0,0 +1,29 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.annotation.ConcurrencyLimited;
+import com.example.bankcards.service.AdaptiveConcurrencyLimiter;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class ConcurrencyLimitConfig {
+
+    // Снаружи всех остальных советов (в том числе @PreAuthorize и валидации): отказ по лимиту
+    // не тратит на запрос ничего, а замер задержки покрывает всю работу обработчика
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor concurrencyLimitAdvisor(ObjectProvider<AdaptiveConcurrencyLimiter> limiter) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                new AnnotationMatchingPointcut(null, ConcurrencyLimited.class, true),
+                new ConcurrencyLimitInterceptor(limiter));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.annotation.ConcurrencyLimited;
+import com.example.bankcards.service.AdaptiveConcurrencyLimiter;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ConcurrencyLimitInterceptor implements MethodInterceptor {
+
+    private final ObjectProvider<AdaptiveConcurrencyLimiter> limiter;
+    private final Map<Method, ConcurrencyLimited.Priority> priorities = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimitInterceptor(ObjectProvider<AdaptiveConcurrencyLimiter> limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        AdaptiveConcurrencyLimiter l = limiter.getObject();
+        if (!l.isEnabled()) return invocation.proceed();
+
+        l.acquire(priorities.computeIfAbsent(invocation.getMethod(), m -> priority(invocation)));
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            l.release(System.nanoTime() - start);
+        }
+    }
+
+    private static ConcurrencyLimited.Priority priority(MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+        Class<?> targetClass = invocation.getThis() != null
+                ? ClassUtils.getUserClass(invocation.getThis())
+                : method.getDeclaringClass();
+        Method specific = ClassUtils.getMostSpecificMethod(method, targetClass);
+        ConcurrencyLimited ann = AnnotatedElementUtils.findMergedAnnotation(specific, ConcurrencyLimited.class);
+        return ann != null ? ann.value() : ConcurrencyLimited.Priority.NORMAL;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.bankcards.config;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Состояние запроса для read-your-writes: токен клиента, вердикт по реплике, факт записи в primary
+public final class ConsistencyContext {
+
+    public static final String HEADER = "X-Consistency-Token";
+
+    private static final ThreadLocal<State> STATE = new ThreadLocal<>();
+
+    private static final class State {
+        final String token;
+        final Consumer<String> publisher;
+        Boolean replicaAllowed;
+        boolean wrote;
+        boolean publishPending;
+
+        State(String token, Consumer<String> publisher) {
+            this.token = token;
+            this.publisher = publisher;
+        }
+    }
+
+    private ConsistencyContext() {}
+
+    public static void begin(String token) {
+        begin(token, null);
+    }
+
+    // publisher получает новый токен после каждой зафиксированной записи (заголовок ответа)
+    public static void begin(String token, Consumer<String> publisher) {
+        STATE.set(new State(token == null || token.isBlank() ? null : token.trim(), publisher));
+    }
+
+    public static void clear() {
+        STATE.remove();
+    }
+
+    static String token() {
+        State s = STATE.get();
+        return s == null ? null : s.token;
+    }
+
+    // Проверка реплики выполняется один раз на запрос: догнала — дальше читаем с неё
+    static boolean replicaAllowed(BooleanSupplier check) {
+        State s = STATE.get();
+        if (s == null || s.token == null) return true;
+        if (s.replicaAllowed == null) s.replicaAllowed = check.getAsBoolean();
+        return s.replicaAllowed;
+    }
+
+    static void markWrite() {
+        State s = STATE.get();
+        if (s != null) s.wrote = true;
+    }
+
+    // true — вызывающий регистрирует публикацию токена после завершения транзакции; одна на транзакцию
+    static boolean schedulePublish() {
+        State s = STATE.get();
+        if (s == null || s.publisher == null || s.publishPending) return false;
+        s.publishPending = true;
+        return true;
+    }
+
+    static void publish(boolean committed, Supplier<String> lsn) {
+        State s = STATE.get();
+        if (s == null || !s.publishPending) return;
+        s.publishPending = false;
+        if (!committed) return;
+        String token = lsn.get();
+        if (token != null) s.publisher.accept(token);
+    }
+
+    static boolean wrote() {
+        State s = STATE.get();
+        return s != null && s.wrote;
+    }
+}
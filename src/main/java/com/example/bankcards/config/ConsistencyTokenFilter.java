@@ -0,0 +1,27 @@
+package com.example.bankcards.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+public class ConsistencyTokenFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req,
+                                    HttpServletResponse res,
+                                    FilterChain chain) throws ServletException, IOException {
+        // Токен ставится сразу после коммита записи, пока ответ не начат, — и у ответов без тела (204)
+        ConsistencyContext.begin(req.getHeader(ConsistencyContext.HEADER), lsn -> {
+            if (!res.isCommitted()) res.setHeader(ConsistencyContext.HEADER, lsn);
+        });
+        try {
+            chain.doFilter(req, res);
+        } finally {
+            ConsistencyContext.clear();
+        }
+    }
+}
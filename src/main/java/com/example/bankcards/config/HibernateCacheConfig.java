@@ -0,0 +1,38 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.config.properties.EntityCacheProperties;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class HibernateCacheConfig {
+
+    private static final String CLASS_CACHE = "hibernate.classcache.";
+    private static final String COLLECTION_CACHE = "hibernate.collectioncache.";
+
+    private final EntityCacheProperties props;
+
+    // READ_WRITE: кэш-записи несут @Version сущности, устаревшая версия не перезапишет свежую.
+    // Card кэшируется целиком, вместе с balance: нативные обновления баланса (executeImmediate, писатель
+    // IN_MEMORY) сами вычищают карты из региона cards, иначе чтение по id вернёт старый баланс
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer() {
+        return hp -> {
+            if (props.isUserEnabled()) {
+                hp.put(CLASS_CACHE + User.class.getName(), "read-write,users");
+                hp.put(COLLECTION_CACHE + User.class.getName() + ".roles", "read-write,user-roles");
+            }
+            if (props.isCardEnabled()) {
+                hp.put(CLASS_CACHE + Card.class.getName(), "read-write,cards");
+            }
+            log.info("Second-level cache regions: users={}, cards={}", props.isUserEnabled(), props.isCardEnabled());
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.bankcards.config;
+
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+// Ключи MDC, которые JSON-лог выводит полями, и маркер строк «на каждый перевод»:
+// такие строки прореживает SampledLogFilter, чтобы пик переводов не упирался в логирование
+public final class LogContext {
+
+    public static final String REQUEST_ID = "requestId";
+    public static final String USER_ID = "userId";
+    public static final String TRANSFER_ID = "transferId";
+
+    public static final Marker SAMPLED = MarkerFactory.getMarker("SAMPLED");
+
+    private LogContext() {}
+
+    public static MDC.MDCCloseable transfer(Long transferId) {
+        return MDC.putCloseable(TRANSFER_ID, String.valueOf(transferId));
+    }
+
+    static void clear() {
+        MDC.remove(REQUEST_ID);
+        MDC.remove(USER_ID);
+        MDC.remove(TRANSFER_ID);
+    }
+}
@@ -1,16 +1,38 @@
 package com.example.bankcards.config;
 
 
+import com.example.bankcards.config.properties.PasswordHashProperties;
+import com.example.bankcards.security.crypto.BoundedPasswordEncoder;
+import com.example.bankcards.security.crypto.PasswordHashPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.Map;
 
 @Configuration
 public class PasswordEncoderConfig {
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordHashPolicy passwordHashPolicy(PasswordHashProperties props, MeterRegistry meterRegistry) {
+        PasswordHashPolicy policy = PasswordHashPolicy.from(props);
+        meterRegistry.gauge("auth.password.hash.cost", Tags.empty(), policy, PasswordHashPolicy::bcryptCost);
+        return policy;
+    }
+
+    // Новые хэши — {encodingId}...; старые без префикса проверяются как BCrypt и
+    // вместе с хэшами другой стоимости/алгоритма перехэшируются при успешном входе
+    @Bean(destroyMethod = "shutdown")
+    public PasswordEncoder passwordEncoder(PasswordHashPolicy policy, PasswordHashProperties props, MeterRegistry meterRegistry) {
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(policy.encodingId(), Map.of(
+                "bcrypt", new BCryptPasswordEncoder(policy.bcryptCost()),
+                "pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8()));
+        delegating.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return new BoundedPasswordEncoder(delegating, props, meterRegistry);
     }
-}
\ No newline at end of file
+}
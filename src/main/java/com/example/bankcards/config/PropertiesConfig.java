@@ -12,5 +12,19 @@ import org.springframework.context.annotation.Configuration;
         TransfersProperties.class,
         TransfersSchedulerProperties.class,
         AuthRateLimitProperties.class,
+        IdempotencyProperties.class,
+        CardListingCacheProperties.class,
+        EntityCacheProperties.class,
+        TxRetryProperties.class,
+        ReplicaProperties.class,
+        ShardingProperties.class,
+        InMemoryLedgerProperties.class,
+        TransferJournalProperties.class,
+        PasswordHashProperties.class,
+        TokenRevocationProperties.class,
+        UserRateLimitProperties.class,
+        ConcurrencyLimitProperties.class,
+        DataSourceBulkheadProperties.class,
+        AuditProperties.class,
 })
 public class PropertiesConfig {}
\ No newline at end of file
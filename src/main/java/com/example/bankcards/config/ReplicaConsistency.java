@@ -0,0 +1,51 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.config.properties.ReplicaProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.regex.Pattern;
+
+// LSN-токены: позиция WAL primary после записи и проверка, что реплика её уже проиграла
+@Slf4j
+@RequiredArgsConstructor
+public class ReplicaConsistency {
+
+    private static final Pattern LSN = Pattern.compile("[0-9A-Fa-f]{1,8}/[0-9A-Fa-f]{1,8}");
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final ReplicaProperties props;
+
+    public String currentPrimaryLsn() {
+        return primary.queryForObject("SELECT pg_current_wal_lsn()::text", String.class);
+    }
+
+    // false -> читать с primary: режим PRIMARY, битый токен, реплика не догнала за maxWait или недоступна.
+    // На сервере не в recovery pg_last_wal_replay_lsn() = NULL, такой «реплике» токен не доверяем.
+    boolean replicaCaughtUp(String token) {
+        if (props.getTokenMode() == ReplicaProperties.TokenMode.PRIMARY) return false;
+        if (!LSN.matcher(token).matches()) {
+            log.debug("Malformed consistency token '{}', routing to primary", token);
+            return false;
+        }
+        long deadline = System.nanoTime() + props.getMaxWait().toNanos();
+        try {
+            while (true) {
+                Boolean ok = replica.queryForObject(
+                        "SELECT pg_last_wal_replay_lsn() >= CAST(? AS pg_lsn)", Boolean.class, token);
+                if (Boolean.TRUE.equals(ok)) return true;
+                if (System.nanoTime() >= deadline) return false;
+                Thread.sleep(Math.max(1, props.getPollInterval().toMillis()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (DataAccessException e) {
+            log.warn("Replica lag check failed, routing to primary: {}", e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.config.properties.ReplicaProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseDataSource;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Включается app.datasource.replica.enabled=true; без него работает автоконфигурация Boot с одним пулом
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    @LiquibaseDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dsProps) {
+        HikariDataSource ds = dsProps.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName("primary");
+        return ds;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(DataSourceProperties dsProps, ReplicaProperties props) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setPoolName("replica");
+        ds.setJdbcUrl(props.getUrl());
+        ds.setUsername(blank(props.getUsername()) ? dsProps.determineUsername() : props.getUsername());
+        ds.setPassword(blank(props.getPassword()) ? dsProps.determinePassword() : props.getPassword());
+        ds.setMaximumPoolSize(props.getMaximumPoolSize());
+        ds.setReadOnly(true);
+        return ds;
+    }
+
+    @Bean
+    public ReplicaConsistency replicaConsistency(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                                 @Qualifier("replicaDataSource") HikariDataSource replicaDataSource,
+                                                 ReplicaProperties props) {
+        return new ReplicaConsistency(new JdbcTemplate(primaryDataSource), new JdbcTemplate(replicaDataSource), props);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") HikariDataSource replicaDataSource,
+                                 ReplicaConsistency consistency) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(consistency);
+        routing.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.Target.PRIMARY, primaryDataSource,
+                ReplicaRoutingDataSource.Target.REPLICA, replicaDataSource));
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        log.info("Read-only transactions routed to replica {}", replicaDataSource.getJdbcUrl());
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Bean
+    public ConsistencyTokenFilter consistencyTokenFilter() {
+        return new ConsistencyTokenFilter();
+    }
+
+    private static boolean blank(String s) {
+        return s == null || s.isBlank();
+    }
+}
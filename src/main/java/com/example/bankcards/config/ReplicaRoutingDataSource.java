@@ -0,0 +1,49 @@
+package com.example.bankcards.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// readOnly-транзакции -> реплика (если токен клиента не требует primary), всё остальное -> primary.
+// Работает только за LazyConnectionDataSourceProxy: флаг readOnly выставляется после doBegin.
+@Slf4j
+@RequiredArgsConstructor
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target { PRIMARY, REPLICA }
+
+    private final ReplicaConsistency consistency;
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            ConsistencyContext.markWrite();
+            if (TransactionSynchronizationManager.isSynchronizationActive() && ConsistencyContext.schedulePublish()) {
+                // afterCompletion, а не afterCommit: синхронизация уже снята, запрос LSN не привяжется к транзакции
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        ConsistencyContext.publish(status == STATUS_COMMITTED, ReplicaRoutingDataSource.this::primaryLsn);
+                    }
+                });
+            }
+            return Target.PRIMARY;
+        }
+        String token = ConsistencyContext.token();
+        boolean replica = token == null || ConsistencyContext.replicaAllowed(() -> consistency.replicaCaughtUp(token));
+        return replica ? Target.REPLICA : Target.PRIMARY;
+    }
+
+    // После коммита отдаём клиенту LSN primary: с ним последующие чтения не увидят реплику «из прошлого»
+    private String primaryLsn() {
+        try {
+            return consistency.currentPrimaryLsn();
+        } catch (DataAccessException e) {
+            log.warn("Failed to read primary LSN for consistency token: {}", e.getMessage());
+            return null;
+        }
+    }
+}
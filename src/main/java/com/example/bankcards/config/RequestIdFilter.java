@@ -0,0 +1,43 @@
+package com.example.bankcards.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+// Самый внешний фильтр: requestId в MDC (из X-Request-Id клиента или новый) и в ответ;
+// по выходу чистит весь контекст запроса, включая userId от JwtFilter
+public class RequestIdFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Request-Id";
+    private static final Pattern VALID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req,
+                                    HttpServletResponse res,
+                                    FilterChain chain) throws ServletException, IOException {
+        String requestId = req.getHeader(HEADER);
+        if (requestId == null || !VALID.matcher(requestId).matches()) {
+            requestId = newId();
+        }
+        MDC.put(LogContext.REQUEST_ID, requestId);
+        res.setHeader(HEADER, requestId);
+        try {
+            chain.doFilter(req, res);
+        } finally {
+            LogContext.clear();
+        }
+    }
+
+    // UUID.randomUUID() ходит в SecureRandom — для корреляции логов хватает ThreadLocalRandom
+    static String newId() {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        return Long.toHexString(rnd.nextLong() | Long.MIN_VALUE) + Long.toHexString(rnd.nextLong() | Long.MIN_VALUE);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.annotation.RetryableTx;
+import com.example.bankcards.service.TxRetryExecutor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class RetryConfig {
+
+    // Инфраструктурная роль — чтобы advisor подхватил тот же auto-proxy creator, что и @Transactional.
+    // Наивысший приоритет: повтор оборачивает TransactionInterceptor, а не наоборот.
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor retryableTxAdvisor(ObjectProvider<TxRetryExecutor> executor) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                new AnnotationMatchingPointcut(null, RetryableTx.class, true),
+                new RetryableTxInterceptor(executor));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+}
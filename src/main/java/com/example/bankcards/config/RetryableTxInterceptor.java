@@ -0,0 +1,59 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.annotation.RetryableTx;
+import com.example.bankcards.service.TxRetryExecutor;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+
+public class RetryableTxInterceptor implements MethodInterceptor {
+
+    private final ObjectProvider<TxRetryExecutor> executor;
+
+    public RetryableTxInterceptor(ObjectProvider<TxRetryExecutor> executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String operation = operation(invocation);
+        try {
+            return executor.getObject().execute(operation, () -> {
+                try {
+                    // Каждая попытка проходит остаток цепочки заново, включая TransactionInterceptor
+                    return invocation instanceof ProxyMethodInvocation pmi
+                            ? pmi.invocableClone().proceed()
+                            : invocation.proceed();
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new CheckedWrapper(t);
+                }
+            });
+        } catch (CheckedWrapper w) {
+            throw w.getCause();
+        }
+    }
+
+    private static String operation(MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+        Class<?> targetClass = invocation.getThis() != null
+                ? ClassUtils.getUserClass(invocation.getThis())
+                : method.getDeclaringClass();
+        Method specific = ClassUtils.getMostSpecificMethod(method, targetClass);
+        RetryableTx ann = AnnotatedElementUtils.findMergedAnnotation(specific, RetryableTx.class);
+        if (ann != null && !ann.value().isBlank()) return ann.value();
+        return targetClass.getSimpleName() + "." + method.getName();
+    }
+
+    private static final class CheckedWrapper extends RuntimeException {
+        CheckedWrapper(Throwable cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.bankcards.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Turbo-фильтр logback: строки с маркером LogContext.SAMPLED ниже WARN пропускаются не чаще
+// ratePerSecond в секунду, остальные отбрасываются до форматирования сообщения.
+// Раз в окно пишется одна строка с числом отброшенных; WARN и ERROR не прореживаются.
+public class SampledLogFilter extends TurboFilter {
+
+    private static final org.slf4j.Logger log = LoggerFactory.getLogger(SampledLogFilter.class);
+
+    private int ratePerSecond = 100;
+
+    private final AtomicLong window = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicInteger passed = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final AtomicLong droppedTotal = new AtomicLong();
+
+    public void setRatePerSecond(int ratePerSecond) {
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    public long droppedTotal() {
+        return droppedTotal.get();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (marker == null || !marker.contains(LogContext.SAMPLED)) return FilterReply.NEUTRAL;
+        if (level.isGreaterOrEqual(Level.WARN)) return FilterReply.NEUTRAL;
+        // Выключенный уровень не тратит квоту — его отсечёт сам логгер
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) return FilterReply.NEUTRAL;
+        return sample(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime()));
+    }
+
+    FilterReply sample(long nowSeconds) {
+        long w = window.get();
+        if (w != nowSeconds && window.compareAndSet(w, nowSeconds)) {
+            passed.set(0);
+            int skipped = dropped.getAndSet(0);
+            if (skipped > 0) log.info("Sampling dropped {} per-transfer log lines", skipped);
+        }
+        if (passed.incrementAndGet() <= ratePerSecond) return FilterReply.NEUTRAL;
+        dropped.incrementAndGet();
+        droppedTotal.incrementAndGet();
+        return FilterReply.DENY;
+    }
+}
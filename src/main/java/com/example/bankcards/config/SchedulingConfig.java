@@ -6,6 +6,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 @Configuration
@@ -16,8 +17,13 @@ public class SchedulingConfig {
     @Bean
     public TaskScheduler taskScheduler() {
         ThreadPoolTaskScheduler ts = new ThreadPoolTaskScheduler();
-        ts.setPoolSize(1);
-        ts.setThreadNamePrefix("transfers-");
+        ts.setPoolSize(2);
+        // Потоки планировщика помечены для BulkheadRoutingDataSource: их транзакции идут в отдельный пул
+        CustomizableThreadFactory names = new CustomizableThreadFactory("transfers-");
+        ts.setThreadFactory(r -> names.newThread(() -> {
+            BulkheadContext.markSchedulerThread();
+            r.run();
+        }));
         ts.initialize();
         return ts;
     }
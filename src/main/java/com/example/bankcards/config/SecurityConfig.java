@@ -3,6 +3,7 @@ package com.example.bankcards.config;
 import com.example.bankcards.config.properties.CorsProperties;
 import com.example.bankcards.security.AuthRateLimitFilter;
 import com.example.bankcards.security.RestAuthEntryPoint;
+import com.example.bankcards.security.UserRateLimitFilter;
 import com.example.bankcards.security.jwt.JwtFilter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
@@ -31,9 +32,19 @@ import java.util.Optional;
 @EnableMethodSecurity
 public class SecurityConfig {
 
+    // Общий с RequestClassifier: эти пути минуют JWT и rate limit
+    public static final String[] DOCS_WHITELIST = {
+            "/v3/api-docs",
+            "/v3/api-docs.yaml",
+            "/v3/api-docs/**",
+            "/swagger-ui/**",
+            "/swagger-ui.html"
+    };
+
     private final JwtFilter jwtFilter;
     private final RestAuthEntryPoint authEntryPoint;
     private final AuthRateLimitFilter authRateLimitFilter;
+    private final UserRateLimitFilter userRateLimitFilter;
     private final CorsProperties corsProps;
 
     @Bean
@@ -52,18 +63,16 @@ public class SecurityConfig {
                         .accessDeniedHandler(accessDeniedHandler))
                 .authorizeHttpRequests(auth -> auth
                         // --- Swagger & OpenAPI docs (всегда открыты) ---
-                        .requestMatchers(
-                                "/v3/api-docs",
-                                "/v3/api-docs.yaml",
-                                "/v3/api-docs/**",
-                                "/swagger-ui/**",
-                                "/swagger-ui.html"
-                        ).permitAll()
+                        .requestMatchers(DOCS_WHITELIST).permitAll()
 
                         // --- Auth endpoints ---
-                        .requestMatchers(HttpMethod.POST, "/api/auth/login", "/api/auth/register").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/auth/login", "/api/auth/register", "/api/auth/refresh").permitAll()
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
 
+                        // --- Actuator: health открыт для проб, метрики (пулы, статистика Hibernate) — только админу ---
+                        .requestMatchers(HttpMethod.GET, "/actuator/health", "/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
+
                         // --- Прочее ---
                         .requestMatchers(HttpMethod.GET, "/api/auth/me").authenticated()
                         .anyRequest().authenticated()
@@ -98,6 +107,8 @@ public class SecurityConfig {
         // --- Filters ---
         http.addFilterBefore(authRateLimitFilter, UsernamePasswordAuthenticationFilter.class);
         http.addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
+        // Тот же order, что у JwtFilter: порядок добавления сохраняется, квоты проверяются после него
+        http.addFilterBefore(userRateLimitFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
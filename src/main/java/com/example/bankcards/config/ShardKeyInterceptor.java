@@ -0,0 +1,83 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.annotation.ShardKey;
+import com.example.bankcards.service.ShardRouter;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.function.Supplier;
+
+public class ShardKeyInterceptor implements MethodInterceptor {
+
+    private final ObjectProvider<ShardRouter> router;
+
+    public ShardKeyInterceptor(ObjectProvider<ShardRouter> router) {
+        this.router = router;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = specific(invocation.getMethod(),
+                invocation.getThis() != null ? ClassUtils.getUserClass(invocation.getThis()) : null);
+        int index = shardKeyIndex(method);
+        Object key = index >= 0 ? invocation.getArguments()[index] : null;
+        if (key == null) return invocation.proceed();
+
+        ShardRouter r = router.getObject();
+        int shard = key instanceof Number n ? r.shardForId(n.longValue()) : r.shardForUsername(key.toString());
+        Integer current = ShardContext.current();
+        // Открытая транзакция держит соединение другого шарда (admin-действие под ключом идемпотентности
+        // админа) — вызов уходит в собственную транзакцию целевого шарда
+        boolean crossShardTx = current != null && current != shard
+                && TransactionSynchronizationManager.isActualTransactionActive();
+        Supplier<Object> call = () -> {
+            try {
+                return invocation.proceed();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new CheckedWrapper(t);
+            }
+        };
+        try {
+            return crossShardTx ? r.onShardInNewTx(shard, call) : ShardContext.call(shard, call);
+        } catch (CheckedWrapper w) {
+            throw w.getCause();
+        }
+    }
+
+    public static StaticMethodMatcherPointcut pointcut() {
+        return new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return shardKeyIndex(specific(method, targetClass)) >= 0;
+            }
+        };
+    }
+
+    private static Method specific(Method method, Class<?> targetClass) {
+        return targetClass != null ? ClassUtils.getMostSpecificMethod(method, targetClass) : method;
+    }
+
+    private static int shardKeyIndex(Method method) {
+        Annotation[][] params = method.getParameterAnnotations();
+        for (int i = 0; i < params.length; i++) {
+            for (Annotation a : params[i]) {
+                if (a.annotationType() == ShardKey.class) return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class CheckedWrapper extends RuntimeException {
+        CheckedWrapper(Throwable cause) {
+            super(cause);
+        }
+    }
+}
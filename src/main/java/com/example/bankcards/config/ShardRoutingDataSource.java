@@ -0,0 +1,13 @@
+package com.example.bankcards.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+// Шард выбирается при первом обращении транзакции к БД (за LazyConnectionDataSourceProxy)
+// и дальше не меняется: межшардовых транзакций нет, каждая ограничена данными одного пользователя
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
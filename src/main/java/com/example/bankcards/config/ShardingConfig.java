@@ -0,0 +1,143 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.config.properties.ReplicaProperties;
+import com.example.bankcards.config.properties.ShardingProperties;
+import com.example.bankcards.service.ShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Включается app.sharding.enabled=true: по пулу Hikari на шард, маршрутизация по ShardContext,
+// миграции Liquibase на каждом шарде с параметрами shard.index/shard.count
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    // Сразу за RetryableTx и до TransactionInterceptor: шард должен быть привязан до первого запроса транзакции
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor shardKeyAdvisor(ObjectProvider<ShardRouter> router) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                ShardKeyInterceptor.pointcut(), new ShardKeyInterceptor(router));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return advisor;
+    }
+
+    // Пулы шардов; закрываются вместе с контекстом (AutoCloseable)
+    public record ShardDataSources(List<HikariDataSource> pools) implements AutoCloseable {
+        @Override
+        public void close() {
+            pools.forEach(HikariDataSource::close);
+        }
+    }
+
+    @Bean
+    public ShardDataSources shardDataSources(ShardingProperties props,
+                                             ReplicaProperties replicaProps,
+                                             DataSourceProperties dsProps,
+                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        if (replicaProps.isEnabled()) {
+            throw new IllegalStateException("app.sharding and app.datasource.replica cannot be enabled together");
+        }
+        if (props.getShards().isEmpty()) {
+            throw new IllegalStateException("app.sharding.enabled=true requires at least one app.sharding.shards entry");
+        }
+        List<HikariDataSource> pools = new ArrayList<>();
+        for (int i = 0; i < props.getShards().size(); i++) {
+            ShardingProperties.Shard shard = props.getShards().get(i);
+            HikariDataSource ds = new HikariDataSource();
+            ds.setPoolName("shard-" + i);
+            ds.setJdbcUrl(shard.getUrl());
+            ds.setUsername(blank(shard.getUsername()) ? dsProps.determineUsername() : shard.getUsername());
+            ds.setPassword(blank(shard.getPassword()) ? dsProps.determinePassword() : shard.getPassword());
+            ds.setMaximumPoolSize(shard.getMaximumPoolSize());
+            meterRegistry.ifAvailable(ds::setMetricRegistry);
+            pools.add(ds);
+        }
+        return new ShardDataSources(List.copyOf(pools));
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shardDataSources) {
+        List<HikariDataSource> pools = shardDataSources.pools();
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < pools.size(); i++) {
+            targets.put(i, pools.get(i));
+        }
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        // Непривязанные обращения (старт Hibernate, служебные запросы) идут в шард 0
+        routing.setDefaultTargetDataSource(pools.get(0));
+        routing.setLenientFallback(false);
+        routing.afterPropertiesSet();
+        log.info("Sharding enabled: {} shards", pools.size());
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    // Последовательности на шардах идут с шагом N — не сверяем шаг с allocationSize сущностей
+    @Bean
+    public HibernatePropertiesCustomizer shardSequenceCustomizer() {
+        return hp -> hp.put("hibernate.id.sequence.increment_size_mismatch_strategy", "none");
+    }
+
+    // Один бин SpringLiquibase: автоконфигурация Liquibase отключается, JPA ждёт миграций всех шардов
+    @Bean
+    public SpringLiquibase liquibase(ShardDataSources shardDataSources,
+                                     @Value("${spring.liquibase.change-log}") String changeLog) {
+        ShardedLiquibase liquibase = new ShardedLiquibase(shardDataSources.pools());
+        liquibase.setChangeLog(changeLog);
+        return liquibase;
+    }
+
+    static class ShardedLiquibase extends SpringLiquibase {
+
+        private final List<HikariDataSource> shards;
+
+        ShardedLiquibase(List<HikariDataSource> shards) {
+            this.shards = shards;
+        }
+
+        @Override
+        public void afterPropertiesSet() throws LiquibaseException {
+            for (int i = 0; i < shards.size(); i++) {
+                SpringLiquibase shard = new SpringLiquibase();
+                shard.setResourceLoader(getResourceLoader());
+                shard.setChangeLog(getChangeLog());
+                shard.setDataSource(shards.get(i));
+                shard.setChangeLogParameters(Map.of(
+                        "shard.index", String.valueOf(i),
+                        "shard.count", String.valueOf(shards.size())));
+                shard.afterPropertiesSet();
+                log.info("Liquibase migrations applied on shard {}", i);
+            }
+        }
+    }
+
+    private static boolean blank(String s) {
+        return s == null || s.isBlank();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.bankcards.config.properties;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties(prefix = "audit")
+public class AuditProperties {
+
+    // DROP — событие теряется (считается в audit.events.dropped), LOG — теряется, но остаётся строкой в логе
+    public enum OverflowPolicy { DROP, LOG }
+
+    private boolean enabled = true;
+
+    // Ёмкость кольцевого буфера, округляется вверх до степени двойки
+    @Min(64)
+    @Max(1 << 22)
+    private int bufferSize = 16_384;
+
+    @Min(1)
+    private int batchSize = 500;
+
+    // Неполная пачка пишется не реже этого интервала
+    @NotNull
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    @NotNull
+    private OverflowPolicy overflowPolicy = OverflowPolicy.LOG;
+}
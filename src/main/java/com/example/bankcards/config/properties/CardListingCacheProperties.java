@@ -0,0 +1,22 @@
+package com.example.bankcards.config.properties;
+
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties(prefix = "cards.listing-cache")
+public class CardListingCacheProperties {
+
+    private boolean enabled = true;
+
+    @Min(1)
+    private long maxBytes = 16L * 1024 * 1024;
+
+    @Min(1)
+    private long maxUsers = 100_000;
+}
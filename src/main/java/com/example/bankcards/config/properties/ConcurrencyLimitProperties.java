@@ -0,0 +1,57 @@
+package com.example.bankcards.config.properties;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties(prefix = "app.concurrency-limit")
+public class ConcurrencyLimitProperties {
+    private boolean enabled = true;
+
+    @Min(1)
+    private int initialLimit = 20;
+
+    @Min(1)
+    private int minLimit = 4;
+
+    @Min(1)
+    private int maxLimit = 200;
+
+    // Насколько текущая задержка может превышать долгосрочную, прежде чем лимит начнёт снижаться
+    @DecimalMin("1.0")
+    private double rttTolerance = 1.5;
+
+    // Доля нового значения при сглаживании лимита
+    @DecimalMin("0.01")
+    @DecimalMax("1.0")
+    private double smoothing = 0.2;
+
+    // Окно (в замерах) долгосрочной средней задержки
+    @Min(1)
+    private int longWindow = 600;
+
+    // Доля лимита, доступная чтениям (LOW): остаток держится под платежи
+    @DecimalMin("0.1")
+    @DecimalMax("1.0")
+    private double lowPriorityShare = 0.7;
+
+    // Очередь ожидания только для CRITICAL
+    @Min(0)
+    private int queueCapacity = 32;
+
+    @NotNull
+    private Duration maxQueueWait = Duration.ofMillis(100);
+
+    @Min(1)
+    private int retryAfterSeconds = 1;
+}
@@ -0,0 +1,58 @@
+package com.example.bankcards.config.properties;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties(prefix = "app.datasource.bulkheads")
+public class DataSourceBulkheadProperties {
+
+    private boolean enabled = false;
+
+    // Фоновые задачи на потоках планировщика (TransferScheduler, очистки, синхронизация отзывов)
+    @Valid
+    @NotNull
+    private Pool scheduler = new Pool(3, Duration.ofSeconds(5));
+
+    // readOnly-транзакции веб-запросов, включая выгрузки
+    @Valid
+    @NotNull
+    private Pool read = new Pool(8, Duration.ofSeconds(1));
+
+    // Пишущие транзакции веб-запросов: платежи и изменения карт
+    @Valid
+    @NotNull
+    private Pool write = new Pool(10, Duration.ofSeconds(2));
+
+    @Getter
+    @Setter
+    public static class Pool {
+
+        @Min(1)
+        private int maximumPoolSize;
+
+        // Пусто — как maximumPoolSize (фиксированный пул, рекомендация Hikari)
+        private Integer minimumIdle;
+
+        // Сколько запрос ждёт соединение, прежде чем получить ошибку — не дольше, чем стоит ждать этой нагрузке
+        @NotNull
+        private Duration connectionTimeout;
+
+        public Pool() {
+        }
+
+        Pool(int maximumPoolSize, Duration connectionTimeout) {
+            this.maximumPoolSize = maximumPoolSize;
+            this.connectionTimeout = connectionTimeout;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.entity-cache")
+public class EntityCacheProperties {
+
+    private boolean userEnabled = true;
+
+    private boolean cardEnabled = true;
+}
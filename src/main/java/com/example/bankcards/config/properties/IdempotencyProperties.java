@@ -0,0 +1,28 @@
+package com.example.bankcards.config.properties;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties(prefix = "idempotency")
+public class IdempotencyProperties {
+
+    @NotNull
+    private Duration ttl = Duration.ofHours(24);
+
+    private boolean purgeEnabled = true;
+
+    @NotNull
+    private Duration purgeInterval = Duration.ofMinutes(10);
+
+    @Min(1)
+    private int purgeBatchSize = 1000;
+}
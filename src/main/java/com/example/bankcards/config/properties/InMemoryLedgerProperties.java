@@ -0,0 +1,37 @@
+package com.example.bankcards.config.properties;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties(prefix = "transfers.in-memory")
+public class InMemoryLedgerProperties {
+
+    @NotBlank
+    private String journalPath = "data/ledger.journal";
+
+    // force() после каждой записи; без него журнал переживает падение процесса, но не ОС
+    private boolean fsync = true;
+
+    @Min(1)
+    private int lockStripes = 1024;
+
+    // id переводов берутся из transfers_id_seq блоками
+    @Min(1)
+    private int idBlockSize = 100;
+
+    @NotNull
+    private Duration writeBehindInterval = Duration.ofMillis(100);
+
+    @Min(1)
+    private int writeBehindBatchSize = 500;
+}
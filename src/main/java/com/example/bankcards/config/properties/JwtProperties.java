@@ -2,6 +2,7 @@ package com.example.bankcards.config.properties;
 
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -9,6 +10,7 @@ import org.springframework.validation.annotation.Validated;
 
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
+import java.time.Duration;
 import java.util.Base64;
 
 @Getter
@@ -23,6 +25,16 @@ public class JwtProperties {
     @Min(1000)
     private long expirationMs;
 
+    // Жизнь refresh-токена; каждая ротация выдаёт новый с полным сроком
+    @NotNull
+    private Duration refreshTtl = Duration.ofDays(30);
+
+    @NotNull
+    private Duration refreshPurgeInterval = Duration.ofHours(1);
+
+    @Min(1)
+    private int refreshPurgeBatchSize = 1000;
+
     public SecretKey secretKey() {
         byte[] k = decodeStrict(secret, "jwt.secret");
         if (k.length < 32) {
@@ -0,0 +1,53 @@
+package com.example.bankcards.config.properties;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties(prefix = "security.password-hash")
+public class PasswordHashProperties {
+
+    // 0 — половина ядер: вторая половина остаётся переводам
+    @Min(0)
+    private int threads = 0;
+
+    @Min(1)
+    private int queueCapacity = 64;
+
+    // Задача, простоявшая в очереди дольше, не считается: клиент, скорее всего, уже ушёл
+    @NotNull
+    private Duration maxQueueWait = Duration.ofSeconds(2);
+
+    @Min(1)
+    private int retryAfterSeconds = 1;
+
+    // Алгоритм новых хэшей; старые с другим {id} или без префикса перехэшируются при входе
+    @Pattern(regexp = "bcrypt|pbkdf2")
+    private String encodingId = "bcrypt";
+
+    // Фиксированная стоимость BCrypt; не задана — подбирается при старте под targetLatency
+    @Min(4)
+    @Max(31)
+    private Integer bcryptCost;
+
+    @NotNull
+    private Duration targetLatency = Duration.ofMillis(250);
+
+    @Min(4)
+    @Max(31)
+    private int minCost = 10;
+
+    @Min(4)
+    @Max(31)
+    private int maxCost = 14;
+}
@@ -0,0 +1,41 @@
+package com.example.bankcards.config.properties;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties(prefix = "app.datasource.replica")
+public class ReplicaProperties {
+
+    // WAIT — ждать, пока реплика догонит LSN из токена (не дольше maxWait), PRIMARY — сразу читать с primary
+    public enum TokenMode { WAIT, PRIMARY }
+
+    private boolean enabled = false;
+
+    private String url;
+
+    // Пустые — берутся из spring.datasource
+    private String username;
+
+    private String password;
+
+    @Min(1)
+    private int maximumPoolSize = 10;
+
+    @NotNull
+    private TokenMode tokenMode = TokenMode.WAIT;
+
+    @NotNull
+    private Duration maxWait = Duration.ofMillis(200);
+
+    @NotNull
+    private Duration pollInterval = Duration.ofMillis(20);
+}
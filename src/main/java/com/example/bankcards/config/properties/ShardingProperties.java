@@ -0,0 +1,41 @@
+package com.example.bankcards.config.properties;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties(prefix = "app.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    // Порядок важен: индекс в списке = номер шарда, зашит в последовательности id. Менять только миграцией.
+    @Valid
+    private List<Shard> shards = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Shard {
+
+        @NotBlank
+        private String url;
+
+        // Пустые — берутся из spring.datasource
+        private String username;
+
+        private String password;
+
+        @Min(1)
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bankcards.config.properties;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties(prefix = "jwt.revocation")
+public class TokenRevocationProperties {
+
+    // Как часто подтягиваются отзывы, сделанные другими узлами
+    @NotNull
+    private Duration pollInterval = Duration.ofSeconds(5);
+
+    // Запас назад от прошлого опроса: строка с revoked_at раньше может закоммититься позже
+    @NotNull
+    private Duration pollOverlap = Duration.ofSeconds(30);
+
+    // Полная пересборка выкидывает истёкшие записи — из bloom-фильтра удалить нельзя
+    @NotNull
+    private Duration rebuildInterval = Duration.ofHours(1);
+
+    @Min(1)
+    private int expectedEntries = 100_000;
+
+    @DecimalMin("0.000001")
+    @DecimalMax("0.5")
+    private double falsePositiveRate = 0.001;
+
+    @Min(1)
+    private int purgeBatchSize = 1000;
+}
@@ -0,0 +1,31 @@
+package com.example.bankcards.config.properties;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties(prefix = "transfers.journal")
+public class TransferJournalProperties {
+
+    private boolean enabled = false;
+
+    @NotBlank
+    private String directory = "data/transfer-journal";
+
+    // Округляется вниз до целого числа записей; на непустом журнале не меняется
+    @NotNull
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    // Как часто грязные страницы сегмента сбрасываются на диск; падение процесса переживается и без этого
+    @NotNull
+    private Duration forceInterval = Duration.ofSeconds(1);
+}
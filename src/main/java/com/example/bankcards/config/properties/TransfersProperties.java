@@ -13,14 +13,31 @@ public class TransfersProperties {
     private final int defaultPageSize;
     private final int maxPageSize;
     private final int maxTtlSeconds;
+    private final int exportChunkSize;
+    private final Engine engine;
 
     public TransfersProperties(
             @Min(1) int defaultPageSize,
             @Min(1) int maxPageSize,
-            @Min(0) int maxTtlSeconds
+            @Min(0) int maxTtlSeconds,
+            @Min(1) int exportChunkSize,
+            Engine engine
     ) {
         this.defaultPageSize = defaultPageSize > 0 ? defaultPageSize : 10;
         this.maxPageSize = maxPageSize > 0 ? maxPageSize : 100;
         this.maxTtlSeconds = Math.max(maxTtlSeconds, 0);
+        this.exportChunkSize = exportChunkSize > 0 ? exportChunkSize : 500;
+        this.engine = engine != null ? engine : Engine.PESSIMISTIC;
+    }
+
+    public enum Engine {
+        // SELECT ... FOR UPDATE обеих карт, проверки и запись через JPA
+        PESSIMISTIC,
+        // Немедленный перевод одним CTE: условное списание, зачисление и вставка перевода
+        CONDITIONAL_UPDATE,
+        // Чтение карт без блокировок, конфликт ловит @Version при flush; повтор — TxRetryExecutor
+        OPTIMISTIC,
+        // Немедленные переводы в памяти процесса (LedgerStore): журнал на диске, запись в БД — фоном
+        IN_MEMORY
     }
 }
@@ -1,13 +1,18 @@
 package com.example.bankcards.config.properties;
 
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.validator.constraints.time.DurationMin;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
 
 import java.time.Duration;
 
 @Getter
 @Setter
+@Validated
 @ConfigurationProperties(prefix = "transfers.scheduler")
 public class TransfersSchedulerProperties {
 
@@ -15,9 +20,44 @@ public class TransfersSchedulerProperties {
 
     private boolean enabled = false;
 
+    // Нулевая пауза — холостой цикл планировщика
+    @NotNull
+    @DurationMin(millis = 1)
     private Duration fixedDelay = Duration.ofSeconds(10);
 
+    @Min(1)
     private int batchSize = 100;
 
+    // Сколько переводов обрабатывается в одной транзакции (один коммит на чанк)
+    @Min(1)
+    private int chunkSize = 50;
+
+    @NotNull
     private Mode mode = Mode.EXPIRE;
+
+    // Адаптивный режим: batchSize/fixedDelay — базовые значения, растут/сжимаются по бэклогу
+    private boolean adaptive = false;
+
+    @Min(1)
+    private int maxBatchSize = 1000;
+
+    @NotNull
+    @DurationMin(millis = 1)
+    private Duration minDelay = Duration.ofSeconds(1);
+
+    @NotNull
+    @DurationMin(millis = 1)
+    private Duration maxIdleDelay = Duration.ofSeconds(60);
+
+    // Сбой обработки перевода: повтор через retryBackoff * 2^(n-1) (до maxRetryBackoff), после maxAttempts — QUARANTINED
+    @Min(1)
+    private int maxAttempts = 5;
+
+    @NotNull
+    @DurationMin(millis = 1)
+    private Duration retryBackoff = Duration.ofSeconds(30);
+
+    @NotNull
+    @DurationMin(millis = 1)
+    private Duration maxRetryBackoff = Duration.ofMinutes(30);
 }
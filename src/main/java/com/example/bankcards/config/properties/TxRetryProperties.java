@@ -0,0 +1,35 @@
+package com.example.bankcards.config.properties;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties(prefix = "tx.retry")
+public class TxRetryProperties {
+
+    // Всего попыток, включая первую
+    @Min(1)
+    private int maxAttempts = 5;
+
+    @NotNull
+    private Duration initialBackoff = Duration.ofMillis(10);
+
+    @NotNull
+    private Duration maxBackoff = Duration.ofMillis(500);
+
+    @DecimalMin("1.0")
+    private double multiplier = 2.0;
+
+    // Общий бюджет времени на все попытки: следующую не начинаем, если пауза выводит за него
+    @NotNull
+    private Duration maxElapsed = Duration.ofSeconds(2);
+}
@@ -0,0 +1,54 @@
+package com.example.bankcards.config.properties;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties(prefix = "security.ratelimit.user")
+public class UserRateLimitProperties {
+    private boolean enabled = true;
+
+    // Сколько пользователей одновременно отслеживается в каждой группе; память выделяется при старте
+    @Min(1)
+    @Max(4_000_000)
+    private int maxUsers = 100_000;
+
+    // Порядок важен: запрос попадает в первую подходящую группу
+    @Valid
+    private Map<String, Group> groups = new LinkedHashMap<>();
+
+    @Getter
+    @Setter
+    public static class Group {
+        @NotEmpty
+        private List<String> paths = new ArrayList<>();
+
+        // Пусто — любые методы
+        private Set<String> methods = new HashSet<>();
+
+        // Размер всплеска; ведро пополняется равномерно: capacity токенов за window
+        @Min(1)
+        @Max(100_000)
+        private int capacity = 60;
+
+        @NotNull
+        private Duration window = Duration.ofMinutes(1);
+    }
+}
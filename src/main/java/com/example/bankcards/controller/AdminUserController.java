@@ -3,10 +3,13 @@ package com.example.bankcards.controller;
 import com.example.bankcards.annotation.IsAdmin;
 import com.example.bankcards.dto.CreateUserAdminRequest;
 import com.example.bankcards.dto.PageDto;
+import com.example.bankcards.dto.PasswordHashStatsDto;
 import com.example.bankcards.dto.UpdateRolesRequest;
 import com.example.bankcards.dto.UserDto;
 import com.example.bankcards.entity.enums.Role;
 import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.security.CustomUserDetails;
+import com.example.bankcards.service.IdempotencyService;
 import com.example.bankcards.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -21,10 +24,14 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -38,6 +45,7 @@ import java.util.Set;
 public class AdminUserController {
 
     private final UserService userService;
+    private final IdempotencyService idempotencyService;
 
     @Operation(
             summary = "Список пользователей",
@@ -100,12 +108,17 @@ public class AdminUserController {
                     description = "Данные для создания пользователя",
                     content = @Content(schema = @Schema(implementation = CreateUserAdminRequest.class))
             )
-            @Valid @RequestBody CreateUserAdminRequest req
+            @Valid @RequestBody CreateUserAdminRequest req,
+            @Parameter(description = "Ключ идемпотентности запроса", example = "idem-user-1")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
     ) {
         Set<Role> roles = (req.getRoles() == null || req.getRoles().isEmpty())
                 ? EnumSet.of(Role.ROLE_USER)
                 : EnumSet.copyOf(req.getRoles());
-        return userService.createUser(req.getEmail(), req.getPassword(), roles);
+        // пароль в отпечаток не попадает
+        Object fingerprint = List.of(req.getEmail(), roles);
+        return idempotencyService.execute(idempotencyOwner(idempotencyKey), idempotencyKey, "admin.users.create", fingerprint, UserDto.class,
+                () -> userService.createUser(req.getEmail(), req.getPassword(), roles));
     }
 
     @Operation(
@@ -171,4 +184,28 @@ public class AdminUserController {
     ) {
         return Map.of("exists", userService.existsByUsername(username));
     }
+
+    @Operation(
+            summary = "Распределение хэшей паролей",
+            description = "Количество пользователей по алгоритму и стоимости хэша. outdated — хэш будет заменён " +
+                    "текущим при следующем входе пользователя. Доступно только ADMIN."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "OK"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    @GetMapping("/password-hashes")
+    public List<PasswordHashStatsDto> passwordHashes() {
+        return userService.passwordHashReport();
+    }
+
+    private static Long idempotencyOwner(String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) return null;
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !(auth.getPrincipal() instanceof CustomUserDetails p)) {
+            throw new AccessDeniedException("Not authenticated");
+        }
+        return p.getId();
+    }
 }
@@ -2,10 +2,13 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.LoginRequest;
 import com.example.bankcards.dto.LoginResponse;
+import com.example.bankcards.dto.RefreshRequest;
 import com.example.bankcards.dto.RegisterRequest;
 import com.example.bankcards.dto.UserDto;
+import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
@@ -15,6 +18,7 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -28,6 +32,8 @@ import static com.example.bankcards.config.OpenApiConfig.SECURITY_SCHEME_BEARER;
 @Tag(name = "Auth", description = "Аутентификация и профиль")
 public class AuthController {
 
+    private static final String BEARER_PREFIX = "Bearer ";
+
     private final AuthService authService;
 
     @Operation(
@@ -53,7 +59,7 @@ public class AuthController {
 
     @Operation(
             summary = "Логин",
-            description = "Возвращает JWT токен в полях tokenType/accessToken.",
+            description = "Возвращает короткоживущий JWT (tokenType/accessToken/expiresIn) и одноразовый refreshToken.",
             requestBody = @RequestBody(
                     required = true,
                     description = "Учетные данные",
@@ -68,8 +74,47 @@ public class AuthController {
     })
     @PostMapping("/login")
     public LoginResponse login(@Valid @RequestBody LoginRequest request) {
-        String jwt = authService.login(request.getUsername(), request.getPassword());
-        return new LoginResponse("Bearer", jwt);
+        return authService.login(request.getUsername(), request.getPassword());
+    }
+
+    @Operation(
+            summary = "Продление сессии",
+            description = "Обменивает refreshToken на новый JWT и новый refreshToken без проверки пароля. " +
+                    "Старый refreshToken гасится; его повторное предъявление отзывает всю цепочку токенов входа.",
+            requestBody = @RequestBody(
+                    required = true,
+                    description = "Refresh-токен из ответа логина или предыдущего продления",
+                    content = @Content(schema = @Schema(implementation = RefreshRequest.class))
+            )
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "OK",
+                    content = @Content(schema = @Schema(implementation = LoginResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации"),
+            @ApiResponse(responseCode = "401", description = "Токен неизвестен, истёк, отозван или уже использован")
+    })
+    @PostMapping("/refresh")
+    public LoginResponse refresh(@Valid @RequestBody RefreshRequest request) {
+        return authService.refresh(request.getRefreshToken());
+    }
+
+    @Operation(
+            summary = "Выход",
+            description = "Отзывает текущий access-токен и цепочку refresh-токенов его входа: до истечения срока " +
+                    "токен больше не принимается, продлить сессию нельзя.",
+            security = { @SecurityRequirement(name = SECURITY_SCHEME_BEARER) }
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "204", description = "Токен отозван"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @PostMapping("/logout")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void logout(@Parameter(hidden = true) @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            throw new BadRequestException("Bearer token required");
+        }
+        authService.logout(authorization.substring(BEARER_PREFIX.length()));
     }
 
     @Operation(
@@ -1,14 +1,19 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.annotation.ConcurrencyLimited;
 import com.example.bankcards.annotation.IsAdmin;
+import com.example.bankcards.config.ConsistencyContext;
 import com.example.bankcards.config.OpenApiConfig;
+import com.example.bankcards.dto.BalanceSummaryDto;
 import com.example.bankcards.dto.CardCreateRequest;
 import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.dto.CardFilter;
 import com.example.bankcards.dto.PageDto;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.security.CustomUserDetails;
+import com.example.bankcards.service.CardListingCache;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.IdempotencyService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -20,6 +25,9 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -28,6 +36,8 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.function.Supplier;
+
 @RestController
 @RequestMapping("/api/cards")
 @RequiredArgsConstructor
@@ -36,31 +46,67 @@ import org.springframework.web.bind.annotation.*;
 public class CardController {
 
     private final CardService cardService;
+    private final IdempotencyService idempotencyService;
+    private final CardListingCache cardListingCache;
 
     @Operation(
             summary = "Мои карты",
-            description = "Возвращает страницу карт текущего пользователя.",
+            description = """
+                          Возвращает страницу карт текущего пользователя.
+                          Ответ содержит ETag; при совпадении **If-None-Match** возвращается 304 без обращения к БД.
+                          С заголовком **X-Consistency-Token** страница всегда перечитывается, кэш и 304 не используются.
+                          """,
             security = { @SecurityRequirement(name = OpenApiConfig.SECURITY_SCHEME_BEARER) }
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "OK",
                     content = @Content(schema = @Schema(implementation = PageDto.class))),
+            @ApiResponse(responseCode = "304", description = "Not Modified"),
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     @GetMapping("/my")
     @PreAuthorize("isAuthenticated()")
-    public PageDto<CardDto> listMy(
+    public ResponseEntity<byte[]> listMy(
             @Parameter(description = "Номер страницы (0..N)", example = "0")
             @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Размер страницы (1..100)", example = "10")
             @RequestParam(defaultValue = "10") int size,
             @Parameter(description = "Фильтр по статусу карты", example = "ACTIVE")
-            @RequestParam(required = false) CardStatus status
+            @RequestParam(required = false) CardStatus status,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = ConsistencyContext.HEADER, required = false) String consistencyToken
     ) {
         Long userId = currentUserId();
         CardFilter filter = new CardFilter();
         filter.setStatus(status);
-        return cardService.listMy(userId, page, size, filter);
+        CardListingCache.Key key = cardListingCache.key(userId, filter, page, size);
+        // Кэш мог наполниться с отстающей реплики под уже актуальной версией: клиент с токеном ждёт свою запись
+        boolean readYourWrites = consistencyToken != null && !consistencyToken.isBlank();
+        if (!readYourWrites && key.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(key.etag()).build();
+        }
+        Supplier<PageDto<CardDto>> loader = () -> cardService.listMy(userId, page, size, filter);
+        byte[] body = readYourWrites ? cardListingCache.reload(key, loader) : cardListingCache.getOrLoad(key, loader);
+        return ResponseEntity.ok()
+                .eTag(key.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @Operation(
+            summary = "Сводка по моим картам",
+            description = "Количество карт и суммы балансов в разрезе статусов. Читается из предрасчитанной сводки.",
+            security = { @SecurityRequirement(name = OpenApiConfig.SECURITY_SCHEME_BEARER) }
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "OK",
+                    content = @Content(schema = @Schema(implementation = BalanceSummaryDto.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/my/summary")
+    @PreAuthorize("isAuthenticated()")
+    public BalanceSummaryDto summaryMy() {
+        return cardService.summaryMy(currentUserId());
     }
 
     @Operation(
@@ -79,6 +125,7 @@ public class CardController {
     })
     @IsAdmin
     @PostMapping("/{userId}")
+    @ConcurrencyLimited(ConcurrencyLimited.Priority.NORMAL)
     public CardDto createForUser(
             @Parameter(description = "ID владельца карты", example = "5")
             @PathVariable Long userId,
@@ -107,11 +154,15 @@ public class CardController {
     })
     @IsAdmin
     @PatchMapping("/{id}:block")
+    @ConcurrencyLimited(ConcurrencyLimited.Priority.NORMAL)
     public CardDto block(
             @Parameter(description = "ID карты", example = "100")
-            @PathVariable Long id
+            @PathVariable Long id,
+            @Parameter(description = "Ключ идемпотентности запроса", example = "idem-block-100")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
     ) {
-        return cardService.block(id);
+        return idempotencyService.execute(idempotencyOwner(idempotencyKey), idempotencyKey, "cards.block", id, CardDto.class,
+                () -> cardService.block(id));
     }
 
     @Operation(
@@ -129,11 +180,15 @@ public class CardController {
     })
     @IsAdmin
     @PatchMapping("/{id}:activate")
+    @ConcurrencyLimited(ConcurrencyLimited.Priority.NORMAL)
     public CardDto activate(
             @Parameter(description = "ID карты", example = "101")
-            @PathVariable Long id
+            @PathVariable Long id,
+            @Parameter(description = "Ключ идемпотентности запроса", example = "idem-activate-101")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
     ) {
-        return cardService.activate(id);
+        return idempotencyService.execute(idempotencyOwner(idempotencyKey), idempotencyKey, "cards.activate", id, CardDto.class,
+                () -> cardService.activate(id));
     }
 
     @Operation(
@@ -150,6 +205,7 @@ public class CardController {
     })
     @IsAdmin
     @DeleteMapping("/{id}")
+    @ConcurrencyLimited(ConcurrencyLimited.Priority.NORMAL)
     public ResponseEntity<Void> delete(
             @Parameter(description = "ID карты", example = "300")
             @PathVariable Long id
@@ -184,6 +240,10 @@ public class CardController {
         return cardService.listAll(page, size, filter);
     }
 
+    private static Long idempotencyOwner(String idempotencyKey) {
+        return (idempotencyKey == null || idempotencyKey.isBlank()) ? null : currentUserId();
+    }
+
     private static Long currentUserId() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || !(auth.getPrincipal() instanceof CustomUserDetails p)) {
@@ -1,11 +1,17 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.annotation.ConcurrencyLimited;
 import com.example.bankcards.annotation.IsAdmin;
 import com.example.bankcards.config.OpenApiConfig;
+import com.example.bankcards.dto.ExportFormat;
 import com.example.bankcards.dto.PageDto;
 import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.dto.TransferExportFilter;
 import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.enums.TransferStatus;
 import com.example.bankcards.security.CustomUserDetails;
+import com.example.bankcards.service.IdempotencyService;
+import com.example.bankcards.service.TransferExportService;
 import com.example.bankcards.service.TransferService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -19,12 +25,19 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
 
 @RestController
 @RequestMapping("/api/transfers")
@@ -34,12 +47,15 @@ import org.springframework.web.bind.annotation.*;
 public class TransferController {
 
     private final TransferService transferService;
+    private final IdempotencyService idempotencyService;
+    private final TransferExportService transferExportService;
 
     @Operation(
             summary = "Инициировать перевод",
             description = """
                           Создает перевод между двумя картами текущего пользователя.
-                          Для идемпотентности можно передать заголовок **Idempotency-Key**.
+                          Для идемпотентности можно передать заголовок **Idempotency-Key**:
+                          повтор с тем же ключом и телом возвращает сохранённый ответ (ключ живёт ограниченное время).
                           """,
             security = { @SecurityRequirement(name = OpenApiConfig.SECURITY_SCHEME_BEARER) }
     )
@@ -51,9 +67,11 @@ public class TransferController {
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "403", description = "Forbidden"),
             @ApiResponse(responseCode = "404", description = "Карта/пользователь не найдены"),
-            @ApiResponse(responseCode = "409", description = "Конфликт идемпотентности")
+            @ApiResponse(responseCode = "409", description = "Конфликт идемпотентности"),
+            @ApiResponse(responseCode = "503", description = "Перегрузка, повторить после Retry-After")
     })
     @PostMapping
+    @ConcurrencyLimited(ConcurrencyLimited.Priority.CRITICAL)
     @PreAuthorize("isAuthenticated()")
     public TransferDto initiate(
             @Parameter(description = "Ключ идемпотентности запроса", example = "idem-123")
@@ -65,10 +83,11 @@ public class TransferController {
             )
             @Valid @org.springframework.web.bind.annotation.RequestBody TransferRequest request
     ) {
-        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
-            request.setIdempotencyKey(idempotencyKey);
-        }
-        return transferService.initiate(currentUserId(), request);
+        String key = (idempotencyKey != null && !idempotencyKey.isBlank()) ? idempotencyKey : request.getIdempotencyKey();
+        request.setIdempotencyKey(null);
+        Long userId = currentUserId();
+        return idempotencyService.execute(userId, key, "transfers.initiate", request, TransferDto.class,
+                () -> transferService.initiate(userId, request));
     }
 
     @Operation(
@@ -84,6 +103,7 @@ public class TransferController {
             @ApiResponse(responseCode = "404", description = "Перевод не найден")
     })
     @PostMapping("/{id}:cancel")
+    @ConcurrencyLimited(ConcurrencyLimited.Priority.CRITICAL)
     @PreAuthorize("isAuthenticated()")
     public TransferDto cancel(
             @Parameter(description = "ID перевода", example = "1001")
@@ -103,6 +123,7 @@ public class TransferController {
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     @GetMapping("/my")
+    @ConcurrencyLimited(ConcurrencyLimited.Priority.LOW)
     @PreAuthorize("isAuthenticated()")
     public PageDto<TransferDto> listMy(
             @Parameter(description = "Номер страницы (0..N)", example = "0")
@@ -125,6 +146,7 @@ public class TransferController {
             @ApiResponse(responseCode = "403", description = "Forbidden")
     })
     @GetMapping
+    @ConcurrencyLimited(ConcurrencyLimited.Priority.LOW)
     @IsAdmin
     public PageDto<TransferDto> listAll(
             @Parameter(description = "Номер страницы (0..N)", example = "0")
@@ -135,6 +157,91 @@ public class TransferController {
         return transferService.listAll(page, size);
     }
 
+    @Operation(
+            summary = "Переводы в карантине (ADMIN)",
+            description = "Переводы, которые планировщик не смог обработать после исчерпания попыток.",
+            security = { @SecurityRequirement(name = OpenApiConfig.SECURITY_SCHEME_BEARER) }
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "OK",
+                    content = @Content(schema = @Schema(implementation = PageDto.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    @GetMapping("/quarantine")
+    @ConcurrencyLimited(ConcurrencyLimited.Priority.LOW)
+    @IsAdmin
+    public PageDto<TransferDto> listQuarantined(
+            @Parameter(description = "Номер страницы (0..N)", example = "0")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Размер страницы (1..50)", example = "10")
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        return transferService.listQuarantined(page, size);
+    }
+
+    @Operation(
+            summary = "Вернуть перевод из карантина (ADMIN)",
+            description = "Переводит QUARANTINED-перевод в PENDING со сбросом счётчика попыток — планировщик подберёт его на ближайшем тике.",
+            security = { @SecurityRequirement(name = OpenApiConfig.SECURITY_SCHEME_BEARER) }
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Перевод возвращён в очередь",
+                    content = @Content(schema = @Schema(implementation = TransferDto.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "404", description = "Перевод не найден"),
+            @ApiResponse(responseCode = "422", description = "Перевод не в карантине")
+    })
+    @PostMapping("/{id}:requeue")
+    @ConcurrencyLimited(ConcurrencyLimited.Priority.NORMAL)
+    @IsAdmin
+    public TransferDto requeue(
+            @Parameter(description = "ID перевода", example = "1001")
+            @PathVariable("id") Long transferId
+    ) {
+        return transferService.requeue(transferId);
+    }
+
+    @Operation(
+            summary = "Выгрузка переводов (ADMIN)",
+            description = """
+                          Потоковая выгрузка всех переводов в NDJSON или CSV (по убыванию id).
+                          Фильтры: период создания [from, to), статус, карта (отправитель или получатель).
+                          """,
+            security = { @SecurityRequirement(name = OpenApiConfig.SECURITY_SCHEME_BEARER) }
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "OK"),
+            @ApiResponse(responseCode = "400", description = "Некорректный период"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    @GetMapping("/export")
+    @IsAdmin
+    public ResponseEntity<StreamingResponseBody> export(
+            @Parameter(description = "Начало периода (включительно)", example = "2025-08-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Конец периода (не включительно)", example = "2025-09-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Фильтр по статусу", example = "COMPLETED")
+            @RequestParam(required = false) TransferStatus status,
+            @Parameter(description = "ID карты (отправитель или получатель)", example = "100")
+            @RequestParam(required = false) Long cardId,
+            @Parameter(description = "Формат выгрузки", example = "NDJSON")
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format
+    ) {
+        TransferExportFilter filter = TransferExportFilter.builder()
+                .from(from).to(to).status(status).cardId(cardId)
+                .build();
+        transferExportService.validate(filter);
+        StreamingResponseBody body = out -> transferExportService.export(filter, format, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transfers." + format.extension() + "\"")
+                .body(body);
+    }
+
     private static Long currentUserId() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || !(auth.getPrincipal() instanceof CustomUserDetails p)) {
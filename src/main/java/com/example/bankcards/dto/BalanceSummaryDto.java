@@ -0,0 +1,19 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.enums.CardStatus;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BalanceSummaryDto {
+    private long cardCount;
+    private long totalBalance;
+    private Map<CardStatus, CardStatusTotalsDto> byStatus;
+    private LocalDateTime updatedAt;
+}
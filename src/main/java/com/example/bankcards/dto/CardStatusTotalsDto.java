@@ -0,0 +1,13 @@
+package com.example.bankcards.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CardStatusTotalsDto {
+    private long count;
+    private long balance;
+}
@@ -10,4 +10,8 @@ import lombok.Setter;
 public class LoginResponse {
     private String tokenType;
     private String accessToken;
-}
\ No newline at end of file
+    // Одноразовый: каждый /api/auth/refresh возвращает следующий
+    private String refreshToken;
+    // Срок жизни accessToken в секундах
+    private long expiresIn;
+}
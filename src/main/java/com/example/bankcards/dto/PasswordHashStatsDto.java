@@ -0,0 +1,19 @@
+package com.example.bankcards.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PasswordHashStatsDto {
+    // {id} из хэша; для старых хэшей без префикса — bcrypt
+    private String algorithm;
+    private boolean prefixed;
+    // Стоимость BCrypt, для других алгоритмов null
+    private Integer cost;
+    private long users;
+    // Будет перехэширован при следующем входе
+    private boolean outdated;
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshRequest {
+    @NotBlank
+    @Size(max = 128)
+    private String refreshToken;
+}
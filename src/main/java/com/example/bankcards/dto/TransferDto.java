@@ -20,4 +20,6 @@ public class TransferDto {
     private LocalDateTime executedAt;
     private String failureCode;
     private String failureMessage;
+    private Integer attemptCount;
+    private LocalDateTime nextAttemptAt;
 }
@@ -0,0 +1,21 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.enums.TransferStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferExportFilter {
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private TransferStatus status;
+    private Long cardId;
+}
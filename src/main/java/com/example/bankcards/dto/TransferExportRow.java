@@ -0,0 +1,23 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.enums.TransferStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Плоская проекция для выгрузки: без загрузки сущностей и связей
+@Getter
+@AllArgsConstructor
+public class TransferExportRow {
+    private Long id;
+    private Long initiatorId;
+    private Long fromCardId;
+    private Long toCardId;
+    private Long amount;
+    private TransferStatus status;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+    private LocalDateTime executedAt;
+    private String failureCode;
+}
@@ -20,6 +20,7 @@ public class TransferRequest {
     @Min(1)
     private Long amount;
 
+    // Альтернатива заголовку Idempotency-Key: контроллер передаёт ключ в IdempotencyService, до сервиса переводов он не доходит
     private String idempotencyKey;
 
     private Integer ttlSeconds;
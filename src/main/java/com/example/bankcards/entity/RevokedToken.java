@@ -0,0 +1,37 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// jti задан — отозван один токен; jti пуст — все токены пользователя, выданные до revokedAt.
+// Без внешнего ключа на users: отзыв при удалении пользователя должен пережить удаление.
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@EqualsAndHashCode(of = "id")
+@Entity
+@Table(name = "revoked_tokens")
+public class RevokedToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "revoked_tokens_id_seq")
+    @SequenceGenerator(name = "revoked_tokens_id_seq", sequenceName = "revoked_tokens_id_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(name = "jti", length = 36)
+    private String jti;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+
+    // Позже этого момента запись не нужна: отозванные ею токены истекли сами
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
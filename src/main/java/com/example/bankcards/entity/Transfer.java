@@ -57,6 +57,13 @@ public class Transfer {
     @Column(name = "failure_message", length = 255)
     private String failureMessage;
 
+    // Неудачные попытки планировщика: бэкофф до nextAttemptAt, после лимита — QUARANTINED
+    @Column(name = "attempt_count", nullable = false)
+    private int attemptCount;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
     @Column(name = "idempotency_key", length = 64, unique = true)
     private String idempotencyKey;
 
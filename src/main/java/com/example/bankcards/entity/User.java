@@ -32,7 +32,7 @@ public class User {
     @Column(name = "username", unique = true, nullable = false, length = 254)
     private String username;
 
-    @Column(name = "password", nullable = false, length = 100)
+    @Column(name = "password", nullable = false, length = 255)
     private String password;
 
     @Builder.Default
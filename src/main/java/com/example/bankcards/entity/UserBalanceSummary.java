@@ -0,0 +1,48 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+// Пишется только атомарными инкрементами (UserBalanceSummaryRepository.applyDelta)
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@EqualsAndHashCode(of = "userId")
+@Entity
+@Immutable
+@Table(name = "user_balance_summary")
+public class UserBalanceSummary {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "card_count", nullable = false)
+    private long cardCount;
+
+    @Column(name = "active_count", nullable = false)
+    private long activeCount;
+
+    @Column(name = "active_balance", nullable = false)
+    private long activeBalance;
+
+    @Column(name = "blocked_count", nullable = false)
+    private long blockedCount;
+
+    @Column(name = "blocked_balance", nullable = false)
+    private long blockedBalance;
+
+    @Column(name = "expired_count", nullable = false)
+    private long expiredCount;
+
+    @Column(name = "expired_balance", nullable = false)
+    private long expiredBalance;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
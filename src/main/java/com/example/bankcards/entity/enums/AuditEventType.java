@@ -0,0 +1,17 @@
+package com.example.bankcards.entity.enums;
+
+public enum AuditEventType {
+    AUTH_SUCCESS,
+    AUTH_FAILURE,
+    TRANSFER_CREATED,
+    TRANSFER_COMPLETED,
+    TRANSFER_CANCELED,
+    TRANSFER_EXPIRED,
+    TRANSFER_FAILED,
+    TRANSFER_QUARANTINED,
+    TRANSFER_REQUEUED,
+    CARD_CREATED,
+    CARD_BLOCKED,
+    CARD_ACTIVATED,
+    CARD_DELETED
+}
@@ -5,5 +5,6 @@ public enum TransferStatus {
     COMPLETED,
     FAILED,
     EXPIRED,
-    CANCELED
+    CANCELED,
+    QUARANTINED
 }
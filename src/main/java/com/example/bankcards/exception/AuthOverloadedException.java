@@ -0,0 +1,13 @@
+package com.example.bankcards.exception;
+
+import lombok.Getter;
+
+@Getter
+public class AuthOverloadedException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public AuthOverloadedException(int retryAfterSeconds) {
+        super("Authentication is temporarily overloaded, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -7,7 +7,9 @@ import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -93,6 +95,11 @@ public class GlobalExceptionHandler {
         return build(HttpStatus.UNAUTHORIZED, "auth.jwt_invalid", "Invalid or expired token", req, null, ex, false);
     }
 
+    @ExceptionHandler(InvalidRefreshTokenException.class)
+    public ResponseEntity<ErrorResponse> handleRefresh(InvalidRefreshTokenException ex, HttpServletRequest req) {
+        return build(HttpStatus.UNAUTHORIZED, "auth.refresh_invalid", "Invalid or expired refresh token", req, null, ex, false);
+    }
+
     @ExceptionHandler(AccessDeniedException.class)
     public ResponseEntity<ErrorResponse> handleForbidden(AccessDeniedException ex, HttpServletRequest req) {
         return build(HttpStatus.FORBIDDEN, "auth.forbidden", "Forbidden", req, null, ex, false);
@@ -129,6 +136,12 @@ public class GlobalExceptionHandler {
         return build(HttpStatus.CONFLICT, code, msg, req, null, ex, false);
     }
 
+    // Сюда доходят только конфликты блокировок/версий, не снятые повторами @RetryableTx
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<ErrorResponse> handleConcurrency(ConcurrencyFailureException ex, HttpServletRequest req) {
+        return build(HttpStatus.CONFLICT, "db.concurrency_conflict", "Concurrent update, please retry", req, null, ex, false);
+    }
+
     @ExceptionHandler({
             InvalidCardStateException.class,
             CardExpiredException.class,
@@ -143,6 +156,22 @@ public class GlobalExceptionHandler {
         return build(HttpStatus.UNPROCESSABLE_ENTITY, "business.invalid_state", ex.getMessage(), req, null, ex, false);
     }
 
+    @ExceptionHandler(AuthOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleAuthOverloaded(AuthOverloadedException ex, HttpServletRequest req) {
+        ResponseEntity<ErrorResponse> res = build(HttpStatus.SERVICE_UNAVAILABLE, "auth.overloaded", ex.getMessage(), req, null, ex, false);
+        return ResponseEntity.status(res.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(res.getBody());
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleServiceOverloaded(ServiceOverloadedException ex, HttpServletRequest req) {
+        ResponseEntity<ErrorResponse> res = build(HttpStatus.SERVICE_UNAVAILABLE, "server.overloaded", ex.getMessage(), req, null, ex, false);
+        return ResponseEntity.status(res.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(res.getBody());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGeneric(Exception ex, HttpServletRequest req) {
         return build(HttpStatus.INTERNAL_SERVER_ERROR, "server.error", "Internal server error", req, null, ex, true);
@@ -2,4 +2,5 @@ package com.example.bankcards.exception;
 
 public class IdempotencyConflictException extends RuntimeException {
     public IdempotencyConflictException() { super("Idempotency key conflict"); }
+    public IdempotencyConflictException(String message) { super(message); }
 }
@@ -0,0 +1,13 @@
+package com.example.bankcards.exception;
+
+import lombok.Getter;
+
+@Getter
+public class ServiceOverloadedException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public ServiceOverloadedException(int retryAfterSeconds) {
+        super("Service is temporarily overloaded, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.bankcards.mapper;
+
+import com.example.bankcards.dto.BalanceSummaryDto;
+import com.example.bankcards.dto.CardStatusTotalsDto;
+import com.example.bankcards.entity.UserBalanceSummary;
+import com.example.bankcards.entity.enums.CardStatus;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+public final class BalanceSummaryMapper {
+    private BalanceSummaryMapper() {}
+
+    public static BalanceSummaryDto toDto(UserBalanceSummary s) {
+        if (s == null) return empty();
+        Map<CardStatus, CardStatusTotalsDto> byStatus = new EnumMap<>(CardStatus.class);
+        byStatus.put(CardStatus.ACTIVE, new CardStatusTotalsDto(s.getActiveCount(), s.getActiveBalance()));
+        byStatus.put(CardStatus.BLOCKED, new CardStatusTotalsDto(s.getBlockedCount(), s.getBlockedBalance()));
+        byStatus.put(CardStatus.EXPIRED, new CardStatusTotalsDto(s.getExpiredCount(), s.getExpiredBalance()));
+        return BalanceSummaryDto.builder()
+                .cardCount(s.getCardCount())
+                .totalBalance(s.getActiveBalance() + s.getBlockedBalance() + s.getExpiredBalance())
+                .byStatus(byStatus)
+                .updatedAt(s.getUpdatedAt())
+                .build();
+    }
+
+    public static BalanceSummaryDto empty() {
+        Map<CardStatus, CardStatusTotalsDto> byStatus = new EnumMap<>(CardStatus.class);
+        for (CardStatus st : CardStatus.values()) {
+            byStatus.put(st, new CardStatusTotalsDto(0, 0));
+        }
+        return BalanceSummaryDto.builder()
+                .cardCount(0)
+                .totalBalance(0)
+                .byStatus(byStatus)
+                .build();
+    }
+}
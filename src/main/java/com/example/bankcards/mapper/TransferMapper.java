@@ -19,6 +19,8 @@ public class TransferMapper {
                 .executedAt(t.getExecutedAt())
                 .failureCode(t.getFailureCode())
                 .failureMessage(t.getFailureMessage())
+                .attemptCount(t.getAttemptCount())
+                .nextAttemptAt(t.getNextAttemptAt())
                 .build();
     }
 }
@@ -0,0 +1,58 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.entity.enums.IdempotencyStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByUserIdAndIdemKey(Long userId, String idemKey);
+
+    // 1 -> ключ захвачен (новый или просроченный), 0 -> живая запись уже есть.
+    // Конкурентный INSERT с тем же ключом ждёт коммита/отката первой транзакции.
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "idempotency_records"))
+    @Query(value = """
+            INSERT INTO idempotency_records (user_id, idem_key, scope, request_hash, status, created_at, expires_at)
+            VALUES (:userId, :key, :scope, :requestHash, 'IN_PROGRESS', :now, :expiresAt)
+            ON CONFLICT (user_id, idem_key) DO UPDATE
+               SET scope = EXCLUDED.scope,
+                   request_hash = EXCLUDED.request_hash,
+                   status = EXCLUDED.status,
+                   response_body = NULL,
+                   created_at = EXCLUDED.created_at,
+                   expires_at = EXCLUDED.expires_at
+             WHERE idempotency_records.expires_at <= EXCLUDED.created_at
+            """, nativeQuery = true)
+    int tryAcquire(@Param("userId") Long userId,
+                   @Param("key") String key,
+                   @Param("scope") String scope,
+                   @Param("requestHash") String requestHash,
+                   @Param("now") LocalDateTime now,
+                   @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("update IdempotencyRecord r set r.status = :status, r.responseBody = :body " +
+            "where r.userId = :userId and r.idemKey = :key")
+    int complete(@Param("userId") Long userId,
+                 @Param("key") String key,
+                 @Param("status") IdempotencyStatus status,
+                 @Param("body") String body);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "idempotency_records"))
+    @Query(value = """
+            DELETE FROM idempotency_records
+             WHERE id IN (SELECT id FROM idempotency_records WHERE expires_at < :now LIMIT :limit)
+            """, nativeQuery = true)
+    int deleteExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
@@ -0,0 +1,59 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.RefreshToken;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    // Один поиск по уникальному индексу token_hash: токен, его состояние и всё нужное для нового JWT
+    @Query(value = """
+            SELECT t.id AS "id", t.user_id AS "userId", t.family_id AS "familyId",
+                   t.revoked AS "revoked", t.used_at IS NOT NULL AS "used", t.expires_at > :now AS "active",
+                   u.username AS "username", u.enabled AS "enabled", string_agg(r.role, ',') AS "roles"
+              FROM refresh_tokens t
+              JOIN users u ON u.id = t.user_id
+              LEFT JOIN user_roles r ON r.user_id = u.id
+             WHERE t.token_hash = :hash
+             GROUP BY t.id, u.id
+            """, nativeQuery = true)
+    Optional<RefreshTokenView> findForRefresh(@Param("hash") String hash, @Param("now") LocalDateTime now);
+
+    // 1 -> токен ротирован этим запросом, 0 -> его уже ротировал параллельный запрос
+    @Modifying
+    @Query("update RefreshToken t set t.usedAt = :now where t.id = :id and t.usedAt is null and t.revoked = false")
+    int markUsed(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true where t.familyId = :familyId and t.revoked = false")
+    int revokeFamily(@Param("familyId") UUID familyId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "refresh_tokens"))
+    @Query(value = """
+            DELETE FROM refresh_tokens
+             WHERE id IN (SELECT id FROM refresh_tokens WHERE expires_at < :now LIMIT :limit)
+            """, nativeQuery = true)
+    int deleteExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    interface RefreshTokenView {
+        Long getId();
+        Long getUserId();
+        UUID getFamilyId();
+        Boolean getRevoked();
+        Boolean getUsed();
+        Boolean getActive();
+        String getUsername();
+        Boolean getEnabled();
+        String getRoles();
+    }
+}
@@ -1,20 +1,153 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.TransferExportRow;
 import com.example.bankcards.entity.Transfer;
 import com.example.bankcards.entity.enums.TransferStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
-public interface TransferRepository extends JpaRepository<Transfer, Long> {
-    Page<Transfer> findByStatusAndExpiresAtBefore(TransferStatus status, LocalDateTime before, Pageable pageable);
+public interface TransferRepository extends JpaRepository<Transfer, Long>, TransferRepositoryCustom {
+    // Срок обработки = coalesce(next_attempt_at, expires_at): отложенные бэкоффом строки в выборку не попадают.
+    // Выражение и литерал статуса совпадают с частичным индексом idx_transfers_pending_due.
+    @Query("""
+            select t.id from Transfer t
+             where t.status = com.example.bankcards.entity.enums.TransferStatus.PENDING
+               and coalesce(t.nextAttemptAt, t.expiresAt) < :now
+            """)
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query("""
+            select count(t) as dueCount, min(coalesce(t.nextAttemptAt, t.expiresAt)) as oldestDue
+              from Transfer t
+             where t.status = com.example.bankcards.entity.enums.TransferStatus.PENDING
+               and coalesce(t.nextAttemptAt, t.expiresAt) < :now
+            """)
+    DueBacklog findDueBacklog(@Param("now") LocalDateTime now);
+
+    @Query("select t.attemptCount from Transfer t where t.id = :id and t.status = :status")
+    Optional<Integer> findAttemptCount(@Param("id") Long id, @Param("status") TransferStatus status);
+
+    // Фиксация неудачной попытки вне транзакции обработки; attemptCount в условии защищает от гонки
+    @Transactional
+    @Modifying
+    @Query("""
+            update Transfer t
+               set t.attemptCount = t.attemptCount + 1,
+                   t.nextAttemptAt = :nextAttemptAt,
+                   t.status = :status,
+                   t.failureCode = :failureCode,
+                   t.failureMessage = :failureMessage,
+                   t.version = t.version + 1
+             where t.id = :id
+               and t.status = com.example.bankcards.entity.enums.TransferStatus.PENDING
+               and t.attemptCount = :attempts
+            """)
+    int recordFailedAttempt(@Param("id") Long id,
+                            @Param("attempts") int attempts,
+                            @Param("status") TransferStatus status,
+                            @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                            @Param("failureCode") String failureCode,
+                            @Param("failureMessage") String failureMessage);
+
+    Page<Transfer> findByStatus(TransferStatus status, Pageable pageable);
     Optional<Transfer> findByIdempotencyKey(String idempotencyKey);
     Page<Transfer> findByInitiator_Id(Long initiatorId, Pageable pageable);
     boolean existsByFromCard_Id(Long cardId);
     boolean existsByToCard_Id(Long cardId);
-    Optional<Transfer> findByInitiator_IdAndIdempotencyKey(Long initiatorId, String idempotencyKey);
 
+    // Keyset-выборка для выгрузки: id < beforeId, по убыванию id, без count-запроса
+    @Query("""
+            select new com.example.bankcards.dto.TransferExportRow(
+                   t.id, t.initiator.id, t.fromCard.id, t.toCard.id, t.amount, t.status,
+                   t.createdAt, t.expiresAt, t.executedAt, t.failureCode)
+              from Transfer t
+             where t.id < :beforeId
+               and (:status is null or t.status = :status)
+               and (:cardId is null or t.fromCard.id = :cardId or t.toCard.id = :cardId)
+               and (:from is null or t.createdAt >= :from)
+               and (:to is null or t.createdAt < :to)
+             order by t.id desc
+            """)
+    List<TransferExportRow> findExportChunk(@Param("beforeId") Long beforeId,
+                                            @Param("status") TransferStatus status,
+                                            @Param("cardId") Long cardId,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to,
+                                            Pageable limit);
+
+    // Блок id из последовательности для переводов, создаваемых вне БД (IN_MEMORY)
+    @Transactional
+    @Query(value = "SELECT nextval('transfers_id_seq') FROM generate_series(1, :n)", nativeQuery = true)
+    List<Long> allocateIds(@Param("n") int n);
+
+    // Отложенная запись перевода из журнала IN_MEMORY. Повтор безопасен: балансы меняются,
+    // только если строка перевода вставлена впервые.
+    @Transactional
+    @Query(value = """
+            WITH ins AS (
+                INSERT INTO transfers (id, initiator_user_id, from_card_id, to_card_id, amount, status,
+                                       created_at, executed_at, version)
+                VALUES (:id, :userId, :fromId, :toId, :amount, 'COMPLETED', :at, :at, 0)
+                ON CONFLICT (id) DO NOTHING
+                RETURNING id
+            ), debit AS (
+                UPDATE cards SET balance = balance - :amount, version = version + 1
+                 WHERE id = :fromId AND EXISTS (SELECT 1 FROM ins)
+                RETURNING id
+            ), credit AS (
+                UPDATE cards SET balance = balance + :amount, version = version + 1
+                 WHERE id = :toId AND EXISTS (SELECT 1 FROM ins)
+                RETURNING id
+            )
+            SELECT count(*) FROM ins
+            """, nativeQuery = true)
+    long applyJournaled(@Param("id") long id,
+                        @Param("userId") long userId,
+                        @Param("fromId") long fromId,
+                        @Param("toId") long toId,
+                        @Param("amount") long amount,
+                        @Param("at") LocalDateTime at);
+
+    // Отмена журнальной проводки, чья транзакция откатилась: строка перевода удаляется, балансы
+    // возвращаются, только если строка была перенесена. Повтор и отмена неперенесённой — no-op.
+    @Transactional
+    @Query(value = """
+            WITH del AS (
+                DELETE FROM transfers WHERE id = :id
+                RETURNING id
+            ), debit AS (
+                UPDATE cards SET balance = balance + :amount, version = version + 1
+                 WHERE id = :fromId AND EXISTS (SELECT 1 FROM del)
+                RETURNING id
+            ), credit AS (
+                UPDATE cards SET balance = balance - :amount, version = version + 1
+                 WHERE id = :toId AND EXISTS (SELECT 1 FROM del)
+                RETURNING id
+            )
+            SELECT count(*) FROM del
+            """, nativeQuery = true)
+    long cancelJournaled(@Param("id") long id,
+                         @Param("fromId") long fromId,
+                         @Param("toId") long toId,
+                         @Param("amount") long amount);
+
+    interface DueBacklog {
+        long getDueCount();
+        LocalDateTime getOldestDue();
+    }
+
+    interface ImmediateTransferResult {
+        Long getId();
+        String getFromLast4();
+        String getToLast4();
+    }
 }
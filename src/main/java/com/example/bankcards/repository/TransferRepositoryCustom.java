@@ -0,0 +1,11 @@
+package com.example.bankcards.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface TransferRepositoryCustom {
+
+    // Немедленный перевод одним запросом; затронутые карты репозиторий сам вычищает из L2-кэша
+    Optional<TransferRepository.ImmediateTransferResult> executeImmediate(Long userId, Long fromId, Long toId, long amount,
+                                                                          String ym, LocalDateTime now);
+}
@@ -0,0 +1,101 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transfer;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class TransferRepositoryCustomImpl implements TransferRepositoryCustom {
+
+    // Списание проходит только при достаточном балансе и ACTIVE/непросроченной карте владельца,
+    // зачисление и вставка — только после успешного списания.
+    // Пустой результат = перевод отклонён (при частичном выполнении вызывающий откатывает транзакцию).
+    static final String EXECUTE_IMMEDIATE_SQL = """
+            WITH debit AS (
+                UPDATE cards
+                   SET balance = balance - :amount, version = version + 1
+                 WHERE id = :fromId AND user_id = :userId
+                   AND status = 'ACTIVE' AND expiry >= :ym AND balance >= :amount
+                RETURNING id, pan_last4
+            ), credit AS (
+                UPDATE cards
+                   SET balance = balance + :amount, version = version + 1
+                 WHERE id = :toId AND user_id = :userId
+                   AND status = 'ACTIVE' AND expiry >= :ym
+                   AND EXISTS (SELECT 1 FROM debit)
+                RETURNING id, pan_last4
+            ), ins AS (
+                INSERT INTO transfers (initiator_user_id, from_card_id, to_card_id, amount, status,
+                                       created_at, executed_at, version)
+                SELECT :userId, :fromId, :toId, :amount, 'COMPLETED', :now, :now, 0
+                  FROM credit
+                RETURNING id
+            )
+            SELECT ins.id AS id, debit.pan_last4 AS from_last4, credit.pan_last4 AS to_last4
+              FROM ins, debit, credit
+            """;
+
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public Optional<TransferRepository.ImmediateTransferResult> executeImmediate(Long userId, Long fromId, Long toId,
+                                                                                 long amount, String ym,
+                                                                                 LocalDateTime now) {
+        // Пространства запроса: несброшенные изменения карт и переводов уйдут в БД до выполнения
+        NativeQuery<Object[]> q = entityManager.createNativeQuery(EXECUTE_IMMEDIATE_SQL)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Card.class)
+                .addSynchronizedEntityClass(Transfer.class);
+        q.setParameter("userId", userId);
+        q.setParameter("fromId", fromId);
+        q.setParameter("toId", toId);
+        q.setParameter("amount", amount);
+        q.setParameter("ym", ym);
+        q.setParameter("now", now);
+
+        List<Object[]> rows = q.getResultList();
+        if (rows.isEmpty()) return Optional.empty();
+
+        evictCards(fromId, toId);
+        Object[] row = rows.get(0);
+        return Optional.of(new ImmediateRow(((Number) row[0]).longValue(), (String) row[1], (String) row[2]));
+    }
+
+    private record ImmediateRow(Long id, String fromLast4, String toLast4)
+            implements TransferRepository.ImmediateTransferResult {
+        @Override public Long getId() { return id; }
+        @Override public String getFromLast4() { return fromLast4; }
+        @Override public String getToLast4() { return toLast4; }
+    }
+
+    // Нативный UPDATE мимо Hibernate: кэш второго уровня для карт сбрасывается сразу и повторно
+    // после коммита, чтобы параллельное чтение не вернуло в кэш старый баланс
+    private void evictCards(Long fromId, Long toId) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        Runnable evict = () -> {
+            cache.evict(Card.class, fromId);
+            cache.evict(Card.class, toId);
+        };
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.UserBalanceSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface UserBalanceSummaryRepository extends JpaRepository<UserBalanceSummary, Long> {
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_balance_summary"))
+    @Query(value = """
+            INSERT INTO user_balance_summary AS s (user_id, card_count,
+                                                   active_count, active_balance,
+                                                   blocked_count, blocked_balance,
+                                                   expired_count, expired_balance, updated_at)
+            VALUES (:userId, :cardCount, :activeCount, :activeBalance,
+                    :blockedCount, :blockedBalance, :expiredCount, :expiredBalance, :now)
+            ON CONFLICT (user_id) DO UPDATE
+               SET card_count      = s.card_count + EXCLUDED.card_count,
+                   active_count    = s.active_count + EXCLUDED.active_count,
+                   active_balance  = s.active_balance + EXCLUDED.active_balance,
+                   blocked_count   = s.blocked_count + EXCLUDED.blocked_count,
+                   blocked_balance = s.blocked_balance + EXCLUDED.blocked_balance,
+                   expired_count   = s.expired_count + EXCLUDED.expired_count,
+                   expired_balance = s.expired_balance + EXCLUDED.expired_balance,
+                   updated_at      = EXCLUDED.updated_at
+            """, nativeQuery = true)
+    int applyDelta(@Param("userId") Long userId,
+                   @Param("cardCount") long cardCount,
+                   @Param("activeCount") long activeCount,
+                   @Param("activeBalance") long activeBalance,
+                   @Param("blockedCount") long blockedCount,
+                   @Param("blockedBalance") long blockedBalance,
+                   @Param("expiredCount") long expiredCount,
+                   @Param("expiredBalance") long expiredBalance,
+                   @Param("now") LocalDateTime now);
+}
@@ -4,11 +4,37 @@ import com.example.bankcards.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByUsername(String username);
     Optional<User> findByUsername(String username);
     Page<User> findByUsernameContainingIgnoreCase(String username, Pageable pageable);
+
+    // Распределение хэшей по {id} и стоимости BCrypt ($2a$12$... -> 12); пустой id — старый хэш без префикса.
+    // Скобки через chr(): фигурные скобки в native SQL Hibernate разбирает как алиасы
+    @Query(value = """
+            SELECT CASE WHEN left(h.hash, 1) = chr(123)
+                        THEN substring(h.hash FROM 2 FOR position(chr(125) IN h.hash) - 2)
+                        ELSE '' END AS "encodingId",
+                   CASE WHEN split_part(h.body, '$', 2) LIKE '2%'
+                        THEN CAST(split_part(h.body, '$', 3) AS INTEGER) END AS "cost",
+                   count(*) AS "users"
+              FROM (SELECT password AS hash,
+                           CASE WHEN left(password, 1) = chr(123)
+                                THEN substring(password FROM position(chr(125) IN password) + 1)
+                                ELSE password END AS body
+                      FROM users) h
+             GROUP BY 1, 2
+            """, nativeQuery = true)
+    List<PasswordHashStats> passwordHashStats();
+
+    interface PasswordHashStats {
+        String getEncodingId();
+        Integer getCost();
+        Long getUsers();
+    }
 }
@@ -1,5 +1,8 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.entity.enums.AuditEventType;
+import com.example.bankcards.service.AuditTrail;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
 import org.springframework.security.authentication.event.AbstractAuthenticationFailureEvent;
@@ -8,18 +11,24 @@ import org.springframework.stereotype.Component;
 
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class AuthAuditListener {
 
+    private final AuditTrail auditTrail;
+
     @EventListener
     public void onSuccess(AuthenticationSuccessEvent e) {
         if (e.getAuthentication() == null) return;
+        Long userId = e.getAuthentication().getPrincipal() instanceof CustomUserDetails u ? u.getId() : null;
+        auditTrail.record(AuditEventType.AUTH_SUCCESS, userId, null, null, e.getAuthentication().getName());
         log.info("Auth success: {}", e.getAuthentication().getName());
     }
 
     @EventListener
     public void onFailure(AbstractAuthenticationFailureEvent e) {
         if (e.getAuthentication() == null) return;
-        log.warn("Auth failed: {} ({})", e.getAuthentication().getName(),
-                e.getException() != null ? e.getException().getClass().getSimpleName() : "unknown");
+        String reason = e.getException() != null ? e.getException().getClass().getSimpleName() : "unknown";
+        auditTrail.record(AuditEventType.AUTH_FAILURE, null, null, null, e.getAuthentication().getName() + " (" + reason + ")");
+        log.warn("Auth failed: {} ({})", e.getAuthentication().getName(), reason);
     }
 }
@@ -9,7 +9,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
@@ -23,18 +22,9 @@ import java.util.concurrent.ConcurrentHashMap;
 public class AuthRateLimitFilter extends OncePerRequestFilter {
 
     private final AuthRateLimitProperties props;
-    private final AntPathMatcher matcher = new AntPathMatcher();
+    private final RequestClassifier requestClassifier;
     private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
 
-    // swagger whitelist
-    private static final String[] SWAGGER_WHITELIST = {
-            "/v3/api-docs",
-            "/v3/api-docs.yaml",
-            "/v3/api-docs/**",
-            "/swagger-ui.html",
-            "/swagger-ui/**"
-    };
-
     @Value(staticConstructor = "of")
     private static class Bucket {
         int remaining;
@@ -43,20 +33,7 @@ public class AuthRateLimitFilter extends OncePerRequestFilter {
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
-        if (!props.isEnabled()) return true;
-
-        String path = request.getServletPath();
-
-        // 🔥 если swagger/doc путь → не фильтруем
-        for (String skip : SWAGGER_WHITELIST) {
-            if (matcher.match(skip, path)) {
-                log.debug("Skipping rate-limit filter for {}", path);
-                return true;
-            }
-        }
-
-        // остальное решается по props.getPaths()
-        return props.getPaths().stream().noneMatch(p -> matcher.match(p, path));
+        return !props.isEnabled() || requestClassifier.classify(request) != RequestClassifier.Route.AUTH_LIMITED;
     }
 
     @Override
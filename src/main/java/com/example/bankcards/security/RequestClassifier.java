@@ -0,0 +1,128 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.SecurityConfig;
+import com.example.bankcards.config.properties.AuthRateLimitProperties;
+import com.example.bankcards.config.properties.UserRateLimitProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Маршрут запроса для фильтров безопасности: шаблоны разбираются один раз при старте,
+// запрос классифицируется один раз и результат лежит в атрибуте — следующие фильтры его только читают.
+// Литеральные пути проверяются поиском в HashSet, PathPattern — только для шаблонов с * и {}.
+@Component
+public class RequestClassifier {
+
+    public static final String ATTRIBUTE = RequestClassifier.class.getName() + ".route";
+    public static final String QUOTA_ATTRIBUTE = RequestClassifier.class.getName() + ".quotaGroup";
+
+    public enum Route {
+        // Swagger/OpenAPI: мимо JWT и rate limit
+        DOCS,
+        // Эндпоинты аутентификации под rate limit
+        AUTH_LIMITED,
+        API
+    }
+
+    private final Patterns docs;
+    private final Patterns authLimited;
+    private final QuotaGroup[] quotaGroups;
+
+    public RequestClassifier(AuthRateLimitProperties rateLimitProps, UserRateLimitProperties userRateLimitProps) {
+        PathPatternParser parser = new PathPatternParser();
+        this.docs = new Patterns(parser, Arrays.asList(SecurityConfig.DOCS_WHITELIST));
+        this.authLimited = new Patterns(parser, rateLimitProps.getPaths());
+        // Индексы групп совпадают с порядком в UserRateLimitProperties.groups — по нему же строит таблицы UserRateLimiter
+        this.quotaGroups = userRateLimitProps.getGroups().values().stream()
+                .map(g -> new QuotaGroup(
+                        g.getMethods().stream().map(m -> m.toUpperCase(Locale.ROOT)).collect(Collectors.toSet()),
+                        new Patterns(parser, g.getPaths())))
+                .toArray(QuotaGroup[]::new);
+    }
+
+    public Route classify(HttpServletRequest request) {
+        if (request.getAttribute(ATTRIBUTE) instanceof Route cached) return cached;
+        Route route = classify(path(request));
+        request.setAttribute(ATTRIBUTE, route);
+        return route;
+    }
+
+    Route classify(String path) {
+        Lazy container = new Lazy(path);
+        if (docs.matches(path, container)) return Route.DOCS;
+        if (authLimited.matches(path, container)) return Route.AUTH_LIMITED;
+        return Route.API;
+    }
+
+    // Группа пользовательской квоты: индекс первой подходящей группы, -1 — квота не применяется.
+    // Документация и эндпоинты входа/регистрации (у них лимит по IP) в группы не попадают.
+    public int quotaGroup(HttpServletRequest request) {
+        if (request.getAttribute(QUOTA_ATTRIBUTE) instanceof Integer cached) return cached;
+        int group = classify(request) == Route.API ? quotaGroup(request.getMethod(), path(request)) : -1;
+        request.setAttribute(QUOTA_ATTRIBUTE, group);
+        return group;
+    }
+
+    int quotaGroup(String method, String path) {
+        Lazy container = new Lazy(path);
+        for (int i = 0; i < quotaGroups.length; i++) {
+            QuotaGroup g = quotaGroups[i];
+            if ((g.methods().isEmpty() || g.methods().contains(method)) && g.paths().matches(path, container)) return i;
+        }
+        return -1;
+    }
+
+    private static String path(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String ctx = request.getContextPath();
+        return (ctx != null && !ctx.isEmpty() && uri.startsWith(ctx)) ? uri.substring(ctx.length()) : uri;
+    }
+
+    private record QuotaGroup(Set<String> methods, Patterns paths) {}
+
+    private static final class Patterns {
+        final Set<String> literals = new HashSet<>();
+        final List<PathPattern> patterns = new ArrayList<>();
+
+        Patterns(PathPatternParser parser, Collection<String> sources) {
+            for (String p : sources) {
+                if (p.indexOf('*') < 0 && p.indexOf('{') < 0 && p.indexOf('?') < 0) literals.add(p);
+                else patterns.add(parser.parse(p));
+            }
+        }
+
+        boolean matches(String path, Lazy container) {
+            if (literals.contains(path)) return true;
+            for (PathPattern p : patterns) {
+                if (p.matches(container.get())) return true;
+            }
+            return false;
+        }
+    }
+
+    // PathContainer разбирается, только если дошло до шаблонов
+    private static final class Lazy {
+        final String path;
+        PathContainer container;
+
+        Lazy(String path) {
+            this.path = path;
+        }
+
+        PathContainer get() {
+            if (container == null) container = PathContainer.parsePath(path);
+            return container;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.annotation.ShardKey;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -15,7 +16,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     private final UserRepository userRepository;
 
     @Override
-    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+    public UserDetails loadUserByUsername(@ShardKey String username) throws UsernameNotFoundException {
         String u = username == null ? null : username.trim();
         User user = userRepository.findByUsername(u)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + u));
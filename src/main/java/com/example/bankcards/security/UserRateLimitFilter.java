@@ -0,0 +1,70 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.properties.UserRateLimitProperties;
+import com.example.bankcards.security.jwt.JwtFilter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Квоты аутентифицированного пользователя по группам маршрутов; стоит после JwtFilter и берёт uid
+// из проверенного токена. Анонимные запросы пропускаются — их отклонит авторизация.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserRateLimitFilter extends OncePerRequestFilter {
+
+    // Готовые строки для заголовков: типичные значения не форматируются на каждый запрос
+    private static final String[] NUMBERS = new String[1024];
+
+    static {
+        for (int i = 0; i < NUMBERS.length; i++) NUMBERS[i] = Integer.toString(i);
+    }
+
+    private final UserRateLimitProperties props;
+    private final RequestClassifier requestClassifier;
+    private final UserRateLimiter limiter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !props.isEnabled() || requestClassifier.quotaGroup(request) < 0;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req,
+                                    HttpServletResponse res,
+                                    FilterChain chain) throws ServletException, IOException {
+        if (!(req.getAttribute(JwtFilter.USER_ID_ATTRIBUTE) instanceof Long userId)) {
+            chain.doFilter(req, res);
+            return;
+        }
+        int group = requestClassifier.quotaGroup(req);
+        long result = limiter.tryAcquire(group, userId);
+
+        res.setHeader("RateLimit-Limit", number(limiter.capacity(group)));
+        res.setHeader("RateLimit-Remaining", number(UserRateLimiter.remaining(result)));
+        res.setHeader("RateLimit-Reset", number(UserRateLimiter.resetSeconds(result)));
+        res.setHeader("RateLimit-Policy", limiter.policy(group));
+
+        if (UserRateLimiter.isRejected(result)) {
+            res.setStatus(429);
+            res.setHeader("Retry-After", number(UserRateLimiter.resetSeconds(result)));
+            res.setContentType("application/json");
+            res.getWriter().write("{\"error\":\"Too Many Requests\"}");
+            log.debug("User rate limited {} (uid={}, group={})", req.getRequestURI(), userId, group);
+            return;
+        }
+
+        chain.doFilter(req, res);
+    }
+
+    private static String number(int value) {
+        return value >= 0 && value < NUMBERS.length ? NUMBERS[value] : Integer.toString(value);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.properties.UserRateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Token bucket на пользователя и группу маршрутов в виде GCRA: состояние ведра — один long
+// (теоретическое время прихода следующего запроса), обновляется CAS. Таблицы открытой адресации
+// выделяются при старте, поэтому решение не берёт блокировок и не создаёт объектов.
+// Слот с полностью пополненным ведром можно отдать другому пользователю: для него оно неотличимо от нового.
+@Component
+public class UserRateLimiter {
+
+    // Сколько соседних слотов просматривается при поиске/захвате
+    private static final int PROBES = 8;
+    private static final long EMPTY = 0L;
+    private static final long REJECTED = 1L << 63;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Table[] tables;
+    // Время отсчитывается от старта: ноль в пустом слоте всегда «в прошлом»
+    private final long origin = System.nanoTime();
+
+    public UserRateLimiter(UserRateLimitProperties props, MeterRegistry registry) {
+        int slots = Integer.highestOneBit(Math.max(PROBES, props.getMaxUsers() * 2 - 1)) << 1;
+        List<Table> list = new ArrayList<>();
+        for (Map.Entry<String, UserRateLimitProperties.Group> e : props.getGroups().entrySet()) {
+            list.add(new Table(e.getKey(), e.getValue(), slots, registry));
+        }
+        this.tables = list.toArray(Table[]::new);
+    }
+
+    // Результат упакован в long: бит 63 — отказ, 32..62 — оставшиеся токены, 0..31 — секунды
+    // (для разрешённого запроса — до полного пополнения, для отказа — до появления токена)
+    public long tryAcquire(int group, long userId) {
+        return tryAcquire(group, userId, System.nanoTime() - origin);
+    }
+
+    long tryAcquire(int group, long userId, long nowNanos) {
+        Table t = tables[group];
+        int slot = userId == EMPTY ? -1 : t.slot(userId, nowNanos);
+        if (slot < 0) {
+            // Таблица переполнена активными пользователями — пропускаем, но считаем
+            t.untracked.increment();
+            return pack(false, t.capacity, 0);
+        }
+        while (true) {
+            long stored = t.tats.get(slot);
+            long ahead = Math.max(stored, nowNanos) + t.interval - nowNanos;
+            if (ahead > t.burst) {
+                t.rejected.increment();
+                return pack(true, 0, seconds(ahead - t.burst));
+            }
+            if (t.tats.compareAndSet(slot, stored, nowNanos + ahead)) {
+                return pack(false, (int) ((t.burst - ahead) / t.interval), seconds(ahead));
+            }
+        }
+    }
+
+    public int capacity(int group) {
+        return tables[group].capacity;
+    }
+
+    // Значение RateLimit-Policy, например 30;w=60
+    public String policy(int group) {
+        return tables[group].policy;
+    }
+
+    public static boolean isRejected(long result) {
+        return result < 0;
+    }
+
+    public static int remaining(long result) {
+        return (int) ((result & ~REJECTED) >>> 32);
+    }
+
+    public static int resetSeconds(long result) {
+        return (int) result;
+    }
+
+    private static long pack(boolean rejected, int remaining, int seconds) {
+        return (rejected ? REJECTED : 0L) | ((long) remaining << 32) | (seconds & 0xFFFFFFFFL);
+    }
+
+    private static int seconds(long nanos) {
+        return (int) Math.min(Integer.MAX_VALUE, (nanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+    }
+
+    private static final class Table {
+        final int capacity;
+        final long interval;
+        final long burst;
+        final String policy;
+        final int mask;
+        final AtomicLongArray keys;
+        final AtomicLongArray tats;
+        final Counter rejected;
+        final Counter untracked;
+
+        Table(String name, UserRateLimitProperties.Group g, int slots, MeterRegistry registry) {
+            this.capacity = g.getCapacity();
+            this.interval = Math.max(1, g.getWindow().toNanos() / capacity);
+            this.burst = interval * capacity;
+            this.policy = capacity + ";w=" + Math.max(1, g.getWindow().toSeconds());
+            this.mask = slots - 1;
+            this.keys = new AtomicLongArray(slots);
+            this.tats = new AtomicLongArray(slots);
+            this.rejected = registry.counter("ratelimit.user.rejected", "group", name);
+            this.untracked = registry.counter("ratelimit.user.untracked", "group", name);
+        }
+
+        // Слот пользователя: найденный, свободный или вытесненный полный; -1 — места нет.
+        // Гонка двух захватов может на время дать пользователю два ведра — лимит приблизительный.
+        int slot(long key, long now) {
+            int start = mix(key) & mask;
+            int reclaim = -1;
+            for (int i = 0; i < PROBES; i++) {
+                int s = (start + i) & mask;
+                long k = keys.get(s);
+                if (k == key) return s;
+                if (k == EMPTY) {
+                    if (keys.compareAndSet(s, EMPTY, key) || keys.get(s) == key) return s;
+                } else if (reclaim < 0 && tats.get(s) <= now) {
+                    reclaim = s;
+                }
+            }
+            if (reclaim >= 0) {
+                long old = keys.get(reclaim);
+                if (tats.get(reclaim) <= now && keys.compareAndSet(reclaim, old, key)) return reclaim;
+            }
+            return -1;
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.bankcards.security.crypto;
+
+import com.example.bankcards.config.properties.PasswordHashProperties;
+import com.example.bankcards.exception.AuthOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Хэширование паролей на отдельном ограниченном пуле: шторм логинов/регистраций занимает
+// не больше threads ядер, а при полной очереди сразу получает 503 вместо роста очереди Tomcat.
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long maxQueueWaitNanos;
+    private final int retryAfterSeconds;
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer queueTimer;
+    private final Counter rejectedFull;
+    private final Counter rejectedStale;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, PasswordHashProperties props, MeterRegistry registry) {
+        this.delegate = delegate;
+        int threads = props.getThreads() > 0 ? props.getThreads() : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(props.getQueueCapacity()), new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.maxQueueWaitNanos = props.getMaxQueueWait().toNanos();
+        this.retryAfterSeconds = props.getRetryAfterSeconds();
+
+        this.encodeTimer = registry.timer("auth.password.hash.duration", "op", "encode");
+        this.matchesTimer = registry.timer("auth.password.hash.duration", "op", "matches");
+        this.queueTimer = registry.timer("auth.password.hash.queue.wait");
+        this.rejectedFull = registry.counter("auth.password.hash.rejected", "reason", "queue_full");
+        this.rejectedStale = registry.counter("auth.password.hash.rejected", "reason", "queue_timeout");
+        registry.gauge("auth.password.hash.queue.depth", Tags.empty(), executor, e -> e.getQueue().size());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Timer hashTimer, Supplier<T> op) {
+        long enqueuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long waited = System.nanoTime() - enqueuedAt;
+                queueTimer.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > maxQueueWaitNanos) {
+                    rejectedStale.increment();
+                    throw new AuthOverloadedException(retryAfterSeconds);
+                }
+                return hashTimer.record(op);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedFull.increment();
+            throw new AuthOverloadedException(retryAfterSeconds);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
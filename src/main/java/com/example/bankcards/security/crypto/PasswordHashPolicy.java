@@ -0,0 +1,58 @@
+package com.example.bankcards.security.crypto;
+
+import com.example.bankcards.config.properties.PasswordHashProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+// Параметры новых хэшей паролей: алгоритм и стоимость BCrypt.
+// Стоимость без явного значения подбирается при старте под бюджет задержки на текущем железе.
+@Slf4j
+public record PasswordHashPolicy(String encodingId, int bcryptCost) {
+
+    private static final int SAMPLES = 3;
+
+    public static PasswordHashPolicy from(PasswordHashProperties props) {
+        int cost = props.getBcryptCost() != null
+                ? props.getBcryptCost()
+                : calibrate(props.getTargetLatency(), props.getMinCost(), props.getMaxCost());
+        return new PasswordHashPolicy(props.getEncodingId(), cost);
+    }
+
+    // Хэш другого алгоритма, без префикса или с меньшей стоимостью BCrypt будет перехэширован при входе
+    public boolean isOutdated(String encodingId, Integer cost) {
+        if (!this.encodingId.equals(encodingId)) return true;
+        return "bcrypt".equals(encodingId) && cost != null && cost < bcryptCost;
+    }
+
+    // Замер на minCost; каждая следующая единица стоимости удваивает время —
+    // берём наибольшую стоимость, которая укладывается в target
+    static int calibrate(Duration target, int minCost, int maxCost) {
+        long base = medianNanos(minCost);
+        int cost = minCost;
+        long estimate = base;
+        while (cost < maxCost && estimate * 2 <= target.toNanos()) {
+            estimate *= 2;
+            cost++;
+        }
+        log.info("BCrypt cost calibrated to {} (~{} ms per hash, {} ms at cost {}, target {} ms)",
+                cost, estimate / 1_000_000, base / 1_000_000, minCost, target.toMillis());
+        return cost;
+    }
+
+    private static long medianNanos(int cost) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(cost);
+        // Прогрев JIT, в замер не идёт
+        encoder.encode("calibration");
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
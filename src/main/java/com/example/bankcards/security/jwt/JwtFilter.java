@@ -1,5 +1,8 @@
 package com.example.bankcards.security.jwt;
 
+import com.example.bankcards.config.LogContext;
+import com.example.bankcards.security.RequestClassifier;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
@@ -8,6 +11,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -15,7 +19,6 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
@@ -25,26 +28,17 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtFilter extends OncePerRequestFilter {
 
+    // uid из проверенного токена — для фильтров после аутентификации (квоты пользователя)
+    public static final String USER_ID_ATTRIBUTE = JwtFilter.class.getName() + ".uid";
+
     private final JwtParser jwtParser;
     private final UserDetailsService userDetailsService;
-
-    private static final String[] SWAGGER_WHITELIST = {
-            "/v3/api-docs",
-            "/v3/api-docs/**",
-            "/swagger-ui.html",
-            "/swagger-ui/**"
-    };
+    private final TokenRevocationStore revocationStore;
+    private final RequestClassifier requestClassifier;
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
-        String path = request.getRequestURI();
-        AntPathMatcher matcher = new AntPathMatcher();
-        for (String skip : SWAGGER_WHITELIST) {
-            if (matcher.match(skip, path)) {
-                return true;
-            }
-        }
-        return false;
+        return requestClassifier.classify(request) == RequestClassifier.Route.DOCS;
     }
 
     @Override
@@ -56,14 +50,24 @@ public class JwtFilter extends OncePerRequestFilter {
 
         try {
             if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                String username = jwtParser.extractUsername(token);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                Claims claims = jwtParser.parseClaims(token);
+                Long userId = JwtParser.userId(claims);
+                // Проверка отзыва — только память, до обращения к БД за пользователем
+                if (isRevoked(claims, userId)) {
+                    log.debug("JWT revoked: jti={}", claims.getId());
+                    unauthorized(response, "Token revoked");
+                    return;
+                }
+                UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
 
-                if (jwtParser.isValid(token, userDetails.getUsername())) {
+                if (jwtParser.isValid(claims, userDetails.getUsername())) {
                     UsernamePasswordAuthenticationToken auth =
                             new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                     auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(auth);
+                    request.setAttribute(USER_ID_ATTRIBUTE, userId);
+                    // Снимает RequestIdFilter по завершении запроса
+                    MDC.put(LogContext.USER_ID, String.valueOf(userId));
                 } else {
                     log.debug("JWT invalid or expired");
                 }
@@ -78,6 +82,10 @@ public class JwtFilter extends OncePerRequestFilter {
         }
     }
 
+    private boolean isRevoked(Claims claims, Long userId) {
+        return revocationStore.isRevoked(claims.getId(), userId, JwtParser.issuedAtMillis(claims));
+    }
+
     private String extractBearerToken(HttpServletRequest request) {
         String header = request.getHeader(HttpHeaders.AUTHORIZATION);
         return (header != null && header.startsWith("Bearer ")) ? header.substring(7) : null;
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.UUID;
 
 @Component
 public class JwtParser {
@@ -31,19 +32,45 @@ public class JwtParser {
     }
 
     public Long extractUserId(String token) {
-        Object uid = parseClaims(token).get("uid");
+        return userId(parseClaims(token));
+    }
+
+    public static Long userId(Claims claims) {
+        Object uid = claims.get("uid");
         if (uid instanceof Integer i) return i.longValue();
         if (uid instanceof Long l) return l;
         throw new JwtException("Invalid uid claim type");
     }
 
+    // Токены без sid выпущены до его появления
+    public static UUID sessionId(Claims claims) {
+        Object sid = claims.get("sid");
+        if (!(sid instanceof String s)) return null;
+        try {
+            return UUID.fromString(s);
+        } catch (IllegalArgumentException e) {
+            throw new JwtException("Invalid sid claim");
+        }
+    }
+
+    // iat в JWT — секунды; без iat_ms берём начало секунды (токен считается выданным раньше)
+    public static long issuedAtMillis(Claims claims) {
+        Object ms = claims.get("iat_ms");
+        if (ms instanceof Number n) return n.longValue();
+        Date iat = claims.getIssuedAt();
+        return iat == null ? 0 : iat.getTime();
+    }
+
     public boolean isExpired(String token) {
         Date exp = parseClaims(token).getExpiration();
         return exp.before(new Date());
     }
 
     public boolean isValid(String token, String expectedUsername) {
-        Claims c = parseClaims(token);
-        return expectedUsername.equals(c.getSubject()) && !isExpired(token);
+        return isValid(parseClaims(token), expectedUsername);
+    }
+
+    public boolean isValid(Claims claims, String expectedUsername) {
+        return expectedUsername.equals(claims.getSubject()) && claims.getExpiration().after(new Date());
     }
 }
@@ -10,6 +10,7 @@ import javax.crypto.SecretKey;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.UUID;
 
 @Component
 public class JwtProvider {
@@ -22,17 +23,26 @@ public class JwtProvider {
         this.expirationMs = props.getExpirationMs();
     }
 
-    public String generateToken(Long userId, String username, Collection<? extends GrantedAuthority> authorities) {
+    // sid — цепочка refresh-токенов входа (выход гасит и её), iat_ms — точный момент выдачи для отзыва пользователя
+    public String generateToken(Long userId, String username, Collection<? extends GrantedAuthority> authorities,
+                                UUID sessionId) {
         List<String> roles = authorities.stream().map(GrantedAuthority::getAuthority).toList();
         long now = System.currentTimeMillis();
 
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(username)
                 .claim("uid", userId)
                 .claim("roles", roles)
+                .claim("sid", sessionId.toString())
+                .claim("iat_ms", now)
                 .setIssuedAt(new Date(now))
                 .setExpiration(new Date(now + expirationMs))
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
+
+    public long expiresInSeconds() {
+        return expirationMs / 1000;
+    }
 }
@@ -0,0 +1,130 @@
+package com.example.bankcards.security.jwt;
+
+import com.example.bankcards.config.properties.TokenRevocationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Отозванные JWT в памяти: проверка в JwtFilter без запросов к БД.
+// Отзыв по jti — bloom-фильтр перед точным множеством (почти все токены не отозваны и отсекаются
+// одним проходом по битам); отзыв пользователя целиком — момент (мс), до которого выданные токены недействительны:
+// токен, полученный через refresh в ту же секунду после отзыва, проходит.
+// Источник истины — revoked_tokens; содержимое пересобирается и дополняется TokenRevocationSync.
+@Component
+public class TokenRevocationStore {
+
+    public record Entry(String jti, long userId, long revokedAtEpochMs, long expiresAtEpochSec) {}
+
+    private final TokenRevocationProperties props;
+    private volatile Snapshot snapshot;
+
+    public TokenRevocationStore(TokenRevocationProperties props) {
+        this.props = props;
+        this.snapshot = new Snapshot(props.getExpectedEntries(), props.getFalsePositiveRate());
+    }
+
+    public boolean isRevoked(String jti, Long userId, long issuedAtEpochMs) {
+        Snapshot s = snapshot;
+        if (userId != null) {
+            Long cutoff = s.userCutoffs.get(userId);
+            if (cutoff != null && issuedAtEpochMs <= cutoff) return true;
+        }
+        return jti != null && s.bloom.mightContain(jti) && s.jtis.contains(jti);
+    }
+
+    public synchronized void add(Entry e) {
+        snapshot.add(e);
+    }
+
+    // Истёкшие записи отбрасываются: токены, которые они гасили, и так не пройдут проверку exp
+    public synchronized void replace(Collection<Entry> entries, long nowEpochSec) {
+        Snapshot fresh = new Snapshot(Math.max(props.getExpectedEntries(), entries.size()), props.getFalsePositiveRate());
+        for (Entry e : entries) {
+            if (e.expiresAtEpochSec() > nowEpochSec) fresh.add(e);
+        }
+        snapshot = fresh;
+    }
+
+    public int size() {
+        Snapshot s = snapshot;
+        return s.jtis.size() + s.userCutoffs.size();
+    }
+
+    private static final class Snapshot {
+        final BloomFilter bloom;
+        final Set<String> jtis = ConcurrentHashMap.newKeySet();
+        final Map<Long, Long> userCutoffs = new ConcurrentHashMap<>();
+
+        Snapshot(int expected, double fpp) {
+            this.bloom = new BloomFilter(expected, fpp);
+        }
+
+        // Сначала точное множество, потом биты: увидевший бит читатель найдёт и запись
+        void add(Entry e) {
+            if (e.jti() == null) {
+                userCutoffs.merge(e.userId(), e.revokedAtEpochMs(), Math::max);
+            } else {
+                jtis.add(e.jti());
+                bloom.put(e.jti());
+            }
+        }
+    }
+
+    // Двойное хэширование h1 + i*h2 (Kirsch–Mitzenmacher) поверх 64-битного FNV-1a
+    static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long size;
+        private final int hashes;
+
+        BloomFilter(int expected, double fpp) {
+            long m = (long) Math.ceil(-expected * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            this.size = Math.max(64, m);
+            this.hashes = Math.max(1, (int) Math.round((double) size / expected * Math.log(2)));
+            this.bits = new AtomicLongArray((int) ((size + 63) / 64));
+        }
+
+        void put(String key) {
+            long h1 = fnv1a(key);
+            long h2 = mix(h1);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long prev;
+                do {
+                    prev = bits.get(word);
+                } while ((prev & mask) == 0 && !bits.compareAndSet(word, prev, prev | mask));
+            }
+        }
+
+        boolean mightContain(String key) {
+            long h1 = fnv1a(key);
+            long h2 = mix(h1);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        private static long fnv1a(String s) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < s.length(); i++) {
+                h ^= s.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return h;
+        }
+
+        // splitmix64: второй хэш не должен коррелировать с первым
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return (z ^ (z >>> 31)) | 1L;
+        }
+    }
+}
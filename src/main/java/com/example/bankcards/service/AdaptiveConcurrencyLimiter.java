@@ -0,0 +1,156 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.annotation.ConcurrencyLimited.Priority;
+import com.example.bankcards.config.properties.ConcurrencyLimitProperties;
+import com.example.bankcards.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Адаптивный лимит одновременных запросов (градиентный, как Gradient2): пока задержка держится
+// у долгосрочной средней, лимит растёт на sqrt(limit); когда БД тормозит и задержка растёт,
+// лимит сжимается пропорционально, и лишние запросы получают 503 сразу, а не ждут пул соединений.
+@Slf4j
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private final ConcurrencyLimitProperties props;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    private volatile double limit;
+    private volatile int inflight;
+    private volatile int waiting;
+    private double longRtt;
+    private long samples;
+
+    private final Map<Priority, Counter> rejectedLimit = new EnumMap<>(Priority.class);
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedQueueTimeout;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties props, MeterRegistry registry) {
+        this.props = props;
+        this.limit = clamp(props.getInitialLimit());
+        for (Priority p : Priority.values()) {
+            rejectedLimit.put(p, registry.counter("concurrency.rejected", "priority", p.name(), "reason", "limit"));
+        }
+        this.rejectedQueueFull = registry.counter("concurrency.rejected", "priority", Priority.CRITICAL.name(), "reason", "queue_full");
+        this.rejectedQueueTimeout = registry.counter("concurrency.rejected", "priority", Priority.CRITICAL.name(), "reason", "queue_timeout");
+        registry.gauge("concurrency.limit", Tags.empty(), this, AdaptiveConcurrencyLimiter::limit);
+        registry.gauge("concurrency.inflight", Tags.empty(), this, l -> l.inflight);
+        registry.gauge("concurrency.queue", Tags.empty(), this, l -> l.waiting);
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inflight() {
+        return inflight;
+    }
+
+    // Занимает слот или бросает ServiceOverloadedException; после выполнения — release
+    public void acquire(Priority priority) {
+        lock.lock();
+        try {
+            if (admits(priority)) {
+                inflight++;
+                return;
+            }
+            if (priority != Priority.CRITICAL) {
+                rejectedLimit.get(priority).increment();
+                throw new ServiceOverloadedException(props.getRetryAfterSeconds());
+            }
+            if (waiting >= props.getQueueCapacity()) {
+                rejectedQueueFull.increment();
+                throw new ServiceOverloadedException(props.getRetryAfterSeconds());
+            }
+            awaitSlot();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // rttNanos — время выполнения запроса с занятым слотом
+    public void release(long rttNanos) {
+        lock.lock();
+        try {
+            int before = limit();
+            update(rttNanos);
+            inflight--;
+            if (limit() > before) released.signalAll();
+            else released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean admits(Priority priority) {
+        return switch (priority) {
+            case CRITICAL -> inflight < limit();
+            // Пока платежи ждут в очереди, освободившиеся слоты достаются им
+            case NORMAL -> waiting == 0 && inflight < limit();
+            case LOW -> waiting == 0 && inflight < (int) (limit * props.getLowPriorityShare());
+        };
+    }
+
+    private void awaitSlot() {
+        waiting++;
+        try {
+            long nanos = props.getMaxQueueWait().toNanos();
+            while (inflight >= limit()) {
+                if (nanos <= 0) {
+                    rejectedQueueTimeout.increment();
+                    throw new ServiceOverloadedException(props.getRetryAfterSeconds());
+                }
+                nanos = released.awaitNanos(nanos);
+            }
+            inflight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedQueueTimeout.increment();
+            throw new ServiceOverloadedException(props.getRetryAfterSeconds());
+        } finally {
+            waiting--;
+        }
+    }
+
+    private void update(long rttNanos) {
+        double rtt = Math.max(1, rttNanos);
+        samples++;
+        // Прогрев — обычное среднее, дальше — экспоненциальное по окну longWindow
+        longRtt += samples <= props.getLongWindow()
+                ? (rtt - longRtt) / samples
+                : (rtt - longRtt) * 2.0 / (props.getLongWindow() + 1);
+        // После резкого ускорения долгосрочная средняя догоняет быстрее, иначе лимит долго остаётся зажатым
+        if (longRtt / rtt > 2) longRtt *= 0.95;
+
+        // Недогрузка: задержка ничего не говорит о пределе, лимит не трогаем
+        if (inflight < limit / 2) return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, props.getRttTolerance() * longRtt / rtt));
+        double target = limit * gradient + Math.sqrt(limit);
+        double next = clamp(limit * (1 - props.getSmoothing()) + target * props.getSmoothing());
+        if ((int) next != (int) limit) {
+            log.debug("Concurrency limit {} -> {} (rtt={}ms, longRtt={}ms)", (int) limit, (int) next,
+                    TimeUnit.NANOSECONDS.toMillis((long) rtt), TimeUnit.NANOSECONDS.toMillis((long) longRtt));
+        }
+        limit = next;
+    }
+
+    private double clamp(double value) {
+        return Math.max(props.getMinLimit(), Math.min(props.getMaxLimit(), value));
+    }
+}
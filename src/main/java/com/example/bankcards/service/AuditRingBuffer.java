@@ -0,0 +1,67 @@
+package com.example.bankcards.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Ограниченная очередь «много писателей — один читатель» без блокировок (схема Вьюкова):
+// у каждой ячейки свой номер, писатель занимает позицию CAS-ом по tail и публикует ячейку записью номера.
+// Полный буфер не ждёт — offer возвращает false, решение о потере принимает вызывающий.
+final class AuditRingBuffer<T> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Пишет только читатель; volatile — для size() из других потоков
+    private volatile long head;
+
+    AuditRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+    }
+
+    boolean offer(T item) {
+        long pos = tail.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots[idx] = item;
+                    sequences.set(idx, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // Ячейка ещё не прочитана с прошлого круга — буфер полон
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    // Только из потока-читателя
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long pos = head;
+        int idx = (int) (pos & mask);
+        if (sequences.get(idx) != pos + 1) return null;
+        T item = (T) slots[idx];
+        slots[idx] = null;
+        sequences.set(idx, pos + slots.length);
+        head = pos + 1;
+        return item;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+}
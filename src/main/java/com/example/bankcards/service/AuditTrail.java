@@ -0,0 +1,170 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.BulkheadContext;
+import com.example.bankcards.config.properties.AuditProperties;
+import com.example.bankcards.entity.enums.AuditEventType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Журнал аудита входов и денежных событий: вызывающий только кладёт событие в кольцевой буфер,
+// единственный поток audit-writer пачками пишет их в audit_events (JDBC batch). На пути запроса
+// нет ни записи в БД, ни блокировок; при переполнении событие теряется по overflowPolicy.
+@Slf4j
+@Component
+public class AuditTrail {
+
+    static final String INSERT_SQL =
+            "INSERT INTO audit_events (occurred_at, type, user_id, entity_id, amount, details) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final int DETAILS_MAX = 255;
+
+    public record Event(LocalDateTime occurredAt, AuditEventType type, Long userId, Long entityId, Long amount,
+                        String details) {}
+
+    private final AuditProperties props;
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+    private final AuditRingBuffer<Event> buffer;
+    private final List<Event> batch;
+
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+
+    private volatile Thread writer;
+    private volatile boolean running;
+
+    public AuditTrail(AuditProperties props, JdbcTemplate jdbcTemplate, Clock clock, MeterRegistry meterRegistry) {
+        this.props = props;
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+        this.buffer = new AuditRingBuffer<>(props.getBufferSize());
+        this.batch = new ArrayList<>(props.getBatchSize());
+        this.written = meterRegistry.counter("audit.events", "outcome", "written");
+        this.dropped = meterRegistry.counter("audit.events", "outcome", "dropped");
+        this.failed = meterRegistry.counter("audit.events", "outcome", "failed");
+        meterRegistry.gauge("audit.buffer.size", Tags.empty(), buffer, AuditRingBuffer::size);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!props.isEnabled()) {
+            log.info("AuditTrail disabled by config");
+            return;
+        }
+        running = true;
+        Thread t = new Thread(this::runWriter, "audit-writer");
+        t.setDaemon(true);
+        writer = t;
+        t.start();
+        log.info("AuditTrail started: buffer={} batch={} flushInterval={}",
+                buffer.capacity(), props.getBatchSize(), props.getFlushInterval());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        Thread t = writer;
+        if (t == null) return;
+        running = false;
+        LockSupport.unpark(t);
+        t.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    // Событие вне транзакции (вход) — сразу в буфер
+    public void record(AuditEventType type, Long userId, Long entityId, Long amount, String details) {
+        if (!props.isEnabled()) return;
+        offer(event(type, userId, entityId, amount, details));
+    }
+
+    // Изменение данных — в буфер только после коммита: откат следа не оставляет
+    public void recordAfterCommit(AuditEventType type, Long userId, Long entityId, Long amount, String details) {
+        if (!props.isEnabled()) return;
+        Event e = event(type, userId, entityId, amount, details);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(e);
+                }
+            });
+        } else {
+            offer(e);
+        }
+    }
+
+    private Event event(AuditEventType type, Long userId, Long entityId, Long amount, String details) {
+        String d = details != null && details.length() > DETAILS_MAX ? details.substring(0, DETAILS_MAX) : details;
+        return new Event(LocalDateTime.now(clock), type, userId, entityId, amount, d);
+    }
+
+    private void offer(Event e) {
+        if (buffer.offer(e)) {
+            // Набралась полная пачка — будим писателя, не дожидаясь flushInterval
+            Thread t = writer;
+            if (t != null && buffer.size() >= props.getBatchSize()) LockSupport.unpark(t);
+            return;
+        }
+        dropped.increment();
+        if (props.getOverflowPolicy() == AuditProperties.OverflowPolicy.LOG) {
+            log.warn("Audit buffer full, event dropped: {}", e);
+        }
+    }
+
+    private void runWriter() {
+        // При разделённых пулах фоновая запись идёт через пул планировщика, а не веб-записи
+        BulkheadContext.markSchedulerThread();
+        long flushNanos = props.getFlushInterval().toNanos();
+        while (running) {
+            // Полная пачка пишется сразу, неполная — не реже flushInterval
+            if (buffer.size() < props.getBatchSize()) LockSupport.parkNanos(this, flushNanos);
+            drainAndFlush();
+        }
+        while (drainAndFlush() > 0) {
+            // остаток буфера при остановке
+        }
+    }
+
+    // Одна пачка из буфера в БД; только из потока-писателя (и тестов)
+    int drainAndFlush() {
+        Event e;
+        while (batch.size() < props.getBatchSize() && (e = buffer.poll()) != null) batch.add(e);
+        int n = batch.size();
+        if (n == 0) return 0;
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, n, (ps, ev) -> {
+                ps.setTimestamp(1, Timestamp.valueOf(ev.occurredAt()));
+                ps.setString(2, ev.type().name());
+                ps.setObject(3, ev.userId(), Types.BIGINT);
+                ps.setObject(4, ev.entityId(), Types.BIGINT);
+                ps.setObject(5, ev.amount(), Types.BIGINT);
+                ps.setString(6, ev.details());
+            });
+            written.increment(n);
+        } catch (Exception ex) {
+            failed.increment(n);
+            log.error("Audit batch of {} events failed: {}", n, ex.getMessage(), ex);
+            if (props.getOverflowPolicy() == AuditProperties.OverflowPolicy.LOG) {
+                batch.forEach(ev -> log.warn("Audit event not persisted: {}", ev));
+            }
+        } finally {
+            batch.clear();
+        }
+        return n;
+    }
+}
@@ -1,11 +1,16 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.LoginResponse;
 import com.example.bankcards.dto.UserDto;
 
 public interface AuthService {
     UserDto register(String username, String rawPassword);
 
-    String login(String username, String rawPassword);
+    LoginResponse login(String username, String rawPassword);
+
+    LoginResponse refresh(String refreshToken);
+
+    void logout(String accessToken);
 
     UserDto me();
 }
@@ -0,0 +1,98 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.UserBalanceSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+
+// Инкрементально поддерживает user_balance_summary в транзакции вызывающего
+@Component
+@RequiredArgsConstructor
+public class BalanceSummaryUpdater {
+
+    private final UserBalanceSummaryRepository repository;
+    private final Clock clock;
+
+    public void onCardCreated(Card c) {
+        Delta d = new Delta();
+        d.cardCount = 1;
+        d.add(c.getStatus(), 1, c.getBalance());
+        apply(ownerId(c), d);
+    }
+
+    public void onCardDeleted(Card c) {
+        Delta d = new Delta();
+        d.cardCount = -1;
+        d.add(c.getStatus(), -1, -c.getBalance());
+        apply(ownerId(c), d);
+    }
+
+    public void onStatusChanged(Card c, CardStatus from, CardStatus to) {
+        if (from == to) return;
+        Delta d = new Delta();
+        d.add(from, -1, -c.getBalance());
+        d.add(to, 1, c.getBalance());
+        apply(ownerId(c), d);
+    }
+
+    // Вызывается уже после изменения балансов. Перевод между ACTIVE-картами одного
+    // владельца итогов не меняет — лишний UPDATE не делаем.
+    public void onTransferExecuted(Card from, Card to, long amount) {
+        Long fromOwner = ownerId(from);
+        Long toOwner = ownerId(to);
+        if (fromOwner.equals(toOwner) && from.getStatus() == to.getStatus()) return;
+
+        Delta debit = new Delta();
+        debit.add(from.getStatus(), 0, -amount);
+        Delta credit = new Delta();
+        credit.add(to.getStatus(), 0, amount);
+        if (fromOwner.equals(toOwner)) {
+            debit.merge(credit);
+            apply(fromOwner, debit);
+        } else {
+            apply(fromOwner, debit);
+            apply(toOwner, credit);
+        }
+    }
+
+    private void apply(Long userId, Delta d) {
+        repository.applyDelta(userId, d.cardCount,
+                d.activeCount, d.activeBalance,
+                d.blockedCount, d.blockedBalance,
+                d.expiredCount, d.expiredBalance,
+                LocalDateTime.now(clock));
+    }
+
+    private static Long ownerId(Card c) {
+        return c.getUser().getId();
+    }
+
+    private static final class Delta {
+        long cardCount;
+        long activeCount, activeBalance;
+        long blockedCount, blockedBalance;
+        long expiredCount, expiredBalance;
+
+        void add(CardStatus status, long count, long balance) {
+            switch (status) {
+                case ACTIVE -> { activeCount += count; activeBalance += balance; }
+                case BLOCKED -> { blockedCount += count; blockedBalance += balance; }
+                case EXPIRED -> { expiredCount += count; expiredBalance += balance; }
+            }
+        }
+
+        void merge(Delta o) {
+            cardCount += o.cardCount;
+            activeCount += o.activeCount;
+            activeBalance += o.activeBalance;
+            blockedCount += o.blockedCount;
+            blockedBalance += o.blockedBalance;
+            expiredCount += o.expiredCount;
+            expiredBalance += o.expiredBalance;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.properties.CardListingCacheProperties;
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardFilter;
+import com.example.bankcards.dto.PageDto;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Версии списков карт по пользователю + LRU сериализованных страниц /api/cards/my.
+ * Версия берётся из глобального монотонного счётчика, поэтому вытесненный и заново
+ * созданный счётчик пользователя никогда не совпадёт с ранее выданным ETag.
+ */
+@Component
+public class CardListingCache {
+
+    private final CardListingCacheProperties props;
+    private final ObjectMapper objectMapper;
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final AtomicLong sequence = new AtomicLong();
+    private final Cache<Long, Long> versions;
+    private final Cache<Key, byte[]> pages;
+
+    public CardListingCache(CardListingCacheProperties props, ObjectMapper objectMapper) {
+        this.props = props;
+        this.objectMapper = objectMapper;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(props.getMaxUsers())
+                .build();
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(props.getMaxBytes())
+                .weigher((Key k, byte[] v) -> v.length)
+                .build();
+    }
+
+    public record Key(String epoch, long userId, long version, CardStatus status, int page, int size) {
+        public String etag() {
+            return "\"" + epoch + "-" + userId + "-" + version + "-" + (status == null ? "ALL" : status.name())
+                    + "-" + page + "-" + size + "\"";
+        }
+
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+            String etag = etag();
+            for (String candidate : ifNoneMatch.split(",")) {
+                String c = candidate.trim();
+                if (c.equals("*")) return true;
+                if (c.startsWith("W/")) c = c.substring(2);
+                if (c.equals(etag)) return true;
+            }
+            return false;
+        }
+    }
+
+    public Key key(Long userId, CardFilter filter, int page, int size) {
+        CardStatus status = filter != null ? filter.getStatus() : null;
+        // выключено: каждый ответ получает новый ETag, 304 не отдаётся
+        long version = props.isEnabled() ? currentVersion(userId) : sequence.incrementAndGet();
+        return new Key(epoch, userId, version, status, page, size);
+    }
+
+    public byte[] getOrLoad(Key key, Supplier<PageDto<CardDto>> loader) {
+        if (!props.isEnabled()) return serialize(loader.get());
+        byte[] cached = pages.getIfPresent(key);
+        if (cached != null) return cached;
+        byte[] body = serialize(loader.get());
+        pages.put(key, body);
+        return body;
+    }
+
+    // Чтение мимо кэша (read-your-writes): свежая страница заменяет закэшированную, возможно собранную с отстающей реплики
+    public byte[] reload(Key key, Supplier<PageDto<CardDto>> loader) {
+        byte[] body = serialize(loader.get());
+        if (props.isEnabled()) pages.put(key, body);
+        return body;
+    }
+
+    public void invalidate(Long userId) {
+        if (userId == null) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(userId);
+                }
+            });
+        } else {
+            bump(userId);
+        }
+    }
+
+    private long currentVersion(Long userId) {
+        return versions.get(userId, k -> sequence.incrementAndGet());
+    }
+
+    private void bump(Long userId) {
+        versions.put(userId, sequence.incrementAndGet());
+    }
+
+    private byte[] serialize(PageDto<CardDto> page) {
+        try {
+            return objectMapper.writeValueAsBytes(page);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Card page serialization failed", e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.ShardContext;
+import com.example.bankcards.exception.CardAlreadyExistsException;
+import com.example.bankcards.repository.CardRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Objects;
+
+// Уникальность PAN между шардами: уникальный индекс cards.pan_hash действует в пределах шарда,
+// поэтому при шардировании хэш резервируется в реестре на шарде 0 (первичный ключ — арбитр гонки).
+// Карты, созданные до реестра на других шардах, ловит проверка всех шардов.
+// Без шардирования — no-op, хватает индекса.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CardPanRegistry {
+
+    static final int REGISTRY_SHARD = 0;
+
+    private final ShardRouter shardRouter;
+    private final CardRepository cardRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Вызывается в транзакции создания карты; при её откате резерв снимается
+    public void reserve(String panHash) {
+        if (!shardRouter.isSharded()) return;
+        for (int shard : shardRouter.shards()) {
+            // Свой шард уже проверен вызывающим в текущей транзакции
+            if (Objects.equals(ShardContext.current(), shard)) continue;
+            if (shardRouter.onShardInNewTx(shard, () -> cardRepository.existsByPanHash(panHash))) {
+                throw new CardAlreadyExistsException();
+            }
+        }
+        Integer inserted = shardRouter.onShardInNewTx(REGISTRY_SHARD, () -> jdbcTemplate.update(
+                "INSERT INTO card_pan_registry (pan_hash) VALUES (?) ON CONFLICT (pan_hash) DO NOTHING", panHash));
+        if (inserted == null || inserted == 0) throw new CardAlreadyExistsException();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) release(panHash);
+                }
+            });
+        }
+    }
+
+    // После удаления карты или отката её создания
+    public void release(String panHash) {
+        if (!shardRouter.isSharded()) return;
+        try {
+            shardRouter.onShardInNewTx(REGISTRY_SHARD, () -> jdbcTemplate.update(
+                    "DELETE FROM card_pan_registry WHERE pan_hash = ?", panHash));
+        } catch (RuntimeException e) {
+            // Осиротевший резерв лишь запрещает повторный выпуск того же PAN — без потери денег
+            log.error("Failed to release PAN reservation: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BalanceSummaryDto;
 import com.example.bankcards.dto.CardCreateRequest;
 import com.example.bankcards.dto.CardFilter;
 import com.example.bankcards.dto.PageDto;
@@ -8,6 +9,7 @@ import com.example.bankcards.dto.CardDto;
 public interface CardService {
     CardDto createForUser(Long userId, CardCreateRequest req);
     PageDto<CardDto> listMy(Long userId, int page, int size, CardFilter filter);
+    BalanceSummaryDto summaryMy(Long userId);
     PageDto<CardDto> listAll(int page, int size, CardFilter filter);
     CardDto block(Long cardId);
     CardDto activate(Long cardId);
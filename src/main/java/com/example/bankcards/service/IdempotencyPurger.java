@@ -0,0 +1,58 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.properties.IdempotencyProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdempotencyPurger {
+
+    private final IdempotencyProperties props;
+    private final IdempotencyService idempotencyService;
+    private final ShardRouter shardRouter;
+    private final TaskScheduler taskScheduler;
+
+    private ScheduledFuture<?> future;
+
+    @PostConstruct
+    void init() {
+        if (!props.isPurgeEnabled()) {
+            log.info("IdempotencyPurger disabled by config");
+            return;
+        }
+        Duration delay = props.getPurgeInterval();
+        future = taskScheduler.scheduleWithFixedDelay(this::safePurge, delay);
+        log.info("IdempotencyPurger started with interval={}", delay);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (future != null) {
+            future.cancel(false);
+            log.info("IdempotencyPurger stopped");
+        }
+    }
+
+    private void safePurge() {
+        try {
+            int purged = 0;
+            for (int shard : shardRouter.shards()) {
+                purged += shardRouter.onShard(shard, idempotencyService::purgeExpired);
+            }
+            if (purged > 0) {
+                log.info("Purged {} expired idempotency records", purged);
+            }
+        } catch (Exception e) {
+            log.warn("Idempotency purge failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.bankcards.service;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+
+    <T> T execute(Long userId, String key, String scope, Object fingerprint, Class<T> responseType, Supplier<T> action);
+
+    int purgeExpired();
+}
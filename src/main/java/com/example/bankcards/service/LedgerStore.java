@@ -0,0 +1,26 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.enums.CardStatus;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Optional;
+
+// Хранилище балансов для немедленного перевода между картами одного владельца.
+// JPA — один условный запрос в БД; IN_MEMORY — балансы в памяти, журнал на диске, запись в БД фоном.
+public interface LedgerStore {
+
+    // empty — перевод отклонён условиями, причину выясняет вызывающий
+    Optional<Receipt> transferImmediate(long userId, long fromCardId, long toCardId, long amount,
+                                        LocalDateTime now);
+
+    // Вызывается после коммита изменения карты вне хранилища
+    default void onCardChanged(long cardId, long ownerId, CardStatus status, YearMonth expiry) {}
+
+    default void onCardDeleted(long cardId) {}
+
+    // В транзакции удаления карты, до удаления: отказ, если у карты есть проводки, ещё не видимые в БД
+    default void beforeCardDeleted(long cardId) {}
+
+    record Receipt(long id, String fromLast4, String toLast4) {}
+}
@@ -0,0 +1,54 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.properties.JwtProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RefreshTokenPurger {
+
+    private final JwtProperties props;
+    private final RefreshTokenService refreshTokenService;
+    private final ShardRouter shardRouter;
+    private final TaskScheduler taskScheduler;
+
+    private ScheduledFuture<?> future;
+
+    @PostConstruct
+    void init() {
+        Duration delay = props.getRefreshPurgeInterval();
+        future = taskScheduler.scheduleWithFixedDelay(this::safePurge, delay);
+        log.info("RefreshTokenPurger started with interval={}", delay);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (future != null) {
+            future.cancel(false);
+            log.info("RefreshTokenPurger stopped");
+        }
+    }
+
+    private void safePurge() {
+        try {
+            int purged = 0;
+            for (int shard : shardRouter.shards()) {
+                purged += shardRouter.onShard(shard, refreshTokenService::purgeExpired);
+            }
+            if (purged > 0) {
+                log.info("Purged {} expired refresh tokens", purged);
+            }
+        } catch (Exception e) {
+            log.warn("Refresh token purge failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.enums.Role;
+
+import java.util.Set;
+import java.util.UUID;
+
+public interface RefreshTokenService {
+
+    // Новая цепочка ротаций для успешного входа
+    Issued issue(Long userId);
+
+    // Старый токен гасится, взамен выдаётся следующий в той же цепочке
+    Rotation rotate(Long userId, String refreshToken);
+
+    // Выход: вся цепочка входа больше не продлевается
+    void revokeFamily(Long userId, UUID familyId);
+
+    int purgeExpired();
+
+    record Issued(String refreshToken, UUID familyId) {}
+
+    record Rotation(Long userId, String username, Set<Role> roles, String refreshToken, UUID familyId) {}
+
+    // Токен — "<userId>.<random>": id пользователя указывает шард без поиска по всем
+    static Long userIdOf(String refreshToken) {
+        int dot = refreshToken == null ? -1 : refreshToken.indexOf('.');
+        if (dot <= 0) return null;
+        try {
+            return Long.parseLong(refreshToken.substring(0, dot));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.bankcards.service;
+
+import java.time.Duration;
+
+// Подбор размера пачки и паузы до следующего тика по остатку бэклога:
+// не успеваем — пачка x2, пауза /2 (до лимитов); разобрали — к базе; пусто — пауза x2 до maxIdleDelay.
+final class SchedulerPacer {
+
+    record Step(int batchSize, Duration delay) {}
+
+    private final int baseBatch;
+    private final int maxBatch;
+    private final Duration baseDelay;
+    private final Duration minDelay;
+    private final Duration maxIdleDelay;
+
+    private int batch;
+    private Duration delay;
+
+    SchedulerPacer(int baseBatch, int maxBatch, Duration baseDelay, Duration minDelay, Duration maxIdleDelay) {
+        this.baseBatch = Math.max(1, baseBatch);
+        this.maxBatch = Math.max(this.baseBatch, maxBatch);
+        this.baseDelay = baseDelay;
+        this.minDelay = minDelay.compareTo(baseDelay) > 0 ? baseDelay : minDelay;
+        this.maxIdleDelay = maxIdleDelay.compareTo(baseDelay) < 0 ? baseDelay : maxIdleDelay;
+        this.batch = this.baseBatch;
+        this.delay = baseDelay;
+    }
+
+    int batchSize() {
+        return batch;
+    }
+
+    Step next(long dueAtStart, long remaining) {
+        if (dueAtStart <= 0) {
+            batch = baseBatch;
+            Duration grown = (delay.compareTo(baseDelay) < 0 ? baseDelay : delay).multipliedBy(2);
+            delay = grown.compareTo(maxIdleDelay) > 0 ? maxIdleDelay : grown;
+        } else if (remaining > 0) {
+            batch = (int) Math.min(maxBatch, (long) batch * 2);
+            Duration shrunk = (delay.compareTo(baseDelay) > 0 ? baseDelay : delay).dividedBy(2);
+            delay = shrunk.compareTo(minDelay) < 0 ? minDelay : shrunk;
+        } else {
+            batch = Math.max(baseBatch, batch / 2);
+            delay = baseDelay;
+        }
+        return new Step(batch, delay);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.ShardContext;
+import com.example.bankcards.config.properties.ShardingProperties;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+// Карта шардов: пользователь размещается по хэшу username, а последовательности шарда i
+// выдают id ≡ i+1 (mod N) — по любому id пользователя/карты/перевода шард вычисляется без справочника.
+// Без app.sharding.enabled шард один и все методы сводятся к прямому вызову.
+@Component
+public class ShardRouter {
+
+    private final int shardCount;
+    private final List<Integer> shards;
+    private final TransactionTemplate shardReadTx;
+    private final TransactionTemplate shardWriteTx;
+
+    public ShardRouter(ShardingProperties props, PlatformTransactionManager transactionManager) {
+        this.shardCount = props.isEnabled() ? Math.max(1, props.getShards().size()) : 1;
+        this.shards = IntStream.range(0, shardCount).boxed().toList();
+        // Соединение транзакции привязывается к одному шарду, поэтому каждый шард читаем в своей
+        this.shardReadTx = new TransactionTemplate(transactionManager);
+        this.shardReadTx.setReadOnly(true);
+        this.shardReadTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.shardWriteTx = new TransactionTemplate(transactionManager);
+        this.shardWriteTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public List<Integer> shards() {
+        return shards;
+    }
+
+    public int shardForId(long id) {
+        return (int) Math.floorMod(id - 1, (long) shardCount);
+    }
+
+    public int shardForUsername(String username) {
+        String u = username == null ? "" : username.trim().toLowerCase(Locale.ROOT);
+        return Math.floorMod(u.hashCode(), shardCount);
+    }
+
+    public <T> T onShard(int shard, Supplier<T> action) {
+        return isSharded() ? ShardContext.call(shard, action) : action.get();
+    }
+
+    // Внешняя транзакция приостанавливается, действие коммитится на своём шарде отдельно (без 2PC)
+    public <T> T onShardInNewTx(int shard, Supplier<T> action) {
+        return ShardContext.call(shard, () -> shardWriteTx.execute(status -> action.get()));
+    }
+
+    // Admin-листинги: каждый шард отдаёт первые offset+size строк в порядке order, затем k-way merge
+    // и срез страницы. Стоимость растёт с номером страницы — рассчитано на ограниченный maxPageSize.
+    public <T> Page<T> scatterGather(Pageable pageable, Function<Pageable, Page<T>> query, Comparator<? super T> order) {
+        if (!isSharded()) return query.apply(pageable);
+
+        int offset = (int) pageable.getOffset();
+        Pageable head = PageRequest.of(0, offset + pageable.getPageSize(), pageable.getSort());
+        List<Iterator<T>> sources = new ArrayList<>(shardCount);
+        long total = 0;
+        for (int shard : shards) {
+            Page<T> p = ShardContext.call(shard, () -> shardReadTx.execute(status -> query.apply(head)));
+            total += p.getTotalElements();
+            sources.add(p.getContent().iterator());
+        }
+        return new PageImpl<>(merge(sources, order, offset, pageable.getPageSize()), pageable, total);
+    }
+
+    static <T> List<T> merge(List<Iterator<T>> sources, Comparator<? super T> order, int skip, int limit) {
+        record Head<E>(E value, Iterator<E> rest) {}
+
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>((a, b) -> order.compare(a.value(), b.value()));
+        for (Iterator<T> it : sources) {
+            if (it.hasNext()) heads.add(new Head<>(it.next(), it));
+        }
+        List<T> out = new ArrayList<>(limit);
+        int seen = 0;
+        while (!heads.isEmpty() && out.size() < limit) {
+            Head<T> h = heads.poll();
+            if (seen++ >= skip) out.add(h.value());
+            if (h.rest().hasNext()) heads.add(new Head<>(h.rest().next(), h.rest()));
+        }
+        return out;
+    }
+}
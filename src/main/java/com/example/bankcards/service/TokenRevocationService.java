@@ -0,0 +1,21 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.security.jwt.TokenRevocationStore;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TokenRevocationService {
+
+    void revokeToken(Long userId, String jti, Instant expiresAt);
+
+    // Все access-токены пользователя, выданные до этого момента (смена ролей, удаление)
+    void revokeUser(Long userId);
+
+    List<TokenRevocationStore.Entry> loadActive();
+
+    List<TokenRevocationStore.Entry> loadSince(LocalDateTime since);
+
+    int purgeExpired();
+}
@@ -0,0 +1,90 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.properties.TokenRevocationProperties;
+import com.example.bankcards.security.jwt.TokenRevocationStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+// Держит TokenRevocationStore в соответствии с revoked_tokens всех шардов: полная сборка на старте
+// и раз в rebuildInterval (заодно чистка истёкших строк), между ними — дозагрузка по revoked_at
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenRevocationSync {
+
+    private final TokenRevocationProperties props;
+    private final TokenRevocationService revocationService;
+    private final TokenRevocationStore store;
+    private final ShardRouter shardRouter;
+    private final TaskScheduler taskScheduler;
+    private final Clock clock;
+
+    private LocalDateTime lastPoll;
+    private ScheduledFuture<?> poller;
+    private ScheduledFuture<?> rebuilder;
+
+    @PostConstruct
+    void init() {
+        rebuild();
+        poller = taskScheduler.scheduleWithFixedDelay(this::safePoll, props.getPollInterval());
+        rebuilder = taskScheduler.scheduleWithFixedDelay(this::safeRebuild, props.getRebuildInterval());
+        log.info("TokenRevocationSync started: {} entries, poll={}, rebuild={}",
+                store.size(), props.getPollInterval(), props.getRebuildInterval());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (poller != null) poller.cancel(false);
+        if (rebuilder != null) rebuilder.cancel(false);
+    }
+
+    synchronized void rebuild() {
+        LocalDateTime started = LocalDateTime.now(clock);
+        List<TokenRevocationStore.Entry> entries = new ArrayList<>();
+        for (int shard : shardRouter.shards()) {
+            entries.addAll(shardRouter.onShard(shard, revocationService::loadActive));
+        }
+        store.replace(entries, started.atZone(clock.getZone()).toEpochSecond());
+        lastPoll = started;
+    }
+
+    synchronized void poll() {
+        LocalDateTime started = LocalDateTime.now(clock);
+        LocalDateTime since = lastPoll.minus(props.getPollOverlap());
+        for (int shard : shardRouter.shards()) {
+            shardRouter.onShard(shard, () -> revocationService.loadSince(since)).forEach(store::add);
+        }
+        lastPoll = started;
+    }
+
+    private void safePoll() {
+        try {
+            poll();
+        } catch (Exception e) {
+            log.warn("Token revocation poll failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void safeRebuild() {
+        try {
+            int purged = 0;
+            for (int shard : shardRouter.shards()) {
+                purged += shardRouter.onShard(shard, revocationService::purgeExpired);
+            }
+            rebuild();
+            log.info("Token revocation store rebuilt: {} entries, {} expired rows purged", store.size(), purged);
+        } catch (Exception e) {
+            log.warn("Token revocation rebuild failed: {}", e.getMessage(), e);
+        }
+    }
+}
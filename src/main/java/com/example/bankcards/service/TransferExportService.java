@@ -0,0 +1,14 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ExportFormat;
+import com.example.bankcards.dto.TransferExportFilter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface TransferExportService {
+
+    void validate(TransferExportFilter filter);
+
+    void export(TransferExportFilter filter, ExportFormat format, OutputStream out) throws IOException;
+}
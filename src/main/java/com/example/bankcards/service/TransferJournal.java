@@ -0,0 +1,238 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.properties.TransferJournalProperties;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.enums.TransferStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Локальный журнал завершённых переводов: сегменты фиксированного размера, отображённые в память,
+// записи по 64 байта с CRC32C. Пишется после коммита; читается последовательно для сверки,
+// аудита и прогрева кэшей без запросов к transfers. Номер записи сквозной: база сегмента + индекс.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransferJournal {
+
+    static final int RECORD_SIZE = 64;
+    private static final int CRC_OFFSET = RECORD_SIZE - Integer.BYTES;
+    private static final String PREFIX = "transfers-";
+    private static final String SUFFIX = ".journal";
+    private static final TransferStatus[] STATUSES = TransferStatus.values();
+
+    private final TransferJournalProperties props;
+    private final TaskScheduler taskScheduler;
+
+    private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32C crc = new CRC32C();
+
+    private Path dir;
+    private int capacity;
+    private MappedByteBuffer segment;
+    private long segmentBase;
+    private int position;
+    private ScheduledFuture<?> forcer;
+
+    public record Entry(long sequence, long transferId, long initiatorId, long fromCardId, long toCardId, long amount,
+                        TransferStatus status, LocalDateTime createdAt, LocalDateTime executedAt) {}
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!props.isEnabled()) {
+            log.info("TransferJournal disabled by config");
+            return;
+        }
+        dir = Path.of(props.getDirectory());
+        Files.createDirectories(dir);
+        capacity = (int) Math.max(1, Math.min(Integer.MAX_VALUE / RECORD_SIZE, props.getSegmentSize().toBytes() / RECORD_SIZE));
+
+        List<Long> bases = segmentBases();
+        segmentBase = bases.isEmpty() ? 0 : bases.get(bases.size() - 1);
+        segment = map(segmentBase, FileChannel.MapMode.READ_WRITE);
+        // Позиция записи — первая запись с неверной CRC: ноль за концом данных или оборванный хвост
+        position = 0;
+        while (position < capacity && decode(segment, position, segmentBase + position) != null) position++;
+
+        forcer = taskScheduler.scheduleWithFixedDelay(this::force, props.getForceInterval());
+        log.info("TransferJournal opened at {} next sequence={}", dir, segmentBase + position);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (forcer != null) forcer.cancel(false);
+        force();
+    }
+
+    public boolean isEnabled() {
+        return segment != null;
+    }
+
+    // Запись уходит в журнал только после коммита: откат транзакции следа не оставляет
+    public void recordAfterCommit(Transfer t) {
+        if (!isEnabled()) return;
+        afterCommit(() -> new Entry(0, t.getId(), t.getInitiator().getId(), t.getFromCard().getId(), t.getToCard().getId(),
+                t.getAmount(), t.getStatus(), t.getCreatedAt(), t.getExecutedAt()));
+    }
+
+    public void recordAfterCommit(long transferId, long initiatorId, long fromCardId, long toCardId, long amount,
+                                  TransferStatus status, LocalDateTime createdAt, LocalDateTime executedAt) {
+        if (!isEnabled()) return;
+        afterCommit(() -> new Entry(0, transferId, initiatorId, fromCardId, toCardId, amount, status, createdAt, executedAt));
+    }
+
+    public synchronized long append(Entry e) {
+        if (position == capacity) roll();
+        scratch.clear();
+        scratch.putLong(e.transferId())
+                .putLong(e.initiatorId())
+                .putLong(e.fromCardId())
+                .putLong(e.toCardId())
+                .putLong(e.amount())
+                .putLong(toMicros(e.createdAt()))
+                .putLong(toMicros(e.executedAt()))
+                .putInt(e.status().ordinal());
+        crc.reset();
+        crc.update(scratch.array(), 0, CRC_OFFSET);
+        scratch.putInt((int) crc.getValue());
+        segment.put(position * RECORD_SIZE, scratch.array(), 0, RECORD_SIZE);
+        return segmentBase + position++;
+    }
+
+    public synchronized long nextSequence() {
+        return segmentBase + position;
+    }
+
+    // Последовательное чтение с fromSequence до конца записанного; возвращает номер следующей записи.
+    // Параллельная запись не мешает: недописанная запись не проходит CRC и завершает чтение.
+    public long replay(long fromSequence, Consumer<Entry> consumer) {
+        if (!isEnabled()) return fromSequence;
+        long next = fromSequence;
+        List<Long> bases;
+        try {
+            bases = segmentBases();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Transfer journal listing failed", ex);
+        }
+        for (int i = 0; i < bases.size(); i++) {
+            long base = bases.get(i);
+            boolean last = i == bases.size() - 1;
+            if (base + capacity <= next) continue;
+            MappedByteBuffer buf = map(base, FileChannel.MapMode.READ_ONLY);
+            for (int idx = (int) Math.max(0, next - base); idx < capacity; idx++) {
+                Entry e = decode(buf, idx, base + idx);
+                if (e == null) {
+                    if (last) return base + idx;
+                    throw new IllegalStateException("Corrupted transfer journal record " + (base + idx));
+                }
+                consumer.accept(e);
+                next = base + idx + 1;
+            }
+        }
+        return next;
+    }
+
+    synchronized void force() {
+        if (segment != null) segment.force();
+    }
+
+    private void afterCommit(Supplier<Entry> entry) {
+        Runnable write = () -> {
+            try {
+                append(entry.get());
+            } catch (Exception ex) {
+                log.error("Transfer journal append failed: {}", ex.getMessage(), ex);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    write.run();
+                }
+            });
+        } else {
+            write.run();
+        }
+    }
+
+    private void roll() {
+        segment.force();
+        segmentBase += capacity;
+        segment = map(segmentBase, FileChannel.MapMode.READ_WRITE);
+        position = 0;
+        log.info("TransferJournal rolled to segment {}", segmentBase);
+    }
+
+    private Entry decode(ByteBuffer buf, int index, long sequence) {
+        int off = index * RECORD_SIZE;
+        CRC32C c = new CRC32C();
+        c.update(buf.slice(off, CRC_OFFSET));
+        if ((int) c.getValue() != buf.getInt(off + CRC_OFFSET)) return null;
+        int status = buf.getInt(off + 56);
+        if (status < 0 || status >= STATUSES.length) return null;
+        return new Entry(sequence,
+                buf.getLong(off),
+                buf.getLong(off + 8),
+                buf.getLong(off + 16),
+                buf.getLong(off + 24),
+                buf.getLong(off + 32),
+                STATUSES[status],
+                fromMicros(buf.getLong(off + 40)),
+                fromMicros(buf.getLong(off + 48)));
+    }
+
+    private MappedByteBuffer map(long base, FileChannel.MapMode mode) {
+        Path file = dir.resolve(String.format("%s%020d%s", PREFIX, base, SUFFIX));
+        try (FileChannel ch = mode == FileChannel.MapMode.READ_ONLY
+                ? FileChannel.open(file, StandardOpenOption.READ)
+                : FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return ch.map(mode, 0, (long) capacity * RECORD_SIZE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Transfer journal segment " + file + " mapping failed", ex);
+        }
+    }
+
+    private List<Long> segmentBases() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(PREFIX) && n.endsWith(SUFFIX))
+                    .map(n -> Long.parseLong(n.substring(PREFIX.length(), n.length() - SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long toMicros(LocalDateTime t) {
+        if (t == null) return Long.MIN_VALUE;
+        return t.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + t.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        if (micros == Long.MIN_VALUE) return null;
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -1,23 +1,29 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.config.LogContext;
+import com.example.bankcards.config.properties.TransfersProperties;
 import com.example.bankcards.config.properties.TransfersSchedulerProperties;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.enums.AuditEventType;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.entity.enums.TransferStatus;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransferRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.LockModeType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Clock;
 import java.time.Duration;
@@ -25,6 +31,7 @@ import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.List;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Component
@@ -32,13 +39,28 @@ import java.util.concurrent.ScheduledFuture;
 public class TransferScheduler {
 
     private final TransfersSchedulerProperties props;
+    private final TransfersProperties transfersProps;
     private final TransferRepository transferRepository;
     private final CardRepository cardRepository;
     private final EntityManager entityManager;
+    private final CardListingCache cardListingCache;
+    private final BalanceSummaryUpdater balanceSummaryUpdater;
+    private final TxRetryExecutor txRetryExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final TransferJournal transferJournal;
+    private final AuditTrail auditTrail;
     private final Clock clock;
     private final TaskScheduler taskScheduler;
+    private final MeterRegistry meterRegistry;
 
-    private ScheduledFuture<?> future;
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicLong backlogSize = new AtomicLong();
+    private final AtomicLong currentBatchSize = new AtomicLong();
+
+    private volatile ScheduledFuture<?> future;
+    private volatile boolean stopped;
+    private SchedulerPacer pacer;
 
     private static final Sort PICK_SORT = Sort.by(Sort.Direction.ASC, "id");
 
@@ -49,12 +71,22 @@ public class TransferScheduler {
             return;
         }
         Duration delay = props.getFixedDelay();
+        if (props.isAdaptive()) {
+            pacer = new SchedulerPacer(props.getBatchSize(), props.getMaxBatchSize(),
+                    delay, props.getMinDelay(), props.getMaxIdleDelay());
+            registerGauges();
+            future = taskScheduler.schedule(this::adaptiveTick, clock.instant().plus(delay));
+            log.info("TransferScheduler started (adaptive) with baseDelay={} baseBatch={} maxBatch={}",
+                    delay, props.getBatchSize(), props.getMaxBatchSize());
+            return;
+        }
         future = taskScheduler.scheduleWithFixedDelay(this::safeTick, delay);
         log.info("TransferScheduler started with fixedDelay={}", delay);
     }
 
     @PreDestroy
     void shutdown() {
+        stopped = true;
         if (future != null) {
             future.cancel(false);
             log.info("TransferScheduler stopped");
@@ -72,34 +104,151 @@ public class TransferScheduler {
         }
     }
 
+    // Тик перепланирует сам себя: пауза до следующего зависит от бэклога
+    private void adaptiveTick() {
+        Duration next = props.getFixedDelay();
+        try {
+            next = runAdaptive();
+        } catch (Exception e) {
+            log.warn("Scheduler tick failed: {}", e.getMessage(), e);
+        } finally {
+            if (!stopped) {
+                future = taskScheduler.schedule(this::adaptiveTick, clock.instant().plus(next));
+            }
+        }
+    }
+
+    Duration runAdaptive() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        long due = 0;
+        LocalDateTime oldestDue = null;
+        for (int shard : shardRouter.shards()) {
+            TransferRepository.DueBacklog backlog = shardRouter.onShard(shard, () -> transferRepository.findDueBacklog(now));
+            due += backlog.getDueCount();
+            if (backlog.getOldestDue() != null && (oldestDue == null || backlog.getOldestDue().isBefore(oldestDue))) {
+                oldestDue = backlog.getOldestDue();
+            }
+        }
+        backlogSize.set(due);
+        lagMillis.set(oldestDue == null ? 0 : Math.max(0, Duration.between(oldestDue, now).toMillis()));
+
+        int processed = due > 0 ? processBatch() : 0;
+        SchedulerPacer.Step step = pacer.next(due, due - processed);
+        currentBatchSize.set(step.batchSize());
+        if (processed > 0 || due > processed) {
+            log.info("Scheduler processed {} of {} due transfers (mode={}, lag={}ms), next batch={} in {}",
+                    processed, due, props.getMode(), lagMillis.get(), step.batchSize(), step.delay());
+        }
+        return step.delay();
+    }
+
+    // Каждый шард разбирает свою пачку: переводы и карты одного пользователя лежат на одном шарде
     int processBatch() {
         LocalDateTime now = LocalDateTime.now(clock);
-        var page = transferRepository.findByStatusAndExpiresAtBefore(
-                TransferStatus.PENDING,
-                now,
-                PageRequest.of(0, Math.max(1, props.getBatchSize()), PICK_SORT)
-        );
-        List<Long> ids = page.getContent().stream().map(Transfer::getId).toList();
+        int batchSize = pacer != null ? pacer.batchSize() : props.getBatchSize();
+        int cnt = 0;
+        for (int shard : shardRouter.shards()) {
+            cnt += shardRouter.onShard(shard, () -> processShardBatch(now, batchSize));
+        }
+        return cnt;
+    }
+
+    private int processShardBatch(LocalDateTime now, int batchSize) {
+        List<Long> ids = transferRepository.findDueIds(now, PageRequest.of(0, Math.max(1, batchSize), PICK_SORT));
+        int chunkSize = Math.max(1, props.getChunkSize());
+        int cnt = 0;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            cnt += processChunk(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+        }
+        return cnt;
+    }
+
+    // Чанк — одна транзакция и один коммит; при ошибке чанк откатывается целиком
+    // и переигрывается по одной строке, чтобы изолировать сбойный перевод
+    private int processChunk(List<Long> chunk) {
+        if (chunk.size() > 1) {
+            try {
+                txRetryExecutor.execute("transfers.scheduler", () -> transactionTemplate.execute(status -> {
+                    chunk.forEach(this::processSingle);
+                    return null;
+                }));
+                return chunk.size();
+            } catch (Exception e) {
+                log.warn("Scheduler chunk of {} transfers [{}..{}] failed, falling back to single-row transactions: {}",
+                        chunk.size(), chunk.get(0), chunk.get(chunk.size() - 1), e.getMessage());
+            }
+        }
         int cnt = 0;
-        for (Long id : ids) {
+        for (Long id : chunk) {
             try {
-                processSingle(id);
+                txRetryExecutor.execute("transfers.scheduler", () -> transactionTemplate.execute(status -> {
+                    processSingle(id);
+                    return null;
+                }));
                 cnt++;
             } catch (Exception e) {
                 log.warn("Scheduler failed to process transfer {}: {}", id, e.getMessage());
+                recordFailure(id, e);
             }
         }
         return cnt;
     }
 
-    @Transactional
+    // Неудача не должна возвращать строку в голову следующей пачки: бэкофф, после лимита — карантин
+    void recordFailure(Long transferId, Exception cause) {
+        try {
+            Integer attempts = transferRepository.findAttemptCount(transferId, TransferStatus.PENDING).orElse(null);
+            if (attempts == null) return;
+            int attempt = attempts + 1;
+            boolean quarantine = attempt >= Math.max(1, props.getMaxAttempts());
+            LocalDateTime nextAttemptAt = quarantine ? null : LocalDateTime.now(clock).plus(retryBackoff(attempt));
+            int updated = transferRepository.recordFailedAttempt(
+                    transferId,
+                    attempts,
+                    quarantine ? TransferStatus.QUARANTINED : TransferStatus.PENDING,
+                    nextAttemptAt,
+                    "SCHEDULER_ERROR",
+                    failureMessage(cause)
+            );
+            if (updated == 0) return;
+            meterRegistry.counter("transfers.scheduler.failures", "outcome", quarantine ? "quarantined" : "retry").increment();
+            if (quarantine) {
+                auditTrail.recordAfterCommit(AuditEventType.TRANSFER_QUARANTINED, null, transferId, null, failureMessage(cause));
+                log.error("Transfer {} QUARANTINED after {} failed attempts", transferId, attempt);
+            } else {
+                log.info(LogContext.SAMPLED, "Transfer {} attempt {} failed, next attempt at {}", transferId, attempt, nextAttemptAt);
+            }
+        } catch (Exception e) {
+            log.error("Failed to record scheduler failure for transfer {}: {}", transferId, e.getMessage(), e);
+        }
+    }
+
+    private Duration retryBackoff(int attempt) {
+        Duration max = props.getMaxRetryBackoff();
+        Duration backoff = props.getRetryBackoff().multipliedBy(1L << Math.min(attempt - 1, 20));
+        return backoff.compareTo(max) > 0 ? max : backoff;
+    }
+
+    private static String failureMessage(Exception e) {
+        String msg = e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+        return msg.length() > 255 ? msg.substring(0, 255) : msg;
+    }
+
+    // Вызывается только внутри транзакции чанка/строки из processChunk
     protected void processSingle(Long transferId) {
+        try (MDC.MDCCloseable ignored = LogContext.transfer(transferId)) {
+            processSingleRow(transferId);
+        }
+    }
+
+    private void processSingleRow(Long transferId) {
         LocalDateTime now = LocalDateTime.now(clock);
 
-        Transfer t = entityManager.find(Transfer.class, transferId, LockModeType.PESSIMISTIC_WRITE);
+        Transfer t = findForUpdate(Transfer.class, transferId);
         if (t == null) return;
         if (t.getStatus() != TransferStatus.PENDING) return;
         if (t.getExpiresAt() == null || t.getExpiresAt().isAfter(now)) return;
+        if (t.getNextAttemptAt() != null && t.getNextAttemptAt().isAfter(now)) return;
 
         if (props.getMode() == TransfersSchedulerProperties.Mode.EXECUTE) {
             executeExpiredTransfer(t, now);
@@ -113,14 +262,15 @@ public class TransferScheduler {
         t.setFailureCode("EXPIRED");
         t.setFailureMessage("Transfer expired");
         transferRepository.save(t);
-        log.info("Transfer {} marked EXPIRED", t.getId());
+        audit(AuditEventType.TRANSFER_EXPIRED, t, null);
+        log.info(LogContext.SAMPLED, "Transfer {} marked EXPIRED", t.getId());
     }
 
     private void executeExpiredTransfer(Transfer t, LocalDateTime now) {
         Long fromId = t.getFromCard().getId();
         Long toId = t.getToCard().getId();
-        Card first  = entityManager.find(Card.class, Math.min(fromId, toId), LockModeType.PESSIMISTIC_WRITE);
-        Card second = entityManager.find(Card.class, Math.max(fromId, toId), LockModeType.PESSIMISTIC_WRITE);
+        Card first  = findForUpdate(Card.class, Math.min(fromId, toId));
+        Card second = findForUpdate(Card.class, Math.max(fromId, toId));
         Card from   = first.getId().equals(fromId) ? first : second;
         Card to     = from == first ? second : first;
 
@@ -129,7 +279,8 @@ public class TransferScheduler {
             t.setFailureCode("CARD_STATE");
             t.setFailureMessage("Card is blocked or expired");
             transferRepository.save(t);
-            log.info("Transfer {} FAILED due to card state", t.getId());
+            audit(AuditEventType.TRANSFER_FAILED, t, "CARD_STATE");
+            log.info(LogContext.SAMPLED, "Transfer {} FAILED due to card state", t.getId());
             return;
         }
 
@@ -139,7 +290,8 @@ public class TransferScheduler {
             t.setFailureCode("INSUFFICIENT_FUNDS");
             t.setFailureMessage("Insufficient funds");
             transferRepository.save(t);
-            log.info("Transfer {} FAILED due to insufficient funds", t.getId());
+            audit(AuditEventType.TRANSFER_FAILED, t, "INSUFFICIENT_FUNDS");
+            log.info(LogContext.SAMPLED, "Transfer {} FAILED due to insufficient funds", t.getId());
             return;
         }
 
@@ -147,12 +299,37 @@ public class TransferScheduler {
         to.setBalance(Math.addExact(to.getBalance(), amount));
         t.setStatus(TransferStatus.COMPLETED);
         t.setExecutedAt(now);
+        t.setNextAttemptAt(null);
+        t.setFailureCode(null);
+        t.setFailureMessage(null);
 
         cardRepository.save(from);
         cardRepository.save(to);
         transferRepository.save(t);
+        transferJournal.recordAfterCommit(t);
+        audit(AuditEventType.TRANSFER_COMPLETED, t, "cards " + from.getId() + "->" + to.getId());
+        balanceSummaryUpdater.onTransferExecuted(from, to, amount);
+        cardListingCache.invalidate(from.getUser().getId());
+
+        log.info(LogContext.SAMPLED, "Transfer {} auto-executed ({} -> {}) amount={}", t.getId(), from.getId(), to.getId(), amount);
+    }
+
+    private void audit(AuditEventType type, Transfer t, String details) {
+        auditTrail.recordAfterCommit(type, t.getInitiator() != null ? t.getInitiator().getId() : null, t.getId(), t.getAmount(), details);
+    }
+
+    // В OPTIMISTIC-режиме без блокировок: конфликт поймает @Version, повтор — TxRetryExecutor
+    private <E> E findForUpdate(Class<E> type, Long id) {
+        return transfersProps.getEngine() == TransfersProperties.Engine.OPTIMISTIC
+                ? entityManager.find(type, id)
+                : entityManager.find(type, id, LockModeType.PESSIMISTIC_WRITE);
+    }
 
-        log.info("Transfer {} auto-executed ({} -> {}) amount={}", t.getId(), from.getId(), to.getId(), amount);
+    private void registerGauges() {
+        meterRegistry.gauge("transfers.scheduler.lag.seconds", Tags.empty(), lagMillis, v -> v.get() / 1000.0);
+        meterRegistry.gauge("transfers.scheduler.backlog", Tags.empty(), backlogSize);
+        meterRegistry.gauge("transfers.scheduler.batch.size", Tags.empty(), currentBatchSize);
+        currentBatchSize.set(pacer.batchSize());
     }
 
     private boolean isActiveAndNotExpired(Card c) {
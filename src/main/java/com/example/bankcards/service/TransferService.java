@@ -13,4 +13,8 @@ public interface TransferService {
     PageDto<TransferDto> listMy(Long userId, int page, int size);
 
     PageDto<TransferDto> listAll(int page, int size);
+
+    PageDto<TransferDto> listQuarantined(int page, int size);
+
+    TransferDto requeue(Long transferId);
 }
@@ -0,0 +1,110 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.properties.TxRetryProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Повторяет операцию целиком, каждая попытка — в новой транзакции.
+// Внутри уже открытой транзакции повтор невозможен (она помечена rollback-only), а внутри другого
+// повтора — не нужен (повторит внешний), поэтому там — один проход.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TxRetryExecutor {
+
+    // serialization_failure, deadlock_detected, lock_not_available
+    private static final Set<String> TRANSIENT_SQL_STATES = Set.of("40001", "40P01", "55P03");
+
+    private static final ThreadLocal<Boolean> IN_RETRY = new ThreadLocal<>();
+
+    private final TxRetryProperties props;
+    private final MeterRegistry meterRegistry;
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        if (IN_RETRY.get() != null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        IN_RETRY.set(Boolean.TRUE);
+        try {
+            return retry(operation, action);
+        } finally {
+            IN_RETRY.remove();
+        }
+    }
+
+    private <T> T retry(String operation, Supplier<T> action) {
+        long deadline = System.nanoTime() + props.getMaxElapsed().toNanos();
+        int attempt = 1;
+        while (true) {
+            try {
+                T result = action.get();
+                outcome(operation, attempt == 1 ? "success" : "recovered").increment();
+                return result;
+            } catch (RuntimeException e) {
+                String cause = retryCause(e);
+                if (cause == null) throw e;
+                long pause = backoffMillis(attempt);
+                if (attempt >= props.getMaxAttempts() || System.nanoTime() + pause * 1_000_000L > deadline) {
+                    outcome(operation, "exhausted").increment();
+                    log.warn("Retry budget exhausted for {} after {} attempts: {}", operation, attempt, e.getMessage());
+                    throw e;
+                }
+                meterRegistry.counter("tx.retry.retries", "operation", operation, "cause", cause).increment();
+                log.debug("Retrying {} (attempt {}, cause {}): {}", operation, attempt + 1, cause, e.getMessage());
+                sleep(pause, e);
+                attempt++;
+            }
+        }
+    }
+
+    // null — ошибка не транзиентная; иначе метка причины для метрик
+    String retryCause(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof SQLException sql && sql.getSQLState() != null
+                    && TRANSIENT_SQL_STATES.contains(sql.getSQLState())) {
+                return sql.getSQLState();
+            }
+            if (t instanceof OptimisticLockingFailureException || t instanceof OptimisticLockException) {
+                return "optimistic_lock";
+            }
+            if (t instanceof PessimisticLockingFailureException || t instanceof PessimisticLockException) {
+                return "pessimistic_lock";
+            }
+        }
+        return null;
+    }
+
+    // Full jitter: случайная пауза в [0, min(max, initial * multiplier^(attempt-1))]
+    private long backoffMillis(int attempt) {
+        double cap = props.getInitialBackoff().toMillis() * Math.pow(props.getMultiplier(), attempt - 1);
+        long bound = (long) Math.min(props.getMaxBackoff().toMillis(), cap);
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    private static void sleep(long millis, RuntimeException cause) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
+    private Counter outcome(String operation, String outcome) {
+        return meterRegistry.counter("tx.retry.calls", "operation", operation, "outcome", outcome);
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.PageDto;
+import com.example.bankcards.dto.PasswordHashStatsDto;
 import com.example.bankcards.dto.UserDto;
 import com.example.bankcards.entity.enums.Role;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -21,4 +23,9 @@ public interface UserService {
     PageDto<UserDto> list(int page, int size, String search);
 
     boolean existsByUsername(String username);
+
+    // Перехэширование при входе: запись только если хэш в БД не сменился с момента проверки
+    void upgradePasswordHash(Long userId, String currentHash, String newHash);
+
+    List<PasswordHashStatsDto> passwordHashReport();
 }
@@ -1,23 +1,35 @@
 package com.example.bankcards.service.impl;
 
+import com.example.bankcards.dto.LoginResponse;
 import com.example.bankcards.dto.UserDto;
 import com.example.bankcards.entity.enums.Role;
 import com.example.bankcards.mapper.UserMapper;
 import com.example.bankcards.security.CustomUserDetails;
+import com.example.bankcards.exception.InvalidRefreshTokenException;
+import com.example.bankcards.security.jwt.JwtParser;
 import com.example.bankcards.security.jwt.JwtProvider;
 import com.example.bankcards.service.AuthService;
+import com.example.bankcards.service.RefreshTokenService;
+import com.example.bankcards.service.TokenRevocationService;
 import com.example.bankcards.service.UserService;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Set;
+import java.util.UUID;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
@@ -26,6 +38,10 @@ public class AuthServiceImpl implements AuthService {
     private final AuthenticationManager authenticationManager;
     private final JwtProvider jwtProvider;
     private final UserService userService;
+    private final PasswordEncoder passwordEncoder;
+    private final RefreshTokenService refreshTokenService;
+    private final JwtParser jwtParser;
+    private final TokenRevocationService tokenRevocationService;
 
     @Override
     @Transactional
@@ -33,13 +49,61 @@ public class AuthServiceImpl implements AuthService {
         return userService.createUser(username, rawPassword, Set.of(Role.ROLE_USER));
     }
 
+    // Без транзакции: соединение не держится, пока BCrypt считается на пуле хэширования
     @Override
-    public String login(String username, String rawPassword) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public LoginResponse login(String username, String rawPassword) {
         Authentication auth = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(username.trim(), rawPassword)
         );
         CustomUserDetails p = (CustomUserDetails) auth.getPrincipal();
-        return jwtProvider.generateToken(p.getId(), p.getUsername(), p.getAuthorities());
+        upgradeHashIfNeeded(p, rawPassword);
+        RefreshTokenService.Issued issued = refreshTokenService.issue(p.getId());
+        String jwt = jwtProvider.generateToken(p.getId(), p.getUsername(), p.getAuthorities(), issued.familyId());
+        return tokens(jwt, issued.refreshToken());
+    }
+
+    // Продление без пароля: роли и username берутся из БД на момент ротации
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public LoginResponse refresh(String refreshToken) {
+        Long userId = RefreshTokenService.userIdOf(refreshToken);
+        if (userId == null) throw new InvalidRefreshTokenException("Malformed refresh token");
+        RefreshTokenService.Rotation r = refreshTokenService.rotate(userId, refreshToken);
+        String jwt = jwtProvider.generateToken(r.userId(), r.username(),
+                r.roles().stream().map(role -> new SimpleGrantedAuthority(role.name())).toList(), r.familyId());
+        return tokens(jwt, r.refreshToken());
+    }
+
+    // Гасится и access-токен, и цепочка refresh-токенов его входа (sid): иначе refresh выдал бы новый.
+    // Токен без jti (выпущен до появления отзыва) отозвать поштучно нельзя — доживёт до exp
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void logout(String accessToken) {
+        Claims claims = jwtParser.parseClaims(accessToken);
+        UUID sessionId = JwtParser.sessionId(claims);
+        if (sessionId == null && claims.getId() == null) return;
+        Long userId = JwtParser.userId(claims);
+        if (sessionId != null) refreshTokenService.revokeFamily(userId, sessionId);
+        if (claims.getId() != null) {
+            tokenRevocationService.revokeToken(userId, claims.getId(), claims.getExpiration().toInstant());
+        }
+    }
+
+    private LoginResponse tokens(String jwt, String refreshToken) {
+        return new LoginResponse("Bearer", jwt, refreshToken, jwtProvider.expiresInSeconds());
+    }
+
+    // Пароль в открытом виде есть только здесь: хэш старого алгоритма/стоимости заменяется текущим.
+    // Ошибка перехэширования вход не ломает — повторится при следующем входе
+    private void upgradeHashIfNeeded(CustomUserDetails p, String rawPassword) {
+        String current = p.getPassword();
+        if (current == null || !passwordEncoder.upgradeEncoding(current)) return;
+        try {
+            userService.upgradePasswordHash(p.getId(), current, passwordEncoder.encode(rawPassword));
+        } catch (RuntimeException ex) {
+            log.warn("Password hash upgrade failed for user {}: {}", p.getId(), ex.getMessage());
+        }
     }
 
     @Override
@@ -1,11 +1,15 @@
 package com.example.bankcards.service.impl;
 
+import com.example.bankcards.annotation.RetryableTx;
+import com.example.bankcards.annotation.ShardKey;
+import com.example.bankcards.dto.BalanceSummaryDto;
 import com.example.bankcards.dto.CardCreateRequest;
 import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.dto.CardFilter;
 import com.example.bankcards.dto.PageDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.AuditEventType;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.exception.CardAlreadyExistsException;
 import com.example.bankcards.exception.CardDeletionNotAllowedException;
@@ -13,14 +17,22 @@ import com.example.bankcards.exception.CardExpiredException;
 import com.example.bankcards.exception.CardNotFoundException;
 import com.example.bankcards.exception.InvalidCardStateException;
 import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.mapper.BalanceSummaryMapper;
 import com.example.bankcards.mapper.CardMapper;
 import com.example.bankcards.mapper.PageDtoMapper;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserBalanceSummaryRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.crypto.CryptoService;
 import com.example.bankcards.security.crypto.HmacService;
+import com.example.bankcards.service.AuditTrail;
+import com.example.bankcards.service.BalanceSummaryUpdater;
+import com.example.bankcards.service.CardPanRegistry;
+import com.example.bankcards.service.CardListingCache;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.LedgerStore;
+import com.example.bankcards.service.ShardRouter;
 import com.example.bankcards.util.CardUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -30,9 +42,12 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Clock;
 import java.time.YearMonth;
+import java.util.Comparator;
 import java.util.List;
 
 @Slf4j
@@ -45,13 +60,21 @@ public class CardServiceImpl implements CardService {
     private final TransferRepository transferRepository;
     private final CryptoService cryptoService;
     private final HmacService hmacService;
+    private final CardListingCache cardListingCache;
+    private final UserBalanceSummaryRepository balanceSummaryRepository;
+    private final BalanceSummaryUpdater balanceSummaryUpdater;
+    private final ShardRouter shardRouter;
+    private final LedgerStore ledgerStore;
+    private final AuditTrail auditTrail;
+    private final CardPanRegistry panRegistry;
     private final Clock clock;
 
     private static final Sort DEFAULT_SORT = Sort.by(Sort.Direction.DESC, "id");
+    private static final Comparator<CardDto> BY_ID_DESC = Comparator.comparing(CardDto::getId).reversed();
 
     @Override
     @Transactional
-    public CardDto createForUser(Long userId, CardCreateRequest req) {
+    public CardDto createForUser(@ShardKey Long userId, CardCreateRequest req) {
         User owner = findOwner(userId);
         String pan = normalizeAndValidatePan(req.getPan());
         String panHash = ensurePanUniqueAndGetHash(pan);
@@ -59,13 +82,16 @@ public class CardServiceImpl implements CardService {
         validateNotPastExpiry(expiry);
         Card card = buildCard(owner, pan, panHash, expiry);
         card = cardRepository.save(card);
+        balanceSummaryUpdater.onCardCreated(card);
+        cardListingCache.invalidate(owner.getId());
+        auditTrail.recordAfterCommit(AuditEventType.CARD_CREATED, owner.getId(), card.getId(), null, "****" + card.getPanLast4());
         log.info("Card created for user {} ****{}", owner.getId(), card.getPanLast4());
         return CardMapper.toDto(card);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public PageDto<CardDto> listMy(Long userId, int page, int size, CardFilter filter) {
+    public PageDto<CardDto> listMy(@ShardKey Long userId, int page, int size, CardFilter filter) {
         Pageable pageable = pageable(page, size);
         Page<Card> pageData = (filter != null && filter.getStatus() != null)
                 ? cardRepository.findByUser_IdAndStatus(userId, filter.getStatus(), pageable)
@@ -73,27 +99,37 @@ public class CardServiceImpl implements CardService {
         return toPageDto(pageData);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public BalanceSummaryDto summaryMy(@ShardKey Long userId) {
+        return balanceSummaryRepository.findById(userId)
+                .map(BalanceSummaryMapper::toDto)
+                .orElseGet(BalanceSummaryMapper::empty);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public PageDto<CardDto> listAll(int page, int size, CardFilter filter) {
         Pageable pageable = pageable(page, size);
-        Page<Card> pageData = (filter != null && filter.getStatus() != null)
-                ? cardRepository.findByStatus(filter.getStatus(), pageable)
-                : cardRepository.findAll(pageable);
-        return toPageDto(pageData);
+        Page<CardDto> p = shardRouter.scatterGather(pageable, pg -> ((filter != null && filter.getStatus() != null)
+                ? cardRepository.findByStatus(filter.getStatus(), pg)
+                : cardRepository.findAll(pg)).map(CardMapper::toDto), BY_ID_DESC);
+        return PageDtoMapper.toPageDto(p, p.getContent());
     }
 
     @Override
+    @RetryableTx
     @Transactional
-    public CardDto block(Long cardId) {
+    public CardDto block(@ShardKey Long cardId) {
         CardDto dto = updateStatus(cardId, CardStatus.BLOCKED);
         log.info("Card blocked: {}", cardId);
         return dto;
     }
 
     @Override
+    @RetryableTx
     @Transactional
-    public CardDto activate(Long cardId) {
+    public CardDto activate(@ShardKey Long cardId) {
         CardDto dto = updateStatus(cardId, CardStatus.ACTIVE);
         log.info("Card activated: {}", cardId);
         return dto;
@@ -101,13 +137,19 @@ public class CardServiceImpl implements CardService {
 
     @Override
     @Transactional
-    public void delete(Long cardId) {
+    public void delete(@ShardKey Long cardId) {
         Card c = getCardOrThrow(cardId);
         boolean hasTransfers = transferRepository.existsByFromCard_Id(cardId) || transferRepository.existsByToCard_Id(cardId);
         if (hasTransfers) {
             throw new CardDeletionNotAllowedException(cardId);
         }
+        ledgerStore.beforeCardDeleted(cardId);
         cardRepository.delete(c);
+        afterCommit(() -> ledgerStore.onCardDeleted(cardId));
+        afterCommit(() -> panRegistry.release(c.getPanHash()));
+        balanceSummaryUpdater.onCardDeleted(c);
+        cardListingCache.invalidate(c.getUser().getId());
+        auditTrail.recordAfterCommit(AuditEventType.CARD_DELETED, c.getUser().getId(), cardId, c.getBalance(), null);
         log.info("Card deleted: {}", cardId);
     }
 
@@ -124,6 +166,7 @@ public class CardServiceImpl implements CardService {
     private String ensurePanUniqueAndGetHash(String pan) {
         String panHash = hmacService.hmacHex(pan);
         if (cardRepository.existsByPanHash(panHash)) throw new CardAlreadyExistsException();
+        panRegistry.reserve(panHash);
         return panHash;
     }
 
@@ -153,8 +196,16 @@ public class CardServiceImpl implements CardService {
     private CardDto updateStatus(Long cardId, CardStatus to) {
         Card c = getCardOrThrow(cardId);
         validateTransition(c, to);
+        CardStatus from = c.getStatus();
         c.setStatus(to);
         c = cardRepository.save(c);
+        long ownerId = c.getUser().getId();
+        YearMonth expiry = c.getExpiry();
+        afterCommit(() -> ledgerStore.onCardChanged(cardId, ownerId, to, expiry));
+        balanceSummaryUpdater.onStatusChanged(c, from, to);
+        cardListingCache.invalidate(c.getUser().getId());
+        auditTrail.recordAfterCommit(to == CardStatus.BLOCKED ? AuditEventType.CARD_BLOCKED : AuditEventType.CARD_ACTIVATED,
+                ownerId, cardId, null, from + "->" + to);
         return CardMapper.toDto(c);
     }
 
@@ -173,6 +224,20 @@ public class CardServiceImpl implements CardService {
         }
     }
 
+    // Хранилище балансов видит только закоммиченное состояние карты
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     private Pageable pageable(int page, int size) {
         return PageRequest.of(Math.max(page, 0), clamp(size), DEFAULT_SORT);
     }
@@ -0,0 +1,116 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.annotation.RetryableTx;
+import com.example.bankcards.annotation.ShardKey;
+import com.example.bankcards.config.properties.IdempotencyProperties;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.entity.enums.IdempotencyStatus;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.IdempotencyConflictException;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.example.bankcards.service.IdempotencyService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private final IdempotencyProperties props;
+    private final IdempotencyRecordRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+
+    // Повтор охватывает и захват ключа: после отката ключ освобождается
+    @Override
+    @RetryableTx
+    public <T> T execute(@ShardKey Long userId, String key, String scope, Object fingerprint, Class<T> responseType, Supplier<T> action) {
+        if (key == null || key.isBlank()) return action.get();
+        if (userId == null) throw new BadRequestException("userId is null");
+        String k = key.trim();
+        if (k.length() > MAX_KEY_LENGTH) throw new BadRequestException("Idempotency-Key is too long");
+        String requestHash = hash(scope, fingerprint);
+
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now(clock);
+            int acquired = repository.tryAcquire(userId, k, scope, requestHash, now, now.plus(props.getTtl()));
+            if (acquired == 0) {
+                return replay(userId, k, requestHash, responseType);
+            }
+            T result = action.get();
+            repository.complete(userId, k, IdempotencyStatus.COMPLETED, serialize(result));
+            return result;
+        });
+    }
+
+    @Override
+    public int purgeExpired() {
+        int batch = props.getPurgeBatchSize();
+        int total = 0;
+        int deleted;
+        do {
+            LocalDateTime now = LocalDateTime.now(clock);
+            Integer n = transactionTemplate.execute(status -> repository.deleteExpired(now, batch));
+            deleted = n == null ? 0 : n;
+            total += deleted;
+        } while (deleted >= batch);
+        return total;
+    }
+
+    private <T> T replay(Long userId, String key, String requestHash, Class<T> responseType) {
+        IdempotencyRecord r = repository.findByUserIdAndIdemKey(userId, key)
+                .orElseThrow(IdempotencyConflictException::new);
+        if (!r.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyConflictException();
+        }
+        if (r.getStatus() != IdempotencyStatus.COMPLETED || r.getResponseBody() == null) {
+            throw new IdempotencyConflictException("Request with this idempotency key is still in progress");
+        }
+        log.debug("Idempotent replay: user={} scope={}", userId, r.getScope());
+        return deserialize(r.getResponseBody(), responseType);
+    }
+
+    private String hash(String scope, Object fingerprint) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(scope.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) '\n');
+            md.update(objectMapper.writeValueAsBytes(fingerprint));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Idempotency fingerprint failed", e);
+        }
+    }
+
+    private String serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Idempotent response serialization failed", e);
+        }
+    }
+
+    private <T> T deserialize(String body, Class<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Idempotent response deserialization failed", e);
+        }
+    }
+}
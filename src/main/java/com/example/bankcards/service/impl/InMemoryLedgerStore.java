@@ -0,0 +1,409 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.config.properties.InMemoryLedgerProperties;
+import com.example.bankcards.config.properties.TransfersSchedulerProperties;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.CardDeletionNotAllowedException;
+import com.example.bankcards.exception.CardExpiredException;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.InvalidCardStateException;
+import com.example.bankcards.exception.OwnershipViolationException;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.service.CardListingCache;
+import com.example.bankcards.service.LedgerStore;
+import com.example.bankcards.service.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.Cache;
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+
+// Однонодовый режим: балансы карт в памяти под полосатыми блокировками, каждый перевод сначала
+// пишется в журнал, затем фоновый писатель переносит журнал в transfers/cards. После рестарта
+// неперенесённый хвост журнала досылается в БД до приёма запросов, карты заново читаются из БД.
+// Балансы в памяти — единственный источник правды: других путей изменения баланса в этом режиме нет
+// (исполнение отложенных переводов планировщиком запрещено при старте).
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "transfers.engine", havingValue = "IN_MEMORY")
+public class InMemoryLedgerStore implements LedgerStore {
+
+    private final InMemoryLedgerProperties props;
+    private final TransferRepository transferRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final CardListingCache cardListingCache;
+    private final ShardRouter shardRouter;
+    private final TaskScheduler taskScheduler;
+    private final TransfersSchedulerProperties schedulerProps;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+    private StampedLock[] stripes;
+    private LedgerJournal journal;
+    private ScheduledFuture<?> writer;
+    private Counter quarantined;
+    private IdBlocks ids;
+
+    // Поля меняются только под блокировкой полосы карты
+    private static final class Slot {
+        final String last4;
+        long ownerId;
+        CardStatus status;
+        YearMonth expiry;
+        long balance;
+        boolean deleted;
+        // Были проводки через хранилище: удалять карту нельзя, их строки в transfers могут ещё не дойти до БД
+        boolean used;
+
+        Slot(Card c) {
+            this.last4 = c.getPanLast4();
+            this.ownerId = c.getUser().getId();
+            this.status = c.getStatus();
+            this.expiry = c.getExpiry();
+            this.balance = c.getBalance();
+        }
+    }
+
+    // id переводов: курсор по текущему блоку transfers_id_seq, следующий блок подгружается фоном, когда
+    // текущий израсходован наполовину. Свой монитор — запросы не ждут писателя журнала (drain).
+    // В БД идём под монитором, только если фоновая подгрузка не успела.
+    private final class IdBlocks {
+        private final Object lock = new Object();
+        private final AtomicBoolean refilling = new AtomicBoolean();
+        private List<Long> current = List.of();
+        private int cursor;
+        private List<Long> prefetched;
+
+        long next() {
+            long id;
+            boolean low;
+            synchronized (lock) {
+                if (cursor >= current.size()) {
+                    current = prefetched != null ? prefetched : transferRepository.allocateIds(props.getIdBlockSize());
+                    prefetched = null;
+                    cursor = 0;
+                }
+                id = current.get(cursor++);
+                low = prefetched == null && current.size() - cursor <= current.size() / 2;
+            }
+            if (low && refilling.compareAndSet(false, true)) {
+                try {
+                    taskScheduler.schedule(this::prefetch, Instant.now());
+                } catch (RuntimeException e) {
+                    refilling.set(false);
+                    log.warn("Failed to schedule transfer id prefetch: {}", e.getMessage());
+                }
+            }
+            return id;
+        }
+
+        private void prefetch() {
+            try {
+                List<Long> block = transferRepository.allocateIds(props.getIdBlockSize());
+                synchronized (lock) {
+                    // Пока шла подгрузка, запрос мог сам взять блок из БД — тогда этот станет следующим
+                    prefetched = block;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Transfer id prefetch failed, next block will be allocated on demand: {}", e.getMessage());
+            } finally {
+                refilling.set(false);
+            }
+        }
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        if (shardRouter.isSharded()) {
+            throw new IllegalStateException("IN_MEMORY transfer engine is single-node and cannot be combined with app.sharding");
+        }
+        if (schedulerProps.isEnabled() && schedulerProps.getMode() == TransfersSchedulerProperties.Mode.EXECUTE) {
+            throw new IllegalStateException("IN_MEMORY transfer engine owns card balances and cannot be combined with "
+                    + "transfers.scheduler.mode=EXECUTE");
+        }
+        quarantined = meterRegistry.counter("ledger.writebehind.quarantined");
+        ids = new IdBlocks();
+        stripes = new StampedLock[props.getLockStripes()];
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new StampedLock();
+        journal = new LedgerJournal(Path.of(props.getJournalPath()), props.isFsync());
+
+        long backlog = journal.backlog();
+        if (backlog > 0) {
+            log.info("Replaying {} journaled transfers into DB", backlog);
+            drain();
+        }
+        writer = taskScheduler.scheduleWithFixedDelay(this::safeDrain, props.getWriteBehindInterval());
+        log.info("InMemoryLedgerStore started with journal={} fsync={}", props.getJournalPath(), props.isFsync());
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException {
+        if (writer != null) writer.cancel(false);
+        safeDrain();
+        journal.close();
+    }
+
+    @Override
+    public Optional<Receipt> transferImmediate(long userId, long fromCardId, long toCardId, long amount,
+                                               LocalDateTime now) {
+        Slot from = slot(fromCardId);
+        Slot to = slot(toCardId);
+        long id = ids.next();
+
+        StampedLock first = stripe(Math.min(fromCardId, toCardId));
+        StampedLock second = stripe(Math.max(fromCardId, toCardId));
+        long s1 = first.writeLock();
+        long s2 = second != first ? second.writeLock() : 0L;
+        try {
+            validate(userId, fromCardId, from, toCardId, to, amount, YearMonth.from(now));
+            // Сначала журнал: при ошибке записи балансы не тронуты
+            LedgerJournal.Entry entry = new LedgerJournal.Entry(id, userId, fromCardId, toCardId, amount, now);
+            journal.append(entry);
+            from.balance -= amount;
+            from.used = true;
+            to.used = true;
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                // Списание зарезервировано сразу, зачисление — после коммита: получатель не потратит деньги,
+                // которые откат заберёт обратно
+                settleAfterCompletion(entry, from, to);
+            } else {
+                to.balance += amount;
+            }
+            return Optional.of(new Receipt(id, from.last4, to.last4));
+        } finally {
+            if (second != first) second.unlockWrite(s2);
+            first.unlockWrite(s1);
+        }
+    }
+
+    private void settleAfterCompletion(LedgerJournal.Entry entry, Slot from, Slot to) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) revert(entry, from, to);
+                else credit(entry.toCardId(), to, entry.amount());
+            }
+        });
+    }
+
+    private void credit(long cardId, Slot to, long amount) {
+        StampedLock lock = stripe(cardId);
+        long stamp = lock.writeLock();
+        try {
+            to.balance += amount;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Откат: отмена в журнал (писатель уберёт уже перенесённую строку), затем резерв возвращается
+    private void revert(LedgerJournal.Entry entry, Slot from, Slot to) {
+        try {
+            journal.append(entry.cancel());
+        } catch (RuntimeException e) {
+            // Отмена не записана — проводка дойдёт до БД; память держим в согласии с журналом
+            log.error("Failed to journal cancellation of transfer {}, it stays applied: {}", entry.transferId(), e.getMessage(), e);
+            credit(entry.toCardId(), to, entry.amount());
+            return;
+        }
+        StampedLock lock = stripe(entry.fromCardId());
+        long stamp = lock.writeLock();
+        try {
+            from.balance += entry.amount();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void beforeCardDeleted(long cardId) {
+        Slot s = slot(cardId);
+        StampedLock lock = stripe(cardId);
+        long stamp = lock.writeLock();
+        try {
+            if (s.used) throw new CardDeletionNotAllowedException(cardId);
+            // Закрываем карту для переводов до коммита удаления; откат удаления её возвращает
+            s.deleted = true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) restore(cardId, s);
+                }
+            });
+        }
+    }
+
+    private void restore(long cardId, Slot s) {
+        StampedLock lock = stripe(cardId);
+        long stamp = lock.writeLock();
+        try {
+            s.deleted = false;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void onCardChanged(long cardId, long ownerId, CardStatus status, YearMonth expiry) {
+        Slot s = slots.get(cardId);
+        if (s == null) return;
+        StampedLock lock = stripe(cardId);
+        long stamp = lock.writeLock();
+        try {
+            s.ownerId = ownerId;
+            s.status = status;
+            s.expiry = expiry;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void onCardDeleted(long cardId) {
+        Slot s = slots.get(cardId);
+        if (s == null) return;
+        StampedLock lock = stripe(cardId);
+        long stamp = lock.writeLock();
+        try {
+            s.deleted = true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Те же проверки и в том же порядке, что у PESSIMISTIC
+    private static void validate(long userId, long fromId, Slot from, long toId, Slot to, long amount, YearMonth nowYm) {
+        if (from.deleted) throw new CardNotFoundException(fromId);
+        if (to.deleted) throw new CardNotFoundException(toId);
+        if (from.ownerId != to.ownerId) {
+            throw new OwnershipViolationException("Cards must belong to the same user");
+        }
+        if (from.ownerId != userId) {
+            throw new OwnershipViolationException("Operation allowed only for own cards");
+        }
+        ensureActiveAndNotExpired(fromId, from, nowYm);
+        ensureActiveAndNotExpired(toId, to, nowYm);
+        if (from.balance < amount) throw new InsufficientFundsException(fromId);
+    }
+
+    private static void ensureActiveAndNotExpired(long cardId, Slot s, YearMonth nowYm) {
+        if (s.status != CardStatus.ACTIVE) {
+            throw new InvalidCardStateException("Card is not ACTIVE: " + cardId);
+        }
+        if (s.expiry != null && s.expiry.isBefore(nowYm)) {
+            throw new CardExpiredException(cardId);
+        }
+    }
+
+    // Слот создаётся один раз и не вытесняется: неперенесённые проводки есть только у карт в памяти.
+    // Карта читается вне карты слотов (не держим блокировку корзины на время запроса в БД); при гонке
+    // побеждает первый вставленный слот, прочитанный вторым потоком отбрасывается.
+    private Slot slot(long cardId) {
+        Slot s = slots.get(cardId);
+        if (s != null) return s;
+        Card c = entityManager.find(Card.class, cardId, Map.of(SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS));
+        if (c == null) throw new CardNotFoundException(cardId);
+        Slot fresh = new Slot(c);
+        Slot prev = slots.putIfAbsent(cardId, fresh);
+        return prev != null ? prev : fresh;
+    }
+
+    private StampedLock stripe(long cardId) {
+        return stripes[(int) Math.floorMod(cardId, (long) stripes.length)];
+    }
+
+    private void safeDrain() {
+        try {
+            drain();
+        } catch (Exception e) {
+            log.warn("Ledger write-behind failed, {} transfers pending: {}", journal.backlog(), e.getMessage(), e);
+        }
+    }
+
+    private synchronized void drain() {
+        List<LedgerJournal.Entry> batch;
+        do {
+            batch = journal.pending(props.getWriteBehindBatchSize());
+            if (batch.isEmpty()) return;
+            List<LedgerJournal.Entry> entries = batch;
+            try {
+                transactionTemplate.executeWithoutResult(status -> entries.forEach(this::apply));
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Ledger write-behind batch of {} rejected by DB, retrying entry by entry: {}", entries.size(), e.getMessage());
+                applyOneByOne(entries);
+            }
+            journal.markApplied(entries.size());
+            afterApplied(entries);
+        } while (batch.size() >= props.getWriteBehindBatchSize());
+    }
+
+    // Повтор перенесённых записей безопасен (applyJournaled/cancelJournaled идемпотентны). Запись, которую
+    // БД отвергает и по одной, уходит в карантин, чтобы не стопорить журнал; прочие ошибки (БД недоступна)
+    // прерывают перенос до следующего тика.
+    private void applyOneByOne(List<LedgerJournal.Entry> entries) {
+        for (LedgerJournal.Entry e : entries) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(e));
+            } catch (DataIntegrityViolationException ex) {
+                journal.quarantine(e, ex.getMostSpecificCause().getMessage());
+                quarantined.increment();
+                log.error("Ledger entry quarantined: {} ({})", e, ex.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+
+    private void apply(LedgerJournal.Entry e) {
+        if (e.isCancel()) {
+            transferRepository.cancelJournaled(e.transferId(), e.fromCardId(), e.toCardId(), -e.amount());
+        } else {
+            transferRepository.applyJournaled(e.transferId(), e.userId(), e.fromCardId(), e.toCardId(), e.amount(), e.at());
+        }
+    }
+
+    // Нативный UPDATE мимо Hibernate: кэш карт и листинги владельцев сбрасываем сами
+    private void afterApplied(List<LedgerJournal.Entry> entries) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        Set<Long> users = new HashSet<>();
+        for (LedgerJournal.Entry e : entries) {
+            cache.evict(Card.class, e.fromCardId());
+            cache.evict(Card.class, e.toCardId());
+            users.add(e.userId());
+        }
+        users.forEach(cardListingCache::invalidate);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.service.LedgerStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Optional;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnExpression("'${transfers.engine:PESSIMISTIC}' != 'IN_MEMORY'")
+public class JpaLedgerStore implements LedgerStore {
+
+    private final TransferRepository transferRepository;
+
+    // Обе карты ACTIVE и одного владельца — итоги user_balance_summary не меняются;
+    // карты из L2-кэша вычищает сам репозиторий
+    @Override
+    public Optional<Receipt> transferImmediate(long userId, long fromCardId, long toCardId, long amount,
+                                               LocalDateTime now) {
+        return transferRepository.executeImmediate(
+                        userId, fromCardId, toCardId, amount, YearMonth.from(now).toString(), now)
+                .map(row -> new Receipt(row.getId(), row.getFromLast4(), row.getToLast4()));
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.bankcards.service.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+// Журнал IN_MEMORY-хранилища: записи фиксированной длины, дописываются в конец.
+// Рядом лежит файл .applied — сколько записей уже перенесено в БД; когда перенесено всё, журнал обнуляется.
+public class LedgerJournal implements AutoCloseable {
+
+    static final int RECORD_SIZE = 6 * Long.BYTES;
+
+    // Отрицательная сумма — отмена ранее записанной проводки с тем же transferId (транзакция откатилась)
+    public record Entry(long transferId, long userId, long fromCardId, long toCardId, long amount, LocalDateTime at) {
+        public boolean isCancel() {
+            return amount < 0;
+        }
+
+        public Entry cancel() {
+            return new Entry(transferId, userId, fromCardId, toCardId, -amount, at);
+        }
+    }
+
+    private final FileChannel channel;
+    private final Path appliedPath;
+    private final Path quarantinePath;
+    private final boolean fsync;
+    private final ByteBuffer writeBuf = ByteBuffer.allocate(RECORD_SIZE);
+
+    private long size;
+    private long applied;
+
+    public LedgerJournal(Path path, boolean fsync) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.appliedPath = path.resolveSibling(path.getFileName() + ".applied");
+        this.quarantinePath = path.resolveSibling(path.getFileName() + ".quarantine");
+        this.fsync = fsync;
+        // Недописанный хвост после падения отбрасываем
+        this.size = channel.size() / RECORD_SIZE;
+        channel.truncate(size * RECORD_SIZE);
+        this.applied = Math.min(readApplied(), size);
+    }
+
+    public synchronized void append(Entry e) {
+        writeBuf.clear();
+        writeBuf.putLong(e.transferId())
+                .putLong(e.userId())
+                .putLong(e.fromCardId())
+                .putLong(e.toCardId())
+                .putLong(e.amount())
+                .putLong(toMicros(e.at()))
+                .flip();
+        try {
+            long pos = size * RECORD_SIZE;
+            while (writeBuf.hasRemaining()) {
+                pos += channel.write(writeBuf, pos);
+            }
+            if (fsync) channel.force(false);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Ledger journal append failed", ex);
+        }
+        size++;
+    }
+
+    // Следующие ещё не перенесённые в БД записи
+    public synchronized List<Entry> pending(int max) {
+        int n = (int) Math.min(max, size - applied);
+        List<Entry> out = new ArrayList<>(n);
+        if (n == 0) return out;
+        ByteBuffer buf = ByteBuffer.allocate(n * RECORD_SIZE);
+        try {
+            long pos = applied * RECORD_SIZE;
+            while (buf.hasRemaining()) {
+                int read = channel.read(buf, pos + buf.position());
+                if (read < 0) throw new IOException("Unexpected end of ledger journal");
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Ledger journal read failed", ex);
+        }
+        buf.flip();
+        for (int i = 0; i < n; i++) {
+            out.add(new Entry(buf.getLong(), buf.getLong(), buf.getLong(), buf.getLong(), buf.getLong(), fromMicros(buf.getLong())));
+        }
+        return out;
+    }
+
+    public synchronized void markApplied(int count) {
+        applied = Math.min(size, applied + count);
+        try {
+            if (applied == size) {
+                channel.truncate(0);
+                size = 0;
+                applied = 0;
+            }
+            writeApplied(applied);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Ledger journal checkpoint failed", ex);
+        }
+    }
+
+    // Запись, которую БД отвергает (нарушение ограничения), откладывается строкой в .quarantine для ручной сверки
+    public synchronized void quarantine(Entry e, String reason) {
+        String line = e.transferId() + "," + e.userId() + "," + e.fromCardId() + "," + e.toCardId() + ","
+                + e.amount() + "," + e.at() + "," + String.valueOf(reason).replace('\n', ' ') + System.lineSeparator();
+        try {
+            Files.writeString(quarantinePath, line, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Ledger quarantine write failed", ex);
+        }
+    }
+
+    public synchronized long backlog() {
+        return size - applied;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private long readApplied() throws IOException {
+        if (!Files.exists(appliedPath)) return 0;
+        String s = Files.readString(appliedPath, StandardCharsets.US_ASCII).trim();
+        return s.isEmpty() ? 0 : Long.parseLong(s);
+    }
+
+    private void writeApplied(long value) throws IOException {
+        Path tmp = appliedPath.resolveSibling(appliedPath.getFileName() + ".tmp");
+        Files.writeString(tmp, Long.toString(value), StandardCharsets.US_ASCII);
+        Files.move(tmp, appliedPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long toMicros(LocalDateTime t) {
+        return t.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + t.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.annotation.ShardKey;
+import com.example.bankcards.config.properties.JwtProperties;
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.exception.InvalidRefreshTokenException;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.repository.RefreshTokenRepository.RefreshTokenView;
+import com.example.bankcards.service.RefreshTokenService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.UUID;
+
+// Продление сессии без BCrypt: HMAC предъявленного токена и один поиск по уникальному индексу.
+// Ротированный токен не удаляется до истечения срока — его повторное предъявление гасит всю цепочку.
+@Slf4j
+@Service
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int TOKEN_BYTES = 32;
+
+    private final JwtProperties props;
+    private final RefreshTokenRepository repository;
+    private final Clock clock;
+    private final TransactionTemplate transactionTemplate;
+    private final SecretKey key;
+
+    public RefreshTokenServiceImpl(JwtProperties props, RefreshTokenRepository repository, Clock clock,
+                                   TransactionTemplate transactionTemplate) {
+        this.props = props;
+        this.repository = repository;
+        this.clock = clock;
+        this.transactionTemplate = transactionTemplate;
+        this.key = props.secretKey();
+    }
+
+    @Override
+    @Transactional
+    public Issued issue(@ShardKey Long userId) {
+        UUID familyId = UUID.randomUUID();
+        return new Issued(store(userId, familyId, LocalDateTime.now(clock)), familyId);
+    }
+
+    @Override
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public Rotation rotate(@ShardKey Long userId, String refreshToken) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        RefreshTokenView t = repository.findForRefresh(hash(refreshToken), now)
+                .filter(v -> v.getUserId().equals(userId))
+                .orElseThrow(() -> new InvalidRefreshTokenException("Unknown refresh token"));
+        if (Boolean.TRUE.equals(t.getRevoked())) {
+            throw new InvalidRefreshTokenException("Refresh token revoked");
+        }
+        // Повтор уже ротированного токена: один из предъявителей — не владелец, гасим всю цепочку
+        if (Boolean.TRUE.equals(t.getUsed())) {
+            throw reuse(userId, t);
+        }
+        if (!Boolean.TRUE.equals(t.getActive())) {
+            throw new InvalidRefreshTokenException("Refresh token expired");
+        }
+        if (!Boolean.TRUE.equals(t.getEnabled())) {
+            throw new InvalidRefreshTokenException("User disabled");
+        }
+        // Гонка двух ротаций одного токена — тот же случай
+        if (repository.markUsed(t.getId(), now) == 0) {
+            throw reuse(userId, t);
+        }
+        String next = store(userId, t.getFamilyId(), now);
+        return new Rotation(userId, t.getUsername(), roles(t.getRoles()), next, t.getFamilyId());
+    }
+
+    @Override
+    @Transactional
+    public void revokeFamily(@ShardKey Long userId, UUID familyId) {
+        int revoked = repository.revokeFamily(familyId);
+        log.info("Refresh family {} of user {} revoked on logout ({} tokens)", familyId, userId, revoked);
+    }
+
+    @Override
+    public int purgeExpired() {
+        int batch = props.getRefreshPurgeBatchSize();
+        int total = 0;
+        int deleted;
+        do {
+            LocalDateTime now = LocalDateTime.now(clock);
+            Integer n = transactionTemplate.execute(status -> repository.deleteExpired(now, batch));
+            deleted = n == null ? 0 : n;
+            total += deleted;
+        } while (deleted >= batch);
+        return total;
+    }
+
+    private InvalidRefreshTokenException reuse(Long userId, RefreshTokenView t) {
+        int revoked = repository.revokeFamily(t.getFamilyId());
+        log.warn("Refresh token reuse for user {}: family {} revoked ({} tokens)", userId, t.getFamilyId(), revoked);
+        return new InvalidRefreshTokenException("Refresh token reuse detected");
+    }
+
+    private String store(Long userId, UUID familyId, LocalDateTime now) {
+        byte[] random = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(random);
+        String token = userId + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+        repository.save(RefreshToken.builder()
+                .userId(userId)
+                .familyId(familyId)
+                .tokenHash(hash(token))
+                .createdAt(now)
+                .expiresAt(now.plus(props.getRefreshTtl()))
+                .build());
+        return token;
+    }
+
+    private String hash(String token) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return HexFormat.of().formatHex(mac.doFinal(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Refresh token HMAC failed", e);
+        }
+    }
+
+    private static Set<Role> roles(String csv) {
+        Set<Role> roles = EnumSet.noneOf(Role.class);
+        if (csv == null || csv.isBlank()) return roles;
+        Arrays.stream(csv.split(",")).map(Role::valueOf).forEach(roles::add);
+        return roles;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.annotation.ShardKey;
+import com.example.bankcards.config.properties.JwtProperties;
+import com.example.bankcards.config.properties.TokenRevocationProperties;
+import com.example.bankcards.entity.RevokedToken;
+import com.example.bankcards.repository.RevokedTokenRepository;
+import com.example.bankcards.security.jwt.TokenRevocationStore;
+import com.example.bankcards.service.TokenRevocationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Запись отзыва в revoked_tokens шарда пользователя; локальный узел видит отзыв сразу после коммита,
+// остальные — на ближайшем опросе TokenRevocationSync
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+
+    private final RevokedTokenRepository repository;
+    private final TokenRevocationStore store;
+    private final JwtProperties jwtProperties;
+    private final TokenRevocationProperties props;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+
+    @Override
+    @Transactional
+    public void revokeToken(@ShardKey Long userId, String jti, Instant expiresAt) {
+        save(userId, jti, LocalDateTime.ofInstant(expiresAt, clock.getZone()));
+        log.info("Access token {} of user {} revoked", jti, userId);
+    }
+
+    @Override
+    @Transactional
+    public void revokeUser(@ShardKey Long userId) {
+        // Самый поздний из уже выданных токенов истечёт не позже чем через время жизни токена
+        LocalDateTime now = LocalDateTime.now(clock);
+        save(userId, null, now.plus(Duration.ofMillis(jwtProperties.getExpirationMs())).plusSeconds(1));
+        log.info("All access tokens of user {} revoked", userId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TokenRevocationStore.Entry> loadActive() {
+        return repository.findByExpiresAtAfter(LocalDateTime.now(clock)).stream().map(this::toEntry).toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TokenRevocationStore.Entry> loadSince(LocalDateTime since) {
+        return repository.findByRevokedAtAfter(since).stream().map(this::toEntry).toList();
+    }
+
+    @Override
+    public int purgeExpired() {
+        int batch = props.getPurgeBatchSize();
+        int total = 0;
+        int deleted;
+        do {
+            LocalDateTime now = LocalDateTime.now(clock);
+            Integer n = transactionTemplate.execute(status -> repository.deleteExpired(now, batch));
+            deleted = n == null ? 0 : n;
+            total += deleted;
+        } while (deleted >= batch);
+        return total;
+    }
+
+    private void save(Long userId, String jti, LocalDateTime expiresAt) {
+        RevokedToken token = RevokedToken.builder()
+                .userId(userId)
+                .jti(jti)
+                .revokedAt(LocalDateTime.now(clock))
+                .expiresAt(expiresAt)
+                .build();
+        repository.save(token);
+        TokenRevocationStore.Entry entry = toEntry(token);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    store.add(entry);
+                }
+            });
+        } else {
+            store.add(entry);
+        }
+    }
+
+    // Время в БД — в зоне приложения, iat/exp токена — epoch
+    private TokenRevocationStore.Entry toEntry(RevokedToken t) {
+        return new TokenRevocationStore.Entry(t.getJti(), t.getUserId(),
+                t.getRevokedAt().atZone(clock.getZone()).toInstant().toEpochMilli(),
+                t.getExpiresAt().atZone(clock.getZone()).toEpochSecond());
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.config.properties.TransfersProperties;
+import com.example.bankcards.dto.ExportFormat;
+import com.example.bankcards.dto.TransferExportFilter;
+import com.example.bankcards.dto.TransferExportRow;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.service.ShardRouter;
+import com.example.bankcards.service.TransferExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Выгрузка идёт keyset-чанками: каждый чанк — отдельная короткая read-only транзакция,
+// соединение не удерживается на время записи в сокет, память не растёт с объёмом.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransferExportServiceImpl implements TransferExportService {
+
+    static final String CSV_HEADER = "id,initiatorId,fromCardId,toCardId,amount,status,createdAt,expiresAt,executedAt,failureCode";
+
+    private final TransfersProperties props;
+    private final TransferRepository transferRepository;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+
+    @Override
+    public void validate(TransferExportFilter f) {
+        if (f.getFrom() != null && f.getTo() != null && !f.getFrom().isBefore(f.getTo())) {
+            throw new BadRequestException("from must be before to");
+        }
+    }
+
+    @Override
+    public void export(TransferExportFilter f, ExportFormat format, OutputStream out) throws IOException {
+        validate(f);
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            w.write(CSV_HEADER);
+            w.write('\n');
+        }
+
+        // По курсору на шард, k-way merge по убыванию id (без шардирования курсор один)
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(
+                Comparator.comparing((Cursor c) -> c.rows.peekFirst().getId()).reversed());
+        for (int shard : shardRouter.shards()) {
+            Cursor c = new Cursor(shard, f);
+            if (c.fill()) heads.add(c);
+        }
+        long total = 0;
+        while (!heads.isEmpty()) {
+            Cursor c = heads.poll();
+            TransferExportRow r = c.rows.pollFirst();
+            if (format == ExportFormat.CSV) writeCsv(w, r);
+            else writeJson(w, r);
+            total++;
+            if (c.rows.isEmpty()) {
+                w.flush();
+                if (!c.fill()) continue;
+            }
+            heads.add(c);
+        }
+        w.flush();
+        log.info("Transfers exported: {} rows ({})", total, format);
+    }
+
+    private final class Cursor {
+        final int shard;
+        final TransferExportFilter filter;
+        final Deque<TransferExportRow> rows = new ArrayDeque<>();
+        long beforeId = Long.MAX_VALUE;
+        boolean exhausted;
+
+        Cursor(int shard, TransferExportFilter filter) {
+            this.shard = shard;
+            this.filter = filter;
+        }
+
+        boolean fill() {
+            if (exhausted) return false;
+            int chunk = props.getExportChunkSize();
+            List<TransferExportRow> next = shardRouter.onShard(shard, () -> transferRepository.findExportChunk(
+                    beforeId, filter.getStatus(), filter.getCardId(), filter.getFrom(), filter.getTo(),
+                    PageRequest.of(0, chunk)));
+            if (next.size() < chunk) exhausted = true;
+            if (!next.isEmpty()) beforeId = next.get(next.size() - 1).getId();
+            rows.addAll(next);
+            return !rows.isEmpty();
+        }
+    }
+
+    private void writeJson(Writer w, TransferExportRow r) throws IOException {
+        w.write(objectMapper.writeValueAsString(r));
+        w.write('\n');
+    }
+
+    private static void writeCsv(Writer w, TransferExportRow r) throws IOException {
+        w.write(String.valueOf(r.getId()));
+        w.write(',');
+        w.write(String.valueOf(r.getInitiatorId()));
+        w.write(',');
+        w.write(String.valueOf(r.getFromCardId()));
+        w.write(',');
+        w.write(String.valueOf(r.getToCardId()));
+        w.write(',');
+        w.write(String.valueOf(r.getAmount()));
+        w.write(',');
+        w.write(r.getStatus().name());
+        w.write(',');
+        w.write(ts(r.getCreatedAt()));
+        w.write(',');
+        w.write(ts(r.getExpiresAt()));
+        w.write(',');
+        w.write(ts(r.getExecutedAt()));
+        w.write(',');
+        w.write(csvText(r.getFailureCode()));
+        w.write('\n');
+    }
+
+    private static String ts(LocalDateTime t) {
+        return t == null ? "" : DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(t);
+    }
+
+    private static String csvText(String s) {
+        if (s == null) return "";
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+}
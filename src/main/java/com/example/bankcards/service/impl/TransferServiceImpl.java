@@ -1,5 +1,8 @@
 package com.example.bankcards.service.impl;
 
+import com.example.bankcards.annotation.RetryableTx;
+import com.example.bankcards.annotation.ShardKey;
+import com.example.bankcards.config.LogContext;
 import com.example.bankcards.config.properties.TransfersProperties;
 import com.example.bankcards.dto.PageDto;
 import com.example.bankcards.dto.TransferDto;
@@ -7,12 +10,12 @@ import com.example.bankcards.dto.TransferRequest;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Transfer;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.AuditEventType;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.entity.enums.TransferStatus;
 import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.exception.CardExpiredException;
 import com.example.bankcards.exception.CardNotFoundException;
-import com.example.bankcards.exception.IdempotencyConflictException;
 import com.example.bankcards.exception.InsufficientFundsException;
 import com.example.bankcards.exception.OwnershipViolationException;
 import com.example.bankcards.exception.TransferExpiredException;
@@ -24,12 +27,19 @@ import com.example.bankcards.mapper.TransferMapper;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransferRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.AuditTrail;
+import com.example.bankcards.service.BalanceSummaryUpdater;
+import com.example.bankcards.service.CardListingCache;
+import com.example.bankcards.service.LedgerStore;
+import com.example.bankcards.service.ShardRouter;
+import com.example.bankcards.service.TransferJournal;
 import com.example.bankcards.service.TransferService;
+import jakarta.persistence.CacheRetrieveMode;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.LockModeType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.DataIntegrityViolationException;
+import org.hibernate.jpa.SpecHints;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -37,7 +47,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Slf4j
@@ -50,22 +62,33 @@ public class TransferServiceImpl implements TransferService {
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
     private final EntityManager entityManager;
+    private final CardListingCache cardListingCache;
+    private final BalanceSummaryUpdater balanceSummaryUpdater;
+    private final ShardRouter shardRouter;
+    private final LedgerStore ledgerStore;
+    private final TransferJournal transferJournal;
+    private final AuditTrail auditTrail;
     private final Clock clock;
 
     private static final Sort DEFAULT_SORT = Sort.by(Sort.Direction.DESC, "id");
+    private static final Comparator<TransferDto> BY_ID_DESC = Comparator.comparing(TransferDto::getId).reversed();
 
     private record TwoCards(Card from, Card to) {}
 
     @Override
+    @RetryableTx
     @Transactional
-    public TransferDto initiate(Long currentUserId, TransferRequest request) {
+    public TransferDto initiate(@ShardKey Long currentUserId, TransferRequest request) {
         validateRequest(request);
+        if (props.getEngine() == TransfersProperties.Engine.IN_MEMORY) {
+            return initiateInMemory(currentUserId, request);
+        }
         User initiator = loadInitiator(currentUserId);
 
-        Optional<Transfer> idem = findIdempotent(currentUserId, request);
-        if (idem.isPresent()) {
-            validateIdempotentSame(idem.get(), currentUserId, request);
-            return TransferMapper.toDto(idem.get());
+        LocalDateTime now = now();
+        LocalDateTime expiresAt = calcExpiresAt(request, now);
+        if (expiresAt == null && props.getEngine() == TransfersProperties.Engine.CONDITIONAL_UPDATE) {
+            return initiateImmediate(currentUserId, request, now);
         }
 
         TwoCards cards = loadCardsLockedOrdered(request.getFromCardId(), request.getToCardId());
@@ -74,9 +97,6 @@ public class TransferServiceImpl implements TransferService {
         ensureActiveAndNotExpired(cards.to());
         ensureSufficientFunds(cards.from(), request.getAmount());
 
-        LocalDateTime now = now();
-        LocalDateTime expiresAt = calcExpiresAt(request, now);
-
         Transfer transfer = Transfer.builder()
                 .initiator(initiator)
                 .fromCard(cards.from())
@@ -84,25 +104,24 @@ public class TransferServiceImpl implements TransferService {
                 .amount(request.getAmount())
                 .status(TransferStatus.PENDING)
                 .expiresAt(expiresAt)
-                .idempotencyKey(blankToNull(request.getIdempotencyKey()))
                 .build();
 
         applyExecutionIfDue(transfer, cards.from(), cards.to(), now);
 
-        try {
-            transfer = transferRepository.save(transfer);
-        } catch (DataIntegrityViolationException e) {
-            return handleIdempotencyRace(currentUserId, request, e);
-        }
+        transfer = transferRepository.save(transfer);
 
         cardRepository.save(cards.from());
         cardRepository.save(cards.to());
+        auditTrail.recordAfterCommit(transfer.getStatus() == TransferStatus.COMPLETED
+                        ? AuditEventType.TRANSFER_COMPLETED : AuditEventType.TRANSFER_CREATED,
+                currentUserId, transfer.getId(), transfer.getAmount(), cardsDetails(request.getFromCardId(), request.getToCardId()));
         return TransferMapper.toDto(transfer);
     }
 
     @Override
+    @RetryableTx
     @Transactional
-    public TransferDto cancel(Long currentUserId, Long transferId) {
+    public TransferDto cancel(@ShardKey Long currentUserId, Long transferId) {
         Transfer t = transferRepository.findById(transferId)
                 .orElseThrow(() -> new TransferNotFoundException(transferId));
 
@@ -121,13 +140,14 @@ public class TransferServiceImpl implements TransferService {
         t.setFailureMessage("Canceled by user");
         t = transferRepository.save(t);
 
-        log.info("Transfer canceled: {}", transferId);
+        auditTrail.recordAfterCommit(AuditEventType.TRANSFER_CANCELED, currentUserId, transferId, t.getAmount(), null);
+        log.info(LogContext.SAMPLED, "Transfer canceled: {}", transferId);
         return TransferMapper.toDto(t);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public PageDto<TransferDto> listMy(Long userId, int page, int size) {
+    public PageDto<TransferDto> listMy(@ShardKey Long userId, int page, int size) {
         Pageable pageable = pageable(page, size);
         Page<Transfer> p = transferRepository.findByInitiator_Id(userId, pageable);
         List<TransferDto> dtos = p.stream().map(TransferMapper::toDto).toList();
@@ -138,9 +158,46 @@ public class TransferServiceImpl implements TransferService {
     @Transactional(readOnly = true)
     public PageDto<TransferDto> listAll(int page, int size) {
         Pageable pageable = pageable(page, size);
-        Page<Transfer> p = transferRepository.findAll(pageable);
-        List<TransferDto> dtos = p.stream().map(TransferMapper::toDto).toList();
-        return PageDtoMapper.toPageDto(p, dtos);
+        Page<TransferDto> p = shardRouter.scatterGather(pageable,
+                pg -> transferRepository.findAll(pg).map(TransferMapper::toDto), BY_ID_DESC);
+        return PageDtoMapper.toPageDto(p, p.getContent());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PageDto<TransferDto> listQuarantined(int page, int size) {
+        Pageable pageable = pageable(page, size);
+        Page<TransferDto> p = shardRouter.scatterGather(pageable,
+                pg -> transferRepository.findByStatus(TransferStatus.QUARANTINED, pg).map(TransferMapper::toDto), BY_ID_DESC);
+        return PageDtoMapper.toPageDto(p, p.getContent());
+    }
+
+    // Возврат в очередь планировщика: счётчик попыток сбрасывается, строка сразу становится due
+    @Override
+    @RetryableTx
+    @Transactional
+    public TransferDto requeue(@ShardKey Long transferId) {
+        Transfer t = transferRepository.findById(transferId)
+                .orElseThrow(() -> new TransferNotFoundException(transferId));
+
+        if (t.getStatus() != TransferStatus.QUARANTINED) {
+            throw new TransferInvalidStateException("Only QUARANTINED transfer can be requeued");
+        }
+
+        t.setStatus(TransferStatus.PENDING);
+        t.setAttemptCount(0);
+        t.setNextAttemptAt(null);
+        t.setFailureCode(null);
+        t.setFailureMessage(null);
+        t = transferRepository.save(t);
+
+        auditTrail.recordAfterCommit(AuditEventType.TRANSFER_REQUEUED, t.getInitiator().getId(), transferId, t.getAmount(), null);
+        log.info(LogContext.SAMPLED, "Transfer requeued: {}", transferId);
+        return TransferMapper.toDto(t);
+    }
+
+    private static String cardsDetails(Long fromCardId, Long toCardId) {
+        return "cards " + fromCardId + "->" + toCardId;
     }
 
     private void validateRequest(TransferRequest r) {
@@ -158,23 +215,9 @@ public class TransferServiceImpl implements TransferService {
         return userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
     }
 
-    private Optional<Transfer> findIdempotent(Long initiatorId, TransferRequest r) {
-        return hasIdemKey(r)
-                ? transferRepository.findByInitiator_IdAndIdempotencyKey(initiatorId, r.getIdempotencyKey())
-                : Optional.empty();
-    }
-
-    private void validateIdempotentSame(Transfer t, Long currentUserId, TransferRequest r) {
-        boolean same = t.getInitiator().getId().equals(currentUserId)
-                && t.getFromCard().getId().equals(r.getFromCardId())
-                && t.getToCard().getId().equals(r.getToCardId())
-                && t.getAmount().equals(r.getAmount());
-        if (!same) throw new IdempotencyConflictException();
-    }
-
     private TwoCards loadCardsLockedOrdered(Long fromId, Long toId) {
-        Card first  = lockCardForUpdate(Math.min(fromId, toId));
-        Card second = lockCardForUpdate(Math.max(fromId, toId));
+        Card first  = loadCardForUpdate(Math.min(fromId, toId));
+        Card second = loadCardForUpdate(Math.max(fromId, toId));
         Card from   = first.getId().equals(fromId) ? first : second;
         Card to     = from == first ? second : first;
         if (from.getId().equals(to.getId())) throw new BadRequestException("fromCardId equals toCardId");
@@ -213,20 +256,71 @@ public class TransferServiceImpl implements TransferService {
         to.setBalance(Math.addExact(to.getBalance(), t.getAmount()));
         t.setStatus(TransferStatus.COMPLETED);
         t.setExecutedAt(now);
-        log.info("Transfer completed: {} -> {} amount={} last4:{}->{}", from.getId(), to.getId(), t.getAmount(), from.getPanLast4(), to.getPanLast4());
+        transferJournal.recordAfterCommit(t);
+        balanceSummaryUpdater.onTransferExecuted(from, to, t.getAmount());
+        cardListingCache.invalidate(from.getUser().getId());
+        log.info(LogContext.SAMPLED, "Transfer completed: {} -> {} amount={} last4:{}->{}", from.getId(), to.getId(), t.getAmount(), from.getPanLast4(), to.getPanLast4());
     }
 
-    private TransferDto handleIdempotencyRace(Long currentUserId, TransferRequest r, DataIntegrityViolationException e) {
-        if (!hasIdemKey(r)) throw e;
-        Transfer t = transferRepository
-                .findByInitiator_IdAndIdempotencyKey(currentUserId, r.getIdempotencyKey())
-                .orElseThrow(() -> e);
-        validateIdempotentSame(t, currentUserId, r);
-        return TransferMapper.toDto(t);
+    // Балансы живут в памяти: отложенные переводы требуют строк в БД и здесь не поддерживаются.
+    // Отказы хранилище объясняет само.
+    private TransferDto initiateInMemory(Long currentUserId, TransferRequest r) {
+        if (r.getTtlSeconds() != null && r.getTtlSeconds() > 0) {
+            throw new BadRequestException("ttlSeconds is not supported by IN_MEMORY engine");
+        }
+        return initiateImmediate(currentUserId, r, now());
+    }
+
+    private TransferDto initiateImmediate(Long currentUserId, TransferRequest r, LocalDateTime now) {
+        Long fromId = r.getFromCardId();
+        Long toId = r.getToCardId();
+        if (fromId.equals(toId)) throw new BadRequestException("fromCardId equals toCardId");
+
+        Optional<LedgerStore.Receipt> res = ledgerStore.transferImmediate(currentUserId, fromId, toId, r.getAmount(), now);
+        if (res.isEmpty()) {
+            throw explainRejected(currentUserId, r);
+        }
+
+        cardListingCache.invalidate(currentUserId);
+        LedgerStore.Receipt receipt = res.get();
+        transferJournal.recordAfterCommit(receipt.id(), currentUserId, fromId, toId, r.getAmount(), TransferStatus.COMPLETED, now, now);
+        auditTrail.recordAfterCommit(AuditEventType.TRANSFER_COMPLETED, currentUserId, receipt.id(), r.getAmount(), cardsDetails(fromId, toId));
+        log.info(LogContext.SAMPLED, "Transfer completed: {} -> {} amount={} last4:{}->{}", fromId, toId, r.getAmount(), receipt.fromLast4(), receipt.toLast4());
+        return TransferDto.builder()
+                .id(receipt.id())
+                .fromCardId(fromId)
+                .toCardId(toId)
+                .fromLast4(receipt.fromLast4())
+                .toLast4(receipt.toLast4())
+                .amount(r.getAmount())
+                .status(TransferStatus.COMPLETED)
+                .createdAt(now)
+                .executedAt(now)
+                .build();
     }
 
-    private Card lockCardForUpdate(Long cardId) {
-        Card c = entityManager.find(Card.class, cardId, LockModeType.PESSIMISTIC_WRITE);
+    // Запрос не изменил ни одной строки: перечитываем карты (мимо L2) и повторяем проверки
+    // в том же порядке, что и PESSIMISTIC, чтобы вернуть ту же доменную ошибку.
+    private RuntimeException explainRejected(Long currentUserId, TransferRequest r) {
+        TwoCards cards = new TwoCards(loadCardBypassCache(r.getFromCardId()), loadCardBypassCache(r.getToCardId()));
+        validateOwnership(cards, currentUserId);
+        ensureActiveAndNotExpired(cards.from());
+        ensureActiveAndNotExpired(cards.to());
+        ensureSufficientFunds(cards.from(), r.getAmount());
+        return new TransferInvalidStateException("Cards changed concurrently, retry the transfer");
+    }
+
+    private Card loadCardBypassCache(Long cardId) {
+        Card c = entityManager.find(Card.class, cardId,
+                Map.of(SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS));
+        if (c == null) throw new CardNotFoundException(cardId);
+        return c;
+    }
+
+    private Card loadCardForUpdate(Long cardId) {
+        Card c = props.getEngine() == TransfersProperties.Engine.OPTIMISTIC
+                ? entityManager.find(Card.class, cardId)
+                : entityManager.find(Card.class, cardId, LockModeType.PESSIMISTIC_WRITE);
         if (c == null) throw new CardNotFoundException(cardId);
         return c;
     }
@@ -246,14 +340,6 @@ public class TransferServiceImpl implements TransferService {
         return Math.min(size, props.getMaxPageSize());
     }
 
-    private boolean hasIdemKey(TransferRequest r) {
-        return r.getIdempotencyKey() != null && !r.getIdempotencyKey().isBlank();
-    }
-
-    private String blankToNull(String s) {
-        return (s == null || s.isBlank()) ? null : s;
-    }
-
     private LocalDateTime now() {
         return LocalDateTime.now(clock);
     }
@@ -1,7 +1,9 @@
 package com.example.bankcards.service.impl;
 
+import com.example.bankcards.annotation.ShardKey;
 import com.example.bankcards.config.properties.UsersProperties;
 import com.example.bankcards.dto.PageDto;
+import com.example.bankcards.dto.PasswordHashStatsDto;
 import com.example.bankcards.dto.UserDto;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.Role;
@@ -11,12 +13,16 @@ import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.mapper.PageDtoMapper;
 import com.example.bankcards.mapper.UserMapper;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.crypto.PasswordHashPolicy;
+import com.example.bankcards.service.ShardRouter;
+import com.example.bankcards.service.TokenRevocationService;
 import com.example.bankcards.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.*;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
@@ -30,12 +36,16 @@ public class UserServiceImpl implements UserService {
     private final UsersProperties usersProperties;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ShardRouter shardRouter;
+    private final PasswordHashPolicy hashPolicy;
+    private final TokenRevocationService tokenRevocationService;
 
     private static final Sort DEFAULT_SORT = Sort.by(Sort.Direction.DESC, "id");
+    private static final Comparator<UserDto> BY_ID_DESC = Comparator.comparing(UserDto::getId).reversed();
 
     @Override
     @Transactional
-    public UserDto createUser(String username, String rawPassword, Set<Role> roles) {
+    public UserDto createUser(@ShardKey String username, String rawPassword, Set<Role> roles) {
         String u = normalize(username);
         validateUsername(u);
         validatePassword(rawPassword);
@@ -50,13 +60,13 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public Optional<UserDto> getById(Long id) {
+    public Optional<UserDto> getById(@ShardKey Long id) {
         if (id == null) return Optional.empty();
         return userRepository.findById(id).map(UserMapper::toDto);
     }
 
     @Override
-    public Optional<UserDto> getByUsername(String username) {
+    public Optional<UserDto> getByUsername(@ShardKey String username) {
         String u = normalize(username);
         if (u == null || u.isBlank()) return Optional.empty();
         return userRepository.findByUsername(u).map(UserMapper::toDto);
@@ -64,38 +74,84 @@ public class UserServiceImpl implements UserService {
 
     @Override
     @Transactional
-    public UserDto updateRoles(Long userId, Set<Role> roles) {
+    public UserDto updateRoles(@ShardKey Long userId, Set<Role> roles) {
         if (userId == null) throw new BadRequestException("userId is null");
         User user = userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
         user.setRoles(toSafeRoles(roles));
         user = userRepository.save(user);
+        // Старые токены несут старые роли — клиент перевыпустит через refresh
+        tokenRevocationService.revokeUser(userId);
         log.info("User roles updated: {} -> {}", user.getUsername(), user.getRoles());
         return UserMapper.toDto(user);
     }
 
     @Override
     @Transactional
-    public void delete(Long userId) {
+    public void delete(@ShardKey Long userId) {
         if (userId == null) throw new BadRequestException("userId is null");
         if (!userRepository.existsById(userId)) throw new UserNotFoundException(userId);
         userRepository.deleteById(userId);
+        tokenRevocationService.revokeUser(userId);
         log.info("User deleted: {}", userId);
     }
 
     @Override
     public PageDto<UserDto> list(int page, int size, String search) {
         Pageable pageable = pageable(page, size);
-        Page<User> usersPage = findUsersPage(search, pageable);
-        List<UserDto> dtos = usersPage.stream().map(UserMapper::toDto).toList();
-        return PageDtoMapper.toPageDto(usersPage, dtos);
+        Page<UserDto> usersPage = shardRouter.scatterGather(pageable,
+                pg -> findUsersPage(search, pg).map(UserMapper::toDto), BY_ID_DESC);
+        return PageDtoMapper.toPageDto(usersPage, usersPage.getContent());
     }
 
     @Override
-    public boolean existsByUsername(String username) {
+    public boolean existsByUsername(@ShardKey String username) {
         String u = normalize(username);
         return u != null && !u.isBlank() && userRepository.existsByUsername(u);
     }
 
+    @Override
+    @Transactional
+    public void upgradePasswordHash(@ShardKey Long userId, String currentHash, String newHash) {
+        if (userId == null) throw new BadRequestException("userId is null");
+        User user = userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
+        // Пароль успели сменить между проверкой и записью — новый хэш уже не от того пароля
+        if (!Objects.equals(user.getPassword(), currentHash)) {
+            log.info("Password hash upgrade skipped for user {}: hash changed concurrently", userId);
+            return;
+        }
+        user.setPassword(newHash);
+        userRepository.save(user);
+        log.info("Password hash upgraded for user {}", userId);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<PasswordHashStatsDto> passwordHashReport() {
+        // Ключ — (encodingId, cost); с шардированием счётчики одинаковых параметров складываются
+        Map<List<Object>, PasswordHashStatsDto> merged = new LinkedHashMap<>();
+        for (int shard : shardRouter.shards()) {
+            for (UserRepository.PasswordHashStats s : shardRouter.onShard(shard, userRepository::passwordHashStats)) {
+                String encodingId = s.getEncodingId() == null ? "" : s.getEncodingId();
+                List<Object> key = Arrays.asList(encodingId, s.getCost());
+                PasswordHashStatsDto row = merged.computeIfAbsent(key, k -> toStatsDto(encodingId, s.getCost()));
+                row.setUsers(row.getUsers() + s.getUsers());
+            }
+        }
+        List<PasswordHashStatsDto> out = new ArrayList<>(merged.values());
+        out.sort(Comparator.comparingLong(PasswordHashStatsDto::getUsers).reversed());
+        return out;
+    }
+
+    private PasswordHashStatsDto toStatsDto(String encodingId, Integer cost) {
+        boolean prefixed = !encodingId.isEmpty();
+        return PasswordHashStatsDto.builder()
+                .algorithm(prefixed ? encodingId : "bcrypt")
+                .prefixed(prefixed)
+                .cost(cost)
+                .outdated(hashPolicy.isOutdated(encodingId, cost))
+                .build();
+    }
+
     private static String normalize(String s) {
         return s == null ? null : s.trim().toLowerCase(java.util.Locale.ROOT);
     }
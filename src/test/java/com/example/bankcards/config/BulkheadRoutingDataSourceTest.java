@@ -0,0 +1,57 @@
+package com.example.bankcards.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkheadRoutingDataSourceTest {
+
+    private final BulkheadRoutingDataSource routing = new BulkheadRoutingDataSource();
+
+    @AfterEach
+    void reset() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        BulkheadContext.clear();
+    }
+
+    @Test
+    @DisplayName("Веб-запрос: пишущая транзакция -> write, readOnly -> read")
+    void web_routesByReadOnly() {
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(BulkheadRoutingDataSource.Bulkhead.WRITE);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(BulkheadRoutingDataSource.Bulkhead.READ);
+    }
+
+    @Test
+    @DisplayName("Поток планировщика -> scheduler независимо от readOnly")
+    void schedulerThread_goesToSchedulerPool() {
+        BulkheadContext.markSchedulerThread();
+
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(BulkheadRoutingDataSource.Bulkhead.SCHEDULER);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(BulkheadRoutingDataSource.Bulkhead.SCHEDULER);
+    }
+
+    @Test
+    @DisplayName("Потоки TaskScheduler помечаются при создании")
+    void taskSchedulerThreads_areMarked() throws Exception {
+        ThreadPoolTaskScheduler scheduler = (ThreadPoolTaskScheduler) new SchedulingConfig().taskScheduler();
+        try {
+            CompletableFuture<Boolean> marked = new CompletableFuture<>();
+            scheduler.execute(() -> marked.complete(BulkheadContext.isSchedulerThread()));
+
+            assertThat(marked.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(BulkheadContext.isSchedulerThread()).isFalse();
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.config.properties.EntityCacheProperties;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HibernateCacheConfigTest {
+
+    private static Map<String, Object> customize(boolean userEnabled, boolean cardEnabled) {
+        EntityCacheProperties props = new EntityCacheProperties();
+        props.setUserEnabled(userEnabled);
+        props.setCardEnabled(cardEnabled);
+        Map<String, Object> hp = new HashMap<>();
+        new HibernateCacheConfig(props).entityCacheCustomizer().customize(hp);
+        return hp;
+    }
+
+    @Test
+    @DisplayName("Включённые сущности получают READ_WRITE-регион, роли пользователя — свой регион коллекции")
+    void enabled_regions() {
+        Map<String, Object> hp = customize(true, true);
+
+        assertThat(hp).containsEntry("hibernate.classcache." + User.class.getName(), "read-write,users")
+                .containsEntry("hibernate.collectioncache." + User.class.getName() + ".roles", "read-write,user-roles")
+                .containsEntry("hibernate.classcache." + Card.class.getName(), "read-write,cards");
+    }
+
+    @Test
+    @DisplayName("Выключенная сущность в кэш не попадает")
+    void disabled_regions() {
+        assertThat(customize(true, false)).doesNotContainKey("hibernate.classcache." + Card.class.getName());
+        assertThat(customize(false, false)).isEmpty();
+    }
+}
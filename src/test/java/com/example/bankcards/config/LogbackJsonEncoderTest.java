@@ -0,0 +1,68 @@
+package com.example.bankcards.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.JsonEncoder;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogbackJsonEncoderTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final Logger logger = context.getLogger("com.example.bankcards.service.impl.CardServiceImpl");
+
+    @Test
+    @DisplayName("JSON-энкодеры из logback-spring.xml пишут сообщение с подставленными аргументами")
+    void jsonEncoders_writeFormattedMessage() throws Exception {
+        List<JsonEncoder> encoders = jsonEncodersFromConfig();
+        assertThat(encoders).hasSize(2);
+
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.INFO,
+                "Card {} blocked by user {}", null, new Object[]{42L, 7L});
+        for (JsonEncoder encoder : encoders) {
+            String json = new String(encoder.encode(event), StandardCharsets.UTF_8);
+
+            assertThat(json).contains("Card 42 blocked by user 7");
+            assertThat(json).doesNotContain("Card {} blocked");
+        }
+    }
+
+    // Свойства энкодера берутся из конфига как есть: <withXxx>bool</withXxx> -> setWithXxx(bool)
+    private List<JsonEncoder> jsonEncodersFromConfig() throws Exception {
+        NodeList nodes;
+        try (InputStream in = getClass().getResourceAsStream("/logback-spring.xml")) {
+            nodes = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in).getElementsByTagName("encoder");
+        }
+        List<JsonEncoder> encoders = new ArrayList<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Element el = (Element) nodes.item(i);
+            if (!JsonEncoder.class.getName().equals(el.getAttribute("class"))) continue;
+            JsonEncoder encoder = new JsonEncoder();
+            encoder.setContext(context);
+            NodeList props = el.getChildNodes();
+            for (int j = 0; j < props.getLength(); j++) {
+                if (props.item(j).getNodeType() != Node.ELEMENT_NODE) continue;
+                Element prop = (Element) props.item(j);
+                String name = prop.getTagName();
+                JsonEncoder.class.getMethod("set" + Character.toUpperCase(name.charAt(0)) + name.substring(1), boolean.class)
+                        .invoke(encoder, Boolean.parseBoolean(prop.getTextContent().trim()));
+            }
+            encoder.start();
+            encoders.add(encoder);
+        }
+        return encoders;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.config.properties.ReplicaProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final ReplicaConsistency consistency = mock(ReplicaConsistency.class);
+    private final ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(consistency);
+
+    @AfterEach
+    void reset() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        ConsistencyContext.clear();
+    }
+
+    // Как AbstractPlatformTransactionManager: синхронизация снимается до afterCompletion
+    private static void complete(int status) {
+        List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        syncs.forEach(s -> s.afterCompletion(status));
+    }
+
+    @Test
+    @DisplayName("Пишущая транзакция -> primary, запрос помечен как записавший")
+    void write_goesToPrimary() {
+        ConsistencyContext.begin(null);
+
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.Target.PRIMARY);
+        assertThat(ConsistencyContext.wrote()).isTrue();
+        verifyNoInteractions(consistency);
+    }
+
+    @Test
+    @DisplayName("Запись зафиксирована: токен публикуется один раз на транзакцию — и для ответа без тела")
+    void write_publishesTokenAfterCommit() {
+        List<String> published = new ArrayList<>();
+        ConsistencyContext.begin(null, published::add);
+        when(consistency.currentPrimaryLsn()).thenReturn("0/16B3748");
+        TransactionSynchronizationManager.initSynchronization();
+
+        routing.determineCurrentLookupKey();
+        routing.determineCurrentLookupKey();
+        assertThat(published).isEmpty();
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(published).containsExactly("0/16B3748");
+        verify(consistency, times(1)).currentPrimaryLsn();
+    }
+
+    @Test
+    @DisplayName("Откат записи: токен не публикуется, следующая транзакция публикует снова")
+    void write_rollback_noToken() {
+        List<String> published = new ArrayList<>();
+        ConsistencyContext.begin(null, published::add);
+        when(consistency.currentPrimaryLsn()).thenReturn("0/2");
+
+        TransactionSynchronizationManager.initSynchronization();
+        routing.determineCurrentLookupKey();
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(published).isEmpty();
+        verify(consistency, never()).currentPrimaryLsn();
+
+        TransactionSynchronizationManager.initSynchronization();
+        routing.determineCurrentLookupKey();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(published).containsExactly("0/2");
+    }
+
+    @Test
+    @DisplayName("readOnly без токена -> реплика без проверки лага")
+    void readOnly_noToken_goesToReplica() {
+        ConsistencyContext.begin("  ");
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.Target.REPLICA);
+        assertThat(ConsistencyContext.wrote()).isFalse();
+        verifyNoInteractions(consistency);
+    }
+
+    @Test
+    @DisplayName("readOnly с токеном: реплика отстаёт -> primary, проверка один раз на запрос")
+    void readOnly_tokenLagging_goesToPrimaryOnce() {
+        ConsistencyContext.begin("0/16B3748");
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(consistency.replicaCaughtUp("0/16B3748")).thenReturn(false);
+
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.Target.PRIMARY);
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.Target.PRIMARY);
+        verify(consistency, times(1)).replicaCaughtUp("0/16B3748");
+    }
+
+    @Test
+    @DisplayName("readOnly с токеном: реплика догнала -> реплика")
+    void readOnly_tokenCaughtUp_goesToReplica() {
+        ConsistencyContext.begin("0/16B3748");
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(consistency.replicaCaughtUp("0/16B3748")).thenReturn(true);
+
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.Target.REPLICA);
+    }
+
+    private static ReplicaProperties props(ReplicaProperties.TokenMode mode) {
+        ReplicaProperties p = new ReplicaProperties();
+        p.setTokenMode(mode);
+        p.setMaxWait(Duration.ofMillis(50));
+        p.setPollInterval(Duration.ofMillis(1));
+        return p;
+    }
+
+    @Test
+    @DisplayName("replicaCaughtUp: опрашивает реплику, пока её LSN не догонит токен")
+    void caughtUp_pollsUntilReplayed() {
+        JdbcTemplate replica = mock(JdbcTemplate.class);
+        when(replica.queryForObject(anyString(), eq(Boolean.class), eq("0/16B3748")))
+                .thenReturn(false, false, true);
+        ReplicaConsistency c = new ReplicaConsistency(mock(JdbcTemplate.class), replica, props(ReplicaProperties.TokenMode.WAIT));
+
+        assertThat(c.replicaCaughtUp("0/16B3748")).isTrue();
+        verify(replica, times(3)).queryForObject(anyString(), eq(Boolean.class), eq("0/16B3748"));
+    }
+
+    @Test
+    @DisplayName("replicaCaughtUp: режим PRIMARY, битый токен, NULL от не-реплики или ошибка БД -> false")
+    void caughtUp_falseCases() {
+        JdbcTemplate replica = mock(JdbcTemplate.class);
+        assertThat(new ReplicaConsistency(mock(JdbcTemplate.class), replica, props(ReplicaProperties.TokenMode.PRIMARY))
+                .replicaCaughtUp("0/16B3748")).isFalse();
+
+        ReplicaConsistency c = new ReplicaConsistency(mock(JdbcTemplate.class), replica, props(ReplicaProperties.TokenMode.WAIT));
+        assertThat(c.replicaCaughtUp("0/1; DROP TABLE cards")).isFalse();
+        verifyNoInteractions(replica);
+
+        when(replica.queryForObject(anyString(), eq(Boolean.class), eq("0/1"))).thenReturn(null);
+        assertThat(c.replicaCaughtUp("0/1")).isFalse();
+
+        when(replica.queryForObject(anyString(), eq(Boolean.class), eq("0/2")))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+        assertThat(c.replicaCaughtUp("0/2")).isFalse();
+    }
+}
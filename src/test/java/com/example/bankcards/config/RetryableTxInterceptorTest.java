@@ -0,0 +1,86 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.annotation.RetryableTx;
+import com.example.bankcards.config.properties.TxRetryProperties;
+import com.example.bankcards.service.TxRetryExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RetryableTxInterceptorTest {
+
+    public static class Target {
+        int calls;
+
+        @RetryableTx
+        public String mutate() {
+            if (++calls < 3) throw new CannotAcquireLockException("lock", new SQLException("deadlock", "40P01"));
+            return "done";
+        }
+
+        @RetryableTx("custom.op")
+        public void checked() throws IOException {
+            calls++;
+            throw new IOException("io");
+        }
+
+        public String plain() {
+            calls++;
+            throw new CannotAcquireLockException("lock", new SQLException("deadlock", "40P01"));
+        }
+    }
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private Target proxy(Target target) {
+        TxRetryProperties props = new TxRetryProperties();
+        props.setInitialBackoff(Duration.ofMillis(1));
+        props.setMaxBackoff(Duration.ofMillis(1));
+        StaticListableBeanFactory bf = new StaticListableBeanFactory();
+        bf.addBean("txRetryExecutor", new TxRetryExecutor(props, registry));
+        Advisor advisor = RetryConfig.retryableTxAdvisor(bf.getBeanProvider(TxRetryExecutor.class));
+        ProxyFactory pf = new ProxyFactory(target);
+        pf.setProxyTargetClass(true);
+        pf.addAdvisor(advisor);
+        return (Target) pf.getProxy();
+    }
+
+    @Test
+    @DisplayName("@RetryableTx: метод перевызывается до успеха, метрики по имени Class.method")
+    void retriesAnnotatedMethod() {
+        Target target = new Target();
+
+        assertThat(proxy(target).mutate()).isEqualTo("done");
+        assertThat(target.calls).isEqualTo(3);
+        assertThat(registry.counter("tx.retry.calls", "operation", "Target.mutate", "outcome", "recovered").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("@RetryableTx: checked-исключение пробрасывается как есть, без повторов")
+    void checkedExceptionPropagates() {
+        Target target = new Target();
+
+        assertThatThrownBy(() -> proxy(target).checked()).isInstanceOf(IOException.class);
+        assertThat(target.calls).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Без аннотации: advisor не применяется")
+    void plainMethodNotRetried() {
+        Target target = new Target();
+
+        assertThatThrownBy(() -> proxy(target).plain()).isInstanceOf(CannotAcquireLockException.class);
+        assertThat(target.calls).isEqualTo(1);
+    }
+}
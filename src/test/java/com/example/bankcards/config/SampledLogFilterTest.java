@@ -0,0 +1,74 @@
+package com.example.bankcards.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SampledLogFilterTest {
+
+    private final SampledLogFilter filter = new SampledLogFilter();
+    private final Logger logger = new LoggerContext().getLogger("com.example.bankcards.service.TransferScheduler");
+
+    @Test
+    @DisplayName("Не больше ratePerSecond строк в секунду, в новой секунде квота снова полная")
+    void sample_limitsPerSecond() {
+        filter.setRatePerSecond(3);
+
+        for (int i = 0; i < 3; i++) assertThat(filter.sample(10)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.sample(10)).isEqualTo(FilterReply.DENY);
+        assertThat(filter.sample(10)).isEqualTo(FilterReply.DENY);
+
+        assertThat(filter.sample(11)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.droppedTotal()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Без маркера, WARN и выше, выключенный уровень — не прореживаются и квоту не тратят")
+    void decide_onlySampledInfo() {
+        filter.setRatePerSecond(0);
+        logger.setLevel(Level.INFO);
+
+        assertThat(filter.decide(null, logger, Level.INFO, "x", null, null)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(LogContext.SAMPLED, logger, Level.WARN, "x", null, null)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(LogContext.SAMPLED, logger, Level.DEBUG, "x", null, null)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.droppedTotal()).isZero();
+
+        assertThat(filter.decide(LogContext.SAMPLED, logger, Level.INFO, "x", null, null)).isEqualTo(FilterReply.DENY);
+        assertThat(filter.droppedTotal()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("RequestIdFilter: свой X-Request-Id клиента сохраняется, мусор заменяется, MDC чистится")
+    void requestIdFilter_mdc() throws Exception {
+        RequestIdFilter requestIdFilter = new RequestIdFilter();
+        AtomicReference<String> seen = new AtomicReference<>();
+
+        MockHttpServletRequest req = new MockHttpServletRequest("GET", "/api/cards");
+        req.addHeader(RequestIdFilter.HEADER, "abc-123");
+        MockHttpServletResponse res = new MockHttpServletResponse();
+        requestIdFilter.doFilter(req, res, (rq, rs) -> {
+            MDC.put(LogContext.USER_ID, "7");
+            seen.set(MDC.get(LogContext.REQUEST_ID));
+        });
+        assertThat(seen.get()).isEqualTo("abc-123");
+        assertThat(res.getHeader(RequestIdFilter.HEADER)).isEqualTo("abc-123");
+        assertThat(MDC.get(LogContext.REQUEST_ID)).isNull();
+        assertThat(MDC.get(LogContext.USER_ID)).isNull();
+
+        MockHttpServletRequest bad = new MockHttpServletRequest("GET", "/api/cards");
+        bad.addHeader(RequestIdFilter.HEADER, "bad\nheader");
+        MockHttpServletResponse res2 = new MockHttpServletResponse();
+        requestIdFilter.doFilter(bad, res2, (rq, rs) -> seen.set(MDC.get(LogContext.REQUEST_ID)));
+        assertThat(seen.get()).matches("[0-9a-f]{32}").isEqualTo(res2.getHeader(RequestIdFilter.HEADER));
+    }
+}
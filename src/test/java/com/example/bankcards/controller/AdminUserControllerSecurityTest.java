@@ -4,6 +4,7 @@ import com.example.bankcards.config.SecurityConfig;
 import com.example.bankcards.config.properties.CorsProperties;
 import com.example.bankcards.dto.CreateUserAdminRequest;
 import com.example.bankcards.dto.PageDto;
+import com.example.bankcards.dto.PasswordHashStatsDto;
 import com.example.bankcards.dto.UpdateRolesRequest;
 import com.example.bankcards.dto.UserDto;
 import com.example.bankcards.entity.enums.Role;
@@ -11,7 +12,9 @@ import com.example.bankcards.exception.GlobalExceptionHandler;
 import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.security.AuthRateLimitFilter;
 import com.example.bankcards.security.RestAuthEntryPoint;
+import com.example.bankcards.security.UserRateLimitFilter;
 import com.example.bankcards.security.jwt.JwtFilter;
+import com.example.bankcards.service.IdempotencyService;
 import com.example.bankcards.service.UserService;
 import com.example.bankcards.testutil.SecurityTestUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -36,6 +39,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.util.EnumSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -52,9 +56,11 @@ class AdminUserControllerSecurityTest {
     @Resource ObjectMapper objectMapper;
 
     @MockBean UserService userService;
+    @MockBean IdempotencyService idempotencyService;
 
     @MockBean JwtFilter jwtFilter;
     @MockBean AuthRateLimitFilter authRateLimitFilter;
+    @MockBean UserRateLimitFilter userRateLimitFilter;
     @MockBean RestAuthEntryPoint restAuthEntryPoint;
 
     @BeforeEach
@@ -68,6 +74,7 @@ class AdminUserControllerSecurityTest {
         };
         doAnswer(pass).when(jwtFilter).doFilter(any(), any(), any());
         doAnswer(pass).when(authRateLimitFilter).doFilter(any(), any(), any());
+        doAnswer(pass).when(userRateLimitFilter).doFilter(any(), any(), any());
 
         doAnswer(inv -> {
             var response = (jakarta.servlet.http.HttpServletResponse) inv.getArgument(1);
@@ -78,6 +85,8 @@ class AdminUserControllerSecurityTest {
         }).when(restAuthEntryPoint).commence(any(), any(), any());
 
         reset(userService);
+        when(idempotencyService.execute(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(inv -> ((Supplier<?>) inv.getArgument(5)).get());
     }
 
     private static UserDto user(long id, String username) {
@@ -304,6 +313,32 @@ class AdminUserControllerSecurityTest {
         }
     }
 
+    @Nested
+    class PasswordHashes {
+        @Test
+        @DisplayName("GET /api/admin/users/password-hashes → 401 без аутентификации")
+        void unauthorized() throws Exception {
+            mockMvc.perform(get("/api/admin/users/password-hashes"))
+                    .andExpect(status().isUnauthorized());
+            verifyNoInteractions(userService);
+        }
+
+        @Test
+        @DisplayName("GET /api/admin/users/password-hashes → 200 с отчётом из сервиса")
+        void ok_admin() throws Exception {
+            when(userService.passwordHashReport()).thenReturn(java.util.List.of(
+                    new PasswordHashStatsDto("bcrypt", false, 10, 7, true)));
+
+            mockMvc.perform(get("/api/admin/users/password-hashes").with(SecurityTestUtils.admin()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].algorithm").value("bcrypt"))
+                    .andExpect(jsonPath("$[0].cost").value(10))
+                    .andExpect(jsonPath("$[0].outdated").value(true));
+
+            verify(userService).passwordHashReport();
+        }
+    }
+
     @TestConfiguration
     static class TestSecurityBeans {
         @Bean
@@ -2,10 +2,14 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.config.SecurityConfig;
 import com.example.bankcards.config.properties.CorsProperties;
+import com.example.bankcards.dto.LoginResponse;
 import com.example.bankcards.dto.UserDto;
+import com.example.bankcards.exception.AuthOverloadedException;
 import com.example.bankcards.exception.GlobalExceptionHandler;
+import com.example.bankcards.exception.InvalidRefreshTokenException;
 import com.example.bankcards.security.AuthRateLimitFilter;
 import com.example.bankcards.security.RestAuthEntryPoint;
+import com.example.bankcards.security.UserRateLimitFilter;
 import com.example.bankcards.security.jwt.JwtFilter;
 import com.example.bankcards.service.AuthService;
 import com.example.bankcards.testutil.SecurityTestUtils;
@@ -46,6 +50,7 @@ class AuthControllerSecurityTest {
 
     @MockBean private JwtFilter jwtFilter;
     @MockBean private AuthRateLimitFilter authRateLimitFilter;
+    @MockBean private UserRateLimitFilter userRateLimitFilter;
     @MockBean private RestAuthEntryPoint restAuthEntryPoint;
 
     @BeforeEach
@@ -59,6 +64,7 @@ class AuthControllerSecurityTest {
         };
         doAnswer(pass).when(jwtFilter).doFilter(any(), any(), any());
         doAnswer(pass).when(authRateLimitFilter).doFilter(any(), any(), any());
+        doAnswer(pass).when(userRateLimitFilter).doFilter(any(), any(), any());
 
         doAnswer(inv -> {
             var response = (jakarta.servlet.http.HttpServletResponse) inv.getArgument(1);
@@ -116,7 +122,7 @@ class AuthControllerSecurityTest {
         @DisplayName("200 при валидном теле")
         void ok() throws Exception {
             when(authService.login("user@example.com", "UltraStrong_Passw0rd#2024"))
-                    .thenReturn("jwt-token");
+                    .thenReturn(new LoginResponse("Bearer", "jwt-token", "7.refresh", 900));
 
             String body = """
               {"username":"user@example.com","password":"UltraStrong_Passw0rd#2024"}
@@ -130,7 +136,9 @@ class AuthControllerSecurityTest {
                     .andExpect(status().isOk())
                     .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
                     .andExpect(jsonPath("$.tokenType").value("Bearer"))
-                    .andExpect(jsonPath("$.accessToken").value("jwt-token"));
+                    .andExpect(jsonPath("$.accessToken").value("jwt-token"))
+                    .andExpect(jsonPath("$.refreshToken").value("7.refresh"))
+                    .andExpect(jsonPath("$.expiresIn").value(900));
 
             verify(authService).login("user@example.com", "UltraStrong_Passw0rd#2024");
             verifyNoMoreInteractions(authService);
@@ -152,6 +160,96 @@ class AuthControllerSecurityTest {
 
             verifyNoInteractions(authService);
         }
+
+        @Test
+        @DisplayName("503 с Retry-After, когда пул хэширования переполнен")
+        void overloaded() throws Exception {
+            when(authService.login("user@example.com", "UltraStrong_Passw0rd#2024"))
+                    .thenThrow(new AuthOverloadedException(2));
+            String body = """
+              {"username":"user@example.com","password":"UltraStrong_Passw0rd#2024"}
+            """;
+
+            mockMvc.perform(post("/api/auth/login")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .accept(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "2"))
+                    .andExpect(jsonPath("$.code").value("auth.overloaded"));
+        }
+    }
+
+    @Nested
+    @DisplayName("POST /api/auth/refresh")
+    class Refresh {
+        @Test
+        @DisplayName("200 без аутентификации: новая пара токенов")
+        void ok() throws Exception {
+            when(authService.refresh("7.old"))
+                    .thenReturn(new LoginResponse("Bearer", "jwt-2", "7.new", 900));
+
+            mockMvc.perform(post("/api/auth/refresh")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"refreshToken\":\"7.old\"}"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.accessToken").value("jwt-2"))
+                    .andExpect(jsonPath("$.refreshToken").value("7.new"));
+
+            verify(authService).refresh("7.old");
+        }
+
+        @Test
+        @DisplayName("401 auth.refresh_invalid при повторе/истёкшем токене")
+        void invalid() throws Exception {
+            when(authService.refresh("7.old")).thenThrow(new InvalidRefreshTokenException("Refresh token reuse detected"));
+
+            mockMvc.perform(post("/api/auth/refresh")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"refreshToken\":\"7.old\"}"))
+                    .andExpect(status().isUnauthorized())
+                    .andExpect(jsonPath("$.code").value("auth.refresh_invalid"));
+        }
+
+        @Test
+        @DisplayName("400 при пустом токене")
+        void badRequest() throws Exception {
+            mockMvc.perform(post("/api/auth/refresh")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"refreshToken\":\"\"}"))
+                    .andExpect(status().isBadRequest());
+
+            verifyNoInteractions(authService);
+        }
+    }
+
+    @Nested
+    @DisplayName("POST /api/auth/logout")
+    class Logout {
+        @Test
+        @DisplayName("204: bearer-токен передаётся в сервис на отзыв")
+        void ok() throws Exception {
+            mockMvc.perform(post("/api/auth/logout")
+                            .with(SecurityTestUtils.user())
+                            .with(csrf())
+                            .header("Authorization", "Bearer jwt-token"))
+                    .andExpect(status().isNoContent());
+
+            verify(authService).logout("jwt-token");
+        }
+
+        @Test
+        @DisplayName("401 без аутентификации")
+        void unauthorized() throws Exception {
+            mockMvc.perform(post("/api/auth/logout").with(csrf()))
+                    .andExpect(status().isUnauthorized());
+
+            verifyNoInteractions(authService);
+        }
     }
 
     @Nested
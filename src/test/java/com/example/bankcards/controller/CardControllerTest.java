@@ -1,5 +1,7 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.config.properties.CardListingCacheProperties;
+import com.example.bankcards.dto.BalanceSummaryDto;
 import com.example.bankcards.dto.CardCreateRequest;
 import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.dto.CardFilter;
@@ -7,8 +9,11 @@ import com.example.bankcards.dto.PageDto;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.security.AuthRateLimitFilter;
 import com.example.bankcards.security.RestAuthEntryPoint;
+import com.example.bankcards.security.UserRateLimitFilter;
 import com.example.bankcards.security.jwt.JwtFilter;
+import com.example.bankcards.service.CardListingCache;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.IdempotencyService;
 import com.example.bankcards.testutil.SecurityTestUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.Resource;
@@ -22,10 +27,16 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.stubbing.Answer;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.function.Supplier;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -35,15 +46,19 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(controllers = CardController.class)
 @AutoConfigureMockMvc(addFilters = true)
+@Import({CardListingCache.class, CardControllerTest.CacheBeans.class})
 class CardControllerTest {
 
     @Resource MockMvc mockMvc;
     @Resource ObjectMapper objectMapper;
+    @Resource CardListingCache cardListingCache;
 
     @MockBean CardService cardService;
+    @MockBean IdempotencyService idempotencyService;
 
     @MockBean JwtFilter jwtFilter;
     @MockBean AuthRateLimitFilter authRateLimitFilter;
+    @MockBean UserRateLimitFilter userRateLimitFilter;
     @MockBean RestAuthEntryPoint restAuthEntryPoint;
 
     @BeforeEach
@@ -57,6 +72,9 @@ class CardControllerTest {
         };
         doAnswer(pass).when(jwtFilter).doFilter(any(), any(), any());
         doAnswer(pass).when(authRateLimitFilter).doFilter(any(), any(), any());
+        doAnswer(pass).when(userRateLimitFilter).doFilter(any(), any(), any());
+        when(idempotencyService.execute(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(inv -> ((Supplier<?>) inv.getArgument(5)).get());
     }
 
     @Test
@@ -77,6 +95,20 @@ class CardControllerTest {
         assertThat(fCap.getValue().getStatus()).isEqualTo(CardStatus.BLOCKED);
     }
 
+    @Test
+    @DisplayName("GET /api/cards/my/summary -> сводка текущего пользователя")
+    void summaryMy_ok() throws Exception {
+        when(cardService.summaryMy(77L)).thenReturn(BalanceSummaryDto.builder().cardCount(2).totalBalance(150).build());
+
+        mockMvc.perform(get("/api/cards/my/summary")
+                        .with(SecurityTestUtils.customUser(77L)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cardCount").value(2))
+                .andExpect(jsonPath("$.totalBalance").value(150));
+
+        verify(cardService).summaryMy(77L);
+    }
+
     @Test
     @DisplayName("GET /api/cards/my -> дефолты page=0, size=10, status=null")
     void listMy_defaults() throws Exception {
@@ -91,6 +123,80 @@ class CardControllerTest {
         assertThat(fCap.getValue().getStatus()).isNull();
     }
 
+    @Test
+    @DisplayName("GET /api/cards/my -> отдаёт ETag; повтор с If-None-Match -> 304 без вызова сервиса")
+    void listMy_etag_notModified() throws Exception {
+        when(cardService.listMy(eq(91L), anyInt(), anyInt(), any(CardFilter.class))).thenReturn(new PageDto<>());
+
+        String etag = mockMvc.perform(get("/api/cards/my")
+                        .with(SecurityTestUtils.customUser(91L)))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/cards/my")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .with(SecurityTestUtils.customUser(91L)))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        verify(cardService, times(1)).listMy(eq(91L), anyInt(), anyInt(), any(CardFilter.class));
+    }
+
+    @Test
+    @DisplayName("GET /api/cards/my -> после invalidate ETag меняется и страница перечитывается")
+    void listMy_invalidate_changesEtag() throws Exception {
+        when(cardService.listMy(eq(92L), anyInt(), anyInt(), any(CardFilter.class))).thenReturn(new PageDto<>());
+
+        String etag = mockMvc.perform(get("/api/cards/my")
+                        .with(SecurityTestUtils.customUser(92L)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        cardListingCache.invalidate(92L);
+
+        String etag2 = mockMvc.perform(get("/api/cards/my")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .with(SecurityTestUtils.customUser(92L)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(etag2).isNotEqualTo(etag);
+        verify(cardService, times(2)).listMy(eq(92L), anyInt(), anyInt(), any(CardFilter.class));
+    }
+
+    @Test
+    @DisplayName("GET /api/cards/my с X-Consistency-Token -> мимо кэша и без 304, свежая страница заменяет устаревшую")
+    void listMy_consistencyToken_bypassesCache() throws Exception {
+        PageDto<CardDto> stale = new PageDto<>();
+        stale.setTotalElements(1);
+        PageDto<CardDto> fresh = new PageDto<>();
+        fresh.setTotalElements(2);
+        when(cardService.listMy(eq(93L), anyInt(), anyInt(), any(CardFilter.class))).thenReturn(stale, fresh);
+
+        // страница с отстающей реплики уже лежит в кэше под актуальной версией
+        String etag = mockMvc.perform(get("/api/cards/my")
+                        .with(SecurityTestUtils.customUser(93L)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/cards/my")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .header("X-Consistency-Token", "0/16B3748")
+                        .with(SecurityTestUtils.customUser(93L)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(jsonPath("$.totalElements").value(2));
+
+        mockMvc.perform(get("/api/cards/my")
+                        .with(SecurityTestUtils.customUser(93L)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2));
+
+        verify(cardService, times(2)).listMy(eq(93L), anyInt(), anyInt(), any(CardFilter.class));
+    }
+
     @Test
     @DisplayName("GET /api/cards/my без аутентификации -> 401 (security chain)")
     void listMy_unauthorized_401() throws Exception {
@@ -205,4 +311,12 @@ class CardControllerTest {
         verify(cardService).listAll(eq(0), eq(10), fCap.capture());
         assertThat(fCap.getValue().getStatus()).isNull();
     }
+
+    @TestConfiguration
+    static class CacheBeans {
+        @Bean
+        CardListingCacheProperties cardListingCacheProperties() {
+            return new CardListingCacheProperties();
+        }
+    }
 }
@@ -1,11 +1,18 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.ExportFormat;
 import com.example.bankcards.dto.PageDto;
 import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.dto.TransferExportFilter;
 import com.example.bankcards.dto.TransferRequest;
 import com.example.bankcards.security.AuthRateLimitFilter;
 import com.example.bankcards.security.RestAuthEntryPoint;
+import com.example.bankcards.security.UserRateLimitFilter;
 import com.example.bankcards.security.jwt.JwtFilter;
+import com.example.bankcards.entity.enums.TransferStatus;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.service.IdempotencyService;
+import com.example.bankcards.service.TransferExportService;
 import com.example.bankcards.service.TransferService;
 import com.example.bankcards.testutil.SecurityTestUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -23,6 +30,12 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
@@ -38,8 +51,11 @@ class TransferControllerTest {
     @Resource MockMvc mockMvc;
     @Resource ObjectMapper objectMapper;
     @MockBean TransferService transferService;
+    @MockBean IdempotencyService idempotencyService;
+    @MockBean TransferExportService transferExportService;
     @MockBean JwtFilter jwtFilter;
     @MockBean AuthRateLimitFilter authRateLimitFilter;
+    @MockBean UserRateLimitFilter userRateLimitFilter;
     @MockBean RestAuthEntryPoint restAuthEntryPoint;
 
     @BeforeEach
@@ -53,10 +69,13 @@ class TransferControllerTest {
         };
         doAnswer(pass).when(jwtFilter).doFilter(any(), any(), any());
         doAnswer(pass).when(authRateLimitFilter).doFilter(any(), any(), any());
+        doAnswer(pass).when(userRateLimitFilter).doFilter(any(), any(), any());
+        when(idempotencyService.execute(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(inv -> ((Supplier<?>) inv.getArgument(5)).get());
     }
 
     @Test
-    @DisplayName("POST /api/transfers -> 200, проксирует userId и тело; Idempotency-Key из заголовка попадает в request")
+    @DisplayName("POST /api/transfers -> 200, проксирует userId и тело; Idempotency-Key из заголовка уходит в IdempotencyService")
     void initiate_ok_withIdempotencyHeader() throws Exception {
         when(transferService.initiate(eq(42L), any(TransferRequest.class)))
                 .thenReturn(new TransferDto());
@@ -74,15 +93,44 @@ class TransferControllerTest {
                         .content(objectMapper.writeValueAsString(req)))
                 .andExpect(status().isOk());
 
+        verify(idempotencyService).execute(eq(42L), eq("idem-123"), eq("transfers.initiate"),
+                any(TransferRequest.class), eq(TransferDto.class), any());
+
         var captor = ArgumentCaptor.forClass(TransferRequest.class);
         verify(transferService).initiate(eq(42L), captor.capture());
         var passed = captor.getValue();
-        assertThat(passed.getIdempotencyKey()).isEqualTo("idem-123");
+        assertThat(passed.getIdempotencyKey()).isNull();
         assertThat(passed.getFromCardId()).isEqualTo(111L);
         assertThat(passed.getToCardId()).isEqualTo(222L);
         assertThat(passed.getAmount()).isEqualTo(5_000L);
     }
 
+    @Test
+    @DisplayName("POST /api/transfers: ключ в теле без заголовка уходит в IdempotencyService, сервису переводов не передаётся")
+    void initiate_idempotencyKeyInBody() throws Exception {
+        when(transferService.initiate(eq(42L), any(TransferRequest.class)))
+                .thenReturn(new TransferDto());
+
+        var req = new TransferRequest();
+        req.setFromCardId(111L);
+        req.setToCardId(222L);
+        req.setAmount(5_000L);
+        req.setIdempotencyKey("idem-body");
+
+        mockMvc.perform(post("/api/transfers")
+                        .with(SecurityTestUtils.customUser(42L))
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isOk());
+
+        verify(idempotencyService).execute(eq(42L), eq("idem-body"), eq("transfers.initiate"),
+                any(TransferRequest.class), eq(TransferDto.class), any());
+        var captor = ArgumentCaptor.forClass(TransferRequest.class);
+        verify(transferService).initiate(eq(42L), captor.capture());
+        assertThat(captor.getValue().getIdempotencyKey()).isNull();
+    }
+
 
     @Test
     @DisplayName("POST /api/transfers без аутентификации -> 401")
@@ -175,4 +223,77 @@ class TransferControllerTest {
 
         verify(transferService).listAll(3, 50);
     }
+
+    @Test
+    @DisplayName("GET /api/transfers/quarantine (ADMIN) -> 200, проксирует page/size")
+    void listQuarantined_admin() throws Exception {
+        when(transferService.listQuarantined(1, 20)).thenReturn(new PageDto<>());
+
+        mockMvc.perform(get("/api/transfers/quarantine")
+                        .param("page", "1")
+                        .param("size", "20")
+                        .with(SecurityTestUtils.admin()))
+                .andExpect(status().isOk());
+
+        verify(transferService).listQuarantined(1, 20);
+    }
+
+    @Test
+    @DisplayName("POST /api/transfers/{id}:requeue (ADMIN) -> 200, проксирует transferId")
+    void requeue_admin() throws Exception {
+        when(transferService.requeue(1001L)).thenReturn(new TransferDto());
+
+        mockMvc.perform(post("/api/transfers/{id}:requeue", 1001L)
+                        .with(SecurityTestUtils.admin())
+                        .with(csrf()))
+                .andExpect(status().isOk());
+
+        verify(transferService).requeue(1001L);
+    }
+
+    @Test
+    @DisplayName("GET /api/transfers/export (ADMIN) -> поток CSV, фильтры уходят в сервис")
+    void export_csv_admin() throws Exception {
+        doAnswer(inv -> {
+            OutputStream out = inv.getArgument(2);
+            out.write("id\n1\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(transferExportService).export(any(), eq(ExportFormat.CSV), any());
+
+        MvcResult started = mockMvc.perform(get("/api/transfers/export")
+                        .param("format", "CSV")
+                        .param("status", "COMPLETED")
+                        .param("cardId", "100")
+                        .param("from", "2025-08-01T00:00:00")
+                        .with(SecurityTestUtils.admin()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"transfers.csv\""))
+                .andExpect(content().string("id\n1\n"));
+
+        var captor = ArgumentCaptor.forClass(TransferExportFilter.class);
+        verify(transferExportService).export(captor.capture(), eq(ExportFormat.CSV), any());
+        assertThat(captor.getValue().getStatus()).isEqualTo(TransferStatus.COMPLETED);
+        assertThat(captor.getValue().getCardId()).isEqualTo(100L);
+        assertThat(captor.getValue().getFrom()).isEqualTo(LocalDateTime.of(2025, 8, 1, 0, 0));
+        assertThat(captor.getValue().getTo()).isNull();
+    }
+
+    @Test
+    @DisplayName("GET /api/transfers/export -> некорректный период: 400 до начала потока")
+    void export_badPeriod_400() throws Exception {
+        doThrow(new BadRequestException("from must be before to")).when(transferExportService).validate(any());
+
+        mockMvc.perform(get("/api/transfers/export")
+                        .param("from", "2025-09-01T00:00:00")
+                        .param("to", "2025-08-01T00:00:00")
+                        .with(SecurityTestUtils.admin()))
+                .andExpect(status().isBadRequest());
+
+        verify(transferExportService, never()).export(any(), any(), any());
+    }
 }
@@ -0,0 +1,81 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.config.HibernateCacheConfig;
+import com.example.bankcards.config.properties.EntityCacheProperties;
+import com.example.bankcards.entity.Card;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Карта целиком (с balance и @Version) лежит в регионе cards: нативные обновления баланса обязаны его чистить.
+// Настоящий PostgreSQL из Testcontainers; без Docker тест пропускается.
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(HibernateCacheConfig.class)
+@EnableConfigurationProperties(EntityCacheProperties.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class CardSecondLevelCacheTest {
+
+    @Autowired TransferRepository transferRepository;
+    @Autowired EntityManagerFactory emf;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired PlatformTransactionManager txManager;
+
+    private final YearMonth NEXT_YM = YearMonth.now().plusYears(1);
+
+    private long card(long userId, String panHash, long balance) {
+        return jdbc.queryForObject("""
+                INSERT INTO cards (pan_ciphertext, pan_hash, pan_last4, expiry, status, balance, user_id)
+                VALUES ('x', ?, '1111', ?, 'ACTIVE', ?, ?) RETURNING id
+                """, Long.class, panHash, NEXT_YM.toString(), balance, userId);
+    }
+
+    private long balanceViaJpa(long cardId) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.find(Card.class, cardId).getBalance();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Баланс карты из L2 после executeImmediate не устаревший")
+    void balanceAfterExecuteImmediate_notStale() {
+        long userId = jdbc.queryForObject(
+                "INSERT INTO users (username, password) VALUES ('l2-cache-user', 'x') RETURNING id", Long.class);
+        long from = card(userId, "l2-cache-from", 1_000);
+        long to = card(userId, "l2-cache-to", 0);
+
+        assertThat(balanceViaJpa(from)).isEqualTo(1_000);
+        assertThat(balanceViaJpa(to)).isZero();
+        assertThat(emf.getCache().contains(Card.class, from)).isTrue();
+
+        new TransactionTemplate(txManager).executeWithoutResult(status -> assertThat(transferRepository.executeImmediate(
+                userId, from, to, 300L, NEXT_YM.toString(), LocalDateTime.now())).isPresent());
+
+        assertThat(emf.getCache().contains(Card.class, from)).isFalse();
+        assertThat(balanceViaJpa(from)).isEqualTo(700);
+        assertThat(balanceViaJpa(to)).isEqualTo(300);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Query;
+import org.hibernate.query.NativeQuery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class TransferRepositoryCustomImplTest {
+
+    private final LocalDateTime NOW = LocalDateTime.of(2025, 8, 25, 3, 0);
+
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final Cache cache = mock(Cache.class);
+    @SuppressWarnings("unchecked")
+    private final NativeQuery<Object[]> query = mock(NativeQuery.class, RETURNS_SELF);
+
+    private final TransferRepositoryCustomImpl repository = new TransferRepositoryCustomImpl(entityManager);
+
+    @BeforeEach
+    void setUp() {
+        Query jpaQuery = mock(Query.class);
+        EntityManagerFactory emf = mock(EntityManagerFactory.class);
+        when(entityManager.createNativeQuery(TransferRepositoryCustomImpl.EXECUTE_IMMEDIATE_SQL)).thenReturn(jpaQuery);
+        when(jpaQuery.unwrap(NativeQuery.class)).thenReturn(query);
+        when(entityManager.getEntityManagerFactory()).thenReturn(emf);
+        when(emf.getCache()).thenReturn(cache);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Перевод выполнен: квитанция из строки, карты вычищены из L2 сразу и после коммита")
+    void executed_evictsCards() {
+        when(query.getResultList()).thenReturn(List.<Object[]>of(new Object[]{501L, "1111", "2222"}));
+        TransactionSynchronizationManager.initSynchronization();
+
+        Optional<TransferRepository.ImmediateTransferResult> out =
+                repository.executeImmediate(10L, 1L, 2L, 300L, "2025-08", NOW);
+
+        assertThat(out).hasValueSatisfying(r -> {
+            assertThat(r.getId()).isEqualTo(501L);
+            assertThat(r.getFromLast4()).isEqualTo("1111");
+            assertThat(r.getToLast4()).isEqualTo("2222");
+        });
+        verify(query).addSynchronizedEntityClass(Card.class);
+        verify(cache).evict(Card.class, 1L);
+        verify(cache).evict(Card.class, 2L);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(cache, times(2)).evict(Card.class, 1L);
+        verify(cache, times(2)).evict(Card.class, 2L);
+    }
+
+    @Test
+    @DisplayName("0 строк: пусто, кэш не трогаем")
+    void rejected_empty() {
+        when(query.getResultList()).thenReturn(List.of());
+
+        assertThat(repository.executeImmediate(10L, 1L, 2L, 300L, "2025-08", NOW)).isEmpty();
+        verifyNoInteractions(cache);
+    }
+}
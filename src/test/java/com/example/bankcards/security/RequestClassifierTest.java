@@ -0,0 +1,80 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.properties.AuthRateLimitProperties;
+import com.example.bankcards.config.properties.UserRateLimitProperties;
+import com.example.bankcards.security.RequestClassifier.Route;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestClassifierTest {
+
+    private final RequestClassifier classifier;
+
+    RequestClassifierTest() {
+        AuthRateLimitProperties props = new AuthRateLimitProperties();
+        props.setPaths(Set.of("/api/auth/login", "/api/auth/register", "/api/public/{id}/limited"));
+        UserRateLimitProperties userProps = new UserRateLimitProperties();
+        userProps.getGroups().put("transfers-write", group(List.of("/api/transfers/**"), Set.of("post")));
+        userProps.getGroups().put("default", group(List.of("/api/**"), Set.of()));
+        classifier = new RequestClassifier(props, userProps);
+    }
+
+    private static UserRateLimitProperties.Group group(List<String> paths, Set<String> methods) {
+        UserRateLimitProperties.Group g = new UserRateLimitProperties.Group();
+        g.setPaths(paths);
+        g.setMethods(methods);
+        return g;
+    }
+
+    @Test
+    @DisplayName("Swagger/OpenAPI — DOCS, включая шаблоны с **")
+    void docs() {
+        assertThat(classifier.classify("/v3/api-docs")).isEqualTo(Route.DOCS);
+        assertThat(classifier.classify("/v3/api-docs.yaml")).isEqualTo(Route.DOCS);
+        assertThat(classifier.classify("/v3/api-docs/swagger-config")).isEqualTo(Route.DOCS);
+        assertThat(classifier.classify("/swagger-ui/index.html")).isEqualTo(Route.DOCS);
+    }
+
+    @Test
+    @DisplayName("Пути rate limit — литералы и шаблоны; прочее — API")
+    void authLimitedAndApi() {
+        assertThat(classifier.classify("/api/auth/login")).isEqualTo(Route.AUTH_LIMITED);
+        assertThat(classifier.classify("/api/public/42/limited")).isEqualTo(Route.AUTH_LIMITED);
+        assertThat(classifier.classify("/api/auth/me")).isEqualTo(Route.API);
+        assertThat(classifier.classify("/api/cards")).isEqualTo(Route.API);
+    }
+
+    @Test
+    @DisplayName("Запрос классифицируется один раз: маршрут кэшируется в атрибуте, context path отрезается")
+    void cachedInAttribute() {
+        MockHttpServletRequest req = new MockHttpServletRequest("POST", "/bank/api/auth/login");
+        req.setContextPath("/bank");
+
+        assertThat(classifier.classify(req)).isEqualTo(Route.AUTH_LIMITED);
+        assertThat(req.getAttribute(RequestClassifier.ATTRIBUTE)).isEqualTo(Route.AUTH_LIMITED);
+
+        req.setAttribute(RequestClassifier.ATTRIBUTE, Route.DOCS);
+        assertThat(classifier.classify(req)).isEqualTo(Route.DOCS);
+    }
+
+    @Test
+    @DisplayName("Группа квоты: первая подходящая по методу и пути; docs и вход/регистрация — без квоты")
+    void quotaGroups() {
+        assertThat(classifier.quotaGroup("POST", "/api/transfers")).isZero();
+        assertThat(classifier.quotaGroup("POST", "/api/transfers/7:cancel")).isZero();
+        assertThat(classifier.quotaGroup("GET", "/api/transfers/my")).isEqualTo(1);
+        assertThat(classifier.quotaGroup("GET", "/actuator/health")).isEqualTo(-1);
+
+        assertThat(classifier.quotaGroup(new MockHttpServletRequest("POST", "/api/auth/login"))).isEqualTo(-1);
+        assertThat(classifier.quotaGroup(new MockHttpServletRequest("GET", "/v3/api-docs"))).isEqualTo(-1);
+        MockHttpServletRequest req = new MockHttpServletRequest("GET", "/api/cards/my");
+        assertThat(classifier.quotaGroup(req)).isEqualTo(1);
+        assertThat(req.getAttribute(RequestClassifier.QUOTA_ATTRIBUTE)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.properties.UserRateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserRateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private UserRateLimiter limiter(int maxUsers) {
+        UserRateLimitProperties props = new UserRateLimitProperties();
+        props.setMaxUsers(maxUsers);
+        props.getGroups().put("transfers", group(3, Duration.ofSeconds(3)));
+        props.getGroups().put("default", group(10, Duration.ofSeconds(10)));
+        return new UserRateLimiter(props, registry);
+    }
+
+    private static UserRateLimitProperties.Group group(int capacity, Duration window) {
+        UserRateLimitProperties.Group g = new UserRateLimitProperties.Group();
+        g.setPaths(List.of("/api/**"));
+        g.setCapacity(capacity);
+        g.setWindow(window);
+        return g;
+    }
+
+    @Test
+    @DisplayName("Всплеск до capacity, затем 429 с Retry-After до следующего токена")
+    void burstThenReject() {
+        UserRateLimiter l = limiter(16);
+        long now = 5 * SECOND;
+
+        long r1 = l.tryAcquire(0, 42L, now);
+        assertThat(UserRateLimiter.isRejected(r1)).isFalse();
+        assertThat(UserRateLimiter.remaining(r1)).isEqualTo(2);
+        assertThat(UserRateLimiter.resetSeconds(r1)).isEqualTo(1);
+        l.tryAcquire(0, 42L, now);
+        long r3 = l.tryAcquire(0, 42L, now);
+        assertThat(UserRateLimiter.remaining(r3)).isZero();
+        assertThat(UserRateLimiter.resetSeconds(r3)).isEqualTo(3);
+
+        long rejected = l.tryAcquire(0, 42L, now);
+        assertThat(UserRateLimiter.isRejected(rejected)).isTrue();
+        assertThat(UserRateLimiter.remaining(rejected)).isZero();
+        assertThat(UserRateLimiter.resetSeconds(rejected)).isEqualTo(1);
+        assertThat(registry.counter("ratelimit.user.rejected", "group", "transfers").count()).isEqualTo(1);
+
+        // Токен возвращается через window / capacity
+        assertThat(UserRateLimiter.isRejected(l.tryAcquire(0, 42L, now + SECOND))).isFalse();
+        assertThat(UserRateLimiter.isRejected(l.tryAcquire(0, 42L, now + SECOND))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Вёдра независимы по пользователям и группам; лимит и политика группы")
+    void independentBuckets() {
+        UserRateLimiter l = limiter(16);
+        for (int i = 0; i < 3; i++) l.tryAcquire(0, 1L, 0);
+
+        assertThat(UserRateLimiter.isRejected(l.tryAcquire(0, 1L, 0))).isTrue();
+        assertThat(UserRateLimiter.isRejected(l.tryAcquire(0, 2L, 0))).isFalse();
+        assertThat(UserRateLimiter.remaining(l.tryAcquire(1, 1L, 0))).isEqualTo(9);
+        assertThat(l.capacity(1)).isEqualTo(10);
+        assertThat(l.policy(0)).isEqualTo("3;w=3");
+    }
+
+    @Test
+    @DisplayName("Слоты полных вёдер переиспользуются; при нехватке места запрос пропускается")
+    void reclaimAndUntracked() {
+        UserRateLimiter l = limiter(4);
+        // 16 слотов на группу: заполняем все пользователями с пустыми вёдрами
+        for (long user = 1; user <= 32; user++) {
+            for (int i = 0; i < 3; i++) l.tryAcquire(0, user, 0);
+        }
+        double before = registry.counter("ratelimit.user.untracked", "group", "transfers").count();
+        long untracked = l.tryAcquire(0, 100L, 0);
+        assertThat(UserRateLimiter.isRejected(untracked)).isFalse();
+        assertThat(registry.counter("ratelimit.user.untracked", "group", "transfers").count()).isEqualTo(before + 1);
+
+        // Через window вёдра полны — слот отдаётся новому пользователю
+        long later = 3 * SECOND;
+        assertThat(UserRateLimiter.remaining(l.tryAcquire(0, 100L, later))).isEqualTo(2);
+        assertThat(registry.counter("ratelimit.user.untracked", "group", "transfers").count()).isEqualTo(before + 1);
+    }
+}
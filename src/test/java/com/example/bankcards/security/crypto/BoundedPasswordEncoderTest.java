@@ -0,0 +1,111 @@
+package com.example.bankcards.security.crypto;
+
+import com.example.bankcards.config.properties.PasswordHashProperties;
+import com.example.bankcards.exception.AuthOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private BoundedPasswordEncoder encoder;
+
+    // Первый вызов держит единственный поток пула до release
+    private final PasswordEncoder blocking = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence raw) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hash:" + raw;
+        }
+
+        @Override
+        public boolean matches(CharSequence raw, String encoded) {
+            return encoded.equals("hash:" + raw);
+        }
+    };
+
+    private BoundedPasswordEncoder encoder(PasswordEncoder delegate, int queue, Duration maxWait) {
+        PasswordHashProperties props = new PasswordHashProperties();
+        props.setThreads(1);
+        props.setQueueCapacity(queue);
+        props.setMaxQueueWait(maxWait);
+        props.setRetryAfterSeconds(3);
+        encoder = new BoundedPasswordEncoder(delegate, props, registry);
+        return encoder;
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (encoder != null) encoder.shutdown();
+    }
+
+    @Test
+    @DisplayName("Хэш считается на пуле, результат и метрики длительности на месте")
+    void delegatesAndRecordsTimers() {
+        BoundedPasswordEncoder e = encoder(new BCryptPasswordEncoder(4), 4, Duration.ofSeconds(2));
+
+        String hash = e.encode("secret");
+
+        assertThat(e.matches("secret", hash)).isTrue();
+        assertThat(e.matches("wrong", hash)).isFalse();
+        assertThat(registry.timer("auth.password.hash.duration", "op", "encode").count()).isEqualTo(1);
+        assertThat(registry.timer("auth.password.hash.duration", "op", "matches").count()).isEqualTo(2);
+        assertThat(registry.timer("auth.password.hash.queue.wait").count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Очередь заполнена -> AuthOverloadedException сразу, без ожидания")
+    void queueFull_failsFast() throws Exception {
+        BoundedPasswordEncoder e = encoder(blocking, 1, Duration.ofSeconds(5));
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> e.encode("a"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> e.encode("b"));
+        while (registry.get("auth.password.hash.queue.depth").gauge().value() < 1) Thread.onSpinWait();
+
+        assertThatThrownBy(() -> e.encode("c"))
+                .isInstanceOf(AuthOverloadedException.class)
+                .extracting("retryAfterSeconds").isEqualTo(3);
+        assertThat(registry.counter("auth.password.hash.rejected", "reason", "queue_full").count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash:a");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hash:b");
+    }
+
+    @Test
+    @DisplayName("Задача простояла в очереди дольше maxQueueWait -> не считается, 503")
+    void staleInQueue_rejected() throws Exception {
+        BoundedPasswordEncoder e = encoder(blocking, 4, Duration.ofMillis(20));
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> e.encode("a"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Boolean> stale = CompletableFuture.supplyAsync(() -> e.matches("b", "hash:b"));
+        while (registry.get("auth.password.hash.queue.depth").gauge().value() < 1) Thread.onSpinWait();
+
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash:a");
+        assertThatThrownBy(() -> stale.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(AuthOverloadedException.class);
+        assertThat(registry.counter("auth.password.hash.rejected", "reason", "queue_timeout").count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bankcards.security.crypto;
+
+import com.example.bankcards.config.properties.PasswordHashProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordHashPolicyTest {
+
+    @Test
+    @DisplayName("Явная стоимость BCrypt берётся как есть, без замера")
+    void fixedCost() {
+        PasswordHashProperties props = new PasswordHashProperties();
+        props.setEncodingId("pbkdf2");
+        props.setBcryptCost(11);
+
+        assertThat(PasswordHashPolicy.from(props)).isEqualTo(new PasswordHashPolicy("pbkdf2", 11));
+    }
+
+    @Test
+    @DisplayName("Калибровка не выходит за [minCost, maxCost]")
+    void calibrate_clamped() {
+        assertThat(PasswordHashPolicy.calibrate(Duration.ZERO, 4, 6)).isEqualTo(4);
+        assertThat(PasswordHashPolicy.calibrate(Duration.ofHours(1), 4, 6)).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("Устаревшие: другой алгоритм, без префикса, меньшая стоимость")
+    void isOutdated() {
+        PasswordHashPolicy policy = new PasswordHashPolicy("bcrypt", 12);
+
+        assertThat(policy.isOutdated("bcrypt", 12)).isFalse();
+        assertThat(policy.isOutdated("bcrypt", 13)).isFalse();
+        assertThat(policy.isOutdated("bcrypt", 10)).isTrue();
+        assertThat(policy.isOutdated("", 12)).isTrue();
+        assertThat(policy.isOutdated("pbkdf2", null)).isTrue();
+    }
+}
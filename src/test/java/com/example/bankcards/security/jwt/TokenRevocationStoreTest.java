@@ -0,0 +1,85 @@
+package com.example.bankcards.security.jwt;
+
+import com.example.bankcards.config.properties.TokenRevocationProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationStoreTest {
+
+    private static final long NOW = 1_756_000_000L;
+    private static final long NOW_MS = NOW * 1000;
+
+    private TokenRevocationStore store(int expected) {
+        TokenRevocationProperties props = new TokenRevocationProperties();
+        props.setExpectedEntries(expected);
+        return new TokenRevocationStore(props);
+    }
+
+    @Test
+    @DisplayName("Отзыв по jti: отозванный отклоняется, прочие токены того же пользователя — нет")
+    void revokedJti() {
+        TokenRevocationStore s = store(100);
+        s.add(new TokenRevocationStore.Entry("jti-1", 7L, NOW_MS, NOW + 900));
+
+        assertThat(s.isRevoked("jti-1", 7L, NOW_MS - 10)).isTrue();
+        assertThat(s.isRevoked("jti-2", 7L, NOW_MS - 10)).isFalse();
+        assertThat(s.isRevoked(null, 7L, NOW_MS - 10)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Отзыв пользователя: токены, выданные до отзыва включительно, отклоняются, новые — нет")
+    void revokedUser() {
+        TokenRevocationStore s = store(100);
+        s.add(new TokenRevocationStore.Entry(null, 7L, NOW_MS, NOW + 900));
+
+        assertThat(s.isRevoked("any", 7L, NOW_MS - 1)).isTrue();
+        assertThat(s.isRevoked("any", 7L, NOW_MS)).isTrue();
+        assertThat(s.isRevoked("any", 7L, NOW_MS + 1)).isFalse();
+        assertThat(s.isRevoked("any", 8L, NOW_MS - 1)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Отзыв пользователя: токен, выданный в ту же секунду после отзыва, принимается")
+    void revokedUser_sameSecondReissue() {
+        TokenRevocationStore s = store(100);
+        s.add(new TokenRevocationStore.Entry(null, 7L, NOW_MS + 200, NOW + 900));
+
+        assertThat(s.isRevoked("old", 7L, NOW_MS + 150)).isTrue();
+        assertThat(s.isRevoked("new", 7L, NOW_MS + 350)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Пересборка отбрасывает истёкшие записи")
+    void replace_dropsExpired() {
+        TokenRevocationStore s = store(100);
+        s.add(new TokenRevocationStore.Entry("stale", 1L, (NOW - 2000) * 1000, NOW - 1000));
+
+        s.replace(List.of(
+                new TokenRevocationStore.Entry("stale", 1L, (NOW - 2000) * 1000, NOW - 1000),
+                new TokenRevocationStore.Entry("live", 1L, (NOW - 10) * 1000, NOW + 900)), NOW);
+
+        assertThat(s.isRevoked("stale", 1L, (NOW - 3000) * 1000)).isFalse();
+        assertThat(s.isRevoked("live", 1L, (NOW - 3000) * 1000)).isTrue();
+        assertThat(s.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Bloom-фильтр: нет ложноотрицательных, ложноположительных около заданной доли")
+    void bloom_falsePositiveRate() {
+        TokenRevocationStore.BloomFilter bloom = new TokenRevocationStore.BloomFilter(10_000, 0.01);
+        List<String> added = IntStream.range(0, 10_000).mapToObj(i -> UUID.randomUUID().toString()).toList();
+        added.forEach(bloom::put);
+
+        assertThat(added).allMatch(bloom::mightContain);
+        long falsePositives = IntStream.range(0, 20_000)
+                .filter(i -> bloom.mightContain(UUID.randomUUID().toString()))
+                .count();
+        assertThat(falsePositives).isLessThan(20_000 * 3 / 100);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.annotation.ConcurrencyLimited.Priority;
+import com.example.bankcards.config.properties.ConcurrencyLimitProperties;
+import com.example.bankcards.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MS = 1_000_000L;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private AdaptiveConcurrencyLimiter limiter(int initial, int queue, Duration maxWait) {
+        ConcurrencyLimitProperties props = new ConcurrencyLimitProperties();
+        props.setInitialLimit(initial);
+        props.setMinLimit(4);
+        props.setLowPriorityShare(0.5);
+        props.setQueueCapacity(queue);
+        props.setMaxQueueWait(maxWait);
+        props.setSmoothing(0.5);
+        props.setLongWindow(10);
+        return new AdaptiveConcurrencyLimiter(props, registry);
+    }
+
+    private double rejected(Priority priority, String reason) {
+        return registry.counter("concurrency.rejected", "priority", priority.name(), "reason", reason).count();
+    }
+
+    @Test
+    @DisplayName("Чтения получают только долю лимита, прочее сверх лимита — 503 сразу")
+    void priorities_fastReject() {
+        AdaptiveConcurrencyLimiter l = limiter(10, 0, Duration.ZERO);
+        for (int i = 0; i < 5; i++) l.acquire(Priority.LOW);
+
+        assertThatThrownBy(() -> l.acquire(Priority.LOW))
+                .isInstanceOf(ServiceOverloadedException.class)
+                .extracting("retryAfterSeconds").isEqualTo(1);
+        for (int i = 0; i < 5; i++) l.acquire(Priority.NORMAL);
+        assertThatThrownBy(() -> l.acquire(Priority.NORMAL)).isInstanceOf(ServiceOverloadedException.class);
+
+        assertThat(l.inflight()).isEqualTo(10);
+        assertThat(rejected(Priority.LOW, "limit")).isEqualTo(1);
+        assertThat(rejected(Priority.NORMAL, "limit")).isEqualTo(1);
+        assertThat(registry.get("concurrency.limit").gauge().value()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Платёж ждёт слот в очереди, пока ждёт — остальные не проходят; полная очередь — 503")
+    void critical_waitsInQueue() throws Exception {
+        AdaptiveConcurrencyLimiter l = limiter(10, 1, Duration.ofSeconds(5));
+        for (int i = 0; i < 10; i++) l.acquire(Priority.CRITICAL);
+
+        CompletableFuture<Void> queued = CompletableFuture.runAsync(() -> l.acquire(Priority.CRITICAL));
+        while (registry.get("concurrency.queue").gauge().value() < 1) Thread.onSpinWait();
+
+        assertThatThrownBy(() -> l.acquire(Priority.CRITICAL)).isInstanceOf(ServiceOverloadedException.class);
+        assertThat(rejected(Priority.CRITICAL, "queue_full")).isEqualTo(1);
+
+        l.release(MS);
+        queued.get(5, TimeUnit.SECONDS);
+        assertThat(l.inflight()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Платёж не дождался слота за maxQueueWait -> 503")
+    void critical_queueTimeout() {
+        AdaptiveConcurrencyLimiter l = limiter(4, 4, Duration.ofMillis(20));
+        for (int i = 0; i < 4; i++) l.acquire(Priority.CRITICAL);
+
+        assertThatThrownBy(() -> l.acquire(Priority.CRITICAL)).isInstanceOf(ServiceOverloadedException.class);
+        assertThat(rejected(Priority.CRITICAL, "queue_timeout")).isEqualTo(1);
+        assertThat(l.inflight()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Стабильная задержка под нагрузкой — лимит растёт; рост задержки — лимит сжимается")
+    void limit_followsLatency() {
+        AdaptiveConcurrencyLimiter l = limiter(20, 0, Duration.ZERO);
+        for (int i = 0; i < 15; i++) l.acquire(Priority.NORMAL);
+        for (int i = 0; i < 30; i++) {
+            l.release(10 * MS);
+            l.acquire(Priority.NORMAL);
+        }
+        int grown = l.limit();
+        assertThat(grown).isGreaterThan(30);
+
+        while (l.inflight() < l.limit()) l.acquire(Priority.CRITICAL);
+        for (int i = 0; i < 3; i++) l.release(200 * MS);
+
+        assertThat(l.limit()).isLessThan(25);
+    }
+}
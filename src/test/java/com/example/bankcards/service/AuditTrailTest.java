@@ -0,0 +1,142 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.properties.AuditProperties;
+import com.example.bankcards.entity.enums.AuditEventType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AuditTrailTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final Clock clock = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private AuditTrail trail(int bufferSize, int batchSize) {
+        AuditProperties props = new AuditProperties();
+        props.setBufferSize(bufferSize);
+        props.setBatchSize(batchSize);
+        return new AuditTrail(props, jdbcTemplate, clock, registry);
+    }
+
+    private double events(String outcome) {
+        return registry.counter("audit.events", "outcome", outcome).count();
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("События пишутся одной пачкой не больше batchSize")
+    @SuppressWarnings("unchecked")
+    void drainAndFlush_batches() {
+        AuditTrail t = trail(64, 2);
+        t.record(AuditEventType.AUTH_SUCCESS, 1L, null, null, "alice");
+        t.record(AuditEventType.AUTH_FAILURE, null, null, null, "bob (BadCredentialsException)");
+        t.record(AuditEventType.AUTH_SUCCESS, 2L, null, null, "carol");
+
+        assertThat(t.drainAndFlush()).isEqualTo(2);
+        assertThat(t.drainAndFlush()).isEqualTo(1);
+        assertThat(t.drainAndFlush()).isZero();
+
+        verify(jdbcTemplate).batchUpdate(eq(AuditTrail.INSERT_SQL),
+                argThat((Collection<AuditTrail.Event> c) -> c.size() == 2), eq(2),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertThat(events("written")).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Переполненный буфер не блокирует вызывающего: лишние события отбрасываются и считаются")
+    void overflow_drops() {
+        AuditTrail t = trail(64, 500);
+        for (int i = 0; i < 70; i++) {
+            t.record(AuditEventType.AUTH_SUCCESS, (long) i, null, null, "u" + i);
+        }
+
+        assertThat(events("dropped")).isEqualTo(6);
+        assertThat(t.drainAndFlush()).isEqualTo(64);
+    }
+
+    @Test
+    @DisplayName("Внутри транзакции событие попадает в буфер только после коммита")
+    void recordAfterCommit_waitsForCommit() {
+        AuditTrail t = trail(64, 500);
+        TransactionSynchronizationManager.initSynchronization();
+
+        t.recordAfterCommit(AuditEventType.TRANSFER_COMPLETED, 1L, 10L, 500L, "1->2");
+        assertThat(t.drainAndFlush()).isZero();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(t.drainAndFlush()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Откат транзакции не оставляет следа в журнале")
+    void recordAfterCommit_rollback() {
+        AuditTrail t = trail(64, 500);
+        TransactionSynchronizationManager.initSynchronization();
+
+        t.recordAfterCommit(AuditEventType.CARD_CREATED, 1L, 7L, 0L, "****1234");
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(t.drainAndFlush()).isZero();
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Ошибка записи пачки считается в failed и не останавливает писателя")
+    @SuppressWarnings("unchecked")
+    void flushFailure_counted() {
+        AuditTrail t = trail(64, 500);
+        when(jdbcTemplate.batchUpdate(eq(AuditTrail.INSERT_SQL), any(Collection.class), eq(2),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+        t.record(AuditEventType.AUTH_SUCCESS, 1L, null, null, "alice");
+        t.record(AuditEventType.AUTH_SUCCESS, 2L, null, null, "bob");
+
+        assertThat(t.drainAndFlush()).isEqualTo(2);
+        assertThat(events("failed")).isEqualTo(2);
+        assertThat(events("written")).isZero();
+
+        t.record(AuditEventType.AUTH_SUCCESS, 3L, null, null, "carol");
+        assertThat(t.drainAndFlush()).isEqualTo(1);
+        assertThat(events("written")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Длинные подробности обрезаются до ширины колонки")
+    void details_truncated() {
+        AuditTrail t = trail(64, 500);
+        t.record(AuditEventType.AUTH_FAILURE, null, null, null, "x".repeat(1000));
+
+        t.drainAndFlush();
+        verify(jdbcTemplate).batchUpdate(eq(AuditTrail.INSERT_SQL),
+                argThat((Collection<AuditTrail.Event> c) -> c.iterator().next().details().length() == 255), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+}
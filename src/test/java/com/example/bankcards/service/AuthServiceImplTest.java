@@ -1,8 +1,10 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.LoginResponse;
 import com.example.bankcards.dto.UserDto;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.exception.InvalidRefreshTokenException;
 import com.example.bankcards.mapper.UserMapper;
 import com.example.bankcards.security.CustomUserDetails;
 import com.example.bankcards.security.jwt.JwtProvider;
@@ -20,6 +22,7 @@ import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.util.Set;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -31,10 +34,16 @@ class AuthServiceImplTest {
     @Mock private AuthenticationManager authenticationManager;
     @Mock private JwtProvider jwtProvider;
     @Mock private UserService userService;
+    @Mock private org.springframework.security.crypto.password.PasswordEncoder passwordEncoder;
+    @Mock private RefreshTokenService refreshTokenService;
+    @Mock private com.example.bankcards.security.jwt.JwtParser jwtParser;
+    @Mock private TokenRevocationService tokenRevocationService;
 
     @InjectMocks
     private AuthServiceImpl authService;
 
+    private static final UUID SESSION = UUID.fromString("00000000-0000-0000-0000-000000000042");
+
     @Test
     @DisplayName("register: создаёт пользователя с ROLE_USER")
     void register_ok() {
@@ -109,22 +118,139 @@ class AuthServiceImplTest {
         when(authenticationManager.authenticate(tokenCaptor.capture()))
                 .thenReturn(authentication);
 
-        when(jwtProvider.generateToken(eq(42L), eq("user123"), any()))
+        when(jwtProvider.generateToken(eq(42L), eq("user123"), any(), any()))
                 .thenReturn("jwt-token");
+        when(jwtProvider.expiresInSeconds()).thenReturn(900L);
+        when(refreshTokenService.issue(42L)).thenReturn(new RefreshTokenService.Issued("42.refresh", SESSION));
 
-        String result = authService.login("  user123  ", "Secret123!");
+        LoginResponse result = authService.login("  user123  ", "Secret123!");
 
-        org.assertj.core.api.Assertions.assertThat(result).isEqualTo("jwt-token");
+        org.assertj.core.api.Assertions.assertThat(result.getTokenType()).isEqualTo("Bearer");
+        org.assertj.core.api.Assertions.assertThat(result.getAccessToken()).isEqualTo("jwt-token");
+        org.assertj.core.api.Assertions.assertThat(result.getRefreshToken()).isEqualTo("42.refresh");
+        org.assertj.core.api.Assertions.assertThat(result.getExpiresIn()).isEqualTo(900L);
         UsernamePasswordAuthenticationToken passed = tokenCaptor.getValue();
         org.assertj.core.api.Assertions.assertThat(passed.getPrincipal()).isEqualTo("user123");
         org.assertj.core.api.Assertions.assertThat(passed.getCredentials()).isEqualTo("Secret123!");
 
         verify(authenticationManager).authenticate(any());
-        verify(jwtProvider).generateToken(eq(42L), eq("user123"), any());
+        verify(jwtProvider).generateToken(eq(42L), eq("user123"), any(), eq(SESSION));
+        verify(jwtProvider).expiresInSeconds();
         verifyNoMoreInteractions(authenticationManager, jwtProvider);
         verifyNoInteractions(userService);
     }
 
+    private CustomUserDetails loginAs(String storedHash) {
+        CustomUserDetails principal = mock(CustomUserDetails.class);
+        when(principal.getId()).thenReturn(42L);
+        when(principal.getUsername()).thenReturn("user123");
+        when(principal.getPassword()).thenReturn(storedHash);
+        Authentication authentication = mock(Authentication.class);
+        when(authentication.getPrincipal()).thenReturn(principal);
+        when(authenticationManager.authenticate(any())).thenReturn(authentication);
+        when(jwtProvider.generateToken(eq(42L), eq("user123"), any(), any())).thenReturn("jwt-token");
+        when(refreshTokenService.issue(42L)).thenReturn(new RefreshTokenService.Issued("42.refresh", SESSION));
+        return principal;
+    }
+
+    @Test
+    @DisplayName("login: устаревший хэш перехэшируется текущим алгоритмом")
+    void login_upgradesOutdatedHash() {
+        loginAs("$2a$10$legacy");
+        when(passwordEncoder.upgradeEncoding("$2a$10$legacy")).thenReturn(true);
+        when(passwordEncoder.encode("Secret123!")).thenReturn("{bcrypt}$2a$12$fresh");
+
+        assertThat(authService.login("user123", "Secret123!").getAccessToken()).isEqualTo("jwt-token");
+
+        verify(userService).upgradePasswordHash(42L, "$2a$10$legacy", "{bcrypt}$2a$12$fresh");
+    }
+
+    @Test
+    @DisplayName("login: актуальный хэш не трогаем")
+    void login_currentHash_noUpgrade() {
+        loginAs("{bcrypt}$2a$12$fresh");
+        when(passwordEncoder.upgradeEncoding("{bcrypt}$2a$12$fresh")).thenReturn(false);
+
+        assertThat(authService.login("user123", "Secret123!").getAccessToken()).isEqualTo("jwt-token");
+
+        verify(passwordEncoder, never()).encode(any());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    @DisplayName("login: ошибка перехэширования не ломает вход")
+    void login_upgradeFailure_stillLogsIn() {
+        loginAs("$2a$10$legacy");
+        when(passwordEncoder.upgradeEncoding("$2a$10$legacy")).thenReturn(true);
+        when(passwordEncoder.encode("Secret123!")).thenReturn("{bcrypt}$2a$12$fresh");
+        doThrow(new IllegalStateException("db down"))
+                .when(userService).upgradePasswordHash(anyLong(), anyString(), anyString());
+
+        assertThat(authService.login("user123", "Secret123!").getAccessToken()).isEqualTo("jwt-token");
+    }
+
+    @Test
+    @DisplayName("refresh: ротация токена и новый JWT с ролями из БД")
+    void refresh_ok() {
+        when(refreshTokenService.rotate(42L, "42.old"))
+                .thenReturn(new RefreshTokenService.Rotation(42L, "user123", Set.of(Role.ROLE_ADMIN), "42.new", SESSION));
+        when(jwtProvider.generateToken(eq(42L), eq("user123"), any(), any())).thenReturn("jwt-token");
+
+        LoginResponse out = authService.refresh("42.old");
+
+        assertThat(out.getAccessToken()).isEqualTo("jwt-token");
+        assertThat(out.getRefreshToken()).isEqualTo("42.new");
+        verify(jwtProvider).generateToken(eq(42L), eq("user123"),
+                argThat(a -> a.stream().map(Object::toString).toList().equals(java.util.List.of("ROLE_ADMIN"))), eq(SESSION));
+        verifyNoInteractions(authenticationManager, passwordEncoder);
+    }
+
+    @Test
+    @DisplayName("logout: jti текущего токена уходит в отзыв до его exp")
+    void logout_revokesJti() {
+        java.util.Date exp = new java.util.Date(1_756_000_000_000L);
+        io.jsonwebtoken.Claims claims = io.jsonwebtoken.Jwts.claims().setId("jti-1").setExpiration(exp);
+        claims.put("uid", 42L);
+        when(jwtParser.parseClaims("jwt")).thenReturn(claims);
+
+        authService.logout("jwt");
+
+        verify(tokenRevocationService).revokeToken(42L, "jti-1", exp.toInstant());
+    }
+
+    @Test
+    @DisplayName("logout: вместе с access-токеном отзывается цепочка refresh-токенов его входа")
+    void logout_revokesRefreshFamily() {
+        java.util.Date exp = new java.util.Date(1_756_000_000_000L);
+        io.jsonwebtoken.Claims claims = io.jsonwebtoken.Jwts.claims().setId("jti-1").setExpiration(exp);
+        claims.put("uid", 42L);
+        claims.put("sid", SESSION.toString());
+        when(jwtParser.parseClaims("jwt")).thenReturn(claims);
+
+        authService.logout("jwt");
+
+        verify(refreshTokenService).revokeFamily(42L, SESSION);
+        verify(tokenRevocationService).revokeToken(42L, "jti-1", exp.toInstant());
+    }
+
+    @Test
+    @DisplayName("logout: токен без jti отозвать нельзя — no-op")
+    void logout_noJti() {
+        when(jwtParser.parseClaims("jwt")).thenReturn(io.jsonwebtoken.Jwts.claims().setSubject("user123"));
+
+        authService.logout("jwt");
+
+        verifyNoInteractions(tokenRevocationService);
+    }
+
+    @Test
+    @DisplayName("refresh: токен без id пользователя -> InvalidRefreshTokenException без похода в БД")
+    void refresh_malformed() {
+        assertThatThrownBy(() -> authService.refresh("garbage"))
+                .isInstanceOf(InvalidRefreshTokenException.class);
+        verifyNoInteractions(refreshTokenService);
+    }
+
 
     @Test
     @DisplayName("me: AccessDeniedException если нет аутентификации")
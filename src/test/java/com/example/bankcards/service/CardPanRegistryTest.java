@@ -0,0 +1,96 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.CardAlreadyExistsException;
+import com.example.bankcards.repository.CardRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CardPanRegistryTest {
+
+    private static final String INSERT = "INSERT INTO card_pan_registry (pan_hash) VALUES (?) ON CONFLICT (pan_hash) DO NOTHING";
+    private static final String DELETE = "DELETE FROM card_pan_registry WHERE pan_hash = ?";
+
+    @Mock ShardRouter shardRouter;
+    @Mock CardRepository cardRepository;
+    @Mock JdbcTemplate jdbcTemplate;
+
+    @InjectMocks CardPanRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        when(shardRouter.isSharded()).thenReturn(true);
+        when(shardRouter.shards()).thenReturn(List.of(0, 1));
+        when(shardRouter.onShardInNewTx(anyInt(), any())).thenAnswer(inv -> ((Supplier<?>) inv.getArgument(1)).get());
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Без шардирования реестр не используется")
+    void notSharded_noop() {
+        when(shardRouter.isSharded()).thenReturn(false);
+
+        registry.reserve("h");
+        registry.release("h");
+
+        verifyNoInteractions(cardRepository, jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("PAN уже выпущен на другом шарде -> CardAlreadyExists, резерв не создаётся")
+    void existsOnOtherShard_rejected() {
+        when(cardRepository.existsByPanHash("h")).thenReturn(true);
+
+        assertThatThrownBy(() -> registry.reserve("h")).isInstanceOf(CardAlreadyExistsException.class);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Гонка двух шардов: резерв на шарде 0 уже занят -> CardAlreadyExists")
+    void reservedConcurrently_rejected() {
+        when(jdbcTemplate.update(INSERT, "h")).thenReturn(0);
+
+        assertThatThrownBy(() -> registry.reserve("h")).isInstanceOf(CardAlreadyExistsException.class);
+        verify(shardRouter).onShardInNewTx(eq(CardPanRegistry.REGISTRY_SHARD), any());
+    }
+
+    @Test
+    @DisplayName("Откат создания карты снимает резерв, коммит — оставляет")
+    void rollback_releases() {
+        when(jdbcTemplate.update(INSERT, "h")).thenReturn(1);
+        TransactionSynchronizationManager.initSynchronization();
+        registry.reserve("h");
+
+        List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+        syncs.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        verify(jdbcTemplate, never()).update(DELETE, "h");
+
+        syncs.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        verify(jdbcTemplate).update(DELETE, "h");
+    }
+}
@@ -1,17 +1,21 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.config.properties.ShardingProperties;
+import com.example.bankcards.dto.BalanceSummaryDto;
 import com.example.bankcards.dto.CardCreateRequest;
 import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.dto.CardFilter;
 import com.example.bankcards.dto.PageDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.UserBalanceSummary;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.exception.*;
 import com.example.bankcards.mapper.CardMapper;
 import com.example.bankcards.mapper.PageDtoMapper;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserBalanceSummaryRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.crypto.CryptoService;
 import com.example.bankcards.security.crypto.HmacService;
@@ -24,6 +28,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.data.domain.*;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.*;
 import java.time.YearMonth;
@@ -43,6 +48,13 @@ class CardServiceImplTest {
     @Mock TransferRepository transferRepository;
     @Mock CryptoService cryptoService;
     @Mock HmacService hmacService;
+    @Mock CardListingCache cardListingCache;
+    @Mock UserBalanceSummaryRepository balanceSummaryRepository;
+    @Mock BalanceSummaryUpdater balanceSummaryUpdater;
+    @Spy ShardRouter shardRouter = new ShardRouter(new ShardingProperties(), mock(PlatformTransactionManager.class));
+    @Mock LedgerStore ledgerStore;
+    @Mock AuditTrail auditTrail;
+    @Mock CardPanRegistry panRegistry;
     @Mock Clock clock;
 
     @InjectMocks
@@ -247,7 +259,7 @@ class CardServiceImplTest {
 
             cm.when(() -> CardMapper.toDto(any(Card.class))).thenReturn(new CardDto());
             PageDto<CardDto> dto = new PageDto<>();
-            pm.when(() -> PageDtoMapper.toPageDto(eq(page), anyList())).thenReturn(dto);
+            pm.when(() -> PageDtoMapper.toPageDto(any(Page.class), anyList())).thenReturn(dto);
 
             PageDto<CardDto> out = service.listAll(2, 1000, null);
             assertThat(out).isSameAs(dto);
@@ -278,7 +290,7 @@ class CardServiceImplTest {
 
             cm.when(() -> CardMapper.toDto(any(Card.class))).thenReturn(new CardDto());
             PageDto<CardDto> dto = new PageDto<>();
-            pm.when(() -> PageDtoMapper.toPageDto(eq(page), anyList())).thenReturn(dto);
+            pm.when(() -> PageDtoMapper.toPageDto(any(Page.class), anyList())).thenReturn(dto);
 
             PageDto<CardDto> out = service.listAll(0, 10, f);
             assertThat(out).isSameAs(dto);
@@ -301,9 +313,43 @@ class CardServiceImplTest {
             CardDto out = service.block(100L);
             assertThat(out).isSameAs(dto);
             assertThat(existing.getStatus()).isEqualTo(CardStatus.BLOCKED);
+            verify(cardListingCache).invalidate(1L);
+            verify(balanceSummaryUpdater).onStatusChanged(existing, CardStatus.ACTIVE, CardStatus.BLOCKED);
+            verify(ledgerStore).onCardChanged(100L, 1L, CardStatus.BLOCKED, NOW_YM.plusMonths(1));
         }
     }
 
+    @Test
+    @DisplayName("summaryMy: есть сводка -> итоги по статусам и общий баланс")
+    void summaryMy_ok() {
+        UserBalanceSummary s = UserBalanceSummary.builder()
+                .userId(1L).cardCount(3)
+                .activeCount(2).activeBalance(500)
+                .blockedCount(1).blockedBalance(70)
+                .build();
+        when(balanceSummaryRepository.findById(1L)).thenReturn(Optional.of(s));
+
+        BalanceSummaryDto out = service.summaryMy(1L);
+
+        assertThat(out.getCardCount()).isEqualTo(3);
+        assertThat(out.getTotalBalance()).isEqualTo(570);
+        assertThat(out.getByStatus().get(CardStatus.ACTIVE).getBalance()).isEqualTo(500);
+        assertThat(out.getByStatus().get(CardStatus.BLOCKED).getCount()).isEqualTo(1);
+        assertThat(out.getByStatus().get(CardStatus.EXPIRED).getCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("summaryMy: сводки нет -> нулевые итоги")
+    void summaryMy_empty() {
+        when(balanceSummaryRepository.findById(2L)).thenReturn(Optional.empty());
+
+        BalanceSummaryDto out = service.summaryMy(2L);
+
+        assertThat(out.getCardCount()).isZero();
+        assertThat(out.getTotalBalance()).isZero();
+        assertThat(out.getByStatus()).containsKeys(CardStatus.values());
+    }
+
     @Test
     @DisplayName("activate: BLOCKED -> ACTIVE")
     void activate_ok() {
@@ -367,6 +413,7 @@ class CardServiceImplTest {
         service.delete(300L);
 
         verify(cardRepository).delete(c);
+        verify(ledgerStore).onCardDeleted(300L);
     }
 
     @Test
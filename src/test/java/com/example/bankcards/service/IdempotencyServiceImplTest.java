@@ -0,0 +1,166 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.properties.IdempotencyProperties;
+import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.entity.enums.IdempotencyStatus;
+import com.example.bankcards.entity.enums.TransferStatus;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.IdempotencyConflictException;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.example.bankcards.service.impl.IdempotencyServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.*;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IdempotencyServiceImplTest {
+
+    @Mock IdempotencyRecordRepository repository;
+    @Mock TransactionTemplate transactionTemplate;
+    @Mock Clock clock;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final IdempotencyProperties props = new IdempotencyProperties();
+    private final Clock fixedClock = Clock.fixed(Instant.parse("2025-08-25T03:00:00Z"), ZoneOffset.UTC);
+    private final LocalDateTime NOW = LocalDateTime.ofInstant(fixedClock.instant(), fixedClock.getZone());
+
+    private IdempotencyServiceImpl service;
+
+    @BeforeEach
+    void setup() {
+        when(clock.instant()).thenReturn(fixedClock.instant());
+        when(clock.getZone()).thenReturn(fixedClock.getZone());
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> {
+            TransactionCallback<?> cb = inv.getArgument(0);
+            return cb.doInTransaction(null);
+        });
+        service = new IdempotencyServiceImpl(props, repository, transactionTemplate, objectMapper, clock);
+    }
+
+    private static TransferRequest req(long amount) {
+        return TransferRequest.builder().fromCardId(1L).toCardId(2L).amount(amount).build();
+    }
+
+    private static TransferDto dto(long id) {
+        return TransferDto.builder().id(id).amount(100L).status(TransferStatus.COMPLETED).createdAt(LocalDateTime.of(2025, 8, 25, 3, 0)).build();
+    }
+
+    @Test
+    @DisplayName("execute: без ключа -> просто выполняет действие, хранилище не трогает")
+    void noKey_passThrough() {
+        TransferDto res = service.execute(7L, "  ", "transfers.initiate", req(100), TransferDto.class, () -> dto(1L));
+
+        assertThat(res.getId()).isEqualTo(1L);
+        verifyNoInteractions(repository, transactionTemplate);
+    }
+
+    @Test
+    @DisplayName("execute: новый ключ -> действие выполняется, ответ сохраняется с TTL")
+    void newKey_executesAndStores() {
+        when(repository.tryAcquire(eq(7L), eq("k1"), eq("transfers.initiate"), anyString(), eq(NOW), any())).thenReturn(1);
+
+        TransferDto res = service.execute(7L, "k1", "transfers.initiate", req(100), TransferDto.class, () -> dto(5L));
+
+        assertThat(res.getId()).isEqualTo(5L);
+        verify(repository).tryAcquire(eq(7L), eq("k1"), eq("transfers.initiate"), anyString(), eq(NOW), eq(NOW.plus(props.getTtl())));
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(repository).complete(eq(7L), eq("k1"), eq(IdempotencyStatus.COMPLETED), body.capture());
+        assertThat(body.getValue()).contains("\"id\":5");
+    }
+
+    @Test
+    @DisplayName("execute: повтор с тем же телом -> возвращает сохранённый ответ без повторного выполнения")
+    void replay_returnsStoredResponse() throws Exception {
+        IdempotencyRecord stored = IdempotencyRecord.builder()
+                .userId(7L).idemKey("k1").scope("transfers.initiate")
+                .status(IdempotencyStatus.COMPLETED)
+                .responseBody(objectMapper.writeValueAsString(dto(9L)))
+                .build();
+        when(repository.tryAcquire(anyLong(), anyString(), anyString(), anyString(), any(), any())).thenAnswer(inv -> {
+            stored.setRequestHash(inv.getArgument(3));
+            return 0;
+        });
+        when(repository.findByUserIdAndIdemKey(7L, "k1")).thenReturn(Optional.of(stored));
+        AtomicInteger calls = new AtomicInteger();
+
+        TransferDto res = service.execute(7L, "k1", "transfers.initiate", req(100), TransferDto.class,
+                () -> { calls.incrementAndGet(); return dto(10L); });
+
+        assertThat(res.getId()).isEqualTo(9L);
+        assertThat(res.getStatus()).isEqualTo(TransferStatus.COMPLETED);
+        assertThat(calls.get()).isZero();
+        verify(repository, never()).complete(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("execute: тот же ключ, другое тело -> IdempotencyConflictException")
+    void sameKeyDifferentBody_conflict() {
+        IdempotencyRecord stored = IdempotencyRecord.builder()
+                .userId(7L).idemKey("k1").scope("transfers.initiate")
+                .requestHash("other").status(IdempotencyStatus.COMPLETED).responseBody("{}")
+                .build();
+        when(repository.tryAcquire(anyLong(), anyString(), anyString(), anyString(), any(), any())).thenReturn(0);
+        when(repository.findByUserIdAndIdemKey(7L, "k1")).thenReturn(Optional.of(stored));
+
+        assertThatThrownBy(() -> service.execute(7L, "k1", "transfers.initiate", req(200), TransferDto.class, () -> dto(1L)))
+                .isInstanceOf(IdempotencyConflictException.class);
+    }
+
+    @Test
+    @DisplayName("execute: запись ещё IN_PROGRESS -> IdempotencyConflictException")
+    void inProgress_conflict() {
+        IdempotencyRecord stored = IdempotencyRecord.builder()
+                .userId(7L).idemKey("k1").scope("cards.block").status(IdempotencyStatus.IN_PROGRESS)
+                .build();
+        when(repository.tryAcquire(anyLong(), anyString(), anyString(), anyString(), any(), any())).thenAnswer(inv -> {
+            stored.setRequestHash(inv.getArgument(3));
+            return 0;
+        });
+        when(repository.findByUserIdAndIdemKey(7L, "k1")).thenReturn(Optional.of(stored));
+
+        assertThatThrownBy(() -> service.execute(7L, "k1", "cards.block", 100L, TransferDto.class, () -> dto(1L)))
+                .isInstanceOf(IdempotencyConflictException.class)
+                .hasMessageContaining("in progress");
+    }
+
+    @Test
+    @DisplayName("execute: слишком длинный ключ -> BadRequestException")
+    void tooLongKey_badRequest() {
+        String key = "k".repeat(65);
+        assertThatThrownBy(() -> service.execute(7L, key, "cards.block", 100L, TransferDto.class, () -> dto(1L)))
+                .isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("purgeExpired: удаляет пачками, пока пачка полная")
+    void purge_batches() {
+        props.setPurgeBatchSize(2);
+        when(repository.deleteExpired(NOW, 2)).thenReturn(2, 2, 1);
+
+        int purged = service.purgeExpired();
+
+        assertThat(purged).isEqualTo(5);
+        verify(repository, times(3)).deleteExpired(NOW, 2);
+    }
+}
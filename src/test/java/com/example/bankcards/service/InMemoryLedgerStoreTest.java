@@ -0,0 +1,332 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.properties.InMemoryLedgerProperties;
+import com.example.bankcards.config.properties.ShardingProperties;
+import com.example.bankcards.config.properties.TransfersSchedulerProperties;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.CardDeletionNotAllowedException;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.InvalidCardStateException;
+import com.example.bankcards.exception.OwnershipViolationException;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.service.impl.InMemoryLedgerStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class InMemoryLedgerStoreTest {
+
+    @Mock TransferRepository transferRepository;
+    @Mock EntityManager entityManager;
+    @Mock EntityManagerFactory emf;
+    @Mock Cache cache;
+    @Mock TransactionTemplate transactionTemplate;
+    @Mock CardListingCache cardListingCache;
+    @Mock TaskScheduler taskScheduler;
+
+    @TempDir Path dir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final LocalDateTime NOW = LocalDateTime.of(2025, 8, 25, 3, 0, 0, 123_456_000);
+    private final YearMonth NEXT_YM = YearMonth.from(NOW).plusMonths(1);
+
+    @BeforeEach
+    void setup() {
+        when(entityManager.getEntityManagerFactory()).thenReturn(emf);
+        when(emf.getCache()).thenReturn(cache);
+        when(transferRepository.allocateIds(anyInt())).thenReturn(List.of(101L, 102L, 103L));
+        doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @AfterEach
+    void clearSync() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private InMemoryLedgerStore store() {
+        return store(new TransfersSchedulerProperties());
+    }
+
+    private InMemoryLedgerStore store(TransfersSchedulerProperties schedulerProps) {
+        InMemoryLedgerProperties props = new InMemoryLedgerProperties();
+        props.setJournalPath(dir.resolve("ledger.journal").toString());
+        props.setFsync(false);
+        props.setLockStripes(8);
+        props.setIdBlockSize(3);
+        InMemoryLedgerStore s = new InMemoryLedgerStore(props, transferRepository, entityManager, transactionTemplate,
+                cardListingCache, new ShardRouter(new ShardingProperties(), mock(PlatformTransactionManager.class)), taskScheduler,
+                schedulerProps, meterRegistry);
+        call(s, "init");
+        return s;
+    }
+
+    private void givenCard(long id, long ownerId, long balance, CardStatus status, String last4) {
+        User u = new User();
+        u.setId(ownerId);
+        Card c = new Card();
+        c.setId(id);
+        c.setUser(u);
+        c.setBalance(balance);
+        c.setStatus(status);
+        c.setExpiry(NEXT_YM);
+        c.setPanLast4(last4);
+        when(entityManager.find(eq(Card.class), eq(id), anyMap())).thenReturn(c);
+    }
+
+    private static void call(Object target, String method) {
+        try {
+            Method m = target.getClass().getDeclaredMethod(method);
+            m.setAccessible(true);
+            m.invoke(target);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        syncs.forEach(sync -> sync.afterCompletion(status));
+    }
+
+    @Test
+    @DisplayName("Перевод: балансы в памяти, id из блока, запись в БД — фоном из журнала")
+    void transfer_journaledAndWrittenBehind() {
+        givenCard(1L, 10L, 1_000, CardStatus.ACTIVE, "1111");
+        givenCard(2L, 10L, 0, CardStatus.ACTIVE, "2222");
+        InMemoryLedgerStore s = store();
+
+        LedgerStore.Receipt r1 = s.transferImmediate(10L, 1L, 2L, 600, NOW).orElseThrow();
+        assertThat(r1.id()).isEqualTo(101L);
+        assertThat(r1.fromLast4()).isEqualTo("1111");
+        assertThatThrownBy(() -> s.transferImmediate(10L, 1L, 2L, 600, NOW))
+                .isInstanceOf(InsufficientFundsException.class);
+        verify(transferRepository, never()).applyJournaled(anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), any());
+
+        call(s, "drain");
+
+        verify(transferRepository).applyJournaled(101L, 10L, 1L, 2L, 600L, NOW);
+        verify(transferRepository, times(1)).applyJournaled(anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), any());
+        verify(cache).evict(Card.class, 1L);
+        verify(cardListingCache).invalidate(10L);
+        verify(entityManager, times(2)).find(eq(Card.class), anyLong(), anyMap());
+    }
+
+    @Test
+    @DisplayName("id переводов: следующий блок подгружается фоном, пока текущий не израсходован")
+    void transfer_idBlockPrefetched() {
+        givenCard(1L, 10L, 1_000, CardStatus.ACTIVE, "1111");
+        givenCard(2L, 10L, 0, CardStatus.ACTIVE, "2222");
+        when(transferRepository.allocateIds(3)).thenReturn(List.of(101L, 102L, 103L), List.of(201L, 202L, 203L));
+        InMemoryLedgerStore s = store();
+
+        assertThat(s.transferImmediate(10L, 1L, 2L, 100, NOW).orElseThrow().id()).isEqualTo(101L);
+        verify(taskScheduler, never()).schedule(any(Runnable.class), any(Instant.class));
+        assertThat(s.transferImmediate(10L, 1L, 2L, 100, NOW).orElseThrow().id()).isEqualTo(102L);
+
+        var task = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler).schedule(task.capture(), any(Instant.class));
+        task.getValue().run();
+        verify(transferRepository, times(2)).allocateIds(3);
+
+        assertThat(s.transferImmediate(10L, 1L, 2L, 100, NOW).orElseThrow().id()).isEqualTo(103L);
+        assertThat(s.transferImmediate(10L, 1L, 2L, 100, NOW).orElseThrow().id()).isEqualTo(201L);
+        verify(transferRepository, times(2)).allocateIds(3);
+    }
+
+    @Test
+    @DisplayName("Карты нет в БД: 404 без слота в памяти, появившаяся позже карта читается заново")
+    void transfer_missingCard_notCached() {
+        givenCard(1L, 10L, 1_000, CardStatus.ACTIVE, "1111");
+        InMemoryLedgerStore s = store();
+
+        assertThatThrownBy(() -> s.transferImmediate(10L, 1L, 2L, 100, NOW))
+                .isInstanceOf(CardNotFoundException.class);
+
+        givenCard(2L, 10L, 0, CardStatus.ACTIVE, "2222");
+        assertThat(s.transferImmediate(10L, 1L, 2L, 100, NOW)).isPresent();
+        verify(entityManager, times(1)).find(eq(Card.class), eq(1L), anyMap());
+        verify(entityManager, times(2)).find(eq(Card.class), eq(2L), anyMap());
+    }
+
+    @Test
+    @DisplayName("Проверки: чужие карты и заблокированная после коммита карта")
+    void transfer_validations() {
+        givenCard(1L, 10L, 1_000, CardStatus.ACTIVE, "1111");
+        givenCard(2L, 10L, 0, CardStatus.ACTIVE, "2222");
+        InMemoryLedgerStore s = store();
+
+        assertThatThrownBy(() -> s.transferImmediate(99L, 1L, 2L, 100, NOW))
+                .isInstanceOf(OwnershipViolationException.class);
+
+        s.onCardChanged(2L, 10L, CardStatus.BLOCKED, NEXT_YM);
+        assertThatThrownBy(() -> s.transferImmediate(10L, 1L, 2L, 100, NOW))
+                .isInstanceOf(InvalidCardStateException.class);
+    }
+
+    @Test
+    @DisplayName("Рестарт: неперенесённый хвост журнала досылается в БД до приёма запросов")
+    void restart_replaysPendingJournal() {
+        givenCard(1L, 10L, 1_000, CardStatus.ACTIVE, "1111");
+        givenCard(2L, 10L, 0, CardStatus.ACTIVE, "2222");
+        InMemoryLedgerStore crashed = store();
+        crashed.transferImmediate(10L, 1L, 2L, 100, NOW);
+        crashed.transferImmediate(10L, 2L, 1L, 40, NOW);
+
+        store();
+
+        verify(transferRepository).applyJournaled(101L, 10L, 1L, 2L, 100L, NOW);
+        verify(transferRepository).applyJournaled(102L, 10L, 2L, 1L, 40L, NOW);
+
+        clearInvocations(transferRepository);
+        store();
+        verify(transferRepository, never()).applyJournaled(anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Откат внешней транзакции: балансы возвращаются, писатель отменяет проводку в БД")
+    void transfer_rolledBack_reverted() {
+        givenCard(1L, 10L, 1_000, CardStatus.ACTIVE, "1111");
+        givenCard(2L, 10L, 0, CardStatus.ACTIVE, "2222");
+        InMemoryLedgerStore s = store();
+
+        TransactionSynchronizationManager.initSynchronization();
+        s.transferImmediate(10L, 1L, 2L, 600, NOW);
+        // До коммита получатель зачисленного не видит
+        assertThatThrownBy(() -> s.transferImmediate(10L, 2L, 1L, 1, NOW))
+                .isInstanceOf(InsufficientFundsException.class);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThatThrownBy(() -> s.transferImmediate(10L, 2L, 1L, 1, NOW))
+                .isInstanceOf(InsufficientFundsException.class);
+        assertThatThrownBy(() -> s.transferImmediate(10L, 1L, 2L, 1_001, NOW))
+                .isInstanceOf(InsufficientFundsException.class);
+
+        call(s, "drain");
+
+        verify(transferRepository).applyJournaled(101L, 10L, 1L, 2L, 600L, NOW);
+        verify(transferRepository).cancelJournaled(101L, 1L, 2L, 600L);
+
+        s.transferImmediate(10L, 1L, 2L, 1_000, NOW);
+    }
+
+    @Test
+    @DisplayName("Коммит внешней транзакции: зачисление получателю после коммита")
+    void transfer_committed_credited() {
+        givenCard(1L, 10L, 1_000, CardStatus.ACTIVE, "1111");
+        givenCard(2L, 10L, 0, CardStatus.ACTIVE, "2222");
+        InMemoryLedgerStore s = store();
+
+        TransactionSynchronizationManager.initSynchronization();
+        s.transferImmediate(10L, 1L, 2L, 600, NOW);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        s.transferImmediate(10L, 2L, 1L, 600, NOW);
+        call(s, "drain");
+        verify(transferRepository, never()).cancelJournaled(anyLong(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Запись, отвергнутая БД, уходит в карантин и не стопорит перенос остальных")
+    void drain_poisonEntry_quarantined() throws Exception {
+        givenCard(1L, 10L, 1_000, CardStatus.ACTIVE, "1111");
+        givenCard(2L, 10L, 0, CardStatus.ACTIVE, "2222");
+        InMemoryLedgerStore s = store();
+        s.transferImmediate(10L, 1L, 2L, 100, NOW);
+        s.transferImmediate(10L, 1L, 2L, 200, NOW);
+        doThrow(new DataIntegrityViolationException("fk_transfers_to_card"))
+                .when(transferRepository).applyJournaled(eq(101L), anyLong(), anyLong(), anyLong(), anyLong(), any());
+
+        call(s, "drain");
+
+        verify(transferRepository, times(2)).applyJournaled(101L, 10L, 1L, 2L, 100L, NOW);
+        verify(transferRepository).applyJournaled(102L, 10L, 1L, 2L, 200L, NOW);
+        assertThat(meterRegistry.counter("ledger.writebehind.quarantined").count()).isEqualTo(1.0);
+        assertThat(Files.readString(dir.resolve("ledger.journal.quarantine"))).startsWith("101,10,1,2,100,");
+
+        clearInvocations(transferRepository);
+        call(s, "drain");
+        verify(transferRepository, never()).applyJournaled(anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Удаление карты с проводками через хранилище запрещено, карта без них закрывается для переводов")
+    void beforeCardDeleted_refusesUsedCard() {
+        givenCard(1L, 10L, 1_000, CardStatus.ACTIVE, "1111");
+        givenCard(2L, 10L, 0, CardStatus.ACTIVE, "2222");
+        givenCard(3L, 10L, 0, CardStatus.ACTIVE, "3333");
+        InMemoryLedgerStore s = store();
+        s.transferImmediate(10L, 1L, 2L, 100, NOW);
+
+        assertThatThrownBy(() -> s.beforeCardDeleted(2L))
+                .isInstanceOf(CardDeletionNotAllowedException.class);
+
+        TransactionSynchronizationManager.initSynchronization();
+        s.beforeCardDeleted(3L);
+        assertThatThrownBy(() -> s.transferImmediate(10L, 1L, 3L, 100, NOW))
+                .isInstanceOf(CardNotFoundException.class);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        s.transferImmediate(10L, 1L, 3L, 100, NOW);
+    }
+
+    @Test
+    @DisplayName("Не стартует вместе с исполнением отложенных переводов планировщиком")
+    void init_refusesExecuteScheduler() {
+        TransfersSchedulerProperties schedulerProps = new TransfersSchedulerProperties();
+        schedulerProps.setEnabled(true);
+        schedulerProps.setMode(TransfersSchedulerProperties.Mode.EXECUTE);
+
+        assertThatThrownBy(() -> store(schedulerProps))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("EXECUTE");
+    }
+}
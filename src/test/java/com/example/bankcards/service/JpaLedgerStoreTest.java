@@ -0,0 +1,50 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.service.impl.JpaLedgerStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JpaLedgerStoreTest {
+
+    @Mock TransferRepository transferRepository;
+
+    @InjectMocks JpaLedgerStore store;
+
+    private final LocalDateTime NOW = LocalDateTime.of(2025, 8, 25, 3, 0);
+
+    @Test
+    @DisplayName("Условный запрос выполнен: квитанция из строки")
+    void executed_receipt() {
+        TransferRepository.ImmediateTransferResult row = mock(TransferRepository.ImmediateTransferResult.class);
+        when(row.getId()).thenReturn(501L);
+        when(row.getFromLast4()).thenReturn("1111");
+        when(row.getToLast4()).thenReturn("2222");
+        when(transferRepository.executeImmediate(10L, 1L, 2L, 300L, "2025-08", NOW)).thenReturn(Optional.of(row));
+
+        Optional<LedgerStore.Receipt> out = store.transferImmediate(10L, 1L, 2L, 300L, NOW);
+
+        assertThat(out).contains(new LedgerStore.Receipt(501L, "1111", "2222"));
+    }
+
+    @Test
+    @DisplayName("0 строк: пусто")
+    void rejected_empty() {
+        when(transferRepository.executeImmediate(anyLong(), anyLong(), anyLong(), anyLong(), any(), any()))
+                .thenReturn(Optional.empty());
+
+        assertThat(store.transferImmediate(10L, 1L, 2L, 300L, NOW)).isEmpty();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.properties.JwtProperties;
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.exception.InvalidRefreshTokenException;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.repository.RefreshTokenRepository.RefreshTokenView;
+import com.example.bankcards.service.impl.RefreshTokenServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceImplTest {
+
+    private static final Instant NOW = Instant.parse("2025-08-25T10:00:00Z");
+    private static final UUID FAMILY = UUID.fromString("00000000-0000-0000-0000-000000000007");
+
+    @Mock RefreshTokenRepository repository;
+    @Mock TransactionTemplate transactionTemplate;
+
+    RefreshTokenServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        JwtProperties props = new JwtProperties();
+        props.setSecret(Base64.getEncoder().encodeToString(new byte[32]));
+        props.setExpirationMs(900_000);
+        service = new RefreshTokenServiceImpl(props, repository, Clock.fixed(NOW, ZoneOffset.UTC), transactionTemplate);
+    }
+
+    private static RefreshTokenView view(long userId, boolean used, boolean active, boolean revoked) {
+        return new RefreshTokenView() {
+            public Long getId() { return 100L; }
+            public Long getUserId() { return userId; }
+            public UUID getFamilyId() { return FAMILY; }
+            public Boolean getRevoked() { return revoked; }
+            public Boolean getUsed() { return used; }
+            public Boolean getActive() { return active; }
+            public String getUsername() { return "kate"; }
+            public Boolean getEnabled() { return true; }
+            public String getRoles() { return "ROLE_USER,ROLE_ADMIN"; }
+        };
+    }
+
+    @Test
+    @DisplayName("issue: в БД только HMAC токена, срок — refreshTtl, токен несёт id пользователя")
+    void issue_storesHashOnly() {
+        RefreshTokenService.Issued issued = service.issue(7L);
+        String token = issued.refreshToken();
+
+        assertThat(RefreshTokenService.userIdOf(token)).isEqualTo(7L);
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(repository).save(captor.capture());
+        RefreshToken saved = captor.getValue();
+        assertThat(saved.getTokenHash()).hasSize(64).doesNotContain(token);
+        assertThat(saved.getExpiresAt()).isEqualTo(LocalDateTime.ofInstant(NOW, ZoneOffset.UTC).plusDays(30));
+        assertThat(saved.isRevoked()).isFalse();
+        assertThat(saved.getFamilyId()).isEqualTo(issued.familyId());
+    }
+
+    @Test
+    @DisplayName("rotate: старый гасится, новый в той же цепочке, роли из БД")
+    void rotate_ok() {
+        String old = service.issue(7L).refreshToken();
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(repository).save(captor.capture());
+        String oldHash = captor.getValue().getTokenHash();
+        when(repository.findForRefresh(eq(oldHash), any())).thenReturn(Optional.of(view(7L, false, true, false)));
+        when(repository.markUsed(eq(100L), any())).thenReturn(1);
+
+        RefreshTokenService.Rotation r = service.rotate(7L, old);
+
+        assertThat(r.username()).isEqualTo("kate");
+        assertThat(r.roles()).containsExactlyInAnyOrder(Role.ROLE_USER, Role.ROLE_ADMIN);
+        assertThat(r.refreshToken()).isNotEqualTo(old).startsWith("7.");
+        verify(repository, times(2)).save(captor.capture());
+        assertThat(captor.getValue().getFamilyId()).isEqualTo(FAMILY);
+        assertThat(r.familyId()).isEqualTo(FAMILY);
+        verify(repository, never()).revokeFamily(any());
+    }
+
+    @Test
+    @DisplayName("rotate: повтор ротированного токена -> вся цепочка отзывается, 401")
+    void rotate_reuse_revokesFamily() {
+        when(repository.findForRefresh(anyString(), any())).thenReturn(Optional.of(view(7L, true, true, false)));
+
+        assertThatThrownBy(() -> service.rotate(7L, "7.stolen"))
+                .isInstanceOf(InvalidRefreshTokenException.class)
+                .hasMessageContaining("reuse");
+
+        verify(repository).revokeFamily(FAMILY);
+        verify(repository, never()).markUsed(any(), any());
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("rotate: параллельная ротация того же токена проигрывает -> цепочка отзывается")
+    void rotate_lostRace_revokesFamily() {
+        when(repository.findForRefresh(anyString(), any())).thenReturn(Optional.of(view(7L, false, true, false)));
+        when(repository.markUsed(eq(100L), any())).thenReturn(0);
+
+        assertThatThrownBy(() -> service.rotate(7L, "7.token"))
+                .isInstanceOf(InvalidRefreshTokenException.class);
+
+        verify(repository).revokeFamily(FAMILY);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("revokeFamily: после выхода refresh-токен цепочки больше не продлевает сессию")
+    void revokeFamily_thenRefreshRejected() {
+        service.revokeFamily(7L, FAMILY);
+        verify(repository).revokeFamily(FAMILY);
+
+        when(repository.findForRefresh(anyString(), any())).thenReturn(Optional.of(view(7L, false, true, true)));
+        assertThatThrownBy(() -> service.rotate(7L, "7.token"))
+                .isInstanceOf(InvalidRefreshTokenException.class)
+                .hasMessageContaining("revoked");
+        verify(repository, never()).markUsed(any(), any());
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("rotate: истёкший, отозванный, неизвестный или чужой токен -> 401 без ротации")
+    void rotate_rejected() {
+        when(repository.findForRefresh(anyString(), any()))
+                .thenReturn(Optional.of(view(7L, false, false, false)))
+                .thenReturn(Optional.of(view(7L, false, true, true)))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(view(8L, false, true, false)));
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> service.rotate(7L, "7.token"))
+                    .isInstanceOf(InvalidRefreshTokenException.class);
+        }
+
+        verify(repository, never()).markUsed(any(), any());
+        verify(repository, never()).revokeFamily(any());
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("userIdOf: разбор префикса, мусор -> null")
+    void userIdOf() {
+        assertThat(RefreshTokenService.userIdOf("42.abc")).isEqualTo(42L);
+        assertThat(RefreshTokenService.userIdOf("abc")).isNull();
+        assertThat(RefreshTokenService.userIdOf(".abc")).isNull();
+        assertThat(RefreshTokenService.userIdOf("x.abc")).isNull();
+        assertThat(RefreshTokenService.userIdOf(null)).isNull();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchedulerPacerTest {
+
+    private SchedulerPacer pacer() {
+        return new SchedulerPacer(100, 800, Duration.ofSeconds(10), Duration.ofSeconds(1), Duration.ofSeconds(60));
+    }
+
+    @Test
+    @DisplayName("Отставание: пачка растёт до maxBatch, пауза сжимается до minDelay")
+    void behind_growsToCaps() {
+        SchedulerPacer p = pacer();
+        SchedulerPacer.Step s = null;
+        for (int i = 0; i < 10; i++) s = p.next(10_000, 5_000);
+        assertThat(s.batchSize()).isEqualTo(800);
+        assertThat(s.delay()).isEqualTo(Duration.ofSeconds(1));
+    }
+
+    @Test
+    @DisplayName("Бэклог разобран: пауза возвращается к базе, пачка плавно уменьшается")
+    void drained_returnsToBase() {
+        SchedulerPacer p = pacer();
+        p.next(1_000, 900);
+        p.next(1_000, 700);
+        SchedulerPacer.Step s = p.next(300, 0);
+        assertThat(s.delay()).isEqualTo(Duration.ofSeconds(10));
+        assertThat(s.batchSize()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Простой: пауза удваивается до maxIdleDelay, пачка — базовая")
+    void idle_backsOffExponentially() {
+        SchedulerPacer p = pacer();
+        p.next(1_000, 500);
+        assertThat(p.next(0, 0)).isEqualTo(new SchedulerPacer.Step(100, Duration.ofSeconds(20)));
+        assertThat(p.next(0, 0).delay()).isEqualTo(Duration.ofSeconds(40));
+        assertThat(p.next(0, 0).delay()).isEqualTo(Duration.ofSeconds(60));
+        assertThat(p.next(0, 0).delay()).isEqualTo(Duration.ofSeconds(60));
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.ShardContext;
+import com.example.bankcards.config.properties.ShardingProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ShardRouterTest {
+
+    private static ShardRouter router(int shards) {
+        ShardingProperties props = new ShardingProperties();
+        props.setEnabled(shards > 1);
+        for (int i = 0; i < shards; i++) {
+            ShardingProperties.Shard s = new ShardingProperties.Shard();
+            s.setUrl("jdbc:postgresql://shard" + i + "/bank");
+            props.getShards().add(s);
+        }
+        return new ShardRouter(props, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    @DisplayName("Без шардирования: один шард, scatterGather — прямой вызов")
+    void disabled_passthrough() {
+        ShardRouter r = router(1);
+        Page<Long> page = new PageImpl<>(List.of(1L, 2L));
+
+        assertThat(r.isSharded()).isFalse();
+        assertThat(r.shards()).containsExactly(0);
+        assertThat(r.shardForId(42L)).isZero();
+        assertThat(r.scatterGather(PageRequest.of(0, 2), p -> page, Comparator.naturalOrder())).isSameAs(page);
+    }
+
+    @Test
+    @DisplayName("Шард по id совпадает с чередованием последовательностей: id ≡ shard+1 (mod N)")
+    void shardForId_interleaved() {
+        ShardRouter r = router(3);
+
+        assertThat(r.shardForId(1L)).isZero();
+        assertThat(r.shardForId(2L)).isEqualTo(1);
+        assertThat(r.shardForId(3L)).isEqualTo(2);
+        assertThat(r.shardForId(4L)).isZero();
+        assertThat(r.shardForId(3001L)).isZero();
+    }
+
+    @Test
+    @DisplayName("Шард по username не зависит от регистра и пробелов")
+    void shardForUsername_normalized() {
+        ShardRouter r = router(4);
+
+        assertThat(r.shardForUsername("  Alice@Mail.com ")).isEqualTo(r.shardForUsername("alice@mail.com"));
+        assertThat(r.shardForUsername("alice@mail.com")).isBetween(0, 3);
+    }
+
+    @Test
+    @DisplayName("scatterGather: запрос на каждом шарде, k-way merge и срез нужной страницы")
+    void scatterGather_mergesShards() {
+        ShardRouter r = router(2);
+        Map<Integer, List<Long>> data = Map.of(
+                0, List.of(9L, 7L, 5L, 3L, 1L),
+                1, List.of(10L, 8L, 6L, 4L, 2L)
+        );
+        List<Integer> visited = new ArrayList<>();
+        List<Pageable> requested = new ArrayList<>();
+
+        Page<Long> page = r.scatterGather(PageRequest.of(1, 3), p -> {
+            int shard = ShardContext.current();
+            visited.add(shard);
+            requested.add(p);
+            List<Long> rows = data.get(shard);
+            return new PageImpl<>(rows.subList(0, Math.min(p.getPageSize(), rows.size())), p, rows.size());
+        }, Comparator.<Long>reverseOrder());
+
+        assertThat(visited).containsExactly(0, 1);
+        assertThat(requested).allSatisfy(p -> {
+            assertThat(p.getPageNumber()).isZero();
+            assertThat(p.getPageSize()).isEqualTo(6);
+        });
+        assertThat(page.getContent()).containsExactly(7L, 6L, 5L);
+        assertThat(page.getTotalElements()).isEqualTo(10);
+        assertThat(page.getNumber()).isEqualTo(1);
+        assertThat(ShardContext.current()).isNull();
+    }
+
+    @Test
+    @DisplayName("merge: пустые источники и хвост меньше страницы")
+    void merge_edges() {
+        List<Long> out = ShardRouter.merge(
+                List.of(List.<Long>of().iterator(), List.of(3L, 1L).iterator(), List.of(2L).iterator()),
+                Comparator.<Long>reverseOrder(), 1, 5);
+
+        assertThat(out).containsExactly(2L, 1L);
+    }
+}
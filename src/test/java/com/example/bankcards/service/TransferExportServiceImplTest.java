@@ -0,0 +1,128 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.ShardContext;
+import com.example.bankcards.config.properties.ShardingProperties;
+import com.example.bankcards.config.properties.TransfersProperties;
+import com.example.bankcards.dto.ExportFormat;
+import com.example.bankcards.dto.TransferExportFilter;
+import com.example.bankcards.dto.TransferExportRow;
+import com.example.bankcards.entity.enums.TransferStatus;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.service.impl.TransferExportServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class TransferExportServiceImplTest {
+
+    @Mock TransferRepository transferRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final TransfersProperties props = new TransfersProperties(10, 100, 300, 2, null);
+    private final LocalDateTime T = LocalDateTime.of(2025, 8, 25, 3, 0);
+
+    private TransferExportServiceImpl service;
+
+    @BeforeEach
+    void setup() {
+        service = new TransferExportServiceImpl(props, transferRepository, objectMapper,
+                new ShardRouter(new ShardingProperties(), mock(PlatformTransactionManager.class)));
+    }
+
+    private TransferExportRow row(long id, String failureCode) {
+        return new TransferExportRow(id, 1L, 10L, 20L, 500L, TransferStatus.COMPLETED, T, null, T, failureCode);
+    }
+
+    @Test
+    @DisplayName("export: keyset-чанки по id, последний неполный чанк завершает выгрузку")
+    void export_keysetChunks() throws Exception {
+        when(transferRepository.findExportChunk(eq(Long.MAX_VALUE), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(row(9, null), row(7, null)));
+        when(transferRepository.findExportChunk(eq(7L), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(row(5, null)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(new TransferExportFilter(), ExportFormat.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(3);
+        assertThat(objectMapper.readTree(lines[0]).get("id").asLong()).isEqualTo(9);
+        assertThat(objectMapper.readTree(lines[2]).get("createdAt").asText()).isEqualTo("2025-08-25T03:00:00");
+        verify(transferRepository).findExportChunk(Long.MAX_VALUE, null, null, null, null, PageRequest.of(0, 2));
+        verify(transferRepository, times(2)).findExportChunk(anyLong(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("export: шардирование -> курсор на шард, общий поток по убыванию id")
+    void export_shardedMerge() throws Exception {
+        ShardingProperties sharding = new ShardingProperties();
+        sharding.setEnabled(true);
+        sharding.setShards(List.of(new ShardingProperties.Shard(), new ShardingProperties.Shard()));
+        service = new TransferExportServiceImpl(props, transferRepository, objectMapper,
+                new ShardRouter(sharding, mock(PlatformTransactionManager.class)));
+
+        // шард 0 — нечётные id, шард 1 — чётные
+        when(transferRepository.findExportChunk(anyLong(), any(), any(), any(), any(), any())).thenAnswer(inv -> {
+            long before = inv.getArgument(0);
+            List<Long> ids = ShardContext.current() == 0 ? List.of(9L, 7L, 5L, 3L, 1L) : List.of(8L, 6L, 4L);
+            return ids.stream().filter(id -> id < before).limit(2).map(id -> row(id, null)).toList();
+        });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(new TransferExportFilter(), ExportFormat.NDJSON, out);
+
+        List<Long> ids = out.toString(StandardCharsets.UTF_8).lines()
+                .map(l -> { try { return objectMapper.readTree(l).get("id").asLong(); } catch (Exception e) { throw new RuntimeException(e); } })
+                .toList();
+        assertThat(ids).containsExactly(9L, 8L, 7L, 6L, 5L, 4L, 3L, 1L);
+    }
+
+    @Test
+    @DisplayName("export: CSV — заголовок, фильтры уходят в запрос, экранирование текста")
+    void export_csv() throws Exception {
+        TransferExportFilter f = TransferExportFilter.builder()
+                .status(TransferStatus.FAILED).cardId(10L).from(T.minusDays(1)).to(T.plusDays(1))
+                .build();
+        when(transferRepository.findExportChunk(anyLong(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(row(3, "A,\"B\"")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(f, ExportFormat.CSV, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "id,initiatorId,fromCardId,toCardId,amount,status,createdAt,expiresAt,executedAt,failureCode\n"
+                        + "3,1,10,20,500,COMPLETED,2025-08-25T03:00:00,,2025-08-25T03:00:00,\"A,\"\"B\"\"\"\n");
+        verify(transferRepository).findExportChunk(Long.MAX_VALUE, TransferStatus.FAILED, 10L,
+                T.minusDays(1), T.plusDays(1), PageRequest.of(0, 2));
+    }
+
+    @Test
+    @DisplayName("validate: from >= to -> BadRequest")
+    void validate_badPeriod() {
+        TransferExportFilter f = TransferExportFilter.builder().from(T).to(T).build();
+        assertThatThrownBy(() -> service.validate(f)).isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(transferRepository);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.properties.TransferJournalProperties;
+import com.example.bankcards.entity.enums.TransferStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TransferJournalTest {
+
+    @TempDir Path dir;
+
+    private final LocalDateTime NOW = LocalDateTime.of(2025, 8, 25, 3, 0, 0, 123_456_000);
+
+    private TransferJournal open() throws IOException {
+        TransferJournalProperties props = new TransferJournalProperties();
+        props.setEnabled(true);
+        props.setDirectory(dir.toString());
+        props.setSegmentSize(DataSize.ofBytes(3 * TransferJournal.RECORD_SIZE));
+        TransferJournal j = new TransferJournal(props, mock(TaskScheduler.class));
+        j.init();
+        return j;
+    }
+
+    private TransferJournal.Entry entry(long transferId) {
+        return new TransferJournal.Entry(0, transferId, 10L, 1L, 2L, 100L * transferId,
+                TransferStatus.COMPLETED, NOW, NOW.plusSeconds(1));
+    }
+
+    private List<TransferJournal.Entry> readAll(TransferJournal j, long from) {
+        List<TransferJournal.Entry> out = new ArrayList<>();
+        j.replay(from, out::add);
+        return out;
+    }
+
+    @Test
+    @DisplayName("Запись и чтение через границу сегментов, сквозная нумерация")
+    void appendAndReplay_acrossSegments() throws IOException {
+        TransferJournal j = open();
+        for (long id = 1; id <= 7; id++) {
+            assertThat(j.append(entry(id))).isEqualTo(id - 1);
+        }
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files.count()).isEqualTo(3);
+        }
+        List<TransferJournal.Entry> all = readAll(j, 0);
+        assertThat(all).extracting(TransferJournal.Entry::transferId).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L);
+        TransferJournal.Entry e = all.get(4);
+        assertThat(e.sequence()).isEqualTo(4);
+        assertThat(e.amount()).isEqualTo(500L);
+        assertThat(e.status()).isEqualTo(TransferStatus.COMPLETED);
+        assertThat(e.createdAt()).isEqualTo(NOW);
+        assertThat(e.executedAt()).isEqualTo(NOW.plusSeconds(1));
+
+        assertThat(readAll(j, 5)).extracting(TransferJournal.Entry::sequence).containsExactly(5L, 6L);
+        assertThat(j.replay(7, x -> {})).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("Переоткрытие: оборванный хвост отбрасывается, запись продолжается с него")
+    void reopen_skipsTornTail() throws IOException {
+        TransferJournal j = open();
+        j.append(entry(1));
+        j.append(entry(2));
+        j.force();
+
+        Path segment = dir.resolve(String.format("transfers-%020d.journal", 0));
+        try (RandomAccessFile f = new RandomAccessFile(segment.toFile(), "rw")) {
+            f.seek(TransferJournal.RECORD_SIZE + 10);
+            f.write(0x7F);
+        }
+
+        TransferJournal reopened = open();
+        assertThat(reopened.nextSequence()).isEqualTo(1);
+        assertThat(reopened.append(entry(3))).isEqualTo(1);
+        assertThat(readAll(reopened, 0)).extracting(TransferJournal.Entry::transferId).containsExactly(1L, 3L);
+    }
+
+    @Test
+    @DisplayName("Выключенный журнал: запись после коммита и чтение — no-op")
+    void disabled_noop() {
+        TransferJournal j = new TransferJournal(new TransferJournalProperties(), mock(TaskScheduler.class));
+        j.recordAfterCommit(1L, 10L, 1L, 2L, 100L, TransferStatus.COMPLETED, NOW, NOW);
+
+        assertThat(j.isEnabled()).isFalse();
+        assertThat(j.replay(0, x -> {})).isZero();
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.config.properties.ShardingProperties;
+import com.example.bankcards.config.properties.TransfersProperties;
 import com.example.bankcards.config.properties.TransfersSchedulerProperties;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.entity.enums.TransferStatus;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransferRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.LockModeType;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,16 +21,20 @@ import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.lang.reflect.Method;
 import java.time.*;
 import java.time.YearMonth;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ScheduledFuture;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -41,6 +49,15 @@ class TransferSchedulerTest {
     @Mock TransferRepository transferRepository;
     @Mock CardRepository cardRepository;
     @Mock EntityManager entityManager;
+    @Mock CardListingCache cardListingCache;
+    @Mock BalanceSummaryUpdater balanceSummaryUpdater;
+    @Mock TransfersProperties transfersProps;
+    @Mock TxRetryExecutor txRetryExecutor;
+    @Mock TransactionTemplate transactionTemplate;
+    @Spy ShardRouter shardRouter = new ShardRouter(new ShardingProperties(), mock(PlatformTransactionManager.class));
+    @Spy SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Mock TransferJournal transferJournal;
+    @Mock AuditTrail auditTrail;
     @Mock Clock clock;
     @Mock TaskScheduler taskScheduler;
 
@@ -54,11 +71,18 @@ class TransferSchedulerTest {
     void time() {
         when(clock.instant()).thenReturn(fixedClock.instant());
         when(clock.getZone()).thenReturn(fixedClock.getZone());
+        when(txRetryExecutor.execute(anyString(), any()))
+                .thenAnswer(inv -> ((Supplier<?>) inv.getArgument(1)).get());
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
     }
 
     private static Card card(long id, CardStatus status, YearMonth expiry, long balance) {
+        User owner = new User();
+        owner.setId(1L);
         Card c = new Card();
         c.setId(id);
+        c.setUser(owner);
         c.setStatus(status);
         c.setExpiry(expiry);
         c.setBalance(balance);
@@ -120,6 +144,29 @@ class TransferSchedulerTest {
         verify(cardRepository).save(from);
         verify(cardRepository).save(to);
         verify(transferRepository).save(t);
+        verify(transferJournal).recordAfterCommit(t);
+        verify(balanceSummaryUpdater).onTransferExecuted(from, to, 300);
+    }
+
+    @Test
+    @DisplayName("processSingle: OPTIMISTIC -> перевод и карты читаются без блокировок")
+    void processSingle_execute_optimistic_noLocks() {
+        when(props.getMode()).thenReturn(TransfersSchedulerProperties.Mode.EXECUTE);
+        when(transfersProps.getEngine()).thenReturn(TransfersProperties.Engine.OPTIMISTIC);
+
+        Card from = card(1L, CardStatus.ACTIVE, NOW_YM.plusMonths(1), 1_000);
+        Card to   = card(2L, CardStatus.ACTIVE, NOW_YM.plusMonths(1),   100);
+        Transfer t = transfer(13L, from, to, 300, TransferStatus.PENDING, NOW.minusSeconds(1));
+
+        when(entityManager.find(Transfer.class, 13L)).thenReturn(t);
+        when(entityManager.find(Card.class, 1L)).thenReturn(from);
+        when(entityManager.find(Card.class, 2L)).thenReturn(to);
+
+        scheduler.processSingle(13L);
+
+        assertThat(t.getStatus()).isEqualTo(TransferStatus.COMPLETED);
+        assertThat(from.getBalance()).isEqualTo(700);
+        verify(entityManager, never()).find(any(), any(), any(LockModeType.class));
     }
 
     @Test
@@ -140,6 +187,7 @@ class TransferSchedulerTest {
         assertThat(t.getStatus()).isEqualTo(TransferStatus.FAILED);
         assertThat(t.getFailureCode()).isEqualTo("INSUFFICIENT_FUNDS");
         verify(cardRepository, never()).save(any());
+        verifyNoInteractions(balanceSummaryUpdater);
         verify(transferRepository).save(t);
     }
 
@@ -230,16 +278,7 @@ class TransferSchedulerTest {
     void processBatch_ok() {
         when(props.getBatchSize()).thenReturn(5);
 
-        Transfer t = new Transfer(); t.setId(100L);
-        var page = new PageImpl<>(
-                List.of(t),
-                PageRequest.of(0, 5, Sort.by(Sort.Direction.ASC, "id")),
-                1
-        );
-
-        when(transferRepository.findByStatusAndExpiresAtBefore(
-                eq(TransferStatus.PENDING), eq(NOW), any(PageRequest.class)))
-                .thenReturn(page);
+        when(transferRepository.findDueIds(eq(NOW), any(PageRequest.class))).thenReturn(List.of(100L));
 
         TransferScheduler spy = Mockito.spy(scheduler);
         doNothing().when(spy).processSingle(100L);
@@ -249,13 +288,14 @@ class TransferSchedulerTest {
         assertThat(processed).isEqualTo(1);
 
         ArgumentCaptor<PageRequest> pr = ArgumentCaptor.forClass(PageRequest.class);
-        verify(transferRepository).findByStatusAndExpiresAtBefore(eq(TransferStatus.PENDING), eq(NOW), pr.capture());
+        verify(transferRepository).findDueIds(eq(NOW), pr.capture());
         PageRequest used = pr.getValue();
         assertThat(used.getPageNumber()).isEqualTo(0);
         assertThat(used.getPageSize()).isEqualTo(5); // max(1, batchSize)
         assertThat(used.getSort()).isEqualTo(Sort.by(Sort.Direction.ASC, "id"));
 
         verify(spy).processSingle(100L);
+        verify(txRetryExecutor).execute(eq("transfers.scheduler"), any());
     }
 
     @Test
@@ -263,13 +303,7 @@ class TransferSchedulerTest {
     void processBatch_partialFailures() {
         when(props.getBatchSize()).thenReturn(3);
 
-        Transfer t1 = new Transfer(); t1.setId(1L);
-        Transfer t2 = new Transfer(); t2.setId(2L);
-        Transfer t3 = new Transfer(); t3.setId(3L);
-
-        var page = new PageImpl<>(List.of(t1, t2, t3));
-        when(transferRepository.findByStatusAndExpiresAtBefore(eq(TransferStatus.PENDING), eq(NOW), any(PageRequest.class)))
-                .thenReturn(page);
+        when(transferRepository.findDueIds(eq(NOW), any(PageRequest.class))).thenReturn(List.of(1L, 2L, 3L));
 
         TransferScheduler spy = Mockito.spy(scheduler);
         doNothing().when(spy).processSingle(1L);
@@ -278,6 +312,99 @@ class TransferSchedulerTest {
 
         int processed = callProcessBatch(spy);
         assertThat(processed).isEqualTo(2);
+        verify(spy).recordFailure(eq(2L), any(RuntimeException.class));
+        verify(spy, never()).recordFailure(eq(1L), any());
+    }
+
+    @Test
+    @DisplayName("processBatch: chunkSize -> один коммит на чанк, остаток отдельным чанком")
+    void processBatch_chunks() {
+        when(props.getBatchSize()).thenReturn(5);
+        when(props.getChunkSize()).thenReturn(3);
+        when(transferRepository.findDueIds(eq(NOW), any(PageRequest.class))).thenReturn(List.of(1L, 2L, 3L, 4L, 5L));
+
+        TransferScheduler spy = Mockito.spy(scheduler);
+        doNothing().when(spy).processSingle(anyLong());
+
+        assertThat(callProcessBatch(spy)).isEqualTo(5);
+
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(txRetryExecutor, times(2)).execute(eq("transfers.scheduler"), any());
+        verify(spy, times(5)).processSingle(anyLong());
+        verify(spy, never()).recordFailure(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("processBatch: сбой внутри чанка -> откат и переигрывание по одной строке, сбойная в recordFailure")
+    void processBatch_chunkFailure_fallsBackToSingleRows() {
+        when(props.getBatchSize()).thenReturn(3);
+        when(props.getChunkSize()).thenReturn(3);
+        when(transferRepository.findDueIds(eq(NOW), any(PageRequest.class))).thenReturn(List.of(1L, 2L, 3L));
+
+        TransferScheduler spy = Mockito.spy(scheduler);
+        doNothing().when(spy).processSingle(1L);
+        doThrow(new RuntimeException("boom")).when(spy).processSingle(2L);
+        doNothing().when(spy).processSingle(3L);
+
+        assertThat(callProcessBatch(spy)).isEqualTo(2);
+
+        // 1 транзакция чанка + 3 однострочных
+        verify(transactionTemplate, times(4)).execute(any());
+        verify(spy, times(2)).processSingle(1L);
+        verify(spy, times(1)).processSingle(3L);
+        verify(spy).recordFailure(eq(2L), any(RuntimeException.class));
+        verify(spy, never()).recordFailure(eq(1L), any());
+        verify(spy, never()).recordFailure(eq(3L), any());
+    }
+
+    private void retryProps() {
+        when(props.getMaxAttempts()).thenReturn(3);
+        when(props.getRetryBackoff()).thenReturn(Duration.ofSeconds(30));
+        when(props.getMaxRetryBackoff()).thenReturn(Duration.ofMinutes(1));
+    }
+
+    @Test
+    @DisplayName("recordFailure: до лимита -> PENDING с экспоненциальным nextAttemptAt (с потолком)")
+    void recordFailure_backsOffExponentially() {
+        retryProps();
+        when(transferRepository.findAttemptCount(7L, TransferStatus.PENDING)).thenReturn(Optional.of(0), Optional.of(1));
+        when(transferRepository.recordFailedAttempt(anyLong(), anyInt(), any(), any(), anyString(), anyString())).thenReturn(1);
+
+        scheduler.recordFailure(7L, new IllegalStateException("boom"));
+        scheduler.recordFailure(7L, new IllegalStateException("boom"));
+
+        verify(transferRepository).recordFailedAttempt(7L, 0, TransferStatus.PENDING, NOW.plusSeconds(30),
+                "SCHEDULER_ERROR", "IllegalStateException: boom");
+        verify(transferRepository).recordFailedAttempt(7L, 1, TransferStatus.PENDING, NOW.plusSeconds(60),
+                "SCHEDULER_ERROR", "IllegalStateException: boom");
+        assertThat(meterRegistry.get("transfers.scheduler.failures").tag("outcome", "retry").counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("recordFailure: последняя попытка -> QUARANTINED без nextAttemptAt")
+    void recordFailure_quarantinesAfterMaxAttempts() {
+        retryProps();
+        when(transferRepository.findAttemptCount(7L, TransferStatus.PENDING)).thenReturn(Optional.of(2));
+        when(transferRepository.recordFailedAttempt(anyLong(), anyInt(), any(), any(), anyString(), anyString())).thenReturn(1);
+
+        scheduler.recordFailure(7L, new RuntimeException("x".repeat(300)));
+
+        ArgumentCaptor<String> msg = ArgumentCaptor.forClass(String.class);
+        verify(transferRepository).recordFailedAttempt(eq(7L), eq(2), eq(TransferStatus.QUARANTINED), isNull(),
+                eq("SCHEDULER_ERROR"), msg.capture());
+        assertThat(msg.getValue()).hasSize(255);
+        assertThat(meterRegistry.get("transfers.scheduler.failures").tag("outcome", "quarantined").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("recordFailure: перевод уже не PENDING -> ничего не пишет; ошибка БД не пробрасывается")
+    void recordFailure_skipsAndSwallows() {
+        when(transferRepository.findAttemptCount(8L, TransferStatus.PENDING)).thenReturn(Optional.empty());
+        scheduler.recordFailure(8L, new RuntimeException("boom"));
+        verify(transferRepository, never()).recordFailedAttempt(anyLong(), anyInt(), any(), any(), anyString(), anyString());
+
+        when(transferRepository.findAttemptCount(9L, TransferStatus.PENDING)).thenThrow(new RuntimeException("db down"));
+        assertDoesNotThrow(() -> scheduler.recordFailure(9L, new RuntimeException("boom")));
     }
 
     @Test
@@ -335,4 +462,66 @@ class TransferSchedulerTest {
         verify(f).cancel(false);
     }
 
+    private void adaptiveProps() {
+        when(props.isEnabled()).thenReturn(true);
+        when(props.isAdaptive()).thenReturn(true);
+        when(props.getFixedDelay()).thenReturn(Duration.ofSeconds(10));
+        when(props.getBatchSize()).thenReturn(5);
+        when(props.getMaxBatchSize()).thenReturn(40);
+        when(props.getMinDelay()).thenReturn(Duration.ofSeconds(1));
+        when(props.getMaxIdleDelay()).thenReturn(Duration.ofSeconds(60));
+    }
+
+    private static TransferRepository.DueBacklog backlog(long count, LocalDateTime oldest) {
+        TransferRepository.DueBacklog b = mock(TransferRepository.DueBacklog.class);
+        when(b.getDueCount()).thenReturn(count);
+        when(b.getOldestDue()).thenReturn(oldest);
+        return b;
+    }
+
+    @Test
+    @DisplayName("init: adaptive -> разовое планирование через schedule(Instant), без fixedDelay")
+    void init_adaptiveSchedulesOnce() {
+        adaptiveProps();
+
+        scheduler.init();
+
+        verify(taskScheduler).schedule(any(Runnable.class), eq(fixedClock.instant().plusSeconds(10)));
+        verify(taskScheduler, never()).scheduleWithFixedDelay(any(Runnable.class), any(Duration.class));
+    }
+
+    @Test
+    @DisplayName("runAdaptive: бэклог больше пачки -> пачка x2, пауза /2, gauge лага и бэклога")
+    void runAdaptive_behind_growsBatch() {
+        adaptiveProps();
+        scheduler.init();
+        when(transferRepository.findDueBacklog(NOW)).thenReturn(backlog(12, NOW.minusSeconds(30)));
+
+        TransferScheduler spy = Mockito.spy(scheduler);
+        doReturn(5).when(spy).processBatch();
+
+        Duration next = spy.runAdaptive();
+
+        assertThat(next).isEqualTo(Duration.ofSeconds(5));
+        assertThat(meterRegistry.get("transfers.scheduler.lag.seconds").gauge().value()).isEqualTo(30.0);
+        assertThat(meterRegistry.get("transfers.scheduler.backlog").gauge().value()).isEqualTo(12.0);
+        assertThat(meterRegistry.get("transfers.scheduler.batch.size").gauge().value()).isEqualTo(10.0);
+    }
+
+    @Test
+    @DisplayName("runAdaptive: пусто -> processBatch не вызывается, пауза растёт экспоненциально")
+    void runAdaptive_idle_backsOff() {
+        adaptiveProps();
+        scheduler.init();
+        when(transferRepository.findDueBacklog(NOW)).thenReturn(backlog(0, null));
+
+        TransferScheduler spy = Mockito.spy(scheduler);
+
+        assertThat(spy.runAdaptive()).isEqualTo(Duration.ofSeconds(20));
+        assertThat(spy.runAdaptive()).isEqualTo(Duration.ofSeconds(40));
+        assertThat(spy.runAdaptive()).isEqualTo(Duration.ofSeconds(60));
+        verify(spy, never()).processBatch();
+        assertThat(meterRegistry.get("transfers.scheduler.lag.seconds").gauge().value()).isZero();
+    }
+
 }
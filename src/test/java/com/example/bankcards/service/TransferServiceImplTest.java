@@ -1,5 +1,6 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.config.properties.ShardingProperties;
 import com.example.bankcards.config.properties.TransfersProperties;
 import com.example.bankcards.dto.PageDto;
 import com.example.bankcards.dto.TransferDto;
@@ -22,12 +23,13 @@ import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.*;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
@@ -42,6 +44,12 @@ class TransferServiceImplTest {
     @Mock CardRepository cardRepository;
     @Mock UserRepository userRepository;
     @Mock EntityManager entityManager;
+    @Mock CardListingCache cardListingCache;
+    @Mock BalanceSummaryUpdater balanceSummaryUpdater;
+    @Spy ShardRouter shardRouter = new ShardRouter(new ShardingProperties(), mock(PlatformTransactionManager.class));
+    @Mock LedgerStore ledgerStore;
+    @Mock TransferJournal transferJournal;
+    @Mock AuditTrail auditTrail;
     @Mock Clock clock;
 
     @InjectMocks
@@ -77,27 +85,15 @@ class TransferServiceImplTest {
         return c;
     }
 
-    private static TransferRequest req(Long fromId, Long toId, long amount, Integer ttl, String idem) {
+    private static TransferRequest req(Long fromId, Long toId, long amount, Integer ttl) {
         TransferRequest r = new TransferRequest();
         r.setFromCardId(fromId);
         r.setToCardId(toId);
         r.setAmount(amount);
         r.setTtlSeconds(ttl);
-        r.setIdempotencyKey(idem);
         return r;
     }
 
-    private static Transfer transfer(Long id, User initiator, Card from, Card to, long amount, TransferStatus status) {
-        Transfer t = new Transfer();
-        t.setId(id);
-        t.setInitiator(initiator);
-        t.setFromCard(from);
-        t.setToCard(to);
-        t.setAmount(amount);
-        t.setStatus(status);
-        return t;
-    }
-
     @Test
     @DisplayName("initiate: мгновенное исполнение (ttl null/0) -> COMPLETED, списание/зачисление, save transfer+cards")
     void initiate_immediateExecution() {
@@ -120,7 +116,7 @@ class TransferServiceImplTest {
         try (MockedStatic<TransferMapper> tm = Mockito.mockStatic(TransferMapper.class)) {
             tm.when(() -> TransferMapper.toDto(any(Transfer.class))).thenReturn(dto);
 
-            TransferDto out = service.initiate(me, req(1L, 2L, 300, null, null));
+            TransferDto out = service.initiate(me, req(1L, 2L, 300, null));
             assertThat(out).isSameAs(dto);
 
             assertThat(from.getBalance()).isEqualTo(1_000 - 300);
@@ -132,6 +128,7 @@ class TransferServiceImplTest {
             assertThat(persisted.getStatus()).isEqualTo(TransferStatus.COMPLETED);
             assertThat(persisted.getExecutedAt()).isEqualTo(NOW);
             assertThat(persisted.getExpiresAt()).isNull();
+            verify(transferJournal).recordAfterCommit(persisted);
 
             verify(cardRepository).save(from);
             verify(cardRepository).save(to);
@@ -152,7 +149,7 @@ class TransferServiceImplTest {
         try (MockedStatic<TransferMapper> tm = Mockito.mockStatic(TransferMapper.class)) {
             tm.when(() -> TransferMapper.toDto(any(Transfer.class))).thenReturn(new TransferDto());
 
-            service.initiate(me, req(3L, 4L, 200, 3600, null));
+            service.initiate(me, req(3L, 4L, 200, 3600));
 
             ArgumentCaptor<Transfer> tCap = ArgumentCaptor.forClass(Transfer.class);
             verify(transferRepository).save(tCap.capture());
@@ -165,76 +162,6 @@ class TransferServiceImplTest {
         }
     }
 
-    @Test
-    @DisplayName("initiate: повтор по idemKey с теми же параметрами -> вернуть найденный перевод")
-    void initiate_idempotentSame() {
-        Long me = 12L;
-        when(userRepository.findById(me)).thenReturn(Optional.of(user(me)));
-
-        Card from = card(5L, me, 1_000, CardStatus.ACTIVE, YearMonth.from(NOW.plusYears(1)), "5555");
-        Card to   = card(6L, me,   200, CardStatus.ACTIVE, YearMonth.from(NOW.plusYears(1)), "6666");
-
-        Transfer existed = transfer(100L, user(me), from, to, 150, TransferStatus.PENDING);
-        when(transferRepository.findByInitiator_IdAndIdempotencyKey(me, "idem-1"))
-                .thenReturn(Optional.of(existed));
-
-        TransferDto dto = new TransferDto();
-        try (MockedStatic<TransferMapper> tm = Mockito.mockStatic(TransferMapper.class)) {
-            tm.when(() -> TransferMapper.toDto(existed)).thenReturn(dto);
-
-            TransferDto out = service.initiate(me, req(5L, 6L, 150, 60, "idem-1"));
-            assertThat(out).isSameAs(dto);
-
-            verifyNoInteractions(entityManager);
-            verifyNoMoreInteractions(transferRepository);
-        }
-    }
-
-    @Test
-    @DisplayName("initiate: idemKey конфликт по параметрам -> IdempotencyConflictException")
-    void initiate_idempotentConflict() {
-        Long me = 13L;
-        when(userRepository.findById(me)).thenReturn(Optional.of(user(me)));
-
-        Card from = card(7L, me, 1000, CardStatus.ACTIVE, YearMonth.from(NOW.plusYears(1)), "7777");
-        Card to   = card(8L, me,  200, CardStatus.ACTIVE, YearMonth.from(NOW.plusYears(1)), "8888");
-
-        Transfer existed = transfer(101L, user(me), from, to, 999, TransferStatus.PENDING);
-        when(transferRepository.findByInitiator_IdAndIdempotencyKey(me, "dup"))
-                .thenReturn(Optional.of(existed));
-
-        assertThatThrownBy(() -> service.initiate(me, req(7L, 8L, 150, 60, "dup")))
-                .isInstanceOf(IdempotencyConflictException.class);
-    }
-
-    @Test
-    @DisplayName("initiate: гонка по idemKey (save кидает DataIntegrityViolation) -> подобрать существующий")
-    void initiate_idempotencyRace() {
-        Long me = 14L;
-        when(userRepository.findById(me)).thenReturn(Optional.of(user(me)));
-
-        Card from = card(9L, me, 1000, CardStatus.ACTIVE, YearMonth.from(NOW.plusYears(1)), "9999");
-        Card to   = card(10L, me, 500, CardStatus.ACTIVE, YearMonth.from(NOW.plusYears(1)), "0000");
-        when(entityManager.find(Card.class, 9L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(from);
-        when(entityManager.find(Card.class, 10L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(to);
-
-        when(transferRepository.save(any(Transfer.class)))
-                .thenThrow(new DataIntegrityViolationException("dup"));
-
-        Transfer existed = transfer(202L, user(me), from, to, 250, TransferStatus.PENDING);
-
-        when(transferRepository.findByInitiator_IdAndIdempotencyKey(me, "race"))
-                .thenReturn(Optional.empty(), Optional.of(existed));
-
-        try (MockedStatic<TransferMapper> tm = Mockito.mockStatic(TransferMapper.class)) {
-            TransferDto dto = new TransferDto();
-            tm.when(() -> TransferMapper.toDto(existed)).thenReturn(dto);
-
-            TransferDto out = service.initiate(me, req(9L, 10L, 250, 120, "race"));
-            assertThat(out).isSameAs(dto);
-        }
-    }
-
     @Test
     @DisplayName("initiate: разные owners карт -> OwnershipViolationException")
     void initiate_differentOwners() {
@@ -246,7 +173,7 @@ class TransferServiceImplTest {
         when(entityManager.find(Card.class, 11L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(a);
         when(entityManager.find(Card.class, 12L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(b);
 
-        assertThatThrownBy(() -> service.initiate(me, req(11L, 12L, 10, 0, null)))
+        assertThatThrownBy(() -> service.initiate(me, req(11L, 12L, 10, 0)))
                 .isInstanceOf(OwnershipViolationException.class);
     }
 
@@ -261,7 +188,7 @@ class TransferServiceImplTest {
         when(entityManager.find(Card.class, 13L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(a);
         when(entityManager.find(Card.class, 14L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(b);
 
-        assertThatThrownBy(() -> service.initiate(me, req(13L, 14L, 10, 0, null)))
+        assertThatThrownBy(() -> service.initiate(me, req(13L, 14L, 10, 0)))
                 .isInstanceOf(OwnershipViolationException.class);
     }
 
@@ -276,7 +203,7 @@ class TransferServiceImplTest {
         when(entityManager.find(Card.class, 15L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(a);
         when(entityManager.find(Card.class, 16L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(b);
 
-        assertThatThrownBy(() -> service.initiate(me, req(15L, 16L, 10, 0, null)))
+        assertThatThrownBy(() -> service.initiate(me, req(15L, 16L, 10, 0)))
                 .isInstanceOf(InvalidCardStateException.class);
     }
 
@@ -291,7 +218,7 @@ class TransferServiceImplTest {
         when(entityManager.find(Card.class, 17L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(a);
         when(entityManager.find(Card.class, 18L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(b);
 
-        assertThatThrownBy(() -> service.initiate(me, req(17L, 18L, 10, 0, null)))
+        assertThatThrownBy(() -> service.initiate(me, req(17L, 18L, 10, 0)))
                 .isInstanceOf(CardExpiredException.class);
     }
 
@@ -306,7 +233,7 @@ class TransferServiceImplTest {
         when(entityManager.find(Card.class, 19L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(a);
         when(entityManager.find(Card.class, 20L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(b);
 
-        assertThatThrownBy(() -> service.initiate(me, req(19L, 20L, 10, 0, null)))
+        assertThatThrownBy(() -> service.initiate(me, req(19L, 20L, 10, 0)))
                 .isInstanceOf(InsufficientFundsException.class);
     }
 
@@ -318,7 +245,7 @@ class TransferServiceImplTest {
         Card a = card(21L, me, 100, CardStatus.ACTIVE, YearMonth.from(NOW.plusMonths(1)), "1111");
         when(entityManager.find(Card.class, 21L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(a);
 
-        assertThatThrownBy(() -> service.initiate(me, req(21L, 21L, 1, 0, null)))
+        assertThatThrownBy(() -> service.initiate(me, req(21L, 21L, 1, 0)))
                 .isInstanceOf(BadRequestException.class);
     }
 
@@ -329,7 +256,7 @@ class TransferServiceImplTest {
         when(userRepository.findById(me)).thenReturn(Optional.of(user(me)));
         when(entityManager.find(Card.class, 30L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(null);
 
-        assertThatThrownBy(() -> service.initiate(me, req(30L, 31L, 1, 0, null)))
+        assertThatThrownBy(() -> service.initiate(me, req(30L, 31L, 1, 0)))
                 .isInstanceOf(CardNotFoundException.class);
     }
 
@@ -338,17 +265,17 @@ class TransferServiceImplTest {
     void initiate_requestValidation() {
         assertThatThrownBy(() -> service.initiate(1L, null))
                 .isInstanceOf(BadRequestException.class);
-        assertThatThrownBy(() -> service.initiate(1L, req(null, 2L, 1, 0, null)))
+        assertThatThrownBy(() -> service.initiate(1L, req(null, 2L, 1, 0)))
                 .isInstanceOf(BadRequestException.class);
-        assertThatThrownBy(() -> service.initiate(1L, req(1L, null, 1, 0, null)))
+        assertThatThrownBy(() -> service.initiate(1L, req(1L, null, 1, 0)))
                 .isInstanceOf(BadRequestException.class);
-        assertThatThrownBy(() -> service.initiate(1L, req(1L, 2L, 0, 0, null)))
+        assertThatThrownBy(() -> service.initiate(1L, req(1L, 2L, 0, 0)))
                 .isInstanceOf(BadRequestException.class);
-        assertThatThrownBy(() -> service.initiate(1L, req(1L, 2L, 1, -1, null)))
+        assertThatThrownBy(() -> service.initiate(1L, req(1L, 2L, 1, -1)))
                 .isInstanceOf(BadRequestException.class);
 
         when(props.getMaxTtlSeconds()).thenReturn(60);
-        assertThatThrownBy(() -> service.initiate(1L, req(1L, 2L, 1, 61, null)))
+        assertThatThrownBy(() -> service.initiate(1L, req(1L, 2L, 1, 61)))
                 .isInstanceOf(BadRequestException.class);
     }
 
@@ -356,10 +283,130 @@ class TransferServiceImplTest {
     @DisplayName("initiate: инициатор не найден -> UserNotFoundException")
     void initiate_initiatorNotFound() {
         when(userRepository.findById(999L)).thenReturn(Optional.empty());
-        assertThatThrownBy(() -> service.initiate(999L, req(1L, 2L, 1, 0, null)))
+        assertThatThrownBy(() -> service.initiate(999L, req(1L, 2L, 1, 0)))
                 .isInstanceOf(UserNotFoundException.class);
     }
 
+    @Test
+    @DisplayName("initiate CONDITIONAL_UPDATE: один запрос, DTO из результата, без блокировок и save")
+    void initiate_conditional_ok() {
+        Long me = 10L;
+        when(props.getEngine()).thenReturn(TransfersProperties.Engine.CONDITIONAL_UPDATE);
+        when(userRepository.findById(me)).thenReturn(Optional.of(user(me)));
+        when(ledgerStore.transferImmediate(me, 1L, 2L, 300L, NOW))
+                .thenReturn(Optional.of(new LedgerStore.Receipt(501L, "1111", "2222")));
+
+        TransferDto out = service.initiate(me, req(1L, 2L, 300, null));
+
+        assertThat(out.getId()).isEqualTo(501L);
+        assertThat(out.getStatus()).isEqualTo(TransferStatus.COMPLETED);
+        assertThat(out.getFromLast4()).isEqualTo("1111");
+        assertThat(out.getExecutedAt()).isEqualTo(NOW);
+        verify(cardListingCache).invalidate(me);
+        verify(transferJournal).recordAfterCommit(501L, me, 1L, 2L, 300L, TransferStatus.COMPLETED, NOW, NOW);
+        verify(entityManager, never()).find(eq(Card.class), any(), any(LockModeType.class));
+        verify(transferRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("initiate IN_MEMORY: без чтения пользователя и блокировок в БД, через LedgerStore")
+    void initiate_inMemory_ok() {
+        Long me = 10L;
+        when(props.getEngine()).thenReturn(TransfersProperties.Engine.IN_MEMORY);
+        when(ledgerStore.transferImmediate(me, 1L, 2L, 300L, NOW))
+                .thenReturn(Optional.of(new LedgerStore.Receipt(777L, "1111", "2222")));
+
+        TransferDto out = service.initiate(me, req(1L, 2L, 300, null));
+
+        assertThat(out.getId()).isEqualTo(777L);
+        assertThat(out.getStatus()).isEqualTo(TransferStatus.COMPLETED);
+        verifyNoInteractions(userRepository, entityManager);
+        verify(transferRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("initiate IN_MEMORY: отложенный перевод -> BadRequest")
+    void initiate_inMemory_unsupported() {
+        when(props.getEngine()).thenReturn(TransfersProperties.Engine.IN_MEMORY);
+        when(props.getMaxTtlSeconds()).thenReturn(300);
+
+        assertThatThrownBy(() -> service.initiate(10L, req(1L, 2L, 300, 60)))
+                .isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(ledgerStore);
+    }
+
+    @Test
+    @DisplayName("initiate CONDITIONAL_UPDATE: 0 строк -> перепроверка карт, InsufficientFunds")
+    void initiate_conditional_rejected_insufficientFunds() {
+        Long me = 10L;
+        when(props.getEngine()).thenReturn(TransfersProperties.Engine.CONDITIONAL_UPDATE);
+        when(userRepository.findById(me)).thenReturn(Optional.of(user(me)));
+        when(ledgerStore.transferImmediate(anyLong(), anyLong(), anyLong(), anyLong(), any())).thenReturn(Optional.empty());
+        Card from = card(1L, me, 100, CardStatus.ACTIVE, YearMonth.from(NOW.plusMonths(1)), "1111");
+        Card to   = card(2L, me,   0, CardStatus.ACTIVE, YearMonth.from(NOW.plusMonths(1)), "2222");
+        when(entityManager.find(eq(Card.class), eq(1L), anyMap())).thenReturn(from);
+        when(entityManager.find(eq(Card.class), eq(2L), anyMap())).thenReturn(to);
+
+        assertThatThrownBy(() -> service.initiate(me, req(1L, 2L, 300, null)))
+                .isInstanceOf(InsufficientFundsException.class);
+        verifyNoInteractions(cardListingCache);
+    }
+
+    @Test
+    @DisplayName("initiate CONDITIONAL_UPDATE: 0 строк, чужая карта -> OwnershipViolation")
+    void initiate_conditional_rejected_notMyCards() {
+        Long me = 10L;
+        when(props.getEngine()).thenReturn(TransfersProperties.Engine.CONDITIONAL_UPDATE);
+        when(userRepository.findById(me)).thenReturn(Optional.of(user(me)));
+        when(ledgerStore.transferImmediate(anyLong(), anyLong(), anyLong(), anyLong(), any())).thenReturn(Optional.empty());
+        when(entityManager.find(eq(Card.class), eq(1L), anyMap()))
+                .thenReturn(card(1L, 99L, 1_000, CardStatus.ACTIVE, YearMonth.from(NOW.plusMonths(1)), "1111"));
+        when(entityManager.find(eq(Card.class), eq(2L), anyMap()))
+                .thenReturn(card(2L, 99L, 0, CardStatus.ACTIVE, YearMonth.from(NOW.plusMonths(1)), "2222"));
+
+        assertThatThrownBy(() -> service.initiate(me, req(1L, 2L, 300, null)))
+                .isInstanceOf(OwnershipViolationException.class);
+    }
+
+    @Test
+    @DisplayName("initiate CONDITIONAL_UPDATE: отложенный перевод идёт старым путём с блокировками")
+    void initiate_conditional_pendingUsesPessimisticPath() {
+        Long me = 10L;
+        when(props.getEngine()).thenReturn(TransfersProperties.Engine.CONDITIONAL_UPDATE);
+        when(props.getMaxTtlSeconds()).thenReturn(300);
+        when(userRepository.findById(me)).thenReturn(Optional.of(user(me)));
+        Card from = card(1L, me, 1_000, CardStatus.ACTIVE, YearMonth.from(NOW.plusMonths(1)), "1111");
+        Card to   = card(2L, me,   100, CardStatus.ACTIVE, YearMonth.from(NOW.plusMonths(1)), "2222");
+        when(entityManager.find(Card.class, 1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(from);
+        when(entityManager.find(Card.class, 2L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(to);
+        when(transferRepository.save(any(Transfer.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        TransferDto out = service.initiate(me, req(1L, 2L, 300, 60));
+
+        assertThat(out.getStatus()).isEqualTo(TransferStatus.PENDING);
+        verifyNoInteractions(ledgerStore);
+    }
+
+    @Test
+    @DisplayName("initiate OPTIMISTIC: карты читаются без блокировок, проверка версии остаётся за flush")
+    void initiate_optimistic_noLocks() {
+        Long me = 10L;
+        when(props.getEngine()).thenReturn(TransfersProperties.Engine.OPTIMISTIC);
+        when(userRepository.findById(me)).thenReturn(Optional.of(user(me)));
+        Card from = card(1L, me, 1_000, CardStatus.ACTIVE, YearMonth.from(NOW.plusMonths(1)), "1111");
+        Card to   = card(2L, me,   100, CardStatus.ACTIVE, YearMonth.from(NOW.plusMonths(1)), "2222");
+        when(entityManager.find(Card.class, 1L)).thenReturn(from);
+        when(entityManager.find(Card.class, 2L)).thenReturn(to);
+        when(transferRepository.save(any(Transfer.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        TransferDto out = service.initiate(me, req(1L, 2L, 300, null));
+
+        assertThat(out.getStatus()).isEqualTo(TransferStatus.COMPLETED);
+        assertThat(from.getBalance()).isEqualTo(700);
+        assertThat(to.getBalance()).isEqualTo(400);
+        verify(entityManager, never()).find(eq(Card.class), any(), any(LockModeType.class));
+    }
+
     @Test
     @DisplayName("cancel: ok -> перевод становится CANCELED, сохраняется, маппится")
     void cancel_ok() {
@@ -437,6 +484,58 @@ class TransferServiceImplTest {
                 .isInstanceOf(TransferNotFoundException.class);
     }
 
+    @Test
+    @DisplayName("requeue: QUARANTINED -> PENDING, счётчик попыток и ошибка сброшены")
+    void requeue_ok() {
+        Transfer t = new Transfer();
+        t.setId(310L);
+        t.setStatus(TransferStatus.QUARANTINED);
+        t.setAttemptCount(5);
+        t.setNextAttemptAt(NOW.plusMinutes(5));
+        t.setFailureCode("SCHEDULER_ERROR");
+        t.setFailureMessage("boom");
+
+        when(transferRepository.findById(310L)).thenReturn(Optional.of(t));
+        when(transferRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        try (MockedStatic<TransferMapper> tm = Mockito.mockStatic(TransferMapper.class)) {
+            tm.when(() -> TransferMapper.toDto(any(Transfer.class))).thenReturn(new TransferDto());
+
+            service.requeue(310L);
+
+            assertThat(t.getStatus()).isEqualTo(TransferStatus.PENDING);
+            assertThat(t.getAttemptCount()).isZero();
+            assertThat(t.getNextAttemptAt()).isNull();
+            assertThat(t.getFailureCode()).isNull();
+            assertThat(t.getFailureMessage()).isNull();
+            verify(transferRepository).save(t);
+        }
+    }
+
+    @Test
+    @DisplayName("requeue: статус != QUARANTINED -> TransferInvalidStateException")
+    void requeue_notQuarantined() {
+        Transfer t = new Transfer();
+        t.setId(311L);
+        t.setStatus(TransferStatus.PENDING);
+
+        when(transferRepository.findById(311L)).thenReturn(Optional.of(t));
+        assertThatThrownBy(() -> service.requeue(311L))
+                .isInstanceOf(TransferInvalidStateException.class);
+        verify(transferRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("listQuarantined: выбирает только QUARANTINED")
+    void listQuarantined_ok() {
+        when(transferRepository.findByStatus(eq(TransferStatus.QUARANTINED), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of()));
+
+        service.listQuarantined(0, 10);
+
+        verify(transferRepository).findByStatus(eq(TransferStatus.QUARANTINED), any(Pageable.class));
+    }
+
     @Test
     @DisplayName("listMy: строит Pageable (кламп размера), маппит Page -> PageDto")
     void listMy_ok() {
@@ -481,7 +580,7 @@ class TransferServiceImplTest {
              MockedStatic<TransferMapper> tm = Mockito.mockStatic(TransferMapper.class)) {
 
             tm.when(() -> TransferMapper.toDto(any(Transfer.class))).thenReturn(new TransferDto());
-            pm.when(() -> PageDtoMapper.toPageDto(eq(page), anyList())).thenReturn(dto);
+            pm.when(() -> PageDtoMapper.toPageDto(any(Page.class), anyList())).thenReturn(dto);
 
             PageDto<TransferDto> out = service.listAll(-1, 0);
             assertThat(out).isSameAs(dto);
@@ -0,0 +1,122 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.properties.TxRetryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TxRetryExecutorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TxRetryProperties props = new TxRetryProperties();
+    private TxRetryExecutor executor;
+
+    @BeforeEach
+    void setup() {
+        props.setMaxAttempts(3);
+        props.setInitialBackoff(Duration.ofMillis(1));
+        props.setMaxBackoff(Duration.ofMillis(2));
+        executor = new TxRetryExecutor(props, registry);
+    }
+
+    @Test
+    @DisplayName("execute: конфликт версий -> повтор, успех со второй попытки, метрики retries/recovered")
+    void retriesOptimisticConflict() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String out = executor.execute("op", () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new ObjectOptimisticLockingFailureException("Card", 1L);
+            }
+            return "ok";
+        });
+
+        assertThat(out).isEqualTo("ok");
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(registry.counter("tx.retry.retries", "operation", "op", "cause", "optimistic_lock").count()).isEqualTo(1.0);
+        assertThat(registry.counter("tx.retry.calls", "operation", "op", "outcome", "recovered").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("execute: бюджет попыток исчерпан -> исходное исключение, outcome=exhausted")
+    void exhaustsBudget() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> executor.execute("op", () -> {
+            calls.incrementAndGet();
+            throw new RuntimeException("wrapped", new OptimisticLockException("stale"));
+        })).hasCauseInstanceOf(OptimisticLockException.class);
+
+        assertThat(calls.get()).isEqualTo(3);
+        assertThat(registry.counter("tx.retry.calls", "operation", "op", "outcome", "exhausted").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("execute: SQLSTATE 40P01 (deadlock) в цепочке причин -> повтор с меткой sqlstate")
+    void retriesDeadlockBySqlState() {
+        AtomicInteger calls = new AtomicInteger();
+
+        Integer out = executor.execute("op", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new CannotAcquireLockException("lock", new SQLException("deadlock detected", "40P01"));
+            }
+            return 42;
+        });
+
+        assertThat(out).isEqualTo(42);
+        assertThat(registry.counter("tx.retry.retries", "operation", "op", "cause", "40P01").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("execute: вложенный вызов не запускает собственный цикл повторов")
+    void nestedCallRunsOnce() {
+        AtomicInteger inner = new AtomicInteger();
+
+        assertThatThrownBy(() -> executor.execute("outer", () -> executor.execute("inner", () -> {
+            inner.incrementAndGet();
+            throw new CannotAcquireLockException("lock", new SQLException("timeout", "55P03"));
+        }))).isInstanceOf(CannotAcquireLockException.class);
+
+        assertThat(inner.get()).isEqualTo(3); // только внешние 3 попытки, без 3x3
+        assertThat(registry.find("tx.retry.calls").tag("operation", "inner").counter()).isNull();
+    }
+
+    @Test
+    @DisplayName("execute: бюджет по времени исчерпан -> без повторов")
+    void stopsOnElapsedBudget() {
+        props.setMaxElapsed(Duration.ZERO);
+        props.setInitialBackoff(Duration.ofMillis(50));
+        props.setMaxBackoff(Duration.ofMillis(50));
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> executor.execute("op", () -> {
+            calls.incrementAndGet();
+            throw new CannotAcquireLockException("lock", new SQLException("timeout", "55P03"));
+        })).isInstanceOf(CannotAcquireLockException.class);
+
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("execute: непереносимое исключение не повторяется")
+    void doesNotRetryOtherErrors() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> executor.execute("op", () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(calls.get()).isEqualTo(1);
+    }
+}
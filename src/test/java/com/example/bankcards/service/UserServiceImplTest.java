@@ -1,7 +1,9 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.config.properties.ShardingProperties;
 import com.example.bankcards.config.properties.UsersProperties;
 import com.example.bankcards.dto.PageDto;
+import com.example.bankcards.dto.PasswordHashStatsDto;
 import com.example.bankcards.dto.UserDto;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.Role;
@@ -11,6 +13,7 @@ import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.mapper.PageDtoMapper;
 import com.example.bankcards.mapper.UserMapper;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.crypto.PasswordHashPolicy;
 import com.example.bankcards.service.impl.UserServiceImpl;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -18,6 +21,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.*;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.*;
 
@@ -31,6 +35,9 @@ class UserServiceImplTest {
     @Mock UsersProperties usersProps;
     @Mock UserRepository userRepository;
     @Mock org.springframework.security.crypto.password.PasswordEncoder passwordEncoder;
+    @Spy ShardRouter shardRouter = new ShardRouter(new ShardingProperties(), mock(PlatformTransactionManager.class));
+    @Spy PasswordHashPolicy hashPolicy = new PasswordHashPolicy("bcrypt", 12);
+    @Mock TokenRevocationService tokenRevocationService;
 
     @InjectMocks
     UserServiceImpl userService;
@@ -197,6 +204,7 @@ class UserServiceImplTest {
             ArgumentCaptor<User> captor = ArgumentCaptor.forClass(User.class);
             verify(userRepository).save(captor.capture());
             assertThat(captor.getValue().getRoles()).containsExactly(Role.ROLE_ADMIN);
+            verify(tokenRevocationService).revokeUser(3L);
         }
     }
 
@@ -214,6 +222,7 @@ class UserServiceImplTest {
         when(userRepository.findById(100L)).thenReturn(Optional.empty());
         assertThatThrownBy(() -> userService.updateRoles(100L, Set.of(Role.ROLE_USER)))
                 .isInstanceOf(UserNotFoundException.class);
+        verifyNoInteractions(tokenRevocationService);
     }
 
     @Test
@@ -222,6 +231,7 @@ class UserServiceImplTest {
         when(userRepository.existsById(7L)).thenReturn(true);
         userService.delete(7L);
         verify(userRepository).deleteById(7L);
+        verify(tokenRevocationService).revokeUser(7L);
     }
 
     @Test
@@ -263,7 +273,7 @@ class UserServiceImplTest {
 
             um.when(() -> UserMapper.toDto(content.get(0))).thenReturn(d1);
             um.when(() -> UserMapper.toDto(content.get(1))).thenReturn(d2);
-            pm.when(() -> PageDtoMapper.toPageDto(page, mapped)).thenReturn(pageDto);
+            pm.when(() -> PageDtoMapper.toPageDto(any(Page.class), eq(mapped))).thenReturn(pageDto);
 
             PageDto<UserDto> out = userService.list(0, 0, null);
             assertThat(out).isSameAs(pageDto);
@@ -295,7 +305,7 @@ class UserServiceImplTest {
         PageDto<UserDto> pageDto = new PageDto<>();
 
         try (MockedStatic<PageDtoMapper> pm = Mockito.mockStatic(PageDtoMapper.class)) {
-            pm.when(() -> PageDtoMapper.toPageDto(eq(page), anyList())).thenReturn(pageDto);
+            pm.when(() -> PageDtoMapper.toPageDto(any(Page.class), anyList())).thenReturn(pageDto);
 
             PageDto<UserDto> out = userService.list(1, 100, "  Ann  ");
             assertThat(out).isSameAs(pageDto);
@@ -322,4 +332,56 @@ class UserServiceImplTest {
         assertThat(userService.existsByUsername("   ")).isFalse();
         verifyNoInteractions(userRepository);
     }
+
+    @Test
+    @DisplayName("upgradePasswordHash: хэш в БД не менялся -> сохраняем новый")
+    void upgradePasswordHash_ok() {
+        User u = User.builder().id(3L).username("kate").password("$2a$10$old").build();
+        when(userRepository.findById(3L)).thenReturn(Optional.of(u));
+
+        userService.upgradePasswordHash(3L, "$2a$10$old", "{bcrypt}$2a$12$new");
+
+        assertThat(u.getPassword()).isEqualTo("{bcrypt}$2a$12$new");
+        verify(userRepository).save(u);
+    }
+
+    @Test
+    @DisplayName("upgradePasswordHash: пароль сменили параллельно -> не перезаписываем")
+    void upgradePasswordHash_changedConcurrently() {
+        User u = User.builder().id(3L).username("kate").password("{bcrypt}$2a$12$changed").build();
+        when(userRepository.findById(3L)).thenReturn(Optional.of(u));
+
+        userService.upgradePasswordHash(3L, "$2a$10$old", "{bcrypt}$2a$12$new");
+
+        assertThat(u.getPassword()).isEqualTo("{bcrypt}$2a$12$changed");
+        verify(userRepository, never()).save(any());
+    }
+
+    private static UserRepository.PasswordHashStats stats(String encodingId, Integer cost, long users) {
+        return new UserRepository.PasswordHashStats() {
+            public String getEncodingId() { return encodingId; }
+            public Integer getCost() { return cost; }
+            public Long getUsers() { return users; }
+        };
+    }
+
+    @Test
+    @DisplayName("passwordHashReport: старые без префикса и с меньшей стоимостью — outdated")
+    void passwordHashReport_marksOutdated() {
+        when(userRepository.passwordHashStats()).thenReturn(List.of(
+                stats("", 10, 7),
+                stats("bcrypt", 12, 20),
+                stats("bcrypt", 11, 2),
+                stats("pbkdf2", null, 1)));
+
+        List<PasswordHashStatsDto> out = userService.passwordHashReport();
+
+        assertThat(out).extracting(PasswordHashStatsDto::getAlgorithm, PasswordHashStatsDto::isPrefixed,
+                        PasswordHashStatsDto::getCost, PasswordHashStatsDto::getUsers, PasswordHashStatsDto::isOutdated)
+                .containsExactly(
+                        tuple("bcrypt", true, 12, 20L, false),
+                        tuple("bcrypt", false, 10, 7L, true),
+                        tuple("bcrypt", true, 11, 2L, true),
+                        tuple("pbkdf2", true, null, 1L, true));
+    }
 }